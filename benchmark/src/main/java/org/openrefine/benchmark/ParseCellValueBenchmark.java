@@ -0,0 +1,100 @@
+package org.openrefine.benchmark;
+
+import java.io.Serializable;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.CharMatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.refine.importers.ImporterUtilities;
+
+/**
+ * Compares the type guessing of {@link ImporterUtilities#parseCellValue(String)} to the former implementation, which
+ * relied on the exceptions thrown by {@link Long#parseLong(String)} and {@link Double#parseDouble(String)}.
+ */
+public class ParseCellValueBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ExecutionPlan {
+
+        @Param({ "text", "long", "double" })
+        public String kind;
+
+        String[] values = new String[1000];
+        Random rnd = new Random(42);
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            for (int i = 0; i < values.length; i++) {
+                switch (kind) {
+                    case "long":
+                        values[i] = Long.toString(rnd.nextInt(1000000));
+                        break;
+                    case "double":
+                        values[i] = Double.toString(rnd.nextDouble() * 10000);
+                        break;
+                    default:
+                        values[i] = "Value " + rnd.nextInt(1000000);
+                }
+            }
+        }
+    }
+
+    static Serializable parseCellValueWithExceptions(String text) {
+        if (text.length() > 0) {
+            String text2 = CharMatcher.whitespace().trimFrom(text);
+            if (text2.length() > 0) {
+                try {
+                    return Long.parseLong(text2);
+                } catch (NumberFormatException e) {
+                }
+
+                try {
+                    double d = Double.parseDouble(text2);
+                    if (!Double.isInfinite(d) && !Double.isNaN(d)) {
+                        return d;
+                    }
+                } catch (NumberFormatException e) {
+                }
+            }
+        }
+        return text;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+    @Fork(1)
+    public void parseCellValue(ExecutionPlan plan, Blackhole blackhole) {
+        for (String value : plan.values) {
+            blackhole.consume(ImporterUtilities.parseCellValue(value));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 5, time = 200, timeUnit = TimeUnit.MILLISECONDS)
+    @Fork(1)
+    public void parseCellValueWithExceptions(ExecutionPlan plan, Blackhole blackhole) {
+        for (String value : plan.values) {
+            blackhole.consume(parseCellValueWithExceptions(value));
+        }
+    }
+}
@@ -25,4 +25,9 @@ public class BeiderMorseKeyer extends Keyer {
         }
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 }
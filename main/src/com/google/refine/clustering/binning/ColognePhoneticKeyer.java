@@ -48,4 +48,9 @@ public class ColognePhoneticKeyer extends Keyer {
         return _codec.colognePhonetic(s);
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 }
@@ -12,4 +12,9 @@ public class DaitchMokotoffKeyer extends Keyer {
         return encoder.encode(string);
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 }
@@ -0,0 +1,38 @@
+package com.google.refine.commands;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import com.google.refine.ProjectManager;
+
+/**
+ * Reports how much memory the projects loaded in memory take, against the budget they are allowed.
+ */
+public class GetMemoryUsageCommand extends Command {
+
+    protected static class MemoryUsageResponse {
+
+        @JsonProperty("resident_projects")
+        public int residentProjects = ProjectManager.singleton.getResidentProjectCount();
+        @JsonProperty("estimated_projects_bytes")
+        public long estimatedProjectsBytes = ProjectManager.singleton.getEstimatedProjectsSize();
+        @JsonProperty("projects_budget_bytes")
+        public long projectsBudgetBytes = ProjectManager.singleton.getMemoryBudget();
+        @JsonProperty("evictions")
+        public long evictions = ProjectManager.singleton.getEvictionCount();
+        @JsonProperty("heap_used_bytes")
+        public long heapUsedBytes = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        @JsonProperty("heap_max_bytes")
+        public long heapMaxBytes = Runtime.getRuntime().maxMemory();
+    }
+
+    @Override
+    public void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+        respondJSON(response, new MemoryUsageResponse());
+    }
+}
@@ -45,6 +45,7 @@ import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.core.JsonProcessingException;
 
 import com.google.refine.browsing.Engine;
 import com.google.refine.browsing.Engine.Mode;
@@ -52,6 +53,7 @@ import com.google.refine.browsing.FilteredRecords;
 import com.google.refine.browsing.FilteredRows;
 import com.google.refine.browsing.RecordVisitor;
 import com.google.refine.browsing.RowVisitor;
+import com.google.refine.browsing.facets.FacetConfig;
 import com.google.refine.commands.Command;
 import com.google.refine.importing.ImportingJob;
 import com.google.refine.importing.ImportingManager;
@@ -59,9 +61,11 @@ import com.google.refine.model.Cell;
 import com.google.refine.model.Project;
 import com.google.refine.model.Record;
 import com.google.refine.model.Row;
+import com.google.refine.sorting.SortedPermutation;
 import com.google.refine.sorting.SortingConfig;
 import com.google.refine.sorting.SortingRecordVisitor;
 import com.google.refine.sorting.SortingRowVisitor;
+import com.google.refine.util.ParsingUtilities;
 import com.google.refine.util.Pool;
 
 /**
@@ -233,30 +237,62 @@ public class GetRowsCommand extends Command {
 
             if (engine.getMode() == Mode.RowBased) {
                 FilteredRows filteredRows = engine.getAllFilteredRows();
-                RowVisitor visitor = rwv;
+                SortingRowVisitor srv = null;
 
                 if (sortingConfig != null) {
-                    SortingRowVisitor srv = new SortingRowVisitor(visitor);
+                    srv = new SortingRowVisitor(rwv);
 
                     srv.initializeFromConfig(project, sortingConfig);
-                    if (srv.hasCriteria()) {
-                        visitor = srv;
+                    if (!srv.hasCriteria()) {
+                        srv = null;
                     }
                 }
-                filteredRows.accept(project, visitor);
+                if (srv == null) {
+                    filteredRows.accept(project, rwv);
+                } else {
+                    String key = getSortingKey(engine, sortingConfig);
+                    SortedPermutation permutation = key == null ? null : project.sortedPermutationCache.get(project, key);
+                    if (covers(permutation, start, end, limit)) {
+                        visitPage(project, engine.getMode(), permutation, rwv, start, end, limit);
+                    } else {
+                        srv.setLimit(getSortingLimit(start, end, limit));
+                        filteredRows.accept(project, srv);
+                        permutation = srv.getPermutation();
+                        if (key != null) {
+                            project.sortedPermutationCache.put(project, key, project.columnModel.columns, permutation);
+                        }
+                    }
+                    rwv.total = permutation.getCount();
+                }
             } else {
                 FilteredRecords filteredRecords = engine.getFilteredRecords();
-                RecordVisitor visitor = rwv;
+                SortingRecordVisitor srv = null;
 
                 if (sortingConfig != null) {
-                    SortingRecordVisitor srv = new SortingRecordVisitor(visitor);
+                    srv = new SortingRecordVisitor(rwv);
 
                     srv.initializeFromConfig(project, sortingConfig);
-                    if (srv.hasCriteria()) {
-                        visitor = srv;
+                    if (!srv.hasCriteria()) {
+                        srv = null;
+                    }
+                }
+                if (srv == null) {
+                    filteredRecords.accept(project, rwv);
+                } else {
+                    String key = getSortingKey(engine, sortingConfig);
+                    SortedPermutation permutation = key == null ? null : project.sortedPermutationCache.get(project, key);
+                    if (covers(permutation, start, end, limit)) {
+                        visitPage(project, engine.getMode(), permutation, rwv, start, end, limit);
+                    } else {
+                        srv.setLimit(getSortingLimit(start, end, limit));
+                        filteredRecords.accept(project, srv);
+                        permutation = srv.getPermutation();
+                        if (key != null) {
+                            project.sortedPermutationCache.put(project, key, project.columnModel.columns, permutation);
+                        }
                     }
+                    rwv.total = permutation.getCount();
                 }
-                filteredRecords.accept(project, visitor);
             }
 
             // Pool all the recons occurring in the rows seen
@@ -303,6 +339,70 @@ public class GetRowsCommand extends Command {
         }
     }
 
+    /**
+     * The sorted order of the rows depends on the filters of the engine as well as on the sorting criteria. Returns
+     * null when the order cannot be cached, as the rows matched by a facet which is not {@link FacetConfig#isPure()
+     * pure} can change without the project being modified.
+     */
+    protected String getSortingKey(Engine engine, SortingConfig sortingConfig) throws JsonProcessingException {
+        for (FacetConfig facetConfig : engine.getConfig().getFacetConfigs()) {
+            if (!facetConfig.isPure()) {
+                return null;
+            }
+        }
+        return ParsingUtilities.mapper.writeValueAsString(engine.getConfig()) + ":"
+                + ParsingUtilities.mapper.writeValueAsString(sortingConfig);
+    }
+
+    /**
+     * Number of rows or records to sort, when they are not all needed to serve the requested page. Twice as many as
+     * needed are sorted so that the next pages can be served from the cached order.
+     */
+    protected int getSortingLimit(int start, int end, int limit) {
+        long needed = start != -1 ? (long) start + limit : end;
+        return (int) Math.min(Integer.MAX_VALUE, 2 * needed);
+    }
+
+    /**
+     * Whether the rows or records of the requested page are known in the given sorted order. Each of them spans at
+     * least one row, so the page ends at a position before the row index it is requested from or to.
+     */
+    protected boolean covers(SortedPermutation permutation, int start, int end, int limit) {
+        if (permutation == null) {
+            return false;
+        }
+        long needed = start != -1 ? (long) start + limit : end;
+        return permutation.isComplete() || permutation.size() >= needed;
+    }
+
+    /**
+     * Visits the rows or records of the requested page, in an order computed by a previous request.
+     */
+    protected void visitPage(Project project, Mode mode, SortedPermutation permutation, RowWritingVisitor rwv, int start, int end,
+            int limit) {
+        int from;
+        int to;
+        if (start != -1) {
+            from = permutation.getPosition(start);
+            to = (int) Math.min(permutation.size(), (long) from + limit);
+        } else {
+            to = permutation.getPosition(end);
+            from = Math.max(0, to - limit);
+        }
+
+        rwv.start(project);
+        for (int position = from; position < to; position++) {
+            int index = permutation.getIndex(position);
+            int sortedRowIndex = permutation.getSortedRowIndex(position);
+            if (mode == Mode.RecordBased) {
+                rwv.visit(project, sortedRowIndex, project.recordModel.getRecord(index));
+            } else {
+                rwv.visit(project, index, sortedRowIndex, project.rows.get(index));
+            }
+        }
+        rwv.end(project);
+    }
+
     static protected class RowWritingVisitor implements RowVisitor, RecordVisitor {
 
         final int start;
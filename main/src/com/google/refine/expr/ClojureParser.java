@@ -97,4 +97,11 @@ public class ClojureParser implements LanguageSpecificParser {
             throw new ParsingException(e.getMessage());
         }
     }
+
+    @Override
+    public boolean isCacheable() {
+        // this avoids compiling a new class for each parse: expressions are still evaluated sequentially, as they can
+        // have side effects in the shared namespace
+        return true;
+    }
 }
@@ -0,0 +1,263 @@
+package com.google.refine.importers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import com.univocity.parsers.common.AbstractParser;
+import com.univocity.parsers.common.record.Record;
+import org.apache.commons.io.input.SequenceReader;
+
+/**
+ * Parses the records of a separator-based file on several threads. The text is read in chunks which end at record
+ * boundaries, each chunk is parsed by its own parser on a worker thread, and the records of the chunks are returned in
+ * the order of the file.
+ * <p>
+ * A line break is only a record boundary when it is not inside a quoted value. A value is quoted when its first
+ * character is a quote, while quotes elsewhere in unquoted values are kept as they are, so that in {@code ab"c,"d} only
+ * the second quote opens a value. Once a line break within a quoted value is met, or text following the closing quote
+ * of a value, the rest of the file is parsed sequentially by a single parser, after the chunks which were already
+ * submitted. This assumes that quotes are escaped by doubling them.
+ * <p>
+ * The number of threads can be set with the {@link #PARALLELISM_PROPERTY} system property, which defaults to the number
+ * of available processors. Setting it to 1 disables parallel parsing.
+ */
+class ChunkedRecordParser implements Closeable {
+
+    static final String PARALLELISM_PROPERTY = "refine.importer.parallelism";
+
+    static int parallelism = Math.max(1,
+            Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()));
+
+    // number of characters read before looking for the end of a chunk
+    static int chunkSize = 4 * 1024 * 1024;
+
+    static private class ExecutorHolder {
+
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "separator-based-importer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * The records of a chunk, up to the error which stopped its parsing if any.
+     */
+    static private class Chunk {
+
+        final List<String[]> records = new ArrayList<>();
+        RuntimeException error;
+    }
+
+    final private Reader _reader;
+    final private Supplier<AbstractParser<?>> _parserFactory;
+    final private boolean _quoted;
+    final private char _quote;
+    final private char _separator;
+
+    final private Deque<Future<Chunk>> _submitted = new ArrayDeque<>();
+    final private char[] _buffer = new char[8192];
+    // text read but not submitted yet, the start of which is a record boundary
+    final private StringBuilder _text = new StringBuilder();
+    private int _scanned = 0;
+    private int _lastBoundary = 0;
+    // where the last scanned character stands within the values of a record
+    private boolean _valueStart = true;
+    private boolean _inQuotes = false;
+    // the last scanned character is a quote within a quoted value, which either closes it or escapes a quote
+    private boolean _quoteInQuotes = false;
+    private boolean _endOfFile = false;
+    private boolean _sequential = false;
+
+    private Chunk _chunk;
+    private int _nextRecord;
+    private AbstractParser<?> _sequentialParser;
+
+    /**
+     * @param reader
+     *            the text to parse
+     * @param parserFactory
+     *            creates parsers which are all configured the same way
+     * @param quote
+     *            the quote character of the format, or null if it has none
+     * @param separator
+     *            the character separating the values of a record
+     */
+    ChunkedRecordParser(Reader reader, Supplier<AbstractParser<?>> parserFactory, Character quote, char separator) {
+        _reader = reader;
+        _parserFactory = parserFactory;
+        _quoted = quote != null;
+        _quote = quote != null ? quote : 0;
+        _separator = separator;
+    }
+
+    static boolean isEnabled() {
+        return parallelism > 1;
+    }
+
+    /**
+     * @return the values of the next record, or null at the end of the file
+     */
+    String[] parseNextRecord() throws IOException {
+        while (true) {
+            if (_chunk != null) {
+                if (_nextRecord < _chunk.records.size()) {
+                    return _chunk.records.get(_nextRecord++);
+                }
+                RuntimeException error = _chunk.error;
+                _chunk = null;
+                if (error != null) {
+                    throw error;
+                }
+            }
+
+            submitChunks();
+            if (!_submitted.isEmpty()) {
+                _chunk = waitFor(_submitted.poll());
+                _nextRecord = 0;
+                continue;
+            }
+
+            if (_sequential) {
+                if (_sequentialParser == null) {
+                    _sequentialParser = _parserFactory.get();
+                    _sequentialParser.beginParsing(new SequenceReader(new StringReader(_text.toString()), _reader));
+                    _text.setLength(0);
+                }
+                Record record = _sequentialParser.parseNextRecord();
+                return record != null ? record.getValues() : null;
+            }
+            return null;
+        }
+    }
+
+    private void submitChunks() throws IOException {
+        while (_submitted.size() < parallelism * 2 && !_endOfFile && !_sequential) {
+            String text = readChunk();
+            if (text != null) {
+                _submitted.add(ExecutorHolder.EXECUTOR.submit(() -> parse(text)));
+            }
+        }
+    }
+
+    /**
+     * Reads text up to a record boundary, once at least {@link #chunkSize} characters are available.
+     *
+     * @return the text of the chunk, or null if there is none
+     */
+    private String readChunk() throws IOException {
+        while (true) {
+            while (_scanned < _text.length()) {
+                char c = _text.charAt(_scanned++);
+                if (_quoteInQuotes) {
+                    _quoteInQuotes = false;
+                    if (c == _quote) {
+                        // an escaped quote
+                        continue;
+                    }
+                    _inQuotes = false;
+                    if (c != _separator && c != '\n' && c != '\r') {
+                        // text after the closing quote, which is left to a single parser
+                        _sequential = true;
+                        return takeChunk();
+                    }
+                }
+                if (_inQuotes) {
+                    if (c == _quote) {
+                        _quoteInQuotes = true;
+                    } else if (c == '\n') {
+                        // a quoted value spanning several lines
+                        _sequential = true;
+                        return takeChunk();
+                    }
+                } else if (c == '\n') {
+                    _lastBoundary = _scanned;
+                    _valueStart = true;
+                } else if (_quoted && c == _quote && _valueStart) {
+                    _inQuotes = true;
+                    _valueStart = false;
+                } else {
+                    _valueStart = c == _separator;
+                }
+            }
+
+            if (_text.length() >= chunkSize) {
+                if (_lastBoundary == 0) {
+                    // no line break, as in a huge record or with other line separators
+                    _sequential = true;
+                }
+                return takeChunk();
+            }
+
+            int count = _reader.read(_buffer);
+            if (count < 0) {
+                _endOfFile = true;
+                String text = _text.toString();
+                _text.setLength(0);
+                return text.isEmpty() ? null : text;
+            }
+            _text.append(_buffer, 0, count);
+        }
+    }
+
+    private String takeChunk() {
+        if (_lastBoundary == 0) {
+            return null;
+        }
+        String text = _text.substring(0, _lastBoundary);
+        _text.delete(0, _lastBoundary);
+        _scanned -= _lastBoundary;
+        _lastBoundary = 0;
+        return text;
+    }
+
+    private Chunk parse(String text) {
+        Chunk chunk = new Chunk();
+        AbstractParser<?> parser = _parserFactory.get();
+        try {
+            parser.beginParsing(new StringReader(text));
+            Record record;
+            while ((record = parser.parseNextRecord()) != null) {
+                chunk.records.add(record.getValues());
+            }
+        } catch (RuntimeException e) {
+            chunk.error = e;
+        } finally {
+            parser.stopParsing();
+        }
+        return chunk;
+    }
+
+    private Chunk waitFor(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Future<Chunk> future : _submitted) {
+            future.cancel(true);
+        }
+        _submitted.clear();
+        if (_sequentialParser != null) {
+            _sequentialParser.stopParsing();
+        }
+    }
+}
@@ -40,13 +40,13 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.apache.poi.ooxml.POIXMLException;
-import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
 import org.apache.poi.poifs.filesystem.FileMagic;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.formula.ConditionalFormattingEvaluator;
@@ -56,7 +56,6 @@ import org.apache.poi.ss.usermodel.DateUtil;
 import org.apache.poi.ss.usermodel.ExcelNumberFormat;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -94,9 +93,20 @@ public class ExcelImporter extends TabularImportingParserBase {
                 ObjectNode fileRecord = fileRecords.get(index);
                 File file = ImportingUtilities.getFile(job, fileRecord);
 
+                if (FileMagic.valueOf(file) == FileMagic.OOXML) {
+                    try (XlsxWorkbookReader xlsx = new XlsxWorkbookReader(file)) {
+                        List<String> sheetNames = xlsx.getSheetNames();
+                        for (int i = 0; i < sheetNames.size(); i++) {
+                            JSONUtilities.append(sheetRecords,
+                                    createSheetRecord(file, i, sheetNames.get(i), xlsx.countRows(i)));
+                        }
+                    }
+                    continue;
+                }
+
                 Workbook wb = null;
                 try {
-                    wb = FileMagic.valueOf(file) == FileMagic.OOXML ? new XSSFWorkbook(file) : new HSSFWorkbook(new POIFSFileSystem(file));
+                    wb = new HSSFWorkbook(new POIFSFileSystem(file));
                     // TODO: Implement support for conditional formatting so that cells are rendered the same as in
                     // Excel
 //                    cfEvaluator = new ConditionalFormattingEvaluator(wb,)
@@ -105,16 +115,7 @@ public class ExcelImporter extends TabularImportingParserBase {
                         Sheet sheet = wb.getSheetAt(i);
                         int rows = sheet.getLastRowNum() - sheet.getFirstRowNum() + 1;
 
-                        ObjectNode sheetRecord = ParsingUtilities.mapper.createObjectNode();
-                        JSONUtilities.safePut(sheetRecord, "name", file.getName() + "#" + sheet.getSheetName());
-                        JSONUtilities.safePut(sheetRecord, "fileNameAndSheetIndex", file.getName() + "#" + i);
-                        JSONUtilities.safePut(sheetRecord, "rows", rows);
-                        if (rows > 1) {
-                            JSONUtilities.safePut(sheetRecord, "selected", true);
-                        } else {
-                            JSONUtilities.safePut(sheetRecord, "selected", false);
-                        }
-                        JSONUtilities.append(sheetRecords, sheetRecord);
+                        JSONUtilities.append(sheetRecords, createSheetRecord(file, i, sheet.getSheetName(), rows));
                     }
                 } finally {
                     if (wb != null) {
@@ -128,7 +129,7 @@ public class ExcelImporter extends TabularImportingParserBase {
         } catch (IllegalArgumentException e) {
             JSONUtilities.safePut(options, "error", e.toString());
             logger.error("Error generating parser UI initialization data for Excel file (only Excel 97 & later supported)", e);
-        } catch (POIXMLException | InvalidFormatException e) {
+        } catch (POIXMLException e) {
             JSONUtilities.safePut(options, "error", e.toString());
             logger.error("Error generating parser UI initialization data for Excel file - invalid XML", e);
         }
@@ -136,6 +137,19 @@ public class ExcelImporter extends TabularImportingParserBase {
         return options;
     }
 
+    static private ObjectNode createSheetRecord(File file, int index, String sheetName, int rows) {
+        ObjectNode sheetRecord = ParsingUtilities.mapper.createObjectNode();
+        JSONUtilities.safePut(sheetRecord, "name", file.getName() + "#" + sheetName);
+        JSONUtilities.safePut(sheetRecord, "fileNameAndSheetIndex", file.getName() + "#" + index);
+        JSONUtilities.safePut(sheetRecord, "rows", rows);
+        if (rows > 1) {
+            JSONUtilities.safePut(sheetRecord, "selected", true);
+        } else {
+            JSONUtilities.safePut(sheetRecord, "selected", false);
+        }
+        return sheetRecord;
+    }
+
     @Override
     public void parseOneFile(
             Project project,
@@ -146,14 +160,18 @@ public class ExcelImporter extends TabularImportingParserBase {
             int limit,
             ObjectNode options,
             List<Exception> exceptions) {
-        Workbook wb;
+        Workbook wb = null;
+        XlsxWorkbookReader xlsx = null;
         if (!inputStream.markSupported()) {
             inputStream = new BufferedInputStream(inputStream);
         }
 
         try {
-            wb = FileMagic.valueOf(inputStream) == FileMagic.OOXML ? new XSSFWorkbook(inputStream)
-                    : new HSSFWorkbook(new POIFSFileSystem(inputStream));
+            if (FileMagic.valueOf(inputStream) == FileMagic.OOXML) {
+                xlsx = XlsxWorkbookReader.open(inputStream);
+            } else {
+                wb = new HSSFWorkbook(new POIFSFileSystem(inputStream));
+            }
         } catch (IOException e) {
             exceptions.add(new ImportException(
                     "Attempted to parse as an Excel file but failed. " +
@@ -183,6 +201,29 @@ public class ExcelImporter extends TabularImportingParserBase {
             return;
         }
 
+        try {
+            readSheets(project, metadata, job, fileSource, wb, xlsx, limit, options, exceptions);
+        } finally {
+            if (xlsx != null) {
+                try {
+                    xlsx.close();
+                } catch (IOException e) {
+                    logger.warn("Could not close Excel file " + fileSource, e);
+                }
+            }
+        }
+    }
+
+    private void readSheets(
+            Project project,
+            ProjectMetadata metadata,
+            ImportingJob job,
+            String fileSource,
+            Workbook wb,
+            XlsxWorkbookReader xlsx,
+            int limit,
+            ObjectNode options,
+            List<Exception> exceptions) {
         final boolean forceText;
         if (options.get("forceText") != null) {
             forceText = options.get("forceText").asBoolean(false);
@@ -200,7 +241,27 @@ public class ExcelImporter extends TabularImportingParserBase {
             if (!fileNameAndSheetIndex[0].equals(fileSource))
                 continue;
 
-            final Sheet sheet = wb.getSheetAt(Integer.parseInt(fileNameAndSheetIndex[1]));
+            int sheetIndex = Integer.parseInt(fileNameAndSheetIndex[1]);
+            if (xlsx != null) {
+                // OOXML sheets are streamed, so that only the rows needed are parsed
+                try (XlsxWorkbookReader.SheetReader dataReader = xlsx.openSheet(sheetIndex, forceText)) {
+                    String sheetName = xlsx.getSheetNames().get(sheetIndex);
+                    TabularImportingParserBase.readTable(
+                            project,
+                            metadata,
+                            job,
+                            dataReader,
+                            fileSource + "#" + sheetName,
+                            limit,
+                            options,
+                            exceptions);
+                } catch (IOException e) {
+                    exceptions.add(e);
+                }
+                continue;
+            }
+
+            final Sheet sheet = wb.getSheetAt(sheetIndex);
             final int lastRow = sheet.getLastRowNum();
 
             TableDataReader dataReader = new TableDataReader() {
@@ -267,36 +328,8 @@ public class ExcelImporter extends TabularImportingParserBase {
         if (cellType.equals(CellType.BOOLEAN)) {
             value = cell.getBooleanCellValue();
         } else if (cellType.equals(CellType.NUMERIC)) {
-            double d = cell.getNumericCellValue();
-            ExcelNumberFormat nf = ExcelNumberFormat.from(cell, null);
-            if (DateUtil.isCellDateFormatted(cell)) { // This checks range as well as format, so is more comprehensive
-                // Excel supports dates, times, intervals (via format strings), but we only have a datetime type
-                // all unsupported types (ie if it doesn't have both date & time components in the format string)
-                // are rendered to text and imported as strings
-                if (!isDatetimeFormat(nf)) {
-                    value = dataFormatter.formatCellValue(cell);
-                } else {
-                    value = ParsingUtilities.toDate(DateUtil.getJavaDate(d));
-                }
-            } else {
-                String format = nf.getFormat();
-                if ("General".equals(format)) {
-                    if (d % 1.0 == 0) {
-                        value = (long) d;
-                    } else {
-                        value = d;
-                    }
-                } else if (isNumberFormat(nf)) {
-                    if (format.contains(".")) { // if it's formatted with a decimal separator, always import as float
-                        value = d;
-                    } else {
-                        value = (long) d; // we could be losing a fractional piece here, but it's not visible in Excel
-                    }
-                } else {
-                    // Anything except a pure number (e.g. telephone #, postal code, SSN, etc) gets imported as string
-                    value = dataFormatter.formatCellValue(cell);
-                }
-            }
+            value = extractNumericValue(cell.getNumericCellValue(), ExcelNumberFormat.from(cell, null),
+                    DateUtil.isCellDateFormatted(cell), () -> dataFormatter.formatCellValue(cell));
         } else {
             String text = cell.getStringCellValue();
             if (text.length() > 0) {
@@ -307,6 +340,46 @@ public class ExcelImporter extends TabularImportingParserBase {
         return new Cell(value, null);
     }
 
+    /**
+     * Converts a numeric cell value according to its number format.
+     *
+     * @param dateFormatted
+     *            whether the value is a valid date with a date format
+     * @param formattedValue
+     *            renders the value as text with its format
+     */
+    static Serializable extractNumericValue(double d, ExcelNumberFormat nf, boolean dateFormatted,
+            Supplier<String> formattedValue) {
+        if (dateFormatted) { // This checks range as well as format, so is more comprehensive
+            // Excel supports dates, times, intervals (via format strings), but we only have a datetime type
+            // all unsupported types (ie if it doesn't have both date & time components in the format string)
+            // are rendered to text and imported as strings
+            if (!isDatetimeFormat(nf)) {
+                return formattedValue.get();
+            } else {
+                return ParsingUtilities.toDate(DateUtil.getJavaDate(d));
+            }
+        } else {
+            String format = nf.getFormat();
+            if ("General".equals(format)) {
+                if (d % 1.0 == 0) {
+                    return (long) d;
+                } else {
+                    return d;
+                }
+            } else if (isNumberFormat(nf)) {
+                if (format.contains(".")) { // if it's formatted with a decimal separator, always import as float
+                    return d;
+                } else {
+                    return (long) d; // we could be losing a fractional piece here, but it's not visible in Excel
+                }
+            } else {
+                // Anything except a pure number (e.g. telephone #, postal code, SSN, etc) gets imported as string
+                return formattedValue.get();
+            }
+        }
+    }
+
     /**
      * Checks whether a cell format is a datetime format compatible with Refine.
      *
@@ -33,72 +33,273 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.importers;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 
+import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.marc4j.MarcException;
 import org.marc4j.MarcPermissiveStreamReader;
-import org.marc4j.MarcWriter;
-import org.marc4j.MarcXmlWriter;
+import org.marc4j.MarcReader;
+import org.marc4j.marc.ControlField;
+import org.marc4j.marc.DataField;
 import org.marc4j.marc.Record;
+import org.marc4j.marc.Subfield;
 
+import com.google.refine.ProjectMetadata;
+import com.google.refine.importers.tree.ImportColumnGroup;
+import com.google.refine.importers.tree.TreeReader;
+import com.google.refine.importers.tree.TreeReader.Token;
+import com.google.refine.importers.tree.TreeReaderException;
 import com.google.refine.importing.ImportingJob;
-import com.google.refine.importing.ImportingUtilities;
+import com.google.refine.model.Project;
 import com.google.refine.util.JSONUtilities;
+import com.google.refine.util.ParsingUtilities;
 
+/**
+ * Imports binary MARC records. The records are read as the tree of elements of their MARCXML form, so that the record
+ * path and the columns are the same as when importing MARCXML, but they are not written to XML and parsed again. Files
+ * which already hold MARCXML are imported as XML.
+ */
 public class MarcImporter extends XmlImporter {
 
+    static final String MARC_PREFIX = "marc";
+    static final String MARC_NAMESPACE = "http://www.loc.gov/MARC21/slim";
+
     public MarcImporter() {
         super();
     }
 
     @Override
-    public ObjectNode createParserUIInitializationData(ImportingJob job, List<ObjectNode> fileRecords, String format) {
-        if (fileRecords.size() > 0) {
-            ObjectNode firstFileRecord = fileRecords.get(0);
-            File file = ImportingUtilities.getFile(job, firstFileRecord);
-            File tempFile = new File(file.getAbsolutePath() + ".xml");
+    protected void putPreviewDom(InputStream inputStream, ObjectNode options) throws IOException {
+        PushbackInputStream input = new PushbackInputStream(inputStream);
+        if (startsWithXml(input)) {
+            super.putPreviewDom(input, options);
+            return;
+        }
 
-            try {
-                InputStream inputStream = new FileInputStream(file);
-                OutputStream outputStream = new FileOutputStream(tempFile);
-                try {
-                    MarcWriter writer = new MarcXmlWriter(outputStream, true);
-
-                    MarcPermissiveStreamReader reader = new MarcPermissiveStreamReader(
-                            inputStream, true, true);
-                    while (reader.hasNext()) {
-                        Record record = reader.next();
-                        writer.write(record);
+        MarcTreeReader reader = new MarcTreeReader(input);
+        Deque<ObjectNode> elements = new ArrayDeque<>();
+        int tokenCount = 0;
+        try {
+            while (reader.hasNext() && tokenCount++ < PREVIEW_PARSING_LIMIT) {
+                Token token = reader.next();
+                if (token == Token.StartEntity) {
+                    ObjectNode element = ParsingUtilities.mapper.createObjectNode();
+                    JSONUtilities.safePut(element, "n", reader.getFieldName());
+                    JSONUtilities.safePut(element, "p", MARC_PREFIX);
+                    JSONUtilities.safePut(element, "uri", MARC_NAMESPACE);
+                    if (reader.getAttributeCount() > 0) {
+                        ArrayNode attributes = element.putArray("a");
+                        for (int i = 0; i < reader.getAttributeCount(); i++) {
+                            ObjectNode attribute = attributes.addObject();
+                            JSONUtilities.safePut(attribute, "n", reader.getAttributeLocalName(i));
+                            JSONUtilities.safePut(attribute, "v", reader.getAttributeValue(i));
+                        }
                     }
-                    writer.close();
-                } finally {
-                    try {
-                        outputStream.close();
-                        inputStream.close();
-
-                        if (tempFile.length() == 0) // write failed. Most of time because of wrong Marc format
-                            tempFile.delete();
-                        else // only set json if write the temp file successfully:
-                            JSONUtilities.safePut(firstFileRecord, "location",
-                                    JSONUtilities.getString(firstFileRecord, "location", "") + ".xml");
-
-//                        file.delete(); // get rid of our original file
-                    } catch (IOException e) {
-                        // Just ignore - not much we can do anyway
+
+                    if (elements.isEmpty()) {
+                        ObjectNode namespace = element.putArray("ns").addObject();
+                        JSONUtilities.safePut(namespace, "p", MARC_PREFIX);
+                        JSONUtilities.safePut(namespace, "uri", MARC_NAMESPACE);
+                        JSONUtilities.safePut(options, "dom", element);
+                    } else {
+                        getChildren(elements.peek()).add(element);
                     }
+                    elements.push(element);
+                } else if (token == Token.Value) {
+                    JSONUtilities.safePut(getChildren(elements.peek()).addObject(), "t", reader.getFieldValue());
+                } else if (token == Token.EndEntity) {
+                    elements.pop();
                 }
-            } catch (IOException e) {
-                logger.error("Failed to create temporary XML file from MARC file", e);
             }
+        } catch (TreeReaderException e) {
+            JSONUtilities.safePut(options, "error", e.toString());
+            logger.error("Error generating parser UI initialization data for MARC file", e);
+        }
+    }
+
+    static private ArrayNode getChildren(ObjectNode element) {
+        return element.has("c") ? (ArrayNode) element.get("c") : element.putArray("c");
+    }
+
+    @Override
+    public void parseOneFile(Project project, ProjectMetadata metadata,
+            ImportingJob job, String fileSource, InputStream inputStream,
+            ImportColumnGroup rootColumnGroup, int limit, ObjectNode options,
+            List<Exception> exceptions) {
+
+        try {
+            PushbackInputStream input = new PushbackInputStream(inputStream);
+            if (startsWithXml(input)) {
+                super.parseOneFile(project, metadata, job, fileSource, input, rootColumnGroup, limit, options, exceptions);
+            } else {
+                parseOneFile(project, metadata, job, fileSource,
+                        new MarcTreeReader(input), rootColumnGroup, limit, options, exceptions);
+            }
+        } catch (IOException e) {
+            exceptions.add(e);
+        }
+    }
+
+    /**
+     * Skips the leading whitespace of the stream and tells whether it is followed by XML rather than by a MARC record,
+     * which starts with its length.
+     */
+    static private boolean startsWithXml(PushbackInputStream input) throws IOException {
+        int b;
+        do {
+            b = input.read();
+        } while (b >= 0 && Character.isWhitespace(b));
+        if (b >= 0) {
+            input.unread(b);
+        }
+        return b == '<';
+    }
+
+    /**
+     * Reads MARC records as the elements of their MARCXML form: a marc:collection element holds a marc:record element
+     * for each record, which holds its marc:leader, marc:controlfield and marc:datafield elements. The elements of one
+     * record are queued when the previous record has been read.
+     */
+    static public class MarcTreeReader implements TreeReader {
+
+        static private class Event {
+
+            final Token token;
+            final String name;
+            final String value;
+            // names and values of the attributes, alternately
+            final String[] attributes;
+
+            Event(Token token, String name, String value, String... attributes) {
+                this.token = token;
+                this.name = name;
+                this.value = value;
+                this.attributes = attributes;
+            }
+        }
+
+        final protected MarcReader reader;
+        final private Deque<Event> events = new ArrayDeque<>();
+        private Event current;
+        private boolean endOfCollection = false;
+
+        public MarcTreeReader(InputStream inputStream) {
+            this(new MarcPermissiveStreamReader(inputStream, true, true));
+        }
+
+        public MarcTreeReader(MarcReader reader) {
+            this.reader = reader;
+            events.add(new Event(Token.StartEntity, "collection", null));
         }
-        ObjectNode options = super.createParserUIInitializationData(job, fileRecords, format);
-        return options;
-    };
 
+        private void readRecord() throws TreeReaderException {
+            if (!events.isEmpty() || endOfCollection) {
+                return;
+            }
+            try {
+                if (!reader.hasNext()) {
+                    events.add(new Event(Token.EndEntity, "collection", null));
+                    endOfCollection = true;
+                    return;
+                }
+                Record record = reader.next();
+                if (record.getType() != null) {
+                    events.add(new Event(Token.StartEntity, "record", null, "type", record.getType()));
+                } else {
+                    events.add(new Event(Token.StartEntity, "record", null));
+                }
+                addElement("leader", record.getLeader().toString());
+                for (ControlField controlField : record.getControlFields()) {
+                    addElement("controlfield", controlField.getData(), "tag", controlField.getTag());
+                }
+                for (DataField dataField : record.getDataFields()) {
+                    events.add(new Event(Token.StartEntity, "datafield", null, "tag", dataField.getTag(),
+                            "ind1", String.valueOf(dataField.getIndicator1()), "ind2", String.valueOf(dataField.getIndicator2())));
+                    for (Subfield subfield : dataField.getSubfields()) {
+                        addElement("subfield", subfield.getData(), "code", String.valueOf(subfield.getCode()));
+                    }
+                    events.add(new Event(Token.EndEntity, "datafield", null));
+                }
+                events.add(new Event(Token.EndEntity, "record", null));
+            } catch (MarcException e) {
+                throw new TreeReaderException(e);
+            }
+        }
+
+        private void addElement(String name, String value, String... attributes) {
+            events.add(new Event(Token.StartEntity, name, null, attributes));
+            if (value != null && !value.isEmpty()) {
+                events.add(new Event(Token.Value, null, value));
+            }
+            events.add(new Event(Token.EndEntity, name, null));
+        }
+
+        @Override
+        public Token current() {
+            return current != null ? current.token : Token.Ignorable;
+        }
+
+        @Override
+        public boolean hasNext() throws TreeReaderException {
+            readRecord();
+            return !events.isEmpty();
+        }
+
+        @Override
+        public Token next() throws TreeReaderException {
+            readRecord();
+            if (events.isEmpty()) {
+                throw new TreeReaderException("End of MARC stream");
+            }
+            current = events.poll();
+            return current.token;
+        }
+
+        @Override
+        public String getFieldName() {
+            return current != null ? current.name : null;
+        }
+
+        @Override
+        public String getPrefix() {
+            return current != null && current.name != null ? MARC_PREFIX : null;
+        }
+
+        @Override
+        public String getFieldValue() {
+            return current != null ? current.value : null;
+        }
+
+        @Override
+        public Serializable getValue() {
+            return getFieldValue();
+        }
+
+        @Override
+        public int getAttributeCount() {
+            return current != null ? current.attributes.length / 2 : 0;
+        }
+
+        @Override
+        public String getAttributeValue(int index) {
+            return current.attributes[2 * index + 1];
+        }
+
+        @Override
+        public String getAttributePrefix(int index) {
+            return null;
+        }
+
+        @Override
+        public String getAttributeLocalName(int index) {
+            return current.attributes[2 * index];
+        }
+    }
 }
@@ -41,10 +41,13 @@ import java.util.Map;
 import java.util.Map.Entry;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
-import org.apache.jena.rdf.model.Statement;
-import org.apache.jena.rdf.model.StmtIterator;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.sparql.core.Quad;
 
 import com.google.refine.ProjectMetadata;
 import com.google.refine.expr.ExpressionUtils;
@@ -75,91 +78,154 @@ public class RdfTripleImporter extends ImportingParserBase {
     @Override
     public void parseOneFile(Project project, ProjectMetadata metadata, ImportingJob job, String fileSource,
             InputStream input, int limit, ObjectNode options, List<Exception> exceptions) {
-        // create an empty model
-        Model model = ModelFactory.createDefaultModel();
+        Lang lang;
+        switch (mode) {
+            case NT:
+                lang = Lang.NTRIPLES;
+                break;
+            case N3:
+                lang = Lang.N3;
+                break;
+            case TTL:
+                lang = Lang.TURTLE;
+                break;
+            case JSONLD:
+                lang = Lang.JSONLD;
+                break;
+            case RDFXML:
+                lang = Lang.RDFXML;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown parsing mode");
+        }
 
+        RowBuilder rowBuilder;
         try {
-            switch (mode) {
-                case NT:
-                    // TODO: The standard lang name is "N-TRIPLE"
-                    // we may need to switch if we change packagings
-                    model.read(input, null, "NT");
-                    break;
-                case N3:
-                    model.read(input, null, "N3");
-                    break;
-                case TTL:
-                    model.read(input, null, "TTL");
-                    break;
-                case JSONLD:
-                    // TODO: The standard lang name is "JSONLD"
-                    model.read(input, null, "JSON-LD");
-                    break;
-                case RDFXML:
-                    model.read(input, null);
-                    break;
-                default:
-                    throw new IllegalArgumentException("Unknown parsing mode");
-            }
+            rowBuilder = new RowBuilder(project, job, limit);
+        } catch (ModelException e) {
+            exceptions.add(e);
+            return;
+        }
+
+        try {
+            RDFParser.source(input).lang(lang).parse(rowBuilder);
+        } catch (StopParsing e) {
+            // enough rows for the limit
+        } catch (ColumnException e) {
+            exceptions.add((ModelException) e.getCause());
+            return;
         } catch (Exception e) {
             exceptions.add(e);
             return;
         }
 
-        StmtIterator triples = model.listStatements();
+        for (Entry<String, List<Row>> entry : rowBuilder.subjectToRows.entrySet()) {
+            project.rows.addAll(entry.getValue());
+        }
+    }
 
-        try {
-            Map<String, List<Row>> subjectToRows = new LinkedHashMap<String, List<Row>>();
-            Column subjectColumn = new Column(project.columnModel.allocateNewCellIndex(), "subject");
+    static private class StopParsing extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        StopParsing() {
+            super(null, null, false, false);
+        }
+    }
+
+    static private class ColumnException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ColumnException(ModelException cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * Adds the triples to the rows of their subject as the parser reads them, rather than loading the whole graph in a
+     * {@link org.apache.jena.rdf.model.Model} first. Each predicate has its own column, and a subject gets an extra row
+     * when one of its predicates has several objects. Repeated triples are only added once, as in a graph.
+     */
+    static private class RowBuilder extends StreamRDFBase {
+
+        final Project project;
+        final ImportingJob job;
+        final int limit;
+        final Column subjectColumn;
+        final Map<String, List<Row>> subjectToRows = new LinkedHashMap<String, List<Row>>();
+        // only used to render the nodes the same way as the statements of a model
+        final Model nodes = ModelFactory.createDefaultModel();
+        int rowCount = 0;
+
+        RowBuilder(Project project, ImportingJob job, int limit) throws ModelException {
+            this.project = project;
+            this.job = job;
+            this.limit = limit;
+            subjectColumn = new Column(project.columnModel.allocateNewCellIndex(), "subject");
             project.columnModel.addColumn(0, subjectColumn, false);
             project.columnModel.setKeyColumnIndex(0);
+        }
 
-            while (triples.hasNext()) {
-                Statement triple = triples.nextStatement();
-                String subject = triple.getSubject().toString();
-                String predicate = triple.getPredicate().toString();
-                String object = triple.getObject().toString();
+        @Override
+        public void quad(Quad quad) {
+            triple(quad.asTriple());
+        }
 
-                Column column = project.columnModel.getColumnByName(predicate);
-                if (column == null) {
-                    column = new Column(project.columnModel.allocateNewCellIndex(), predicate);
+        @Override
+        public void triple(Triple triple) {
+            if (job.canceled) {
+                throw new StopParsing();
+            }
+            String subject = nodes.asRDFNode(triple.getSubject()).toString();
+            String predicate = nodes.asRDFNode(triple.getPredicate()).toString();
+            String object = nodes.asRDFNode(triple.getObject()).toString();
+
+            Column column = project.columnModel.getColumnByName(predicate);
+            if (column == null) {
+                column = new Column(project.columnModel.allocateNewCellIndex(), predicate);
+                try {
                     project.columnModel.addColumn(-1, column, true);
+                } catch (ModelException e) {
+                    throw new ColumnException(e);
                 }
+            }
 
-                int cellIndex = column.getCellIndex();
-                if (subjectToRows.containsKey(subject)) {
-                    List<Row> rows = subjectToRows.get(subject);
-                    for (Row row : rows) {
-                        if (!ExpressionUtils.isNonBlankData(row.getCellValue(cellIndex))) {
-                            row.setCell(cellIndex, new Cell(object, null));
-                            object = null;
-                            break;
-                        }
-                    }
-
-                    if (object != null) {
-                        Row row = new Row(project.columnModel.getMaxCellIndex() + 1);
-                        rows.add(row);
-
+            int cellIndex = column.getCellIndex();
+            if (subjectToRows.containsKey(subject)) {
+                List<Row> rows = subjectToRows.get(subject);
+                for (Row row : rows) {
+                    Object value = row.getCellValue(cellIndex);
+                    if (object.equals(value)) {
+                        // repeated triple
+                        return;
+                    } else if (!ExpressionUtils.isNonBlankData(value)) {
                         row.setCell(cellIndex, new Cell(object, null));
+                        return;
                     }
-                } else {
-                    List<Row> rows = new ArrayList<Row>();
-                    subjectToRows.put(subject, rows);
+                }
 
-                    Row row = new Row(project.columnModel.getMaxCellIndex() + 1);
-                    rows.add(row);
+                Row row = newRow();
+                rows.add(row);
 
-                    row.setCell(subjectColumn.getCellIndex(), new Cell(subject, null));
-                    row.setCell(cellIndex, new Cell(object, null));
-                }
+                row.setCell(cellIndex, new Cell(object, null));
+            } else {
+                List<Row> rows = new ArrayList<Row>();
+                Row row = newRow();
+                subjectToRows.put(subject, rows);
+                rows.add(row);
+
+                row.setCell(subjectColumn.getCellIndex(), new Cell(subject, null));
+                row.setCell(cellIndex, new Cell(object, null));
             }
+        }
 
-            for (Entry<String, List<Row>> entry : subjectToRows.entrySet()) {
-                project.rows.addAll(entry.getValue());
+        private Row newRow() {
+            if (limit > 0 && rowCount >= limit) {
+                throw new StopParsing();
             }
-        } catch (ModelException e) {
-            exceptions.add(e);
+            rowCount++;
+            return new Row(project.columnModel.getMaxCellIndex() + 1);
         }
     }
 }
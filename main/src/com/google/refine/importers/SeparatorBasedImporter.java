@@ -47,6 +47,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.base.CharMatcher;
@@ -146,35 +147,24 @@ public class SeparatorBasedImporter extends TabularImportingParserBase {
             quote = CharMatcher.whitespace().trimFrom(quoteCharacter).charAt(0);
         }
 
-        AbstractParser parser;
-        if (tsv) {
-            TsvParserSettings settings = new TsvParserSettings();
-            settings.setMaxCharsPerColumn(MAX_CHARACTERS_PER_CELL);
-            settings.setMaxColumns(MAX_COLUMNS);
-            settings.setLineSeparatorDetectionEnabled(true);
-            settings.setIgnoreLeadingWhitespaces(false);
-            settings.setIgnoreTrailingWhitespaces(false);
-            parser = new TsvParser(settings);
-        } else {
-            CsvParserSettings settings = new CsvParserSettings();
-            CsvFormat format = settings.getFormat();
-            format.setDelimiter(sep);
-            format.setQuote(quote);
-            settings.setMaxColumns(MAX_COLUMNS);
-            settings.setLineSeparatorDetectionEnabled(true);
-            settings.setIgnoreLeadingWhitespaces(false);
-            settings.setIgnoreTrailingWhitespaces(false);
-            if (strictQuotes) {
-                settings.setUnescapedQuoteHandling(UnescapedQuoteHandling.RAISE_ERROR);
+        final char quoteChar = quote;
+        final String separator = sep;
+        Supplier<AbstractParser<?>> parserFactory = () -> createParser(tsv, separator, quoteChar, processQuotes,
+                strictQuotes);
+        // chunks are split at line breaks outside quotes, which assumes that quotes are escaped by doubling them.
+        // Previews are parsed sequentially, as their first rows would otherwise wait for several chunks to be parsed.
+        boolean parallel = limit <= 0 && ChunkedRecordParser.isEnabled()
+                && (tsv || quoteChar == DEFAULT_QUOTE_CHAR && separator.length() == 1);
+
+        try (final LineNumberReader lnReader = new LineNumberReader(reader);
+                ChunkedRecordParser chunkedParser = parallel
+                        ? new ChunkedRecordParser(lnReader, parserFactory, tsv ? null : quoteChar, separator.charAt(0))
+                        : null) {
+
+            final AbstractParser<?> parser = parallel ? null : parserFactory.get();
+            if (parser != null) {
+                parser.beginParsing(lnReader);
             }
-            settings.setKeepQuotes(!processQuotes);
-            settings.setMaxCharsPerColumn(MAX_CHARACTERS_PER_CELL);
-            settings.setMaxColumns(MAX_COLUMNS);
-            parser = new CsvParser(settings);
-        }
-        try (final LineNumberReader lnReader = new LineNumberReader(reader);) {
-
-            parser.beginParsing(lnReader);
 
             TableDataReader dataReader = new TableDataReader() {
 
@@ -185,6 +175,9 @@ public class SeparatorBasedImporter extends TabularImportingParserBase {
                     if (columnNames != null && !usedColumnNames) {
                         usedColumnNames = true;
                         return columnNames;
+                    } else if (chunkedParser != null) {
+                        String[] values = chunkedParser.parseNextRecord();
+                        return values != null ? new ArrayList<Object>(Arrays.asList(values)) : null;
                     } else {
                         Record record = parser.parseNextRecord();
                         if (record != null) {
@@ -204,6 +197,35 @@ public class SeparatorBasedImporter extends TabularImportingParserBase {
         }
     }
 
+    static private AbstractParser<?> createParser(boolean tsv, String sep, char quote, boolean processQuotes,
+            boolean strictQuotes) {
+        if (tsv) {
+            TsvParserSettings settings = new TsvParserSettings();
+            settings.setMaxCharsPerColumn(MAX_CHARACTERS_PER_CELL);
+            settings.setMaxColumns(MAX_COLUMNS);
+            settings.setLineSeparatorDetectionEnabled(true);
+            settings.setIgnoreLeadingWhitespaces(false);
+            settings.setIgnoreTrailingWhitespaces(false);
+            return new TsvParser(settings);
+        } else {
+            CsvParserSettings settings = new CsvParserSettings();
+            CsvFormat format = settings.getFormat();
+            format.setDelimiter(sep);
+            format.setQuote(quote);
+            settings.setMaxColumns(MAX_COLUMNS);
+            settings.setLineSeparatorDetectionEnabled(true);
+            settings.setIgnoreLeadingWhitespaces(false);
+            settings.setIgnoreTrailingWhitespaces(false);
+            if (strictQuotes) {
+                settings.setUnescapedQuoteHandling(UnescapedQuoteHandling.RAISE_ERROR);
+            }
+            settings.setKeepQuotes(!processQuotes);
+            settings.setMaxCharsPerColumn(MAX_CHARACTERS_PER_CELL);
+            settings.setMaxColumns(MAX_COLUMNS);
+            return new CsvParser(settings);
+        }
+    }
+
     static public String guessSeparator(ImportingJob job, List<ObjectNode> fileRecords) {
         for (int i = 0; i < 5 && i < fileRecords.size(); i++) {
             ObjectNode fileRecord = fileRecords.get(i);
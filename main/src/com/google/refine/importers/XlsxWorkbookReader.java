@@ -0,0 +1,386 @@
+package com.google.refine.importers;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.ExcelNumberFormat;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+import com.google.refine.importers.TabularImportingParserBase.TableDataReader;
+import com.google.refine.model.Cell;
+
+/**
+ * Reads the sheets of an OOXML workbook by streaming their XML, rather than loading the whole workbook in memory as
+ * {@link org.apache.poi.xssf.usermodel.XSSFWorkbook} does, so that the memory used does not depend on the size of the
+ * sheets. Only the shared strings and the styles of the workbook are loaded.
+ * <p>
+ * Cells are converted the same way as {@link ExcelImporter#extractCell(org.apache.poi.ss.usermodel.Cell, boolean)}
+ * does, except for formulas shared between cells, which are rendered by their cached value when importing as text.
+ */
+class XlsxWorkbookReader implements Closeable {
+
+    static final private XMLInputFactory XML_INPUT_FACTORY = XMLHelper.newXMLInputFactory();
+    static final private ExcelNumberFormat GENERAL_FORMAT = new ExcelNumberFormat(0, "General");
+
+    final private File _tempFile;
+    final private OPCPackage _package;
+    final private XSSFReader _reader;
+    final private SharedStrings _sharedStrings;
+    final private StylesTable _styles;
+    final private boolean _date1904;
+    final private Map<Integer, ExcelNumberFormat> _numberFormats = new HashMap<>();
+
+    /**
+     * Copies the workbook to a temporary file, so that its parts can be read one at a time.
+     */
+    static XlsxWorkbookReader open(InputStream inputStream) throws IOException {
+        File tempFile = File.createTempFile("openrefine-import", ".xlsx");
+        try {
+            Files.copy(inputStream, tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return new XlsxWorkbookReader(tempFile, tempFile);
+        } catch (IOException | RuntimeException e) {
+            tempFile.delete();
+            throw e;
+        }
+    }
+
+    XlsxWorkbookReader(File file) throws IOException {
+        this(file, null);
+    }
+
+    private XlsxWorkbookReader(File file, File tempFile) throws IOException {
+        _tempFile = tempFile;
+        try {
+            _package = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException(e);
+        }
+        try {
+            _reader = new XSSFReader(_package);
+            _sharedStrings = new ReadOnlySharedStringsTable(_package, false);
+            _styles = _reader.getStylesTable();
+            _date1904 = readDate1904();
+        } catch (OpenXML4JException | org.xml.sax.SAXException | XMLStreamException e) {
+            _package.revert();
+            throw new IOException(e);
+        } catch (IOException | RuntimeException e) {
+            _package.revert();
+            throw e;
+        }
+    }
+
+    private boolean readDate1904() throws IOException, OpenXML4JException, XMLStreamException {
+        try (InputStream workbookData = _reader.getWorkbookData()) {
+            XMLStreamReader parser = XML_INPUT_FACTORY.createXMLStreamReader(workbookData);
+            try {
+                while (parser.hasNext()) {
+                    if (parser.next() == XMLStreamConstants.START_ELEMENT) {
+                        if ("workbookPr".equals(parser.getLocalName())) {
+                            String date1904 = parser.getAttributeValue(null, "date1904");
+                            return "1".equals(date1904) || "true".equals(date1904);
+                        } else if ("sheets".equals(parser.getLocalName())) {
+                            break;
+                        }
+                    }
+                }
+                return false;
+            } finally {
+                parser.close();
+            }
+        }
+    }
+
+    List<String> getSheetNames() throws IOException {
+        List<String> names = new ArrayList<>();
+        try {
+            XSSFReader.SheetIterator sheets = _reader.getSheetIterator();
+            while (sheets.hasNext()) {
+                sheets.next().close();
+                names.add(sheets.getSheetName());
+            }
+        } catch (OpenXML4JException e) {
+            throw new IOException(e);
+        }
+        return names;
+    }
+
+    private InputStream openSheetData(int index) throws IOException {
+        try {
+            XSSFReader.SheetIterator sheets = _reader.getSheetIterator();
+            for (int i = 0; sheets.hasNext(); i++) {
+                InputStream sheetData = sheets.next();
+                if (i == index) {
+                    return sheetData;
+                }
+                sheetData.close();
+            }
+        } catch (OpenXML4JException e) {
+            throw new IOException(e);
+        }
+        throw new IllegalArgumentException("Sheet index (" + index + ") is out of range");
+    }
+
+    /**
+     * Counts the rows of a sheet from its first to its last one, like {@link org.apache.poi.ss.usermodel.Sheet}'s first
+     * and last row numbers do, without reading their cells.
+     */
+    int countRows(int index) throws IOException {
+        try (InputStream sheetData = openSheetData(index)) {
+            XMLStreamReader parser = XML_INPUT_FACTORY.createXMLStreamReader(sheetData);
+            try {
+                int firstRow = -1;
+                int lastRow = -1;
+                while (parser.hasNext()) {
+                    if (parser.next() == XMLStreamConstants.START_ELEMENT && "row".equals(parser.getLocalName())) {
+                        String reference = parser.getAttributeValue(null, "r");
+                        lastRow = reference != null ? Integer.parseInt(reference) - 1 : lastRow + 1;
+                        if (firstRow < 0) {
+                            firstRow = lastRow;
+                        }
+                    }
+                }
+                return lastRow - firstRow + 1;
+            } finally {
+                parser.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    SheetReader openSheet(int index, boolean forceText) throws IOException {
+        InputStream sheetData = openSheetData(index);
+        try {
+            return new SheetReader(sheetData, forceText);
+        } catch (XMLStreamException e) {
+            sheetData.close();
+            throw new IOException(e);
+        }
+    }
+
+    private ExcelNumberFormat getNumberFormat(String style) {
+        if (_styles == null || _styles.getNumCellStyles() == 0) {
+            return GENERAL_FORMAT;
+        }
+        int index = style != null ? Integer.parseInt(style) : 0;
+        return _numberFormats.computeIfAbsent(index, i -> ExcelNumberFormat.from(_styles.getStyleAt(i)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        // the package is read-only, so it is reverted rather than saved
+        _package.revert();
+        if (_tempFile != null) {
+            Files.deleteIfExists(_tempFile.toPath());
+        }
+    }
+
+    /**
+     * Reads the rows of a sheet one at a time. Rows left out of the file are returned as empty rows.
+     */
+    class SheetReader implements TableDataReader, Closeable {
+
+        final private InputStream _sheetData;
+        final private XMLStreamReader _parser;
+        final private boolean _forceText;
+
+        private int _nextRow = 0;
+        // the next row found in the file, which may come after rows left out
+        private List<Object> _pendingRow;
+        private int _pendingRowIndex = -1;
+        private boolean _endOfSheet = false;
+
+        private SheetReader(InputStream sheetData, boolean forceText) throws XMLStreamException {
+            _sheetData = sheetData;
+            _parser = XML_INPUT_FACTORY.createXMLStreamReader(sheetData);
+            _forceText = forceText;
+        }
+
+        @Override
+        public List<Object> getNextRowOfCells() throws IOException {
+            if (_pendingRow == null && !_endOfSheet) {
+                try {
+                    readRow();
+                } catch (XMLStreamException e) {
+                    throw new IOException(e);
+                }
+            }
+            if (_pendingRow == null) {
+                return null;
+            }
+
+            List<Object> cells;
+            if (_pendingRowIndex > _nextRow) {
+                cells = new ArrayList<>();
+            } else {
+                cells = _pendingRow;
+                _pendingRow = null;
+            }
+            _nextRow++;
+            return cells;
+        }
+
+        private void readRow() throws XMLStreamException {
+            while (_parser.hasNext()) {
+                int event = _parser.next();
+                if (event == XMLStreamConstants.START_ELEMENT && "row".equals(_parser.getLocalName())) {
+                    String reference = _parser.getAttributeValue(null, "r");
+                    _pendingRowIndex = reference != null ? Integer.parseInt(reference) - 1 : _pendingRowIndex + 1;
+                    _pendingRow = readCells();
+                    return;
+                } else if (event == XMLStreamConstants.END_ELEMENT && "sheetData".equals(_parser.getLocalName())) {
+                    break;
+                }
+            }
+            _endOfSheet = true;
+        }
+
+        private List<Object> readCells() throws XMLStreamException {
+            List<Object> cells = new ArrayList<>();
+            int column = -1;
+            while (true) {
+                int event = _parser.next();
+                if (event == XMLStreamConstants.START_ELEMENT && "c".equals(_parser.getLocalName())) {
+                    String reference = _parser.getAttributeValue(null, "r");
+                    column = reference != null ? new CellReference(reference).getCol() : column + 1;
+                    Cell cell = readCell();
+                    while (cells.size() <= column) {
+                        cells.add(null);
+                    }
+                    cells.set(column, cell);
+                } else if (event == XMLStreamConstants.END_ELEMENT && "row".equals(_parser.getLocalName())) {
+                    return cells;
+                }
+            }
+        }
+
+        private Cell readCell() throws XMLStreamException {
+            String type = _parser.getAttributeValue(null, "t");
+            String style = _parser.getAttributeValue(null, "s");
+            String value = null;
+            String inlineString = null;
+            String formula = null;
+            while (true) {
+                int event = _parser.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = _parser.getLocalName();
+                    if ("v".equals(name)) {
+                        value = _parser.getElementText();
+                    } else if ("f".equals(name)) {
+                        boolean dataTable = "dataTable".equals(_parser.getAttributeValue(null, "t"));
+                        String text = _parser.getElementText();
+                        if (!dataTable) {
+                            formula = text;
+                        }
+                    } else if ("is".equals(name)) {
+                        inlineString = readInlineString();
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "c".equals(_parser.getLocalName())) {
+                    break;
+                }
+            }
+            return toCell(type, style, value, inlineString, formula);
+        }
+
+        /**
+         * Reads the text of an inline string, leaving out its phonetic runs.
+         */
+        private String readInlineString() throws XMLStreamException {
+            StringBuilder text = new StringBuilder();
+            boolean phonetic = false;
+            while (true) {
+                int event = _parser.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    if ("rPh".equals(_parser.getLocalName())) {
+                        phonetic = true;
+                    } else if ("t".equals(_parser.getLocalName()) && !phonetic) {
+                        text.append(_parser.getElementText());
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if ("rPh".equals(_parser.getLocalName())) {
+                        phonetic = false;
+                    } else if ("is".equals(_parser.getLocalName())) {
+                        return text.toString();
+                    }
+                }
+            }
+        }
+
+        private Cell toCell(String type, String style, String value, String inlineString, String formula) {
+            String text = null;
+            if ("s".equals(type)) {
+                text = value != null ? _sharedStrings.getItemAt(Integer.parseInt(value)).getString() : "";
+            } else if ("inlineStr".equals(type)) {
+                text = inlineString != null ? inlineString : value != null ? value : "";
+                text = new XSSFRichTextString(text).getString();
+            } else if ("str".equals(type) || "d".equals(type)) {
+                text = value != null ? value : "";
+            }
+
+            if (_forceText) {
+                if (formula != null && !formula.isEmpty()) {
+                    return new Cell(formula, null);
+                } else if (text != null) {
+                    return new Cell(text, null);
+                } else if ("b".equals(type)) {
+                    return new Cell("1".equals(value) ? "TRUE" : "FALSE", null);
+                } else if ("e".equals(type) || (value == null && formula == null)) {
+                    return new Cell(value != null ? value : "", null);
+                }
+                double d = value != null ? Double.parseDouble(value) : 0.0;
+                ExcelNumberFormat format = getNumberFormat(style);
+                return new Cell(ExcelImporter.dataFormatter.formatRawCellContents(d, format.getIdx(), format.getFormat(),
+                        _date1904), null);
+            }
+
+            if (text != null) {
+                return new Cell(text.length() > 0 ? text : null, null);
+            } else if ("b".equals(type)) {
+                return new Cell("1".equals(value), null);
+            } else if ("e".equals(type) || (value == null && formula == null)) {
+                return null;
+            }
+            double d = value != null ? Double.parseDouble(value) : 0.0;
+            ExcelNumberFormat format = getNumberFormat(style);
+            Serializable numericValue = ExcelImporter.extractNumericValue(d, format,
+                    DateUtil.isValidExcelDate(d) && DateUtil.isADateFormat(format),
+                    () -> ExcelImporter.dataFormatter.formatRawCellContents(d, format.getIdx(), format.getFormat(), _date1904));
+            return new Cell(numericValue, null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                _parser.close();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            } finally {
+                _sheetData.close();
+            }
+        }
+    }
+}
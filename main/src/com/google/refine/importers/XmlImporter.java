@@ -76,7 +76,7 @@ public class XmlImporter extends TreeImportingParserBase {
         int tokenCount;
     }
 
-    final static private int PREVIEW_PARSING_LIMIT = 1000;
+    final static int PREVIEW_PARSING_LIMIT = 1000;
 
     @Override
     public ObjectNode createParserUIInitializationData(
@@ -88,25 +88,7 @@ public class XmlImporter extends TreeImportingParserBase {
                 File file = ImportingUtilities.getFile(job, firstFileRecord);
 
                 try (InputStream is = new FileInputStream(file)) {
-                    XMLStreamReader parser = createXMLStreamReader(is);
-                    PreviewParsingState state = new PreviewParsingState();
-
-                    while (parser.hasNext() && state.tokenCount < PREVIEW_PARSING_LIMIT) {
-                        int tokenType = parser.next();
-                        state.tokenCount++;
-                        if (tokenType == XMLStreamConstants.START_ELEMENT) {
-                            ObjectNode rootElement = descendElement(parser, state);
-                            if (rootElement != null) {
-                                JSONUtilities.safePut(options, "dom", rootElement);
-                                break;
-                            }
-                        } else {
-                            // ignore everything else
-                        }
-                    }
-                } catch (XMLStreamException e) {
-                    JSONUtilities.safePut(options, "error", e.toString());
-                    logger.error("Error generating parser UI initialization data for XML file", e);
+                    putPreviewDom(is, options);
                 }
             }
         } catch (IOException e) {
@@ -116,6 +98,33 @@ public class XmlImporter extends TreeImportingParserBase {
         return options;
     }
 
+    /**
+     * Reads the first elements of a file into the "dom" option, from which the user picks the record element.
+     */
+    protected void putPreviewDom(InputStream inputStream, ObjectNode options) throws IOException {
+        try {
+            XMLStreamReader parser = createXMLStreamReader(inputStream);
+            PreviewParsingState state = new PreviewParsingState();
+
+            while (parser.hasNext() && state.tokenCount < PREVIEW_PARSING_LIMIT) {
+                int tokenType = parser.next();
+                state.tokenCount++;
+                if (tokenType == XMLStreamConstants.START_ELEMENT) {
+                    ObjectNode rootElement = descendElement(parser, state);
+                    if (rootElement != null) {
+                        JSONUtilities.safePut(options, "dom", rootElement);
+                        break;
+                    }
+                } else {
+                    // ignore everything else
+                }
+            }
+        } catch (XMLStreamException e) {
+            JSONUtilities.safePut(options, "error", e.toString());
+            logger.error("Error generating parser UI initialization data for XML file", e);
+        }
+    }
+
     final static private ObjectNode descendElement(XMLStreamReader parser, PreviewParsingState state) throws XMLStreamException {
         ObjectNode result = ParsingUtilities.mapper.createObjectNode();
         {
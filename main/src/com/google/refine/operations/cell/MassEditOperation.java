@@ -190,6 +190,11 @@ public class MassEditOperation extends EngineDependentMassCellOperation {
         return OperationDescription.cell_mass_edit_desc(cellChanges.size(), column.getName());
     }
 
+    @Override
+    protected boolean canVisitRowsInParallel(Project project) {
+        return canEvaluateInParallel(_expression);
+    }
+
     @Override
     protected RowVisitor createRowVisitor(Project project, List<CellChange> cellChanges, long historyEntryID) throws Exception {
         Column column = project.columnModel.getColumnByName(_columnName);
@@ -47,6 +47,7 @@ import com.google.refine.browsing.EngineConfig;
 import com.google.refine.browsing.RowVisitor;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.expr.MemoizedEvaluable;
 import com.google.refine.expr.MetaParser;
 import com.google.refine.expr.ParsingException;
 import com.google.refine.expr.WrappedCell;
@@ -71,6 +72,9 @@ public class TextTransformOperation extends EngineDependentMassCellOperation {
     @JsonProperty("repeatCount")
     final protected int _repeatCount;
 
+    // number of rows evaluated together by expressions which only depend on the value
+    static final int BATCH_SIZE = 1024;
+
     static public OnError stringToOnError(String s) {
         if ("set-to-blank".equalsIgnoreCase(s)) {
             return OnError.SetToBlank;
@@ -162,11 +166,17 @@ public class TextTransformOperation extends EngineDependentMassCellOperation {
                 _repeatCount);
     }
 
+    @Override
+    protected boolean canVisitRowsInParallel(Project project) {
+        return canEvaluateInParallel(_expression);
+    }
+
     @Override
     protected RowVisitor createRowVisitor(Project project, List<CellChange> cellChanges, long historyEntryID) throws Exception {
         Column column = project.columnModel.getColumnByName(_columnName);
 
-        Evaluable eval = MetaParser.parse(_expression);
+        // evaluated once per distinct value when it only depends on the value
+        Evaluable eval = MemoizedEvaluable.memoize(MetaParser.parse(_expression));
         Properties bindings = ExpressionUtils.createBindings(project);
 
         return new RowVisitor() {
@@ -176,11 +186,24 @@ public class TextTransformOperation extends EngineDependentMassCellOperation {
             List<CellChange> cellChanges;
             Evaluable eval;
 
+            // rows waiting to be evaluated together, when the expression only depends on the value
+            int[] batchRowIndices;
+            Row[] batchRows;
+            Object[] batchValues;
+            Object[] batchResults;
+            int batchSize;
+
             public RowVisitor init(int cellIndex, Properties bindings, List<CellChange> cellChanges, Evaluable eval) {
                 this.cellIndex = cellIndex;
                 this.bindings = bindings;
                 this.cellChanges = cellChanges;
                 this.eval = eval;
+                if (eval.dependsOnlyOnValue()) {
+                    batchRowIndices = new int[BATCH_SIZE];
+                    batchRows = new Row[BATCH_SIZE];
+                    batchValues = new Object[BATCH_SIZE];
+                    batchResults = new Object[BATCH_SIZE];
+                }
                 return this;
             }
 
@@ -191,19 +214,47 @@ public class TextTransformOperation extends EngineDependentMassCellOperation {
 
             @Override
             public void end(Project project) {
-                // nothing to do
+                if (batchSize > 0) {
+                    evaluateBatch();
+                }
             }
 
             @Override
             public boolean visit(Project project, int rowIndex, Row row) {
                 Cell cell = row.getCell(cellIndex);
+                if (batchRows != null) {
+                    batchRowIndices[batchSize] = rowIndex;
+                    batchRows[batchSize] = row;
+                    batchValues[batchSize] = cell != null ? cell.value : null;
+                    batchSize++;
+                    if (batchSize == BATCH_SIZE) {
+                        evaluateBatch();
+                    }
+                    return false;
+                }
+
+                ExpressionUtils.bind(bindings, row, rowIndex, _columnName, cell);
+                processResult(rowIndex, row, cell, eval.evaluate(bindings));
+                return false;
+            }
+
+            void evaluateBatch() {
+                eval.evaluateBatch(bindings, batchValues, batchSize, batchResults);
+                for (int i = 0; i < batchSize; i++) {
+                    Row row = batchRows[i];
+                    processResult(batchRowIndices[i], row, row.getCell(cellIndex), batchResults[i]);
+                    batchRows[i] = null;
+                    batchValues[i] = null;
+                    batchResults[i] = null;
+                }
+                batchSize = 0;
+            }
+
+            void processResult(int rowIndex, Row row, Cell cell, Object o) {
                 Cell newCell = null;
 
                 Object oldValue = cell != null ? cell.value : null;
 
-                ExpressionUtils.bind(bindings, row, rowIndex, _columnName, cell);
-
-                Object o = eval.evaluate(bindings);
                 if (o == null) {
                     if (oldValue != null) {
                         CellChange cellChange = new CellChange(rowIndex, cellIndex, cell, null);
@@ -218,7 +269,7 @@ public class TextTransformOperation extends EngineDependentMassCellOperation {
                         Serializable newValue = ExpressionUtils.wrapStorable(o);
                         if (ExpressionUtils.isError(newValue)) {
                             if (_onError == OnError.KeepOriginal) {
-                                return false;
+                                return;
                             } else if (_onError == OnError.SetToBlank) {
                                 newValue = null;
                             }
@@ -249,8 +300,6 @@ public class TextTransformOperation extends EngineDependentMassCellOperation {
                         cellChanges.add(cellChange);
                     }
                 }
-
-                return false;
             }
         }.init(column.getCellIndex(), bindings, cellChanges, eval);
     }
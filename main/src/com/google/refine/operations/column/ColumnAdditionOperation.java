@@ -51,6 +51,7 @@ import com.google.refine.browsing.FilteredRows;
 import com.google.refine.browsing.RowVisitor;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.expr.MemoizedEvaluable;
 import com.google.refine.expr.MetaParser;
 import com.google.refine.expr.ParsingException;
 import com.google.refine.expr.WrappedCell;
@@ -206,7 +207,8 @@ public class ColumnAdditionOperation extends EngineDependentOperation {
     protected RowVisitor createRowVisitor(Project project, List<CellAtRow> cellsAtRows) throws Exception {
         Column column = project.columnModel.getColumnByName(_baseColumnName);
 
-        Evaluable eval = MetaParser.parse(_expression);
+        // evaluated once per distinct value when it only depends on the value
+        Evaluable eval = MemoizedEvaluable.memoize(MetaParser.parse(_expression));
         Properties bindings = ExpressionUtils.createBindings(project);
 
         return new RowVisitor() {
@@ -28,6 +28,8 @@
 package com.google.refine.browsing.facets;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -48,6 +50,7 @@ import org.testng.annotations.Test;
 
 import com.google.refine.RefineTest;
 import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.EngineConfig;
 import com.google.refine.browsing.facets.ListFacet.ListFacetConfig;
 import com.google.refine.expr.MetaParser;
 import com.google.refine.grel.Parser;
@@ -154,6 +157,36 @@ public class ListFacetTests extends RefineTest {
         assertEquals(facetConfig.getColumnDependencies(), Optional.of(Collections.emptySet()));
     }
 
+    @Test
+    public void testPurity() throws Exception {
+        ListFacetConfig facetConfig = ParsingUtilities.mapper.readValue(jsonConfig, ListFacetConfig.class);
+        assertTrue(facetConfig.isPure());
+        ListFacetConfig impureConfig = ParsingUtilities.mapper.readValue(
+                jsonConfig.replace("value+\\\"bar\\\"", "now().toString()"), ListFacetConfig.class);
+        assertFalse(impureConfig.isPure());
+        ListFacetConfig errorConfig = ParsingUtilities.mapper.readValue(jsonConfigParseError, ListFacetConfig.class);
+        assertFalse(errorConfig.isPure());
+    }
+
+    @Test
+    public void testImpureFacetIsNotCached() throws Exception {
+        Project project = createProject(
+                new String[] { "Column A" },
+                new Serializable[][] {
+                        { "foo" },
+                        { "bar" }
+                });
+        Engine engine = new Engine(project);
+        engine.initializeFromConfig(EngineConfig.deserialize("{\"mode\":\"row-based\",\"facets\":["
+                + jsonConfig.replace("value+\\\"bar\\\"", "value+now().toString()") + "]}"));
+        engine.computeFacets();
+        assertEquals(project.filterMaskCache.size(), 0);
+
+        engine.initializeFromConfig(EngineConfig.deserialize("{\"mode\":\"row-based\",\"facets\":[" + jsonConfig + "]}"));
+        engine.computeFacets();
+        assertEquals(project.filterMaskCache.size(), 1);
+    }
+
     @Test
     public void testRenameColumns() throws Exception {
         ListFacetConfig facetConfig = ParsingUtilities.mapper.readValue(jsonConfig, ListFacetConfig.class);
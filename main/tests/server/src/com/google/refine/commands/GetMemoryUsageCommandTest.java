@@ -0,0 +1,56 @@
+package com.google.refine.commands;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Serializable;
+import java.io.StringWriter;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.RefineTest;
+import com.google.refine.util.ParsingUtilities;
+
+public class GetMemoryUsageCommandTest extends RefineTest {
+
+    protected HttpServletRequest request = null;
+    protected HttpServletResponse response = null;
+    protected StringWriter writer = null;
+    protected Command command = null;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        command = new GetMemoryUsageCommand();
+        writer = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(writer));
+    }
+
+    @Test
+    public void testGetMemoryUsage() throws IOException, ServletException {
+        createProject(new String[] { "a" }, new Serializable[][] { { "foo" }, { "bar" } });
+        // the estimate is updated by the periodic quick saves
+        ProjectManager.singleton.save(false);
+
+        command.doGet(request, response);
+
+        ObjectNode result = ParsingUtilities.mapper.readValue(writer.toString(), ObjectNode.class);
+        assertEquals(result.get("resident_projects").asInt(), 1);
+        assertTrue(result.get("estimated_projects_bytes").asLong() > 0);
+        assertEquals(result.get("projects_budget_bytes").asLong(), ProjectManager.singleton.getMemoryBudget());
+        assertEquals(result.get("evictions").asLong(), 0);
+        assertTrue(result.get("heap_max_bytes").asLong() >= result.get("heap_used_bytes").asLong());
+    }
+}
@@ -29,24 +29,36 @@ package com.google.refine.commands.row;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.google.refine.RefineTest;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.EngineConfig;
 import com.google.refine.commands.Command;
 import com.google.refine.expr.MetaParser;
 import com.google.refine.grel.Parser;
 import com.google.refine.model.Project;
+import com.google.refine.sorting.SortedPermutation;
+import com.google.refine.sorting.SortingConfig;
+import com.google.refine.util.ParsingUtilities;
 import com.google.refine.util.TestUtils;
 
 public class GetRowsCommandTest extends RefineTest {
@@ -660,4 +672,97 @@ public class GetRowsCommandTest extends RefineTest {
         command.doPost(request, response);
         TestUtils.assertEqualsAsJson(writer.toString(), recordJson);
     }
+
+    /**
+     * Requests a page of sorted rows, checks the number of rows or records which match the facets, and returns the
+     * indices of the rows in it.
+     */
+    List<Integer> getSortedPage(String engineJson, String start, String end, String limit, int filtered) throws Exception {
+        writer = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(writer));
+        when(request.getParameter("engine")).thenReturn(engineJson);
+        when(request.getParameter("start")).thenReturn(start);
+        when(request.getParameter("end")).thenReturn(end);
+        when(request.getParameter("limit")).thenReturn(limit);
+        when(request.getParameter("sorting")).thenReturn(sortingConfigJson);
+        command.doPost(request, response);
+
+        JsonNode json = ParsingUtilities.mapper.readTree(writer.toString());
+        assertEquals(json.get("filtered").asInt(), filtered);
+        List<Integer> rowIndices = new ArrayList<>();
+        for (JsonNode row : json.get("rows")) {
+            rowIndices.add(row.get("i").asInt());
+        }
+        return rowIndices;
+    }
+
+    SortedPermutation getCachedPermutation(String engineJson) throws Exception {
+        Engine engine = new Engine(project);
+        engine.initializeFromConfig(EngineConfig.deserialize(engineJson));
+        String key = ((GetRowsCommand) command).getSortingKey(engine, SortingConfig.reconstruct(sortingConfigJson));
+        return project.sortedPermutationCache.get(project, key);
+    }
+
+    @Test
+    public void testSortedPagesReuseCachedOrder() throws Exception {
+        String engineJson = "{\"mode\":\"row-based\",\"facets\":[]}";
+
+        // only the rows needed for the first pages are sorted
+        assertEquals(getSortedPage(engineJson, "0", null, "1", 5), List.of(4));
+        SortedPermutation permutation = getCachedPermutation(engineJson);
+        assertEquals(permutation.size(), 2);
+        assertEquals(permutation.getCount(), 5);
+        assertFalse(permutation.isComplete());
+
+        assertEquals(getSortedPage(engineJson, "1", null, "1", 5), List.of(3));
+        assertSame(getCachedPermutation(engineJson), permutation);
+
+        // further pages need the rows to be sorted again
+        assertEquals(getSortedPage(engineJson, "2", null, "2", 5), List.of(2, 1));
+        permutation = getCachedPermutation(engineJson);
+        assertTrue(permutation.isComplete());
+
+        assertEquals(getSortedPage(engineJson, null, "5", "2", 5), List.of(1, 0));
+        assertSame(getCachedPermutation(engineJson), permutation);
+        assertEquals(project.sortedPermutationCache.size(), 1);
+    }
+
+    @Test
+    public void testSortedPagesOfImpureFacetsAreNotCached() throws Exception {
+        String engineJson = "{\"mode\":\"row-based\",\"facets\":[{"
+                + "\"type\":\"list\","
+                + "\"name\":\"foo\","
+                + "\"columnName\":\"foo\","
+                + "\"expression\":\"value + now().toString()\","
+                + "\"omitBlank\":false,"
+                + "\"omitError\":false,"
+                + "\"selection\":[],"
+                + "\"selectBlank\":false,"
+                + "\"selectError\":false,"
+                + "\"invert\":false"
+                + "}]}";
+
+        assertEquals(getSortedPage(engineJson, "0", null, "1", 5), List.of(4));
+        assertEquals(getSortedPage(engineJson, "1", null, "1", 5), List.of(3));
+        assertEquals(project.sortedPermutationCache.size(), 0);
+    }
+
+    @Test
+    public void testSortedRecordPagesReuseCachedOrder() throws Exception {
+        String engineJson = "{\"mode\":\"record-based\",\"facets\":[]}";
+
+        // records span several rows, so pages start at row indices in the sorted grid
+        assertEquals(getSortedPage(engineJson, "0", null, "1", 3), List.of(4));
+        SortedPermutation permutation = getCachedPermutation(engineJson);
+        assertFalse(permutation.isComplete());
+
+        assertEquals(getSortedPage(engineJson, "1", null, "1", 3), List.of(2, 3));
+        assertSame(getCachedPermutation(engineJson), permutation);
+
+        assertEquals(getSortedPage(engineJson, "3", null, "1", 3), List.of(0, 1));
+        permutation = getCachedPermutation(engineJson);
+        assertTrue(permutation.isComplete());
+        assertEquals(getSortedPage(engineJson, null, "3", "2", 3), List.of(4, 2, 3));
+        assertSame(getCachedPermutation(engineJson), permutation);
+    }
 }
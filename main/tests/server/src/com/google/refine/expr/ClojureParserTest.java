@@ -2,6 +2,7 @@
 package com.google.refine.expr;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
 
 import java.math.BigDecimal;
@@ -45,6 +46,14 @@ public class ClojureParserTest {
                 "Adding 0 to a number should keep the number.");
     }
 
+    @Test
+    public void testExpressionsAreCachedButNotThreadSafe() throws ParsingException {
+        ClojureParser parser = new ClojureParser();
+        assertTrue(parser.isCacheable());
+        // user code can have side effects, so it is not evaluated in parallel
+        assertFalse(parser.parse("(+ 0 value)", "clojure").isThreadSafe());
+    }
+
     @Test(expectedExceptions = ParsingException.class)
     public void testEvalErrorOnSomeBindings() throws ParsingException {
         String testKey = "columnName";
@@ -69,11 +69,13 @@ import org.apache.poi.ss.usermodel.DataFormat;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.BeforeTest;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import com.google.refine.model.Project;
@@ -427,6 +429,60 @@ public class ExcelImporterTests extends ImporterTest {
         verify(options, times(SHEETS)).get("storeBlankCellsAsNulls");
     }
 
+    @DataProvider(name = "sparseSpreadsheets")
+    public Object[][] sparseSpreadsheets() {
+        return new Object[][] {
+                { false, false }, { true, false }, { false, true }, { true, true }
+        };
+    }
+
+    @Test(dataProvider = "sparseSpreadsheets")
+    public void readSparseXlsxLikeWorkbookModel(boolean forceText, boolean inlineStrings) throws IOException {
+        File file = createSparseSpreadsheet(inlineStrings);
+
+        ArrayNode sheets = ParsingUtilities.mapper.createArrayNode();
+        sheets.add(ParsingUtilities.mapper
+                .readTree("{name: \"file-source#Sparse\", fileNameAndSheetIndex: \"file-source#0\", rows: 5, selected: true}"));
+        whenGetArrayOption("sheets", options, sheets);
+
+        whenGetIntegerOption("ignoreLines", options, 0);
+        whenGetIntegerOption("headerLines", options, 0);
+        whenGetIntegerOption("skipDataLines", options, 0);
+        whenGetIntegerOption("limit", options, -1);
+        whenGetBooleanOption("storeBlankCellsAsNulls", options, true);
+        whenGetBooleanOption("forceText", options, forceText);
+
+        parseOneFile(SUT, new FileInputStream(file));
+
+        // the sheet is streamed, but its cells should be the same as with the whole workbook loaded
+        try (InputStream stream = new FileInputStream(file); XSSFWorkbook wb = new XSSFWorkbook(stream)) {
+            Sheet sheet = wb.getSheetAt(0);
+            assertEquals(project.rows.size(), sheet.getLastRowNum() + 1);
+            for (int r = 0; r <= sheet.getLastRowNum(); r++) {
+                Row row = sheet.getRow(r);
+                for (int c = 0; row != null && c < row.getLastCellNum(); c++) {
+                    Cell cell = row.getCell(c);
+                    com.google.refine.model.Cell expected = cell != null ? ExcelImporter.extractCell(cell, forceText) : null;
+                    assertEquals(project.rows.get(r).getCellValue(c), expected != null ? expected.value : null,
+                            "row " + r + ", column " + c);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void countRowsOfXlsxSheets() throws IOException {
+        List<ObjectNode> fileRecords = prepareFileRecords(createSparseSpreadsheet(false), "sparse.xlsx");
+
+        ObjectNode options = SUT.createParserUIInitializationData(job, fileRecords, "excel");
+
+        ArrayNode sheetRecords = (ArrayNode) options.get("sheetRecords");
+        assertEquals(sheetRecords.size(), 1);
+        assertEquals(sheetRecords.get(0).get("name").asText(), "sparse.xlsx#Sparse");
+        // rows 2 to 5, as the first row is left out
+        assertEquals(sheetRecords.get(0).get("rows").asInt(), 4);
+    }
+
     // ---------------------delete blank columns------------------------
 
     @Test
@@ -676,6 +732,41 @@ public class ExcelImporterTests extends ImporterTest {
         return file;
     }
 
+    private static File createSparseSpreadsheet(boolean inlineStrings) throws IOException {
+        // the streaming workbook writes inline strings rather than shared ones
+        final Workbook wb = inlineStrings ? new SXSSFWorkbook() : new XSSFWorkbook();
+        CellStyle dateTimeStyle = wb.createCellStyle();
+        dateTimeStyle.setDataFormat(wb.createDataFormat().getFormat(DATE_TIME_FORMAT));
+
+        Sheet sheet = wb.createSheet("Sparse");
+        Row row = sheet.createRow(1);
+        row.createCell(0).setCellValue(" text ");
+        row.createCell(3).setCellValue(2.5);
+        row.createCell(4).setCellValue(true);
+        row.createCell(6).setCellStyle(dateTimeStyle); // blank
+        sheet.createRow(2);
+        row = sheet.createRow(4);
+        row.createCell(0).setCellFormula("1+2");
+        row.createCell(1).setCellFormula("CONCATENATE(\"a\",\"b\")");
+        row.createCell(2).setCellFormula("1/0");
+        Cell c = row.createCell(3);
+        c.setCellValue(NOW);
+        c.setCellStyle(dateTimeStyle);
+        row.createCell(4).setCellValue("");
+        row.createCell(5).setCellValue(12345678901L);
+        if (!inlineStrings) {
+            wb.getCreationHelper().createFormulaEvaluator().evaluateAll();
+        }
+
+        File file = File.createTempFile("openrefine-importer-test", ".xlsx");
+        file.deleteOnExit();
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            wb.write(outputStream);
+        }
+        wb.close();
+        return file;
+    }
+
     private static void createDataRow(Sheet sheet, int row, LocalDateTime date, CellStyle dateTimeStyle, CellStyle dateStyle,
             CellStyle intStyle,
             CellStyle floatStyle, CellStyle zeroStyle, CellStyle otherStyle, CellStyle currencyStyle, int extra_columns) {
@@ -70,6 +70,43 @@ public class ImporterUtilitiesTests extends RefineTest {
         Assert.assertEquals(response, END_QUOTES_SHOULD_BE_RETAINED);
     }
 
+    @Test
+    public void parseCellValueWithNumbers() {
+        Assert.assertEquals(ImporterUtilities.parseCellValue("123"), 123L);
+        Assert.assertEquals(ImporterUtilities.parseCellValue(" -45 \u00A0"), -45L);
+        Assert.assertEquals(ImporterUtilities.parseCellValue("+7"), 7L);
+        Assert.assertEquals(ImporterUtilities.parseCellValue("9223372036854775807"), Long.MAX_VALUE);
+        Assert.assertEquals(ImporterUtilities.parseCellValue("-9223372036854775808"), Long.MIN_VALUE);
+        Assert.assertEquals(ImporterUtilities.parseCellValue("9223372036854775808"), 9223372036854775808.0);
+        Assert.assertEquals(ImporterUtilities.parseCellValue("1.5"), 1.5);
+        Assert.assertEquals(ImporterUtilities.parseCellValue(".5e-2"), 0.005);
+        Assert.assertEquals(ImporterUtilities.parseCellValue("2."), 2.0);
+        Assert.assertEquals(ImporterUtilities.parseCellValue("3d"), 3.0);
+        Assert.assertEquals(ImporterUtilities.parseCellValue("\u0663"), 3L);
+    }
+
+    @Test
+    public void parseCellValueWithNonNumbers() {
+        String[] texts = { "", " ", "abc", "-", "+", ".", "1e", "1.2.3", "--1", "1 2", "NaN", "-Infinity", "1e400",
+                "0x10", "12abc", "e5", "1,5" };
+        for (String text : texts) {
+            Assert.assertSame(ImporterUtilities.parseCellValue(text), text, text);
+        }
+    }
+
+    @Test
+    public void guessCellValueTypesOfTextColumns() {
+        CellValueTypeGuesser guesser = new CellValueTypeGuesser();
+        for (int i = 0; i < CellValueTypeGuesser.SAMPLE_SIZE; i++) {
+            Assert.assertEquals(guesser.guess(0, "text"), "text");
+            Assert.assertEquals(guesser.guess(1, i % 2 == 0 ? "text" : "1"), i % 2 == 0 ? "text" : 1L);
+        }
+        // the first column is no longer parsed
+        Assert.assertEquals(guesser.guess(0, "1"), "1");
+        Assert.assertEquals(guesser.guess(1, "1"), 1L);
+        Assert.assertEquals(guesser.guess(40, "1"), 1L);
+    }
+
     @Test
     public void getIntegerOption() {
         Properties options = mock(Properties.class);
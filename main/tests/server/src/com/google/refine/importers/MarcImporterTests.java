@@ -32,6 +32,11 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.importers;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -44,6 +49,10 @@ import java.util.List;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.apache.commons.io.FileUtils;
+import org.marc4j.MarcPermissiveStreamReader;
+import org.marc4j.MarcReader;
+import org.marc4j.MarcWriter;
+import org.marc4j.MarcXmlWriter;
 import org.slf4j.LoggerFactory;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -90,9 +99,14 @@ public class MarcImporterTests extends ImporterTest {
         List<ObjectNode> fileRecords = new ArrayList<>();
         fileRecords.add(ParsingUtilities.evaluateJsonStringToObjectNode(String.format("{\"location\": \"%s\"}", FILE)));
 
-        // NOTE: This has the side effect of creating scriblio.mrc.xml
         ObjectNode options = SUT.createParserUIInitializationData(
                 job, fileRecords, "binary/marc");
+        assertEquals(options.get("dom").get("n").asText(), "collection");
+        assertEquals(options.get("dom").get("p").asText(), "marc");
+        assertEquals(options.get("dom").get("c").get(0).get("n").asText(), "record");
+        // the records are read directly, without writing them as MARCXML first
+        assertEquals(JSONUtilities.getString(fileRecords.get(0), "location", null), FILE);
+        assertFalse(new File(job.getRawDataDir(), FILE + ".xml").exists());
 
         ArrayNode path = ParsingUtilities.mapper.createArrayNode();
         JSONUtilities.append(path, "marc:collection");
@@ -101,11 +115,40 @@ public class MarcImporterTests extends ImporterTest {
         JSONUtilities.safePut(options, "trimStrings", true);
         JSONUtilities.safePut(options, "storeEmptyStrings", false);
 
-        File xmlFile = ImportingUtilities.getFile(job, fileRecords.get(0));
-        InputStream inputStream = new FileInputStream(xmlFile);
+        File file = ImportingUtilities.getFile(job, fileRecords.get(0));
+        InputStream inputStream = new FileInputStream(file);
         parseOneFile(SUT, inputStream, options);
 
-        Project expectedProject = createProject(
+        assertProjectEquals(project, createScriblioProject());
+    }
+
+    @Test
+    public void readMarcXmlFile() throws IOException {
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        try (InputStream inputStream = ClassLoader.getSystemResourceAsStream("scriblio.mrc")) {
+            MarcReader reader = new MarcPermissiveStreamReader(inputStream, true, true);
+            MarcWriter writer = new MarcXmlWriter(xml, true);
+            while (reader.hasNext()) {
+                writer.write(reader.next());
+            }
+            writer.close();
+        }
+
+        ObjectNode options = SUT.createParserUIInitializationData(job, new ArrayList<>(), "binary/marc");
+        ArrayNode path = ParsingUtilities.mapper.createArrayNode();
+        JSONUtilities.append(path, "marc:collection");
+        JSONUtilities.append(path, "marc:record");
+        JSONUtilities.safePut(options, "recordPath", path);
+        JSONUtilities.safePut(options, "trimStrings", true);
+        JSONUtilities.safePut(options, "storeEmptyStrings", false);
+
+        parseOneFile(SUT, new ByteArrayInputStream(xml.toByteArray()), options);
+
+        assertProjectEquals(project, createScriblioProject());
+    }
+
+    private Project createScriblioProject() {
+        return createProject(
                 new String[] { "marc:record - marc:leader", "marc:record - marc:controlfield - tag", "marc:record - marc:controlfield",
                         "marc:record - marc:datafield - tag", "marc:record - marc:datafield - ind2", "marc:record - marc:datafield - ind1",
                         "marc:record - marc:datafield - marc:subfield - code", "marc:record - marc:datafield - marc:subfield" },
@@ -141,7 +184,6 @@ public class MarcImporterTests extends ImporterTest {
                         { null, null, null, null, null, null, "2", "gsafd" },
                         { null, null, null, "700", null, "1", "a", "Snyder, Susan." },
                 });
-        assertProjectEquals(project, expectedProject);
     }
 
     @Override
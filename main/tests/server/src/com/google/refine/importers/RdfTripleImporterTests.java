@@ -38,7 +38,9 @@ import java.io.InputStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -97,9 +99,9 @@ public class RdfTripleImporterTests extends ImporterTest {
         Project expectedProject = createProject(
                 new String[] { "subject", "http://rdf.mybase.com/ns/music.artist.album" },
                 new Serializable[][] {
-                        { "http://rdf.mybase.com/ns/en.bob_dylan", "http://rdf.mybase.com/ns/en.bringing_it_all_back_home" },
+                        { "http://rdf.mybase.com/ns/en.bob_dylan", "http://rdf.mybase.com/ns/en.blood_on_the_tracks" },
                         { null, "http://rdf.mybase.com/ns/en.under_the_red_sky" },
-                        { null, "http://rdf.mybase.com/ns/en.blood_on_the_tracks" },
+                        { null, "http://rdf.mybase.com/ns/en.bringing_it_all_back_home" },
                 });
         assertProjectEquals(project, expectedProject);
 
@@ -122,15 +124,56 @@ public class RdfTripleImporterTests extends ImporterTest {
         Project expectedProject = createProject(
                 new String[] { "subject", "http://rdf.mybase.com/ns/music.artist.album", "http://rdf.mybase.com/ns/music.artist.genre" },
                 new Serializable[][] {
-                        { "http://rdf.mybase.com/ns/en.bob_dylan", "http://rdf.mybase.com/ns/en.bringing_it_all_back_home",
+                        { "http://rdf.mybase.com/ns/en.bob_dylan", "http://rdf.mybase.com/ns/en.blood_on_the_tracks",
                                 "http://rdf.mybase.com/ns/en.folk_rock" },
-                        { null, "http://rdf.mybase.com/ns/en.blood_on_the_tracks", null },
+                        { null, "http://rdf.mybase.com/ns/en.bringing_it_all_back_home", null },
                 });
         assertProjectEquals(project, expectedProject);
         Assert.assertEquals(project.recordModel.getRowDependency(1).cellDependencies[1].rowIndex, 0);
         Assert.assertEquals(project.recordModel.getRowDependency(1).cellDependencies[1].cellIndex, 0);
     }
 
+    @Test
+    public void canParseRepeatedTriples() {
+        String sampleRdf = "<http://rdf.mybase.com/ns/en.bob_dylan> <http://rdf.mybase.com/ns/music.artist.album> <http://rdf.mybase.com/ns/en.blood_on_the_tracks>.\n"
+                +
+                "<http://rdf.mybase.com/ns/en.bob_dylan> <http://rdf.mybase.com/ns/music.artist.album> <http://rdf.mybase.com/ns/en.under_the_red_sky>.\n"
+                +
+                "<http://rdf.mybase.com/ns/en.bob_dylan> <http://rdf.mybase.com/ns/music.artist.album> <http://rdf.mybase.com/ns/en.blood_on_the_tracks>.";
+        InputStream input = new ByteArrayInputStream(sampleRdf.getBytes(StandardCharsets.UTF_8));
+        parseOneFile(SUT, input);
+
+        Project expectedProject = createProject(
+                new String[] { "subject", "http://rdf.mybase.com/ns/music.artist.album" },
+                new Serializable[][] {
+                        { "http://rdf.mybase.com/ns/en.bob_dylan", "http://rdf.mybase.com/ns/en.blood_on_the_tracks" },
+                        { null, "http://rdf.mybase.com/ns/en.under_the_red_sky" },
+                });
+        assertProjectEquals(project, expectedProject);
+    }
+
+    @Test
+    public void stopsParsingAtLimit() {
+        String sampleRdf = "<http://rdf.mybase.com/ns/en.bob_dylan> <http://rdf.mybase.com/ns/music.artist.album> <http://rdf.mybase.com/ns/en.blood_on_the_tracks>.\n"
+                +
+                "<http://rdf.mybase.com/ns/en.bob_dylan> <http://rdf.mybase.com/ns/music.artist.album> <http://rdf.mybase.com/ns/en.under_the_red_sky>.\n"
+                +
+                "<http://rdf.mybase.com/ns/en.joan_baez> <http://rdf.mybase.com/ns/music.artist.album> <http://rdf.mybase.com/ns/en.diamonds_and_rust>.";
+        InputStream input = new ByteArrayInputStream(sampleRdf.getBytes(StandardCharsets.UTF_8));
+        List<Exception> exceptions = new ArrayList<>();
+        SUT.parseOneFile(project, metadata, job, "file-source", input, 2, options, exceptions);
+        project.update();
+
+        Assert.assertEquals(exceptions.size(), 0);
+        Project expectedProject = createProject(
+                new String[] { "subject", "http://rdf.mybase.com/ns/music.artist.album" },
+                new Serializable[][] {
+                        { "http://rdf.mybase.com/ns/en.bob_dylan", "http://rdf.mybase.com/ns/en.blood_on_the_tracks" },
+                        { null, "http://rdf.mybase.com/ns/en.under_the_red_sky" },
+                });
+        assertProjectEquals(project, expectedProject);
+    }
+
     @Test
     public void canParseTripleWithValue() throws UnsupportedEncodingException {
         String sampleRdf = "<http://rdf.mybase.com/ns/en.bob_dylan> <http://rdf.mybase.com/ns/common.topic.alias>\"Robert Zimmerman\"@en.";
@@ -178,11 +221,11 @@ public class RdfTripleImporterTests extends ImporterTest {
         assertColumnNamesMatch(project, columns);
 
         Assert.assertEquals(project.rows.size(), 5);
-        // We can't assume any particular row order here
+        // triples are imported in the order of the file
         for (Row row : project.rows) {
             if (row.cells.size() == 3) {
                 Assert.assertEquals(row.cells.get(0).value, "http://example.org/buecher/baum");
-                Assert.assertEquals(row.cells.get(1).value, "The Tree@en");
+                Assert.assertEquals(row.cells.get(1).value, "Der Baum@de");
                 Assert.assertEquals(row.cells.get(2).value, "Das Buch ist außergewöhnlich@de");
             }
         }
@@ -203,10 +246,10 @@ public class RdfTripleImporterTests extends ImporterTest {
         parseOneFile(SUT, input);
 
         Project expectedProject = createProject(
-                new String[] { "subject", "http://www.example.org/meeting_organization#attending",
-                        "http://www.example.org/personal_details#hasEmail", "http://www.example.org/personal_details#GivenName" },
+                new String[] { "subject", "http://www.example.org/personal_details#GivenName",
+                        "http://www.example.org/personal_details#hasEmail", "http://www.example.org/meeting_organization#attending" },
                 new Serializable[][] {
-                        { "http://www.example.org/people#fred", "http://meetings.example.com/cal#m1", "mailto:fred@example.com", "Fred" },
+                        { "http://www.example.org/people#fred", "Fred", "mailto:fred@example.com", "http://meetings.example.com/cal#m1" },
                 });
         assertProjectEquals(project, expectedProject);
     }
@@ -226,10 +269,10 @@ public class RdfTripleImporterTests extends ImporterTest {
         parseOneFile(SUT, input);
 
         Project expectedProject = createProject(
-                new String[] { "subject", "http://www.example.org/meeting_organization#attending",
-                        "http://www.example.org/personal_details#hasEmail", "http://www.example.org/personal_details#GivenName" },
+                new String[] { "subject", "http://www.example.org/personal_details#GivenName",
+                        "http://www.example.org/personal_details#hasEmail", "http://www.example.org/meeting_organization#attending" },
                 new Serializable[][] {
-                        { "http://www.example.org/people#fred", "http://meetings.example.com/cal#m1", "mailto:fred@example.com", "Fred" },
+                        { "http://www.example.org/people#fred", "Fred", "mailto:fred@example.com", "http://meetings.example.com/cal#m1" },
                 });
         assertProjectEquals(project, expectedProject);
     }
@@ -247,10 +290,10 @@ public class RdfTripleImporterTests extends ImporterTest {
         parseOneFile(SUT, input);
 
         Project expectedProject = createProject(
-                new String[] { "subject", "http://www.example.org/personal_details#GivenName",
-                        "http://www.example.org/personal_details#hasEmail", "http://www.example.org/meeting_organization#attending" },
+                new String[] { "subject", "http://www.example.org/meeting_organization#attending",
+                        "http://www.example.org/personal_details#hasEmail", "http://www.example.org/personal_details#GivenName" },
                 new Serializable[][] {
-                        { "http://www.example.org/people#fred", "Fred", "mailto:fred@example.com", "http://meetings.example.com/cal#m1" },
+                        { "http://www.example.org/people#fred", "http://meetings.example.com/cal#m1", "mailto:fred@example.com", "Fred" },
                 });
         assertProjectEquals(project, expectedProject);
     }
@@ -277,15 +320,14 @@ public class RdfTripleImporterTests extends ImporterTest {
         assertColumnNamesMatchUnordered(project, columns);
 
         Assert.assertEquals(project.rows.size(), 2);
-        Assert.assertEquals(project.rows.get(0).cells.size(), 3);
-        Assert.assertEquals(project.rows.get(1).cells.size(), 5);
-        Assert.assertEquals(project.rows.get(1).cells.get(0).value, "http://example.org/web-data");
+        Assert.assertEquals(project.rows.get(0).cells.size(), 5);
+        Assert.assertEquals(project.rows.get(1).cells.size(), 4);
+        Assert.assertEquals(project.rows.get(0).cells.get(0).value, "http://example.org/web-data");
         // Generated blank node ID is random, but should match (professor column of one row == subject of other)
         int profColumn = project.columnModel.getColumnNames().indexOf("http://example.org/data#professor");
         int subjColumn = project.columnModel.getColumnNames().indexOf("subject");
-        // FIXME: Rows can be reordered as well
-        Assert.assertEquals(project.rows.get(0).cells.get(subjColumn).value,
-                project.rows.get(1).cells.get(profColumn).value);
+        Assert.assertEquals(project.rows.get(1).cells.get(subjColumn).value,
+                project.rows.get(0).cells.get(profColumn).value);
     }
 
     private void assertColumnNamesMatch(Project project, String[] columns) {
@@ -331,10 +373,10 @@ public class RdfTripleImporterTests extends ImporterTest {
         parseOneFile(SUT, input);
 
         Project expectedProject = createProject(
-                new String[] { "subject", "http://www.example.org/personal_details#hasEmail",
-                        "http://www.example.org/personal_details#GivenName", "http://www.example.org/meeting_organization#attending" },
+                new String[] { "subject", "http://www.example.org/meeting_organization#attending",
+                        "http://www.example.org/personal_details#GivenName", "http://www.example.org/personal_details#hasEmail" },
                 new Serializable[][] {
-                        { "http://www.example.org/people#fred", "mailto:fred@example.com", "Fred", "http://meetings.example.com/cal#m1" },
+                        { "http://www.example.org/people#fred", "http://meetings.example.com/cal#m1", "Fred", "mailto:fred@example.com" },
                 });
         assertProjectEquals(project, expectedProject);
     }
@@ -513,6 +513,65 @@ public class SeparatorBasedImporterTests extends ImporterTest {
         assertProjectEquals(project, expectedProject);
     }
 
+    @Test(dataProvider = "CSV-TSV-AutoDetermine")
+    public void readInParallelChunks(String sep) {
+        String inputSeparator = sep == null ? "\t" : sep;
+        StringBuilder input = new StringBuilder("col1" + inputSeparator + "col2" + inputSeparator + "col3\n");
+        Serializable[][] rows = new Serializable[50][];
+        for (int i = 0; i < rows.length; i++) {
+            input.append("data" + i + inputSeparator + "\"quoted" + inputSeparator + i + "\"" + inputSeparator + i + "\n");
+            rows[i] = new Serializable[] { "data" + i, "quoted" + inputSeparator + i, Integer.toString(i) };
+        }
+
+        prepareOptions(sep, -1, 0, 0, 1, false, false);
+        parseInParallelChunks(input.toString());
+
+        assertProjectEquals(project, createProject(new String[] { "col1", "col2", "col3" }, rows));
+    }
+
+    @Test(dataProvider = "CSV-TSV-AutoDetermine")
+    public void readInParallelChunksWithMultiLinedQuotedData(String sep) {
+        String inputSeparator = sep == null ? "\t" : sep;
+        StringBuilder input = new StringBuilder("col1" + inputSeparator + "col2\n");
+        Serializable[][] rows = new Serializable[30][];
+        for (int i = 0; i < rows.length; i++) {
+            if (i == 20) {
+                input.append("\"multi\n\nline\"" + inputSeparator + i + "\n");
+                rows[i] = new Serializable[] { "multi\n\nline", Integer.toString(i) };
+            } else {
+                input.append("data" + i + inputSeparator + i + "\n");
+                rows[i] = new Serializable[] { "data" + i, Integer.toString(i) };
+            }
+        }
+
+        prepareOptions(sep, -1, 0, 0, 1, false, false);
+        parseInParallelChunks(input.toString());
+
+        assertProjectEquals(project, createProject(new String[] { "col1", "col2" }, rows));
+    }
+
+    @Test(dataProvider = "CSV-TSV-AutoDetermine")
+    public void readInParallelChunksWithUnescapedQuotes(String sep) {
+        String inputSeparator = sep == null ? "\t" : sep;
+        StringBuilder input = new StringBuilder("col1" + inputSeparator + "col2" + inputSeparator + "col3\n");
+        Serializable[][] rows = new Serializable[30][];
+        for (int i = 0; i < rows.length; i++) {
+            if (i == 20) {
+                // only the second quote opens a value, which spans the line break
+                input.append("ab\"c" + inputSeparator + "\"d\ne\"" + inputSeparator + i + "\n");
+                rows[i] = new Serializable[] { "ab\"c", "d\ne", Integer.toString(i) };
+            } else {
+                input.append("data" + i + inputSeparator + i + inputSeparator + i + "\n");
+                rows[i] = new Serializable[] { "data" + i, Integer.toString(i), Integer.toString(i) };
+            }
+        }
+
+        prepareOptions(sep, -1, 0, 0, 1, false, false);
+        parseInParallelChunks(input.toString());
+
+        assertProjectEquals(project, createProject(new String[] { "col1", "col2", "col3" }, rows));
+    }
+
     @Test(dataProvider = "CSV-TSV-AutoDetermine")
     public void customQuoteCharacter(String sep) {
         // create input to test with
@@ -728,6 +787,19 @@ public class SeparatorBasedImporterTests extends ImporterTest {
         };
     }
 
+    private void parseInParallelChunks(String input) {
+        int parallelism = ChunkedRecordParser.parallelism;
+        int chunkSize = ChunkedRecordParser.chunkSize;
+        ChunkedRecordParser.parallelism = 3;
+        ChunkedRecordParser.chunkSize = 16;
+        try {
+            parseOneFile(SUT, new StringReader(input));
+        } finally {
+            ChunkedRecordParser.parallelism = parallelism;
+            ChunkedRecordParser.chunkSize = chunkSize;
+        }
+    }
+
     protected void prepareOptions(
             String sep, int limit, int skip, int ignoreLines,
             int headerLines, boolean guessValueType, boolean ignoreQuotes) {
@@ -3,6 +3,7 @@ package com.google.refine.operations.cell;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
 
 import java.io.Serializable;
 import java.util.Map;
@@ -16,11 +17,14 @@ import org.testng.annotations.Test;
 
 import com.google.refine.RefineTest;
 import com.google.refine.browsing.EngineConfig;
+import com.google.refine.browsing.util.PartitionedRowScanner;
 import com.google.refine.expr.EvalError;
 import com.google.refine.expr.MetaParser;
 import com.google.refine.grel.Parser;
 import com.google.refine.model.ColumnsDiff;
 import com.google.refine.model.Project;
+import com.google.refine.model.changes.ColumnarCellChanges;
+import com.google.refine.model.changes.MassCellChange;
 import com.google.refine.operations.OnError;
 import com.google.refine.operations.OperationDescription;
 import com.google.refine.operations.OperationRegistry;
@@ -167,6 +171,65 @@ public class TextTransformOperationTests extends RefineTest {
         assertProjectEquals(project, expected);
     }
 
+    @Test
+    public void testTransformInPartitionsMatchesSequentialTransform() throws Exception {
+        String expression = "grel:value.toUppercase() + cells[\"bar\"].value + rowIndex";
+        ColumnarCellChanges changes = transformInPartitions(4, expression);
+        assertSameCellChanges(changes, transformInPartitions(1, expression));
+        assertEquals(changes.getRow(0), 1);
+        assertEquals(changes.getNewCell(0).value, "V1w11");
+    }
+
+    @Test
+    public void testBatchTransformInPartitionsMatchesSequentialTransform() throws Exception {
+        // evaluated in batches of values, which each partition flushes when it ends
+        String expression = "grel:value.toUppercase()";
+        assertTrue(MetaParser.parse(expression).dependsOnlyOnValue());
+        ColumnarCellChanges changes = transformInPartitions(4, expression);
+        assertSameCellChanges(changes, transformInPartitions(1, expression));
+        // the last row, flushed when the last partition ends
+        assertEquals(changes.getRow(changes.size() - 1), 99);
+        assertEquals(changes.getNewCell(changes.size() - 1).value, "V4");
+    }
+
+    void assertSameCellChanges(ColumnarCellChanges parallel, ColumnarCellChanges sequential) {
+        // all non-blank cells are changed
+        assertEquals(sequential.size(), 85);
+        assertEquals(parallel.size(), sequential.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(parallel.getRow(i), sequential.getRow(i));
+            assertEquals(parallel.getNewCell(i).value, sequential.getNewCell(i).value);
+        }
+    }
+
+    /**
+     * Transforms a column of a project large enough to be split into the given number of partitions at most, one of
+     * them meaning that its rows are visited sequentially.
+     */
+    ColumnarCellChanges transformInPartitions(int maxPartitions, String expression) throws Exception {
+        Serializable[][] grid = new Serializable[100][];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = new Serializable[] { i % 7 == 0 ? null : "v" + (i % 5), "w" + i, "x" };
+        }
+        Project project = createProject(new String[] { "foo", "bar", "hello" }, grid);
+        // otherwise the rows are visited sequentially in both cases
+        assertTrue(MetaParser.parse(expression).isThreadSafe());
+
+        TextTransformOperation operation = new TextTransformOperation(
+                EngineConfig.defaultRowBased(),
+                "foo",
+                expression,
+                OnError.SetToBlank,
+                false, 0);
+        PartitionedRowScanner.setPartitioning(maxPartitions, 10);
+        try {
+            runOperation(operation, project);
+        } finally {
+            PartitionedRowScanner.resetPartitioning();
+        }
+        return ((MassCellChange) project.history.getLastPastEntries(1).get(0).getChange()).getCellChanges();
+    }
+
     @Test
     public void testTransformIdentity() throws Exception {
         TextTransformOperation operation = new TextTransformOperation(
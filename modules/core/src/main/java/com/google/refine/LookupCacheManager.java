@@ -28,11 +28,17 @@
 package com.google.refine;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.expr.HasFieldsListImpl;
@@ -40,10 +46,15 @@ import com.google.refine.expr.WrappedRow;
 import com.google.refine.model.Column;
 import com.google.refine.model.Project;
 import com.google.refine.model.Row;
+import com.google.refine.util.IntList;
 import com.google.refine.util.LookupException;
 
 /**
  * Manage the cache of project's lookups.
+ * <p>
+ * A lookup is computed by a single thread, while the other threads needing it wait for it. Lookups are updated when the
+ * cells of their column change or rows are added, instead of being computed again. The least recently used lookups are
+ * dropped when their estimated size exceeds a memory budget.
  *
  * @author Lu Liu
  */
@@ -51,10 +62,54 @@ public class LookupCacheManager {
 
     public static final String INDEX_COLUMN_NAME = "_OpenRefine_Index_Column_Name_";
 
-    protected final Map<String, ProjectLookup> _lookups = new HashMap<>();
+    /**
+     * System property holding the number of bytes the lookups can take, a quarter of the maximum heap size by default.
+     */
+    static public final String MEMORY_BUDGET_PROPERTY = "refine.lookupCacheMemory";
+
+    protected final Map<String, LookupTask> _lookups = new ConcurrentHashMap<>();
+    protected final long _memoryBudget;
+    private final AtomicLong _accessCount = new AtomicLong();
 
     /**
-     * Computes the ProjectLookup based on combination key, returns the cached one from the HashMap if already computed.
+     * The computation of a lookup, shared by all the threads needing it.
+     */
+    static protected class LookupTask extends FutureTask<ProjectLookup> {
+
+        final protected ProjectLookup lookup;
+
+        LookupTask(LookupCacheManager manager, ProjectLookup lookup) {
+            super(() -> {
+                manager.computeLookup(lookup);
+                return lookup;
+            });
+            this.lookup = lookup;
+        }
+
+        boolean isComputed() {
+            if (!isDone()) {
+                return false;
+            }
+            try {
+                get();
+                return true;
+            } catch (InterruptedException | ExecutionException e) {
+                return false;
+            }
+        }
+    }
+
+    public LookupCacheManager() {
+        this(Long.getLong(MEMORY_BUDGET_PROPERTY, Runtime.getRuntime().maxMemory() / 4));
+    }
+
+    protected LookupCacheManager(long memoryBudget) {
+        _memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Computes the ProjectLookup based on combination key, returns the cached one if already computed. If another
+     * thread is computing it, waits for it instead of computing it again.
      *
      * @param targetProject
      *            the project to look up
@@ -64,36 +119,166 @@ public class LookupCacheManager {
      */
     public ProjectLookup getLookup(long targetProject, String targetColumn) throws LookupException {
         String key = targetProject + ";" + targetColumn;
-        if (!_lookups.containsKey(key)) {
-            ProjectLookup lookup = new ProjectLookup(targetProject, targetColumn);
-            computeLookup(lookup);
+        LookupTask task = _lookups.get(key);
+        boolean computed = false;
+        if (task == null) {
+            LookupTask newTask = new LookupTask(this, new ProjectLookup(targetProject, targetColumn));
+            task = _lookups.putIfAbsent(key, newTask);
+            if (task == null) {
+                task = newTask;
+                task.run();
+                computed = true;
+            }
+        }
+
+        ProjectLookup lookup;
+        try {
+            lookup = task.get();
+        } catch (ExecutionException e) {
+            // let the next call try again
+            _lookups.remove(key, task);
+            Throwable cause = e.getCause();
+            if (cause instanceof LookupException) {
+                throw (LookupException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new LookupException(cause.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LookupException("Interrupted while looking up column " + targetColumn);
+        }
+        lookup.lastAccess = _accessCount.incrementAndGet();
+
+        if (computed) {
+            enforceMemoryBudget(task);
+        }
+        return lookup;
+    }
+
+    /**
+     * Drops the least recently used lookups, other than the given one, until the lookups fit in the memory budget.
+     */
+    protected void enforceMemoryBudget(LookupTask keptTask) {
+        List<Map.Entry<String, LookupTask>> entries = new ArrayList<>();
+        long size = 0;
+        for (Map.Entry<String, LookupTask> entry : _lookups.entrySet()) {
+            if (entry.getValue().isComputed()) {
+                entries.add(entry);
+                size += entry.getValue().lookup.estimateSize();
+            }
+        }
+        if (size <= _memoryBudget) {
+            return;
+        }
+        entries.sort(Comparator.comparingLong(entry -> entry.getValue().lookup.lastAccess));
+        for (Map.Entry<String, LookupTask> entry : entries) {
+            if (size <= _memoryBudget) {
+                break;
+            }
+            if (entry.getValue() != keptTask && _lookups.remove(entry.getKey(), entry.getValue())) {
+                size -= entry.getValue().lookup.estimateSize();
+            }
+        }
+    }
 
-            synchronized (_lookups) {
-                _lookups.put(key, lookup);
+    /**
+     * @return the estimated number of bytes taken by the computed lookups
+     */
+    public long getEstimatedSize() {
+        long size = 0;
+        for (LookupTask task : _lookups.values()) {
+            if (task.isComputed()) {
+                size += task.lookup.estimateSize();
             }
         }
+        return size;
+    }
 
-        return _lookups.get(key);
+    /**
+     * @return the estimated number of bytes taken by the computed lookups of the given project
+     */
+    public long getEstimatedSize(long projectID) {
+        long size = 0;
+        for (LookupTask task : _lookups.values()) {
+            if (task.isComputed() && task.lookup.targetProjectID == projectID) {
+                size += task.lookup.estimateSize();
+            }
+        }
+        return size;
     }
 
     public void flushLookupsInvolvingProject(long projectID) {
-        synchronized (_lookups) {
-            for (Iterator<Map.Entry<String, ProjectLookup>> it = _lookups.entrySet().iterator(); it.hasNext();) {
-                Map.Entry<String, ProjectLookup> entry = it.next();
-                ProjectLookup lookup = entry.getValue();
-                if (lookup.targetProjectID == projectID) {
+        _lookups.values().removeIf(task -> task.lookup.targetProjectID == projectID);
+    }
+
+    public void flushLookupsInvolvingProjectColumn(long projectID, String columnName) {
+        _lookups.values().removeIf(task -> task.lookup.targetProjectID == projectID
+                && task.lookup.targetColumnName.equals(columnName));
+    }
+
+    /**
+     * Updates the lookups of a column after some of its cells were changed.
+     *
+     * @param rowIndices
+     *            the indices of the rows of the changed cells
+     * @param oldValues
+     *            the values of the cells before the change
+     * @param newValues
+     *            the values of the cells after the change
+     */
+    public void updateLookupsInvolvingProjectColumn(long projectID, String columnName, int[] rowIndices, Object[] oldValues,
+            Object[] newValues) {
+        for (Iterator<LookupTask> it = _lookups.values().iterator(); it.hasNext();) {
+            LookupTask task = it.next();
+            if (task.lookup.targetProjectID == projectID && task.lookup.targetColumnName.equals(columnName)) {
+                if (task.isComputed()) {
+                    task.lookup.update(rowIndices, oldValues, newValues);
+                } else {
+                    // it may have read some of the cells before the change
                     it.remove();
                 }
             }
         }
     }
 
-    public void flushLookupsInvolvingProjectColumn(long projectID, String columnName) {
-        synchronized (_lookups) {
-            for (Iterator<Map.Entry<String, ProjectLookup>> it = _lookups.entrySet().iterator(); it.hasNext();) {
-                Map.Entry<String, ProjectLookup> entry = it.next();
-                ProjectLookup lookup = entry.getValue();
-                if (lookup.targetProjectID == projectID && lookup.targetColumnName.equals(columnName)) {
+    /**
+     * Updates the lookups of a project after rows were inserted in it.
+     *
+     * @param index
+     *            the index of the first inserted row
+     * @param count
+     *            the number of rows inserted
+     */
+    public void updateLookupsAfterRowInsertion(Project project, int index, int count) {
+        for (Iterator<LookupTask> it = _lookups.values().iterator(); it.hasNext();) {
+            LookupTask task = it.next();
+            if (task.lookup.targetProjectID == project.id) {
+                if (task.isComputed()) {
+                    task.lookup.insertRows(project, index, count);
+                } else {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the lookups of a project after rows were removed from it.
+     *
+     * @param index
+     *            the index of the first removed row
+     * @param count
+     *            the number of rows removed
+     */
+    public void updateLookupsAfterRowRemoval(long projectID, int index, int count) {
+        for (Iterator<LookupTask> it = _lookups.values().iterator(); it.hasNext();) {
+            LookupTask task = it.next();
+            if (task.lookup.targetProjectID == projectID) {
+                if (task.isComputed()) {
+                    task.lookup.removeRows(index, count);
+                } else {
                     it.remove();
                 }
             }
@@ -113,9 +298,7 @@ public class LookupCacheManager {
 
         // if this is a lookup on the index column
         if (INDEX_COLUMN_NAME.equals(lookup.targetColumnName)) {
-            for (int r = 0; r < targetProject.rows.size(); r++) {
-                lookup.valueToRowIndices.put(String.valueOf(r), Collections.singletonList(r));
-            }
+            lookup.insertIndices(0, targetProject.rows.size());
             return; // return directly
         }
 
@@ -129,21 +312,27 @@ public class LookupCacheManager {
         int count = targetProject.rows.size();
         for (int r = 0; r < count; r++) {
             Row targetRow = targetProject.rows.get(r);
-            Object value = targetRow.getCellValue(targetColumn.getCellIndex());
-            if (ExpressionUtils.isNonBlankData(value)) {
-                String valueStr = value.toString();
-                lookup.valueToRowIndices.putIfAbsent(valueStr, new ArrayList<>());
-                lookup.valueToRowIndices.get(valueStr).add(r);
-            }
+            lookup.add(targetRow.getCellValue(targetColumn.getCellIndex()), r);
         }
     }
 
     static public class ProjectLookup {
 
+        // estimated sizes of the entries of the map and of the lists of row indices
+        static final long ENTRY_SIZE = 32 + 40 + 24 + 16;
+        static final long ROW_INDEX_SIZE = 4;
+
         final public long targetProjectID;
         final public String targetColumnName;
 
-        final public Map<Object, List<Integer>> valueToRowIndices = new HashMap<>();
+        /**
+         * The sorted indices of the rows of each non-blank value, converted to a string. Its methods must be called
+         * while holding the lock of the lookup, as it is updated when the target project changes.
+         */
+        final public Map<String, IntList> valueToRowIndices = new HashMap<>();
+
+        private int _rowIndexCount = 0;
+        volatile long lastAccess = 0;
 
         ProjectLookup(long targetProjectID, String targetColumnName) {
             this.targetProjectID = targetProjectID;
@@ -154,18 +343,128 @@ public class LookupCacheManager {
             HasFieldsListImpl rows = new HasFieldsListImpl();
             if (!ExpressionUtils.isNonBlankData(value)) return rows;
             String valueStr = value.toString();
-            if (valueToRowIndices.containsKey(valueStr)) {
-                Project targetProject = ProjectManager.singleton.getProject(targetProjectID);
-                if (targetProject != null) {
-                    for (Integer r : valueToRowIndices.get(valueStr)) {
-                        Row row = targetProject.rows.get(r);
-                        rows.add(new WrappedRow(targetProject, r, row));
-                    }
-
+            int[] rowIndices;
+            synchronized (this) {
+                IntList list = valueToRowIndices.get(valueStr);
+                if (list == null) {
                     return rows;
                 }
+                rowIndices = list.toArray();
+            }
+            Project targetProject = ProjectManager.singleton.getProject(targetProjectID);
+            if (targetProject != null) {
+                for (int r : rowIndices) {
+                    Row row = targetProject.rows.get(r);
+                    rows.add(new WrappedRow(targetProject, r, row));
+                }
             }
             return rows;
         }
+
+        /**
+         * @return the estimated number of bytes taken by this lookup
+         */
+        synchronized public long estimateSize() {
+            return valueToRowIndices.size() * ENTRY_SIZE + _rowIndexCount * ROW_INDEX_SIZE;
+        }
+
+        synchronized void add(Object value, int rowIndex) {
+            if (ExpressionUtils.isNonBlankData(value)) {
+                if (valueToRowIndices.computeIfAbsent(value.toString(), v -> new IntList(1)).insertSorted(rowIndex)) {
+                    _rowIndexCount++;
+                }
+            }
+        }
+
+        synchronized void remove(Object value, int rowIndex) {
+            if (ExpressionUtils.isNonBlankData(value)) {
+                String valueStr = value.toString();
+                IntList rowIndices = valueToRowIndices.get(valueStr);
+                if (rowIndices != null && rowIndices.removeSorted(rowIndex)) {
+                    _rowIndexCount--;
+                    if (rowIndices.isEmpty()) {
+                        valueToRowIndices.remove(valueStr);
+                    }
+                }
+            }
+        }
+
+        synchronized void update(int[] rowIndices, Object[] oldValues, Object[] newValues) {
+            // the rows of each value are updated in a single pass, as a change can touch most of the rows of a value
+            Map<String, IntList> removed = new HashMap<>();
+            Map<String, IntList> inserted = new HashMap<>();
+            for (int i = 0; i < rowIndices.length; i++) {
+                group(removed, oldValues[i], rowIndices[i]);
+                group(inserted, newValues[i], rowIndices[i]);
+            }
+            Set<String> values = new HashSet<>(removed.keySet());
+            values.addAll(inserted.keySet());
+            IntList none = new IntList(1);
+            for (String value : values) {
+                IntList removedRows = removed.getOrDefault(value, none);
+                IntList insertedRows = inserted.getOrDefault(value, none);
+                IntList rows = valueToRowIndices.get(value);
+                if (rows == null) {
+                    if (insertedRows.isEmpty()) {
+                        continue;
+                    }
+                    rows = new IntList(1);
+                    valueToRowIndices.put(value, rows);
+                }
+                removedRows.sort();
+                insertedRows.sort();
+                _rowIndexCount += rows.mergeSorted(removedRows, insertedRows);
+                if (rows.isEmpty()) {
+                    valueToRowIndices.remove(value);
+                }
+            }
+        }
+
+        static private void group(Map<String, IntList> rowIndices, Object value, int rowIndex) {
+            if (ExpressionUtils.isNonBlankData(value)) {
+                rowIndices.computeIfAbsent(value.toString(), v -> new IntList()).add(rowIndex);
+            }
+        }
+
+        synchronized void insertIndices(int from, int to) {
+            for (int r = from; r < to; r++) {
+                add(String.valueOf(r), r);
+            }
+        }
+
+        synchronized void insertRows(Project project, int index, int count) {
+            if (INDEX_COLUMN_NAME.equals(targetColumnName)) {
+                // the index of each row is its key, so this only adds the last indices
+                insertIndices(_rowIndexCount, _rowIndexCount + count);
+                return;
+            }
+            for (IntList rowIndices : valueToRowIndices.values()) {
+                rowIndices.shift(index, count);
+            }
+            Column column = project.columnModel.getColumnByName(targetColumnName);
+            if (column != null) {
+                for (int r = index; r < index + count; r++) {
+                    add(project.rows.get(r).getCellValue(column.getCellIndex()), r);
+                }
+            }
+        }
+
+        synchronized void removeRows(int index, int count) {
+            if (INDEX_COLUMN_NAME.equals(targetColumnName)) {
+                // likewise, this only removes the last indices
+                int rowCount = _rowIndexCount;
+                for (int r = Math.max(0, rowCount - count); r < rowCount; r++) {
+                    remove(String.valueOf(r), r);
+                }
+                return;
+            }
+            for (Iterator<IntList> it = valueToRowIndices.values().iterator(); it.hasNext();) {
+                IntList rowIndices = it.next();
+                _rowIndexCount -= rowIndices.removeRangeAndShift(index, count);
+                if (rowIndices.isEmpty()) {
+                    it.remove();
+                }
+            }
+        }
     }
 }
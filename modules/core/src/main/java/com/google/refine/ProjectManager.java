@@ -39,10 +39,14 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -55,6 +59,7 @@ import org.slf4j.LoggerFactory;
 
 import com.google.refine.history.HistoryEntryManager;
 import com.google.refine.model.Project;
+import com.google.refine.model.ProjectSizeEstimator;
 import com.google.refine.preference.PreferenceStore;
 import com.google.refine.preference.TopList;
 import com.google.refine.util.GetProjectIDException;
@@ -76,6 +81,17 @@ public abstract class ProjectManager {
     // Don't spend more than this much time saving projects if doing a quick save
     static protected final Duration QUICK_SAVE_MAX_TIME = Duration.ofSeconds(30);
 
+    // Don't flush a project over the memory budget if it has been accessed this recently: commands may still be
+    // operating on it, as immediate operations run without being registered as pending processes
+    static protected final Duration PROJECT_EVICTION_GRACE_PERIOD = Duration.ofMinutes(5);
+
+    /**
+     * System property holding the number of bytes of heap which the projects in memory can take, as estimated by
+     * {@link ProjectSizeEstimator}. Beyond that, the least recently accessed projects are saved and flushed from
+     * memory. It defaults to half of the maximum heap size.
+     */
+    static public final String MEMORY_BUDGET_PROPERTY = "refine.projectMemoryBudget";
+
     protected Map<Long, ProjectMetadata> _projectsMetadata;
     /**
      * Count of projects which have the given tag
@@ -102,6 +118,53 @@ public abstract class ProjectManager {
      */
     transient protected Map<Long, Project> _projects;
 
+    /**
+     * Heap which the projects in memory can take, in bytes.
+     */
+    transient protected long _memoryBudget = Long.getLong(MEMORY_BUDGET_PROPERTY, Runtime.getRuntime().maxMemory() / 2);
+    transient protected Duration _evictionGracePeriod = PROJECT_EVICTION_GRACE_PERIOD;
+    /**
+     * When each project in memory was last accessed.
+     */
+    transient private Map<Long, Access> _lastAccesses = new HashMap<>();
+    transient private long _accessCount = 0;
+    transient private long _estimatedProjectsSize = 0;
+    transient private long _evictionCount = 0;
+    // the memory budget is enforced by one thread at a time
+    transient private final Object _memoryBudgetLock = new Object();
+    transient private final AtomicBoolean _memoryBudgetCheckPending = new AtomicBoolean();
+
+    /**
+     * Thread enforcing the memory budget after projects are loaded, so that requests do not wait for other projects to
+     * be saved and flushed.
+     */
+    static private class MemoryBudgetThreadHolder {
+
+        static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "project-memory-budget");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * An access to a project, ordered by the count of the accesses to all projects.
+     */
+    static private class Access {
+
+        final long order;
+        final Instant time;
+
+        Access(long order, Instant time) {
+            this.order = order;
+            this.time = time;
+        }
+    }
+
+    private void recordAccess(long id) {
+        _lastAccesses.put(id, new Access(++_accessCount, Instant.now()));
+    }
+
     static public ProjectManager singleton;
 
     protected ProjectManager() {
@@ -123,6 +186,7 @@ public abstract class ProjectManager {
         }
 
         _projects.clear();
+        _lastAccesses.clear();
         _projectsMetadata.clear();
     }
 
@@ -137,6 +201,7 @@ public abstract class ProjectManager {
             // Row count is duplicated in metadata, so make sure it is up-to-date
             projectMetadata.setRowCount(project.rows.size());
             _projects.put(project.id, project);
+            recordAccess(project.id);
             _projectsMetadata.put(project.id, projectMetadata);
             addProjectTags(projectMetadata.getTags());
         }
@@ -223,6 +288,17 @@ public abstract class ProjectManager {
      */
     protected abstract void saveProject(Project project) throws IOException;
 
+    /**
+     * Saves a project in full, rather than the changes made since it was last saved in full, so that loading it again
+     * does not need to apply them.
+     * 
+     * @param project
+     * @throws IOException
+     */
+    protected void compactProject(Project project) throws IOException {
+        saveProject(project);
+    }
+
     /**
      * Save workspace and all projects to data store
      * 
@@ -248,10 +324,17 @@ public abstract class ProjectManager {
 
         final Project project;
         final long overdue;
+        // whether the project is saved in full, as its changes since its last full save are applied on each load
+        final boolean compact;
 
         SaveRecord(Project project, long overdue) {
+            this(project, overdue, false);
+        }
+
+        SaveRecord(Project project, long overdue, boolean compact) {
             this.project = project;
             this.overdue = overdue;
+            this.compact = compact;
         }
     }
 
@@ -271,16 +354,14 @@ public abstract class ProjectManager {
                 Project project = _projects.get(id); // don't call getProject() as that will load the project.
 
                 if (project != null) {
-                    // We use after or equals to avoid the case where a newly created project
-                    // has the same modified and last save times, resulting in the project not getting
-                    // saved at all.
-                    boolean hasUnsavedChanges = metadata.getModified().isAfter(project.getLastSave())
-                            || metadata.getModified().equals(project.getLastSave());
-
-                    if (hasUnsavedChanges) {
+                    if (hasUnsavedChanges(project, metadata)) {
                         long msecsOverdue = Duration.between(startTimeOfSave, project.getLastSave()).toMillis();
                         records.add(new SaveRecord(project, msecsOverdue));
 
+                    } else if (!allModified && project.isCompactionPending() && !project.getProcessManager().hasPending()) {
+                        // compacted by the autosaves rather than when loaded, after the projects with unsaved changes
+                        records.add(new SaveRecord(project, Long.MIN_VALUE, true));
+
                     } else if (!project.getProcessManager().hasPending()
                             && project.getLastSave().plus(PROJECT_FLUSH_DELAY).isBefore(startTimeOfSave)) {
 
@@ -289,6 +370,7 @@ public abstract class ProjectManager {
                          * safely remove it from the cache to save some memory.
                          */
                         _projects.remove(id).dispose();
+                        _lastAccesses.remove(id);
                     }
                 }
             }
@@ -306,7 +388,11 @@ public abstract class ProjectManager {
                     break;
                 }
                 try {
-                    saveProject(record.project);
+                    if (record.compact) {
+                        compactProject(record.project);
+                    } else {
+                        saveProject(record.project);
+                    }
                 } catch (Exception e) {
                     logger.error("Error when saving projects. Attempting to free memory", e);
                     // In case we're running low on memory, free as much as we can
@@ -314,6 +400,129 @@ public abstract class ProjectManager {
                 }
             }
         }
+
+        if (!allModified) {
+            // quick saves are the periodic autosaves, which run on their own thread: other saves can be requested
+            // while handling a request, which should not wait for projects to be flushed
+            enforceMemoryBudget();
+        }
+    }
+
+    protected boolean hasUnsavedChanges(Project project, ProjectMetadata metadata) {
+        // We use after or equals to avoid the case where a newly created project
+        // has the same modified and last save times, resulting in the project not getting
+        // saved at all.
+        return metadata.getModified().isAfter(project.getLastSave())
+                || metadata.getModified().equals(project.getLastSave());
+    }
+
+    /**
+     * Saves and flushes from memory the least recently accessed projects, until the projects in memory fit in the
+     * memory budget. Projects accessed during the last {@link #PROJECT_EVICTION_GRACE_PERIOD} are kept, as requests may
+     * still be operating on them. This is called by autosaves, and in the background once loading projects takes them
+     * over the budget, so that requests do not wait for other projects to be saved.
+     */
+    protected void enforceMemoryBudget() {
+        synchronized (_memoryBudgetLock) {
+            enforceMemoryBudgetNow();
+        }
+    }
+
+    private void enforceMemoryBudgetNow() {
+        List<Long> candidates = new ArrayList<>();
+        Map<Long, Long> sizes = new HashMap<>();
+        long totalSize = 0;
+        synchronized (this) {
+            Instant recent = Instant.now().minus(_evictionGracePeriod);
+            for (Entry<Long, Project> entry : _projects.entrySet()) {
+                long size = ProjectSizeEstimator.estimateRetainedSize(entry.getValue());
+                sizes.put(entry.getKey(), size);
+                totalSize += size;
+                Access access = _lastAccesses.get(entry.getKey());
+                if (access == null || !access.time.isAfter(recent)) {
+                    candidates.add(entry.getKey());
+                }
+            }
+            _estimatedProjectsSize = totalSize;
+            if (totalSize <= _memoryBudget) {
+                return;
+            }
+            candidates.sort(Comparator.comparingLong(id -> _lastAccesses.containsKey(id) ? _lastAccesses.get(id).order : 0L));
+        }
+        logger.info("Projects in memory take an estimated {} MB, over the budget of {} MB",
+                totalSize / 1048576, _memoryBudget / 1048576);
+
+        for (long id : candidates) {
+            if (totalSize <= _memoryBudget) {
+                break;
+            }
+            Project project;
+            ProjectMetadata metadata;
+            synchronized (this) {
+                project = _projects.get(id);
+                metadata = getProjectMetadata(id);
+            }
+            if (project == null || metadata == null || project.getProcessManager().hasPending()) {
+                continue;
+            }
+            if (hasUnsavedChanges(project, metadata) || project.history.getEntryCountSinceSnapshot() > 0) {
+                try {
+                    // saved in full, so that its rows are read lazily when it is loaded again
+                    compactProject(project);
+                } catch (Exception e) {
+                    logger.error("Error when saving project {} to flush it from memory", id, e);
+                    continue;
+                }
+            }
+            synchronized (this) {
+                // the project may have been accessed, modified or flushed in the meantime
+                Access access = _lastAccesses.get(id);
+                if (_projects.get(id) == project && !hasUnsavedChanges(project, metadata)
+                        && !project.getProcessManager().hasPending()
+                        && (access == null || !access.time.isAfter(Instant.now().minus(_evictionGracePeriod)))) {
+                    _projects.remove(id).dispose();
+                    _lastAccesses.remove(id);
+                    _evictionCount++;
+                    totalSize -= sizes.get(id);
+                    _estimatedProjectsSize = totalSize;
+                    logger.info("Flushed project {} from memory", id);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of projects in memory
+     */
+    @JsonIgnore
+    public int getResidentProjectCount() {
+        synchronized (this) {
+            return _projects.size();
+        }
+    }
+
+    /**
+     * @return the heap taken by the projects in memory, in bytes, as last estimated
+     */
+    @JsonIgnore
+    public long getEstimatedProjectsSize() {
+        return _estimatedProjectsSize;
+    }
+
+    /**
+     * @return the heap which the projects in memory can take, in bytes
+     */
+    @JsonIgnore
+    public long getMemoryBudget() {
+        return _memoryBudget;
+    }
+
+    /**
+     * @return the number of projects flushed from memory to fit in the memory budget
+     */
+    @JsonIgnore
+    public long getEvictionCount() {
+        return _evictionCount;
     }
 
     /**
@@ -327,6 +536,7 @@ public abstract class ProjectManager {
                 if (project != null && !project.getProcessManager().hasPending()
                         && project.getLastSave().isAfter(metadata.getModified())) {
                     _projects.remove(id).dispose();
+                    _lastAccesses.remove(id);
                 }
             }
         }
@@ -554,17 +764,39 @@ public abstract class ProjectManager {
     public Project getProject(long id) {
         synchronized (this) {
             if (_projects.containsKey(id)) {
+                recordAccess(id);
                 return _projects.get(id);
             } else {
                 Project project = loadProject(id);
                 if (project != null) {
                     _projects.put(id, project);
+                    recordAccess(id);
+                    checkMemoryBudgetAfterLoading(project);
                 }
                 return project;
             }
         }
     }
 
+    /**
+     * Adds the size of a project which was just loaded to the estimated size of the projects in memory, and enforces
+     * the memory budget in the background if it is now exceeded, as a burst of loads could otherwise fill the heap
+     * before the next autosave.
+     */
+    protected void checkMemoryBudgetAfterLoading(Project project) {
+        _estimatedProjectsSize += ProjectSizeEstimator.estimateRetainedSize(project);
+        if (_estimatedProjectsSize > _memoryBudget && _memoryBudgetCheckPending.compareAndSet(false, true)) {
+            MemoryBudgetThreadHolder.EXECUTOR.execute(() -> {
+                _memoryBudgetCheckPending.set(false);
+                try {
+                    enforceMemoryBudget();
+                } catch (Exception e) {
+                    logger.error("Error when flushing projects over the memory budget", e);
+                }
+            });
+        }
+    }
+
     /**
      * Gets the preference store
      * 
@@ -618,6 +850,7 @@ public abstract class ProjectManager {
         if (_projects.containsKey(projectID)) {
             _projects.remove(projectID).dispose();
         }
+        _lastAccesses.remove(projectID);
         _projectsMetadata.remove(projectID);
     }
 
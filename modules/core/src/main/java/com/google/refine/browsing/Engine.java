@@ -33,6 +33,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.browsing;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -44,7 +45,9 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.refine.browsing.facets.Facet;
 import com.google.refine.browsing.util.ConjunctiveFilteredRecords;
 import com.google.refine.browsing.util.ConjunctiveFilteredRows;
+import com.google.refine.browsing.util.FilterMasks;
 import com.google.refine.browsing.util.FilteredRecordsAsFilteredRows;
+import com.google.refine.browsing.util.PartitionedRowScanner;
 import com.google.refine.model.Project;
 import com.google.refine.model.Record;
 import com.google.refine.model.Row;
@@ -90,6 +93,11 @@ public class Engine {
         return _config.getMode();
     }
 
+    @JsonIgnore
+    public EngineConfig getConfig() {
+        return _config;
+    }
+
     public void setMode(Mode mode) {
         _config = new EngineConfig(_config.getFacetConfigs(), mode);
     }
@@ -100,19 +108,14 @@ public class Engine {
 
             @Override
             public void accept(Project project, RowVisitor visitor) {
-                try {
-                    visitor.start(project);
-
-                    int c = project.rows.size();
-                    for (int rowIndex = 0; rowIndex < c; rowIndex++) {
-                        Row row = project.rows.get(rowIndex);
-                        if (visitor.visit(project, rowIndex, rowIndex, row)) {
+                PartitionedRowScanner.accept(project, visitor, true, (p, v, fromRowIndex, toRowIndex) -> {
+                    for (int rowIndex = fromRowIndex; rowIndex < toRowIndex; rowIndex++) {
+                        Row row = p.rows.get(rowIndex);
+                        if (v.visit(p, rowIndex, rowIndex, row)) {
                             break;
                         }
                     }
-                } finally {
-                    visitor.end(project);
-                }
+                });
             }
         };
     }
@@ -126,13 +129,18 @@ public class Engine {
         if (_config.getMode().equals(Mode.RecordBased)) {
             return new FilteredRecordsAsFilteredRows(getFilteredRecords(except));
         } else if (_config.getMode().equals(Mode.RowBased)) {
+            List<RowFilter> rowFilters = getRowFilters();
+            BitSet[] cached = getCachedMasks(Mode.RowBased, rowFilters);
+            // the rows matched by cached filters are looked up first, so that other filters are evaluated on fewer rows
             ConjunctiveFilteredRows cfr = new ConjunctiveFilteredRows();
-            for (Facet facet : _facets) {
-                if (facet != except) {
-                    RowFilter rowFilter = facet.getRowFilter(_project);
-                    if (rowFilter != null) {
-                        cfr.add(rowFilter);
-                    }
+            for (int i = 0; i < _facets.size(); i++) {
+                if (_facets.get(i) != except && cached[i] != null) {
+                    cfr.add(FilterMasks.rowFilter(cached[i]));
+                }
+            }
+            for (int i = 0; i < _facets.size(); i++) {
+                if (_facets.get(i) != except && rowFilters.get(i) != null && cached[i] == null) {
+                    cfr.add(rowFilters.get(i));
                 }
             }
             return cfr;
@@ -168,13 +176,17 @@ public class Engine {
 
     public FilteredRecords getFilteredRecords(Facet except) {
         if (_config.getMode().equals(Mode.RecordBased)) {
+            List<RecordFilter> recordFilters = getRecordFilters();
+            BitSet[] cached = getCachedMasks(Mode.RecordBased, recordFilters);
             ConjunctiveFilteredRecords cfr = new ConjunctiveFilteredRecords();
-            for (Facet facet : _facets) {
-                if (facet != except) {
-                    RecordFilter recordFilter = facet.getRecordFilter(_project);
-                    if (recordFilter != null) {
-                        cfr.add(recordFilter);
-                    }
+            for (int i = 0; i < _facets.size(); i++) {
+                if (_facets.get(i) != except && cached[i] != null) {
+                    cfr.add(FilterMasks.recordFilter(cached[i]));
+                }
+            }
+            for (int i = 0; i < _facets.size(); i++) {
+                if (_facets.get(i) != except && recordFilters.get(i) != null && cached[i] == null) {
+                    cfr.add(recordFilters.get(i));
                 }
             }
             return cfr;
@@ -189,21 +201,86 @@ public class Engine {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Computes the choices of all facets. The filters of the facets are evaluated once for each row (or record), and
+     * each facet then visits the rows matched by all the other filters. Visiting the rows matched by all filters, or by
+     * all but one, rather goes through {@link #getFilteredRows(Facet)}, which stops evaluating the filters of a row as
+     * soon as one of them does not match.
+     */
     public void computeFacets() {
         if (_config.getMode().equals(Mode.RowBased)) {
-            for (Facet facet : _facets) {
-                FilteredRows filteredRows = getFilteredRows(facet);
-
-                facet.computeChoices(_project, filteredRows);
+            FilterMasks masks = getRowMasks();
+            for (int i = 0; i < _facets.size(); i++) {
+                _facets.get(i).computeChoices(_project, masks.getFilteredRows(i));
             }
         } else if (_config.getMode().equals(Mode.RecordBased)) {
-            for (Facet facet : _facets) {
-                FilteredRecords filteredRecords = getFilteredRecords(facet);
-
-                facet.computeChoices(_project, filteredRecords);
+            FilterMasks masks = getRecordMasks();
+            for (int i = 0; i < _facets.size(); i++) {
+                _facets.get(i).computeChoices(_project, masks.getFilteredRecords(i));
             }
         } else {
             throw new InternalError("Unknown mode.");
         }
     }
+
+    /**
+     * The rows matched by the filter of each facet, reusing those cached for the project.
+     */
+    protected FilterMasks getRowMasks() {
+        List<RowFilter> rowFilters = getRowFilters();
+        BitSet[] cached = getCachedMasks(Mode.RowBased, rowFilters);
+        FilterMasks masks = FilterMasks.forRows(_project, rowFilters, cached);
+        cacheMasks(Mode.RowBased, rowFilters, cached, masks);
+        return masks;
+    }
+
+    /**
+     * The records matched by the filter of each facet, reusing those cached for the project.
+     */
+    protected FilterMasks getRecordMasks() {
+        List<RecordFilter> recordFilters = getRecordFilters();
+        BitSet[] cached = getCachedMasks(Mode.RecordBased, recordFilters);
+        FilterMasks masks = FilterMasks.forRecords(_project, recordFilters, cached);
+        cacheMasks(Mode.RecordBased, recordFilters, cached, masks);
+        return masks;
+    }
+
+    private List<RowFilter> getRowFilters() {
+        return _facets.stream()
+                .map(facet -> facet.getRowFilter(_project))
+                .collect(Collectors.toList());
+    }
+
+    private List<RecordFilter> getRecordFilters() {
+        return _facets.stream()
+                .map(facet -> facet.getRecordFilter(_project))
+                .collect(Collectors.toList());
+    }
+
+    private boolean canCacheMasks() {
+        // facets created from something else than the configuration cannot be identified
+        return _project.filterMaskCache != null && _config.getFacetConfigs().size() == _facets.size();
+    }
+
+    private BitSet[] getCachedMasks(Mode mode, List<?> filters) {
+        BitSet[] cached = new BitSet[filters.size()];
+        if (canCacheMasks()) {
+            for (int i = 0; i < cached.length; i++) {
+                if (filters.get(i) != null) {
+                    cached[i] = _project.filterMaskCache.get(_project, mode, _config.getFacetConfigs().get(i));
+                }
+            }
+        }
+        return cached;
+    }
+
+    private void cacheMasks(Mode mode, List<?> filters, BitSet[] cached, FilterMasks masks) {
+        if (canCacheMasks()) {
+            for (int i = 0; i < cached.length; i++) {
+                if (filters.get(i) != null && cached[i] == null) {
+                    _project.filterMaskCache.put(_project, mode, _config.getFacetConfigs().get(i), masks.getMatches(i));
+                }
+            }
+        }
+    }
 }
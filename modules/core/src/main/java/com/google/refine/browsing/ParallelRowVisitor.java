@@ -0,0 +1,34 @@
+package com.google.refine.browsing;
+
+import com.google.refine.model.Project;
+
+/**
+ * A {@link RowVisitor} which can visit rows in parallel. The rows to visit are split into contiguous partitions, each
+ * of which is visited by its own visitor, obtained with {@link #createPartitionVisitor()}. Once all partitions have
+ * been visited, their visitors are merged back into this one, in the order of the rows they visited.
+ * <p>
+ * The sequence of calls made on this visitor is then {@link #start(Project)},
+ * {@link #mergePartitionVisitor(ParallelRowVisitor)} for each partition and {@link #end(Project)}. Each partition
+ * visitor goes through its own {@link #start(Project)}, visit and {@link #end(Project)} calls, from a worker thread.
+ * Returning true from a visit call only stops the visitation of the current partition, so visitors which need to abort
+ * early should not be parallel.
+ */
+public interface ParallelRowVisitor extends RowVisitor {
+
+    /**
+     * Whether this visitor can currently be split into partition visitors.
+     */
+    public default boolean isParallelizable() {
+        return true;
+    }
+
+    /**
+     * Creates a fresh visitor, with the same configuration as this one, for a partition of the rows.
+     */
+    public ParallelRowVisitor createPartitionVisitor();
+
+    /**
+     * Adds the results of a partition visitor created by {@link #createPartitionVisitor()} to this visitor.
+     */
+    public void mergePartitionVisitor(ParallelRowVisitor partitionVisitor);
+}
@@ -43,4 +43,11 @@ import com.google.refine.model.Row;
 public interface RowFilter {
 
     public boolean filterRow(Project project, int rowIndex, Row row);
+
+    /**
+     * Whether this filter can be called by several threads at the same time, so that rows can be filtered in parallel.
+     */
+    public default boolean isThreadSafe() {
+        return false;
+    }
 }
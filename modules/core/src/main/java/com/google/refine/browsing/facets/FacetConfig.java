@@ -93,6 +93,18 @@ public interface FacetConfig {
         return Optional.empty();
     }
 
+    /**
+     * Whether the filter of this facet matches the same rows as long as the columns it depends on are left unchanged,
+     * so that the rows it matches can be cached. This is not the case when its expression reads other state, such as
+     * other projects with cross() or the current time with now().
+     *
+     * @return false by default
+     */
+    @JsonIgnore
+    public default boolean isPure() {
+        return false;
+    }
+
     /**
      * Translates this facet by simultaneously substituting column names, as specified by the supplied map. This is a
      * best effort transformation: some references to columns might not get renamed in complex expressions. It can
@@ -156,6 +156,15 @@ public class ListFacet implements Facet {
             }
         }
 
+        @Override
+        public boolean isPure() {
+            try {
+                return MetaParser.parse(expression).isPure();
+            } catch (ParsingException e) {
+                return false;
+            }
+        }
+
         @Override
         public FacetConfig renameColumnDependencies(Map<String, String> substitutions) {
             String newExpression;
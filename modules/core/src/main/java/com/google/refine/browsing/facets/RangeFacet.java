@@ -152,6 +152,15 @@ public class RangeFacet implements Facet {
             }
         }
 
+        @Override
+        public boolean isPure() {
+            try {
+                return MetaParser.parse(_expression).isPure();
+            } catch (ParsingException e) {
+                return false;
+            }
+        }
+
         @Override
         public FacetConfig renameColumnDependencies(Map<String, String> substitutions) {
             String newExpression;
@@ -204,6 +204,15 @@ public class ScatterplotFacet implements Facet {
             }
         }
 
+        @Override
+        public boolean isPure() {
+            try {
+                return MetaParser.parse(expression_x).isPure() && MetaParser.parse(expression_y).isPure();
+            } catch (ParsingException e) {
+                return false;
+            }
+        }
+
         @Override
         public FacetConfig renameColumnDependencies(Map<String, String> substitutions) {
             String newExpressionX;
@@ -53,6 +53,7 @@ import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.MetaParser;
 import com.google.refine.model.Column;
 import com.google.refine.model.Project;
+import com.google.refine.util.PatternCache;
 import com.google.refine.util.PatternSyntaxExceptionParser;
 
 public class TextSearchFacet implements Facet {
@@ -91,7 +92,7 @@ public class TextSearchFacet implements Facet {
         public void validate() {
             if ("regex".equals(_mode)) {
                 try {
-                    Pattern.compile(
+                    PatternCache.compile(
                             _query,
                             _caseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
                 } catch (java.util.regex.PatternSyntaxException e) {
@@ -105,6 +106,11 @@ public class TextSearchFacet implements Facet {
             return Optional.of(Collections.singleton(_columnName));
         }
 
+        @Override
+        public boolean isPure() {
+            return true;
+        }
+
         @Override
         public FacetConfig renameColumnDependencies(Map<String, String> substitutions) {
             TextSearchFacetConfig newConfig = new TextSearchFacetConfig();
@@ -174,7 +180,7 @@ public class TextSearchFacet implements Facet {
         if (_query != null) {
             if ("regex".equals(_config._mode)) {
                 try {
-                    _pattern = Pattern.compile(
+                    _pattern = PatternCache.compile(
                             _query,
                             _config._caseSensitive ? 0 : Pattern.CASE_INSENSITIVE);
                 } catch (java.util.regex.PatternSyntaxException e) {
@@ -213,6 +219,11 @@ public class TextSearchFacet implements Facet {
                 return MetaParser.GREL_LANGUAGE_CODE;
             }
 
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+
         };
 
         if ("regex".equals(_config._mode)) {
@@ -128,4 +128,9 @@ abstract public class ExpressionNumberComparisonRowFilter implements RowFilter {
     }
 
     abstract protected boolean checkValue(double d);
+
+    @Override
+    public boolean isThreadSafe() {
+        return _rowEvaluable.isThreadSafe();
+    }
 }
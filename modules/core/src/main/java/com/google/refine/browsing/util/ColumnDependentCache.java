@@ -0,0 +1,121 @@
+package com.google.refine.browsing.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+
+/**
+ * A bounded cache of values computed from the data of a project, which are only valid as long as the project does not
+ * change.
+ * <p>
+ * Entries are looked up in the state of the project given by its last history entry. They are also dropped when the
+ * precomputed values of the columns they depend on are cleared (with {@link Column#clearPrecomputes()}), which covers
+ * changes to the data that do not go through the history. The least recently used entries are evicted first.
+ */
+public class ColumnDependentCache<V> {
+
+    // key of the precomputed value which marks the state of a column for these caches
+    static final String MARKER_PRECOMPUTE_KEY = "column-dependent-cache:marker";
+
+    static private class CachedValue<V> {
+
+        final V value;
+        final List<Column> columns;
+        final List<Object> markers;
+
+        CachedValue(V value, List<Column> columns, List<Object> markers) {
+            this.value = value;
+            this.columns = columns;
+            this.markers = markers;
+        }
+
+        boolean isValid() {
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).getPrecompute(MARKER_PRECOMPUTE_KEY) != markers.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final Map<String, CachedValue<V>> _entries;
+
+    public ColumnDependentCache(int maxEntries) {
+        _entries = new LinkedHashMap<String, CachedValue<V>>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = -3527281938473912384L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedValue<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the value stored for the given key in the current state of the project, or null if there is none
+     */
+    synchronized public V get(Project project, String key) {
+        String fullKey = getStateId(project) + ":" + key;
+        CachedValue<V> entry = _entries.get(fullKey);
+        if (entry == null) {
+            return null;
+        } else if (!entry.isValid()) {
+            _entries.remove(fullKey);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Stores a value for the given key in the current state of the project.
+     *
+     * @param columns
+     *            the columns the value was computed from
+     */
+    synchronized public void put(Project project, String key, Collection<Column> columns, V value) {
+        List<Column> dependencies = new ArrayList<>(columns);
+        List<Object> markers = new ArrayList<>(dependencies.size());
+        for (Column column : dependencies) {
+            Object marker = column.getPrecompute(MARKER_PRECOMPUTE_KEY);
+            if (marker == null) {
+                marker = new Object();
+                column.setPrecompute(MARKER_PRECOMPUTE_KEY, marker);
+            }
+            markers.add(marker);
+        }
+        _entries.put(getStateId(project) + ":" + key, new CachedValue<>(value, dependencies, markers));
+    }
+
+    synchronized public void clear() {
+        _entries.clear();
+    }
+
+    synchronized public int size() {
+        return _entries.size();
+    }
+
+    /**
+     * @return the estimated number of bytes taken by the stored values, given the size of each
+     */
+    synchronized public long estimateSize(ToLongFunction<V> valueSize) {
+        long size = 0;
+        for (CachedValue<V> entry : _entries.values()) {
+            size += valueSize.applyAsLong(entry.value);
+        }
+        return size;
+    }
+
+    protected long getStateId(Project project) {
+        List<HistoryEntry> lastEntries = project.history.getLastPastEntries(1);
+        return lastEntries.isEmpty() ? 0 : lastEntries.get(0).id;
+    }
+}
@@ -56,21 +56,28 @@ public class ConjunctiveFilteredRows implements FilteredRows {
 
     @Override
     public void accept(Project project, RowVisitor visitor) {
-        try {
-            visitor.start(project);
-
-            int c = project.rows.size();
-            for (int rowIndex = 0; rowIndex < c; rowIndex++) {
-                Row row = project.rows.get(rowIndex);
-                if (matchRow(project, rowIndex, row)) {
-                    if (visitRow(project, visitor, rowIndex, row)) {
+        PartitionedRowScanner.accept(project, visitor, isThreadSafe(), (p, v, fromRowIndex, toRowIndex) -> {
+            for (int rowIndex = fromRowIndex; rowIndex < toRowIndex; rowIndex++) {
+                Row row = p.rows.get(rowIndex);
+                if (matchRow(p, rowIndex, row)) {
+                    if (visitRow(p, v, rowIndex, row)) {
                         break;
                     }
                 }
             }
-        } finally {
-            visitor.end(project);
+        });
+    }
+
+    /**
+     * Whether rows can be matched by several threads at the same time.
+     */
+    protected boolean isThreadSafe() {
+        for (RowFilter rowFilter : _rowFilters) {
+            if (!rowFilter.isThreadSafe()) {
+                return false;
+            }
         }
+        return true;
     }
 
     protected boolean visitRow(Project project, RowVisitor visitor, int rowIndex, Row row) {
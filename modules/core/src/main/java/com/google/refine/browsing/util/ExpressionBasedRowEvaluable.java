@@ -65,4 +65,9 @@ public class ExpressionBasedRowEvaluable implements RowEvaluable {
 
         return _eval.evaluate(bindings);
     }
+
+    @Override
+    public boolean isThreadSafe() {
+        return _eval.isThreadSafe();
+    }
 }
@@ -41,8 +41,8 @@ import java.util.Map;
 import java.util.Properties;
 
 import com.google.refine.browsing.DecoratedValue;
+import com.google.refine.browsing.ParallelRowVisitor;
 import com.google.refine.browsing.RecordVisitor;
-import com.google.refine.browsing.RowVisitor;
 import com.google.refine.browsing.facets.NominalFacetChoice;
 import com.google.refine.expr.Evaluable;
 import com.google.refine.expr.ExpressionUtils;
@@ -55,7 +55,7 @@ import com.google.refine.util.StringUtils;
 /**
  * Visit matched rows or records and group them into facet choices based on the values computed from a given expression.
  */
-public class ExpressionNominalValueGrouper implements RowVisitor, RecordVisitor {
+public class ExpressionNominalValueGrouper implements ParallelRowVisitor, RecordVisitor {
 
     static public class IndexedNominalFacetChoice extends NominalFacetChoice {
 
@@ -103,6 +103,34 @@ public class ExpressionNominalValueGrouper implements RowVisitor, RecordVisitor
         // nothing to do
     }
 
+    @Override
+    public boolean isParallelizable() {
+        // subclasses could keep state that partition visitors would not have
+        return getClass() == ExpressionNominalValueGrouper.class && _evaluable.isThreadSafe();
+    }
+
+    @Override
+    public ParallelRowVisitor createPartitionVisitor() {
+        return new ExpressionNominalValueGrouper(_evaluable, _columnName, _cellIndex);
+    }
+
+    @Override
+    public void mergePartitionVisitor(ParallelRowVisitor partitionVisitor) {
+        ExpressionNominalValueGrouper partition = (ExpressionNominalValueGrouper) partitionVisitor;
+        for (Map.Entry<Object, IndexedNominalFacetChoice> entry : partition.choices.entrySet()) {
+            IndexedNominalFacetChoice choice = choices.get(entry.getKey());
+            if (choice == null) {
+                choices.put(entry.getKey(), entry.getValue());
+            } else {
+                // partitions visit disjoint rows, so each row was counted at most once for this choice
+                choice.count += entry.getValue().count;
+                choice._latestIndex = Math.max(choice._latestIndex, entry.getValue()._latestIndex);
+            }
+        }
+        blankCount += partition.blankCount;
+        errorCount += partition.errorCount;
+    }
+
     @Override
     public boolean visit(Project project, int rowIndex, Row row) {
         hasError = false;
@@ -206,6 +234,11 @@ public class ExpressionNominalValueGrouper implements RowVisitor, RecordVisitor
                 return getChoiceValueCountMultiple(value);
             }
 
+            @Override
+            public boolean isThreadSafe() {
+                return _evaluable.isThreadSafe();
+            }
+
         };
     }
 
@@ -36,8 +36,8 @@ package com.google.refine.browsing.util;
 import java.util.Collection;
 import java.util.Properties;
 
+import com.google.refine.browsing.ParallelRowVisitor;
 import com.google.refine.browsing.RecordVisitor;
-import com.google.refine.browsing.RowVisitor;
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.model.Project;
 import com.google.refine.model.Record;
@@ -46,7 +46,7 @@ import com.google.refine.model.Row;
 /**
  * Visit matched rows or records and slot them into bins based on the numbers computed from a given expression.
  */
-public class ExpressionNumericValueBinner implements RowVisitor, RecordVisitor {
+public class ExpressionNumericValueBinner implements ParallelRowVisitor, RecordVisitor {
 
     /*
      * Configuration
@@ -87,6 +87,29 @@ public class ExpressionNumericValueBinner implements RowVisitor, RecordVisitor {
         // nothing to do
     }
 
+    @Override
+    public boolean isParallelizable() {
+        // subclasses could keep state that partition visitors would not have
+        return getClass() == ExpressionNumericValueBinner.class && _rowEvaluable.isThreadSafe();
+    }
+
+    @Override
+    public ParallelRowVisitor createPartitionVisitor() {
+        return new ExpressionNumericValueBinner(_rowEvaluable, _index);
+    }
+
+    @Override
+    public void mergePartitionVisitor(ParallelRowVisitor partitionVisitor) {
+        ExpressionNumericValueBinner partition = (ExpressionNumericValueBinner) partitionVisitor;
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] += partition.bins[i];
+        }
+        numericCount += partition.numericCount;
+        nonNumericCount += partition.nonNumericCount;
+        blankCount += partition.blankCount;
+        errorCount += partition.errorCount;
+    }
+
     @Override
     public boolean visit(Project project, int rowIndex, Row row) {
         resetFlags();
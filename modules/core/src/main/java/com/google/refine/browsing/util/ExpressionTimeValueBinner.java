@@ -37,8 +37,8 @@ import java.time.OffsetDateTime;
 import java.util.Collection;
 import java.util.Properties;
 
+import com.google.refine.browsing.ParallelRowVisitor;
 import com.google.refine.browsing.RecordVisitor;
-import com.google.refine.browsing.RowVisitor;
 import com.google.refine.expr.ExpressionUtils;
 import com.google.refine.model.Project;
 import com.google.refine.model.Record;
@@ -47,7 +47,7 @@ import com.google.refine.model.Row;
 /**
  * Visit matched rows or records and slot them into bins based on the date computed from a given expression.
  */
-public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
+public class ExpressionTimeValueBinner implements ParallelRowVisitor, RecordVisitor {
 
     /*
      * Configuration
@@ -88,6 +88,29 @@ public class ExpressionTimeValueBinner implements RowVisitor, RecordVisitor {
         // nothing to do
     }
 
+    @Override
+    public boolean isParallelizable() {
+        // subclasses could keep state that partition visitors would not have
+        return getClass() == ExpressionTimeValueBinner.class && _rowEvaluable.isThreadSafe();
+    }
+
+    @Override
+    public ParallelRowVisitor createPartitionVisitor() {
+        return new ExpressionTimeValueBinner(_rowEvaluable, _index);
+    }
+
+    @Override
+    public void mergePartitionVisitor(ParallelRowVisitor partitionVisitor) {
+        ExpressionTimeValueBinner partition = (ExpressionTimeValueBinner) partitionVisitor;
+        for (int i = 0; i < bins.length; i++) {
+            bins[i] += partition.bins[i];
+        }
+        timeCount += partition.timeCount;
+        nonTimeCount += partition.nonTimeCount;
+        blankCount += partition.blankCount;
+        errorCount += partition.errorCount;
+    }
+
     @Override
     public boolean visit(Project project, int rowIndex, Row row) {
         resetFlags();
@@ -0,0 +1,85 @@
+package com.google.refine.browsing.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.Engine.Mode;
+import com.google.refine.browsing.facets.FacetConfig;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+import com.google.refine.util.ParsingUtilities;
+
+/**
+ * Remembers the rows (or records) matched by the filters of facets in a project, so that they do not need to be
+ * evaluated again as long as the project does not change, for instance when paging through rows or when only one facet
+ * of many was changed.
+ * <p>
+ * Entries are keyed by the serialized facet configuration and depend on the columns the facet reads, or all columns
+ * when they cannot be isolated. Facets which are not {@link FacetConfig#isPure() pure} are not cached.
+ */
+public class FilterMaskCache extends ColumnDependentCache<BitSet> {
+
+    static final int MAX_ENTRIES = 32;
+
+    public FilterMaskCache() {
+        super(MAX_ENTRIES);
+    }
+
+    /**
+     * @return the positions matched by the filter of the given facet, or null if they are not known. The returned set
+     *         must not be modified.
+     */
+    public BitSet get(Project project, Mode mode, FacetConfig config) {
+        String key = getKey(mode, config);
+        return key == null ? null : get(project, key);
+    }
+
+    /**
+     * Stores the positions matched by the filter of the given facet, which must not be modified afterwards.
+     */
+    public void put(Project project, Mode mode, FacetConfig config, BitSet matches) {
+        String key = getKey(mode, config);
+        if (key != null) {
+            put(project, key, getDependencies(project, config), matches);
+        }
+    }
+
+    protected String getKey(Mode mode, FacetConfig config) {
+        if (!config.isPure()) {
+            // the rows it matches can change without any change to the project
+            return null;
+        }
+        try {
+            return Engine.modeToString(mode) + ":" + ParsingUtilities.mapper.writeValueAsString(config);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The columns the filter of a facet depends on: all columns of the project when they cannot be isolated.
+     */
+    protected List<Column> getDependencies(Project project, FacetConfig config) {
+        Optional<Set<String>> columnNames = config.getColumnDependencies();
+        if (columnNames.isPresent()) {
+            List<Column> columns = new ArrayList<>(columnNames.get().size());
+            for (String columnName : columnNames.get()) {
+                Column column = project.columnModel.getColumnByName(columnName);
+                if (column == null) {
+                    break;
+                }
+                columns.add(column);
+            }
+            if (columns.size() == columnNames.get().size()) {
+                return columns;
+            }
+        }
+        return new ArrayList<>(project.columnModel.columns);
+    }
+}
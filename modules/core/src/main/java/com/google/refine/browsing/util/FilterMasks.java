@@ -0,0 +1,285 @@
+package com.google.refine.browsing.util;
+
+import java.util.BitSet;
+import java.util.List;
+
+import com.google.refine.browsing.FilteredRecords;
+import com.google.refine.browsing.FilteredRows;
+import com.google.refine.browsing.ParallelRowVisitor;
+import com.google.refine.browsing.RecordFilter;
+import com.google.refine.browsing.RecordVisitor;
+import com.google.refine.browsing.RowFilter;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.model.Project;
+import com.google.refine.model.Record;
+import com.google.refine.model.Row;
+
+/**
+ * Evaluates the filters of several facets in a single pass over a project, recording which rows (or records) each of
+ * them matches. The rows matched by all filters but one can then be visited without evaluating any filter again, which
+ * is what each facet needs to compute its choices.
+ * <p>
+ * Filters are given by position and may be null, for facets which do not filter anything.
+ */
+public class FilterMasks {
+
+    // _prefixes[i] is the conjunction of the filters before i, _suffixes[i] of the filters from i on;
+    // null stands for a mask matching everything
+    private final BitSet[] _prefixes;
+    private final BitSet[] _suffixes;
+
+    // the positions matched by each filter, null where there is no filter
+    private final BitSet[] _matches;
+
+    private FilterMasks(BitSet[] matches) {
+        _matches = matches;
+        int n = matches.length;
+        _prefixes = new BitSet[n + 1];
+        _suffixes = new BitSet[n + 1];
+        for (int i = 0; i < n; i++) {
+            _prefixes[i + 1] = and(_prefixes[i], matches[i]);
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            _suffixes[i] = and(_suffixes[i + 1], matches[i]);
+        }
+    }
+
+    private static BitSet and(BitSet a, BitSet b) {
+        if (a == null) {
+            return b;
+        } else if (b == null) {
+            return a;
+        }
+        BitSet result = (BitSet) a.clone();
+        result.and(b);
+        return result;
+    }
+
+    /**
+     * Evaluates the given row filters on all rows of the project.
+     */
+    static public FilterMasks forRows(Project project, List<RowFilter> rowFilters) {
+        return forRows(project, rowFilters, new BitSet[rowFilters.size()]);
+    }
+
+    /**
+     * Evaluates the given row filters on all rows of the project, except those for which the matching rows are already
+     * known.
+     *
+     * @param knownMatches
+     *            for each filter, the rows it is already known to match, or null if the filter must be evaluated
+     */
+    static public FilterMasks forRows(Project project, List<RowFilter> rowFilters, BitSet[] knownMatches) {
+        BitSet[] matches = knownMatches.clone();
+        RowFilter[] filters = new RowFilter[matches.length];
+        boolean evaluate = false;
+        for (int i = 0; i < matches.length; i++) {
+            if (rowFilters.get(i) != null && matches[i] == null) {
+                filters[i] = rowFilters.get(i);
+                matches[i] = new BitSet(project.rows.size());
+                evaluate = true;
+            }
+        }
+        if (evaluate) {
+            boolean threadSafe = true;
+            for (RowFilter filter : filters) {
+                threadSafe &= filter == null || filter.isThreadSafe();
+            }
+            RowMatcher matcher = new RowMatcher(filters, matches);
+            PartitionedRowScanner.accept(project, matcher, threadSafe, (p, v, fromRowIndex, toRowIndex) -> {
+                for (int rowIndex = fromRowIndex; rowIndex < toRowIndex; rowIndex++) {
+                    v.visit(p, rowIndex, rowIndex, p.rows.get(rowIndex));
+                }
+            });
+        }
+        return new FilterMasks(matches);
+    }
+
+    /**
+     * Records the rows matched by each filter, possibly from several partitions of the rows in parallel.
+     */
+    static private class RowMatcher implements ParallelRowVisitor {
+
+        final RowFilter[] filters;
+        final BitSet[] matches;
+
+        RowMatcher(RowFilter[] filters, BitSet[] matches) {
+            this.filters = filters;
+            this.matches = matches;
+        }
+
+        @Override
+        public void start(Project project) {
+        }
+
+        @Override
+        public boolean visit(Project project, int rowIndex, Row row) {
+            for (int i = 0; i < filters.length; i++) {
+                if (filters[i] != null && filters[i].filterRow(project, rowIndex, row)) {
+                    matches[i].set(rowIndex);
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void end(Project project) {
+        }
+
+        @Override
+        public ParallelRowVisitor createPartitionVisitor() {
+            BitSet[] partitionMatches = new BitSet[matches.length];
+            for (int i = 0; i < matches.length; i++) {
+                partitionMatches[i] = filters[i] == null ? null : new BitSet();
+            }
+            return new RowMatcher(filters, partitionMatches);
+        }
+
+        @Override
+        public void mergePartitionVisitor(ParallelRowVisitor partitionVisitor) {
+            RowMatcher partition = (RowMatcher) partitionVisitor;
+            for (int i = 0; i < matches.length; i++) {
+                if (filters[i] != null) {
+                    matches[i].or(partition.matches[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates the given record filters on all records of the project.
+     */
+    static public FilterMasks forRecords(Project project, List<RecordFilter> recordFilters) {
+        return forRecords(project, recordFilters, new BitSet[recordFilters.size()]);
+    }
+
+    /**
+     * Evaluates the given record filters on all records of the project, except those for which the matching records are
+     * already known.
+     *
+     * @param knownMatches
+     *            for each filter, the records it is already known to match, or null if the filter must be evaluated
+     */
+    static public FilterMasks forRecords(Project project, List<RecordFilter> recordFilters, BitSet[] knownMatches) {
+        BitSet[] matches = knownMatches.clone();
+        RecordFilter[] filters = new RecordFilter[matches.length];
+        boolean evaluate = false;
+        for (int i = 0; i < matches.length; i++) {
+            if (recordFilters.get(i) != null && matches[i] == null) {
+                filters[i] = recordFilters.get(i);
+                matches[i] = new BitSet(project.recordModel.getRecordCount());
+                evaluate = true;
+            }
+        }
+        if (evaluate) {
+            int c = project.recordModel.getRecordCount();
+            for (int r = 0; r < c; r++) {
+                Record record = project.recordModel.getRecord(r);
+                for (int i = 0; i < filters.length; i++) {
+                    if (filters[i] != null && filters[i].filterRecord(project, record)) {
+                        matches[i].set(r);
+                    }
+                }
+            }
+        }
+        return new FilterMasks(matches);
+    }
+
+    /**
+     * @return a filter matching the rows set in the given mask, which must not be modified while the filter is in use
+     */
+    static public RowFilter rowFilter(BitSet matches) {
+        return new RowFilter() {
+
+            @Override
+            public boolean filterRow(Project project, int rowIndex, Row row) {
+                return matches.get(rowIndex);
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return a filter matching the records set in the given mask, which must not be modified while the filter is in
+     *         use
+     */
+    static public RecordFilter recordFilter(BitSet matches) {
+        return (project, record) -> matches.get(record.recordIndex);
+    }
+
+    /**
+     * @return the positions matched by the filter at the given position, or null if there is no filter there. The
+     *         returned set must not be modified.
+     */
+    public BitSet getMatches(int index) {
+        return _matches[index];
+    }
+
+    /**
+     * @param except
+     *            position of the filter to ignore, or -1 to take all of them into account
+     * @return the mask of positions matched by all filters except the given one, or null if they match everything
+     */
+    protected BitSet getMask(int except) {
+        if (except < 0) {
+            return _prefixes[_prefixes.length - 1];
+        }
+        return and(_prefixes[except], _suffixes[except + 1]);
+    }
+
+    /**
+     * Rows matching all filters except the one at the given position, for masks built with
+     * {@link #forRows(Project, List)}.
+     */
+    public FilteredRows getFilteredRows(int except) {
+        BitSet mask = getMask(except);
+        return new FilteredRows() {
+
+            @Override
+            public void accept(Project project, RowVisitor visitor) {
+                PartitionedRowScanner.accept(project, visitor, true, (p, v, fromRowIndex, toRowIndex) -> {
+                    int rowIndex = mask == null ? fromRowIndex : mask.nextSetBit(fromRowIndex);
+                    while (rowIndex >= 0 && rowIndex < toRowIndex) {
+                        if (v.visit(p, rowIndex, rowIndex, p.rows.get(rowIndex))) {
+                            break;
+                        }
+                        rowIndex = mask == null ? rowIndex + 1 : mask.nextSetBit(rowIndex + 1);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Records matching all filters except the one at the given position, for masks built with
+     * {@link #forRecords(Project, List)}.
+     */
+    public FilteredRecords getFilteredRecords(int except) {
+        BitSet mask = getMask(except);
+        return new FilteredRecords() {
+
+            @Override
+            public void accept(Project project, RecordVisitor visitor) {
+                try {
+                    visitor.start(project);
+
+                    int c = project.recordModel.getRecordCount();
+                    int r = mask == null ? 0 : mask.nextSetBit(0);
+                    while (r >= 0 && r < c) {
+                        Record record = project.recordModel.getRecord(r);
+                        if (visitor.visit(project, record.fromRowIndex, record)) {
+                            break;
+                        }
+                        r = mask == null ? r + 1 : mask.nextSetBit(r + 1);
+                    }
+                } finally {
+                    visitor.end(project);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,147 @@
+package com.google.refine.browsing.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.google.refine.browsing.ParallelRowVisitor;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.io.PagedRowList;
+import com.google.refine.model.Project;
+
+/**
+ * Runs a scan of the rows of a project with a {@link RowVisitor}. When the visitor is a {@link ParallelRowVisitor} and
+ * the project is large enough, the rows are split into contiguous partitions which are scanned in parallel on a shared
+ * fork-join pool, and the partition visitors are then merged in order. Otherwise, the rows are scanned sequentially.
+ * <p>
+ * The number of threads of the pool can be set with the {@link #PARALLELISM_PROPERTY} system property, which defaults
+ * to the number of available processors. Setting it to 1 disables parallel scanning.
+ */
+public class PartitionedRowScanner {
+
+    static public final String PARALLELISM_PROPERTY = "refine.rowScan.parallelism";
+
+    static final int DEFAULT_MIN_PARTITION_SIZE = 8192;
+
+    // number of partitions to split scans into, at most
+    static int parallelism = getDefaultParallelism();
+
+    // below this number of rows per partition, splitting costs more than it saves
+    static int minPartitionSize = DEFAULT_MIN_PARTITION_SIZE;
+
+    static private class PoolHolder {
+
+        static final ForkJoinPool POOL = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Visits the rows of a range, in order, stopping when the visitor asks to.
+     */
+    @FunctionalInterface
+    public interface RangeScan {
+
+        public void scan(Project project, RowVisitor visitor, int fromRowIndex, int toRowIndex);
+    }
+
+    private PartitionedRowScanner() {
+    }
+
+    static private int getDefaultParallelism() {
+        return Math.max(1, Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Changes how scans are split, so that tests can scan small projects in parallel, or large ones sequentially. The
+     * defaults are restored with {@link #resetPartitioning()}.
+     *
+     * @param maxPartitions
+     *            the number of partitions to split scans into, at most
+     * @param minRowsPerPartition
+     *            the number of rows each partition holds, at least
+     */
+    static public void setPartitioning(int maxPartitions, int minRowsPerPartition) {
+        parallelism = maxPartitions;
+        minPartitionSize = minRowsPerPartition;
+    }
+
+    /**
+     * @return the number of partitions scans are split into, at most
+     */
+    static public int getParallelism() {
+        return parallelism;
+    }
+
+    static public void resetPartitioning() {
+        parallelism = getDefaultParallelism();
+        minPartitionSize = DEFAULT_MIN_PARTITION_SIZE;
+    }
+
+    /**
+     * Scans all rows of the project, calling {@link RowVisitor#start(Project)} and {@link RowVisitor#end(Project)}
+     * around the scan.
+     *
+     * @param project
+     *            the project to scan
+     * @param visitor
+     *            the visitor to scan the rows with
+     * @param threadSafe
+     *            whether the range scan can be run by several threads at the same time
+     * @param rangeScan
+     *            the scan of a range of rows, which decides which rows are visited
+     */
+    static public void accept(Project project, RowVisitor visitor, boolean threadSafe, RangeScan rangeScan) {
+        int rowCount = project.rows.size();
+        int partitionCount = threadSafe ? getPartitionCount(visitor, rowCount) : 1;
+        try {
+            visitor.start(project);
+
+            if (partitionCount <= 1) {
+                rangeScan.scan(project, visitor, 0, rowCount);
+            } else {
+                ParallelRowVisitor parallelVisitor = (ParallelRowVisitor) visitor;
+                List<ForkJoinTask<ParallelRowVisitor>> tasks = new ArrayList<>(partitionCount);
+                for (int i = 0; i < partitionCount; i++) {
+                    int fromRowIndex = getPartitionStart(project, rowCount, i, partitionCount);
+                    int toRowIndex = getPartitionStart(project, rowCount, i + 1, partitionCount);
+                    ParallelRowVisitor partitionVisitor = parallelVisitor.createPartitionVisitor();
+                    tasks.add(ForkJoinTask.adapt(() -> {
+                        try {
+                            partitionVisitor.start(project);
+                            rangeScan.scan(project, partitionVisitor, fromRowIndex, toRowIndex);
+                        } finally {
+                            partitionVisitor.end(project);
+                        }
+                        return partitionVisitor;
+                    }));
+                }
+                PoolHolder.POOL.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+                for (ForkJoinTask<ParallelRowVisitor> task : tasks) {
+                    parallelVisitor.mergePartitionVisitor(task.join());
+                }
+            }
+        } finally {
+            visitor.end(project);
+        }
+    }
+
+    /**
+     * @return the index of the first row of a partition, which is the end of the previous one. Partitions of rows read
+     *         from disk start on block boundaries, so that each block is read by a single partition.
+     */
+    static public int getPartitionStart(Project project, int rowCount, int partition, int partitionCount) {
+        int rowIndex = (int) ((long) rowCount * partition / partitionCount);
+        if (project.rows instanceof PagedRowList) {
+            rowIndex = ((PagedRowList) project.rows).getBlockStart(rowIndex);
+        }
+        return rowIndex;
+    }
+
+    static int getPartitionCount(RowVisitor visitor, int rowCount) {
+        if (parallelism <= 1 || !(visitor instanceof ParallelRowVisitor)
+                || !((ParallelRowVisitor) visitor).isParallelizable()) {
+            return 1;
+        }
+        return Math.min(parallelism, rowCount / minPartitionSize);
+    }
+}
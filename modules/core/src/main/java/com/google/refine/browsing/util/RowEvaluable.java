@@ -41,4 +41,11 @@ import com.google.refine.model.Row;
 public interface RowEvaluable {
 
     public Object eval(Project project, int rowIndex, Row row, Properties bindings);
+
+    /**
+     * Whether this can be evaluated by several threads at the same time, each of them with its own bindings.
+     */
+    public default boolean isThreadSafe() {
+        return false;
+    }
 }
@@ -139,4 +139,9 @@ public class FingerprintKeyer extends Keyer {
         return result.toString();
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
 }
@@ -41,4 +41,11 @@ public abstract class Keyer {
 
     public abstract String key(String string, Object... params);
 
+    /**
+     * Whether this keyer can be called by several threads at the same time, so that clustering can be done in parallel.
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
 }
@@ -113,4 +113,64 @@ public interface Evaluable {
         return this;
     }
 
+    /**
+     * Whether this expression can be evaluated by several threads at the same time, each of them with its own bindings.
+     * This makes it possible to evaluate it on partitions of a project in parallel.
+     *
+     * @return false by default, as the interpreters of some languages keep state between evaluations
+     */
+    public default boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Whether this expression only reads the "value" variable, and no other variable nor state, so that it always
+     * evaluates to equal results for equal values. The results of such expressions can be reused between cells with the
+     * same value, see {@link MemoizedEvaluable}.
+     *
+     * @return false by default
+     */
+    public default boolean dependsOnlyOnValue() {
+        return false;
+    }
+
+    /**
+     * Whether this expression only reads the rows of the project through its bindings, and no other state such as other
+     * projects or the current time, so that it evaluates to equal results as long as the columns it depends on are left
+     * unchanged. Results computed from such expressions, such as the rows matched by facets, can be cached.
+     *
+     * @return false by default
+     */
+    public default boolean isPure() {
+        return false;
+    }
+
+    /**
+     * Evaluates this expression on a batch of values: out[i] receives the result of evaluating it with the "value"
+     * variable bound to values[i], for i below n. This is only meant for expressions which {@link #dependsOnlyOnValue()
+     * only depend on the value}, as the other variables of the bindings are left as they are.
+     * <p>
+     * By default, the expression is evaluated for each value in turn. Expressions which can process the whole batch at
+     * once, such as compiled GREL expressions, override it.
+     */
+    public default void evaluateBatch(Properties bindings, Object[] values, int n, Object[] out) {
+        Object previous = bindings.get("value");
+        try {
+            for (int i = 0; i < n; i++) {
+                if (values[i] != null) {
+                    bindings.put("value", values[i]);
+                } else {
+                    bindings.remove("value");
+                }
+                out[i] = evaluate(bindings);
+            }
+        } finally {
+            if (previous != null) {
+                bindings.put("value", previous);
+            } else {
+                bindings.remove("value");
+            }
+        }
+    }
+
 }
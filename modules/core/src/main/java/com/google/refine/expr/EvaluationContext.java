@@ -0,0 +1,242 @@
+package com.google.refine.expr;
+
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * The variables an expression is evaluated against. The variables bound for each row are held in fixed slots, which are
+ * read and written without locking nor hashing, while other variables, such as the ones added by {@link Binder}s, are
+ * stored as in any {@link java.util.Properties}.
+ * <p>
+ * Contexts are {@link java.util.Properties}, so that they can be passed to {@link Evaluable#evaluate} and functions
+ * like the bindings they replace. Unlike those, they are not synchronized: each thread evaluating expressions must use
+ * its own context.
+ */
+public class EvaluationContext extends java.util.Properties {
+
+    private static final long serialVersionUID = 1L;
+
+    static public final int PROJECT = 0;
+    static public final int ROW_INDEX = 1;
+    static public final int ROW = 2;
+    static public final int CELLS = 3;
+    static public final int COLUMN_NAME = 4;
+    static public final int CELL = 5;
+    static public final int VALUE = 6;
+    static final int SLOT_COUNT = 7;
+
+    static final String[] SLOT_NAMES = { "project", "rowIndex", "row", "cells", "columnName", "cell", "value" };
+
+    private Object[] _slots = new Object[SLOT_COUNT];
+
+    /**
+     * @return the slot holding the variable with the given name, or -1 if it is stored in the fallback map
+     */
+    static public int slotOf(Object name) {
+        if (!(name instanceof String)) {
+            return -1;
+        }
+        switch ((String) name) {
+            case "project":
+                return PROJECT;
+            case "rowIndex":
+                return ROW_INDEX;
+            case "row":
+                return ROW;
+            case "cells":
+                return CELLS;
+            case "columnName":
+                return COLUMN_NAME;
+            case "cell":
+                return CELL;
+            case "value":
+                return VALUE;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * @return the value of the variable held in the given slot, or null if it is not bound
+     */
+    public Object getSlot(int slot) {
+        return _slots[slot];
+    }
+
+    /**
+     * Binds the variable held in the given slot, or unbinds it if the value is null.
+     */
+    public void setSlot(int slot, Object value) {
+        _slots[slot] = value;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int slot = slotOf(key);
+        return slot >= 0 ? _slots[slot] : super.get(key);
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return super.put(key, value);
+        }
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        Object previous = _slots[slot];
+        _slots[slot] = value;
+        return previous;
+    }
+
+    @Override
+    public void putAll(Map<?, ?> variables) {
+        for (Map.Entry<?, ?> entry : variables.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public Object getOrDefault(Object key, Object defaultValue) {
+        Object value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return super.remove(key);
+        }
+        Object previous = _slots[slot];
+        _slots[slot] = null;
+        return previous;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = slotOf(key);
+        return slot >= 0 ? _slots[slot] != null : super.containsKey(key);
+    }
+
+    @Override
+    public String getProperty(String key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return super.getProperty(key);
+        }
+        return _slots[slot] instanceof String ? (String) _slots[slot] : null;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            _slots[i] = null;
+        }
+    }
+
+    @Override
+    public EvaluationContext clone() {
+        copySlots();
+        EvaluationContext clone = (EvaluationContext) super.clone();
+        clone._slots = _slots.clone();
+        return clone;
+    }
+
+    /**
+     * Copies the slots to the fallback map, so that the methods operating on all the variables see them. Those are not
+     * used during evaluation, so they can afford it. Views of the variables do not reflect later changes to the slots.
+     */
+    private void copySlots() {
+        for (int i = 0; i < SLOT_COUNT; i++) {
+            if (_slots[i] != null) {
+                super.put(SLOT_NAMES[i], _slots[i]);
+            } else {
+                super.remove(SLOT_NAMES[i]);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        copySlots();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        copySlots();
+        return super.isEmpty();
+    }
+
+    @Override
+    public Enumeration<Object> keys() {
+        copySlots();
+        return super.keys();
+    }
+
+    @Override
+    public Enumeration<Object> elements() {
+        copySlots();
+        return super.elements();
+    }
+
+    @Override
+    public boolean contains(Object value) {
+        copySlots();
+        return super.contains(value);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        copySlots();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Set<Object> keySet() {
+        copySlots();
+        return super.keySet();
+    }
+
+    @Override
+    public Set<Map.Entry<Object, Object>> entrySet() {
+        copySlots();
+        return super.entrySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        copySlots();
+        return super.values();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super Object, ? super Object> action) {
+        copySlots();
+        super.forEach(action);
+    }
+
+    @Override
+    public String toString() {
+        copySlots();
+        return super.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        copySlots();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        copySlots();
+        return super.hashCode();
+    }
+}
@@ -56,8 +56,20 @@ public class ExpressionUtils {
         s_binders.add(binder);
     }
 
+    /**
+     * Creates the bindings to evaluate expressions against the rows of a project. They are an
+     * {@link EvaluationContext}, see {@link #createEvaluationContext(Project)}.
+     */
     static public Properties createBindings(Project project) {
-        Properties bindings = new Properties();
+        return createEvaluationContext(project);
+    }
+
+    /**
+     * Creates the bindings to evaluate expressions against the rows of a project, as an {@link EvaluationContext} whose
+     * slots are set by {@link #bind(EvaluationContext, Row, int, String, Cell)}.
+     */
+    static public EvaluationContext createEvaluationContext(Project project) {
+        EvaluationContext bindings = new EvaluationContext();
 
         bindings.put("true", true);
         bindings.put("false", false);
@@ -73,6 +85,10 @@ public class ExpressionUtils {
     }
 
     static public void bind(Properties bindings, Row row, int rowIndex, String columnName, Cell cell) {
+        if (bindings instanceof EvaluationContext) {
+            bind((EvaluationContext) bindings, row, rowIndex, columnName, cell);
+            return;
+        }
         Project project = (Project) bindings.get("project");
 
         bindings.put("rowIndex", rowIndex);
@@ -100,6 +116,30 @@ public class ExpressionUtils {
         }
     }
 
+    static public void bind(EvaluationContext bindings, Row row, int rowIndex, String columnName, Cell cell) {
+        Project project = (Project) bindings.getSlot(EvaluationContext.PROJECT);
+
+        bindings.setSlot(EvaluationContext.ROW_INDEX, rowIndex);
+        bindings.setSlot(EvaluationContext.ROW, new WrappedRow(project, rowIndex, row));
+        bindings.setSlot(EvaluationContext.CELLS, new CellTuple(project, row));
+
+        if (columnName != null) {
+            bindings.setSlot(EvaluationContext.COLUMN_NAME, columnName);
+        }
+
+        if (cell == null) {
+            bindings.setSlot(EvaluationContext.CELL, null);
+            bindings.setSlot(EvaluationContext.VALUE, null);
+        } else {
+            bindings.setSlot(EvaluationContext.CELL, new WrappedCell(project, columnName, cell));
+            bindings.setSlot(EvaluationContext.VALUE, cell.value);
+        }
+
+        for (Binder binder : s_binders) {
+            binder.bind(bindings, row, rowIndex, columnName, cell);
+        }
+    }
+
     static public boolean isError(Object o) {
         return o instanceof EvalError;
     }
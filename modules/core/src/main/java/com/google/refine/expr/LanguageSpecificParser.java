@@ -63,4 +63,16 @@ public interface LanguageSpecificParser {
     default public Evaluable parse(String source, String languagePrefix) throws ParsingException {
         return parse(source);
     }
+
+    /**
+     * Whether {@link MetaParser} can return the same expression every time the same source is parsed, instead of
+     * parsing it again. Several requests can then evaluate the same expression, so it must not keep any state between
+     * evaluations. This is independent from {@link Evaluable#isThreadSafe()}, which additionally lets a single
+     * operation or facet evaluate the expression in parallel partitions.
+     *
+     * @return false by default, so that parsers opt in
+     */
+    default public boolean isCacheable() {
+        return false;
+    }
 }
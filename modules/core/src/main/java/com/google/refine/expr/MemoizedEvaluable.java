@@ -0,0 +1,145 @@
+package com.google.refine.expr;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An expression which {@link Evaluable#dependsOnlyOnValue() only depends on the value} of cells, evaluated once per
+ * distinct value. It is meant to be created for each operation evaluating the expression on many cells, as it keeps the
+ * results in memory as long as it is referenced.
+ * <p>
+ * The number of results kept is bounded: once the bound is reached, other values are evaluated every time.
+ */
+public class MemoizedEvaluable implements Evaluable {
+
+    /**
+     * System property holding the maximum number of results kept by each memoized expression. Setting it to 0 disables
+     * memoization.
+     */
+    static public final String MAX_RESULTS_PROPERTY = "refine.expressionMemoSize";
+    static final int DEFAULT_MAX_RESULTS = 100000;
+
+    // stands for null values and results, which concurrent maps do not accept
+    static private final Object NULL = new Object();
+
+    final protected Evaluable _evaluable;
+    final protected int _maxResults;
+    final protected Map<Object, Object> _results = new ConcurrentHashMap<>();
+
+    protected MemoizedEvaluable(Evaluable evaluable, int maxResults) {
+        _evaluable = evaluable;
+        _maxResults = maxResults;
+    }
+
+    /**
+     * @return an expression reusing the results of the given one for equal values, or the given expression itself if it
+     *         depends on anything else
+     */
+    static public Evaluable memoize(Evaluable evaluable) {
+        int maxResults = Integer.getInteger(MAX_RESULTS_PROPERTY, DEFAULT_MAX_RESULTS);
+        if (maxResults <= 0 || evaluable instanceof MemoizedEvaluable || !evaluable.dependsOnlyOnValue()) {
+            return evaluable;
+        }
+        return new MemoizedEvaluable(evaluable, maxResults);
+    }
+
+    @Override
+    public Object evaluate(Properties bindings) {
+        Object value = bindings instanceof EvaluationContext
+                ? ((EvaluationContext) bindings).getSlot(EvaluationContext.VALUE)
+                : bindings.get("value");
+        Object key = value == null ? NULL : value;
+
+        Object result = _results.get(key);
+        if (result == null) {
+            result = _evaluable.evaluate(bindings);
+            if (_results.size() < _maxResults) {
+                _results.put(key, result == null ? NULL : result);
+            }
+            return result;
+        }
+        return result == NULL ? null : result;
+    }
+
+    @Override
+    public void evaluateBatch(Properties bindings, Object[] values, int n, Object[] out) {
+        // the values without a known result are evaluated together, as a smaller batch
+        int[] missing = new int[n];
+        int missingCount = 0;
+        for (int i = 0; i < n; i++) {
+            Object result = _results.get(values[i] == null ? NULL : values[i]);
+            if (result == null) {
+                missing[missingCount++] = i;
+            } else {
+                out[i] = result == NULL ? null : result;
+            }
+        }
+        if (missingCount == 0) {
+            return;
+        }
+
+        Object[] missingValues = new Object[missingCount];
+        for (int j = 0; j < missingCount; j++) {
+            missingValues[j] = values[missing[j]];
+        }
+        Object[] missingResults = new Object[missingCount];
+        _evaluable.evaluateBatch(bindings, missingValues, missingCount, missingResults);
+        for (int j = 0; j < missingCount; j++) {
+            Object result = missingResults[j];
+            out[missing[j]] = result;
+            if (_results.size() < _maxResults) {
+                _results.put(missingValues[j] == null ? NULL : missingValues[j], result == null ? NULL : result);
+            }
+        }
+    }
+
+    /**
+     * @return the number of distinct values the results of which are kept
+     */
+    public int getResultCount() {
+        return _results.size();
+    }
+
+    @Override
+    public String getSource() {
+        return _evaluable.getSource();
+    }
+
+    @Override
+    public String getLanguagePrefix() {
+        return _evaluable.getLanguagePrefix();
+    }
+
+    @Override
+    public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
+        return _evaluable.getColumnDependencies(baseColumn);
+    }
+
+    @Override
+    public Evaluable renameColumnDependencies(Map<String, String> substitutions) {
+        return _evaluable.renameColumnDependencies(substitutions);
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return _evaluable.isThreadSafe();
+    }
+
+    @Override
+    public boolean dependsOnlyOnValue() {
+        return true;
+    }
+
+    @Override
+    public boolean isPure() {
+        return _evaluable.isPure();
+    }
+
+    @Override
+    public String toString() {
+        return _evaluable.toString();
+    }
+}
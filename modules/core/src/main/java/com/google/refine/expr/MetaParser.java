@@ -39,6 +39,9 @@ import java.util.Set;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 abstract public class MetaParser {
 
@@ -61,6 +64,21 @@ abstract public class MetaParser {
     static final public String GREL_LANGUAGE_CODE = "grel";
     static final protected Map<String, LanguageInfo> s_languages = new HashMap<String, LanguageInfo>();
 
+    /**
+     * System property holding the maximum number of parsed expressions kept in memory. Setting it to 0 disables the
+     * cache.
+     */
+    static final public String CACHE_SIZE_PROPERTY = "refine.expressionCacheSize";
+    static final int DEFAULT_CACHE_SIZE = 1000;
+
+    /**
+     * Expressions parsed by the parsers which allow it, by language prefix and source.
+     */
+    static final protected Cache<String, Evaluable> s_cache = CacheBuilder.newBuilder()
+            .maximumSize(Math.max(0, Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE)))
+            .recordStats()
+            .build();
+
     /**
      * languagePrefix will be stored in the meta model as an identifier. so be careful when change it as it will break
      * the backward compatibility for the old project
@@ -72,6 +90,8 @@ abstract public class MetaParser {
      */
     static public void registerLanguageParser(String languagePrefix, String name, LanguageSpecificParser parser, String defaultExpression) {
         s_languages.put(languagePrefix, new LanguageInfo(name, parser, defaultExpression));
+        // expressions cached for a previous parser of this language are stale
+        s_cache.invalidateAll();
     }
 
     /**
@@ -82,6 +102,7 @@ abstract public class MetaParser {
      */
     static public void unregisterLanguageParser(String languagePrefix) {
         s_languages.remove(languagePrefix.toLowerCase());
+        s_cache.invalidateAll();
     }
 
     static public LanguageInfo getLanguageInfo(String languagePrefix) {
@@ -92,9 +113,19 @@ abstract public class MetaParser {
         return s_languages.keySet();
     }
 
+    /**
+     * @return the number of times parsed expressions were found or not in the cache, and evicted from it
+     */
+    static public CacheStats getCacheStats() {
+        return s_cache.stats();
+    }
+
     /**
      * Parse an expression that might have a language prefix into an Evaluable. Expressions without valid prefixes or
      * without any prefix are assumed to be GREL expressions.
+     * <p>
+     * The same expression may be returned for the same source if the parser of its language is
+     * {@link LanguageSpecificParser#isCacheable() cacheable}.
      * 
      * @param s
      * @return
@@ -114,7 +145,7 @@ abstract public class MetaParser {
         language = language.toLowerCase();
         LanguageInfo info = s_languages.get(language);
         if (info != null) {
-            return info.parser.parse(s.substring(colon + 1), language);
+            return parse(info.parser, s.substring(colon + 1), language);
         } else {
             return parseGREL(s);
         }
@@ -125,6 +156,20 @@ abstract public class MetaParser {
         if (info == null) {
             throw new ParsingException("Default language GREL is not available");
         }
-        return info.parser.parse(s, GREL_LANGUAGE_CODE);
+        return parse(info.parser, s, GREL_LANGUAGE_CODE);
+    }
+
+    static protected Evaluable parse(LanguageSpecificParser parser, String source, String languagePrefix) throws ParsingException {
+        if (!parser.isCacheable()) {
+            return parser.parse(source, languagePrefix);
+        }
+        // language prefixes do not contain colons
+        String key = languagePrefix + ":" + source;
+        Evaluable evaluable = s_cache.getIfPresent(key);
+        if (evaluable == null) {
+            evaluable = parser.parse(source, languagePrefix);
+            s_cache.put(key, evaluable);
+        }
+        return evaluable;
     }
 }
@@ -46,6 +46,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import com.google.refine.ProjectManager;
@@ -119,6 +120,10 @@ public class History {
     @JsonProperty("future")
     protected List<HistoryEntry> _futureEntries; // undone changes, can be redone
 
+    // position of the history in the last full save of the project, or -1 if it is unknown
+    protected int _snapshotPastEntryCount = -1;
+    protected long _snapshotLastEntryID;
+
     public History(Project project) {
         _projectID = project.id;
         _pastEntries = new ArrayList<HistoryEntry>();
@@ -291,6 +296,116 @@ public class History {
         writer.write("/e/\n");
     }
 
+    /**
+     * Records the current position in the history as the one of the last full save of the project (or of the full save
+     * it was loaded from).
+     */
+    synchronized public void markSnapshot() {
+        _snapshotPastEntryCount = _pastEntries.size();
+        _snapshotLastEntryID = _pastEntries.isEmpty() ? 0 : _pastEntries.get(_pastEntries.size() - 1).id;
+    }
+
+    /**
+     * @return the number of entries done since the last full save, or -1 if the current state of the project cannot be
+     *         reached by doing entries on top of that save (for instance when entries it contains were undone)
+     */
+    @JsonIgnore
+    synchronized public int getEntryCountSinceSnapshot() {
+        if (_snapshotPastEntryCount < 0 || _pastEntries.size() < _snapshotPastEntryCount) {
+            return -1;
+        }
+        long lastEntryID = _snapshotPastEntryCount == 0 ? 0 : _pastEntries.get(_snapshotPastEntryCount - 1).id;
+        if (lastEntryID != _snapshotLastEntryID) {
+            return -1;
+        }
+        return _pastEntries.size() - _snapshotPastEntryCount;
+    }
+
+    /**
+     * Saves the entries done since the last full save and the entries which can be redone, which is enough to restore
+     * the history from that save with {@link #loadDelta(Project, LineNumberReader)}. The changes of the entries are
+     * already saved on their own, when they are applied.
+     */
+    synchronized public void saveDelta(Writer writer, Properties options) throws IOException {
+        int count = getEntryCountSinceSnapshot();
+        if (count < 0) {
+            throw new IllegalStateException("The history cannot be saved relative to the last full save");
+        }
+        writer.write("snapshotPastEntryCount=");
+        writer.write(Integer.toString(_snapshotPastEntryCount));
+        writer.write('\n');
+        writer.write("snapshotLastEntryID=");
+        writer.write(Long.toString(_snapshotLastEntryID));
+        writer.write('\n');
+
+        writer.write("pastEntryCount=");
+        writer.write(Integer.toString(count));
+        writer.write('\n');
+        for (HistoryEntry entry : _pastEntries.subList(_snapshotPastEntryCount, _pastEntries.size())) {
+            entry.save(writer, options);
+            writer.write('\n');
+        }
+
+        writer.write("futureEntryCount=");
+        writer.write(Integer.toString(_futureEntries.size()));
+        writer.write('\n');
+        for (HistoryEntry entry : _futureEntries) {
+            entry.save(writer, options);
+            writer.write('\n');
+        }
+
+        writer.write("/e/\n");
+    }
+
+    /**
+     * Brings a project just loaded from a full save to the state saved by {@link #saveDelta(Writer, Properties)}, by
+     * replaying the entries done since then. Their changes are not saved again.
+     *
+     * @return false if the delta was saved relative to another full save, in which case the project is left unchanged
+     */
+    synchronized public boolean loadDelta(Project project, LineNumberReader reader) throws IOException {
+        int snapshotPastEntryCount = -1;
+        long snapshotLastEntryID = 0;
+        List<HistoryEntry> pastEntries = new ArrayList<>();
+        List<HistoryEntry> futureEntries = new ArrayList<>();
+
+        String line;
+        while ((line = reader.readLine()) != null && !"/e/".equals(line)) {
+            int equal = line.indexOf('=');
+            CharSequence field = line.subSequence(0, equal);
+            String value = line.substring(equal + 1);
+
+            if ("snapshotPastEntryCount".equals(field)) {
+                snapshotPastEntryCount = Integer.parseInt(value);
+            } else if ("snapshotLastEntryID".equals(field)) {
+                snapshotLastEntryID = Long.parseLong(value);
+            } else if ("pastEntryCount".equals(field)) {
+                int count = Integer.parseInt(value);
+
+                for (int i = 0; i < count; i++) {
+                    pastEntries.add(HistoryEntry.load(project, reader.readLine()));
+                }
+            } else if ("futureEntryCount".equals(field)) {
+                int count = Integer.parseInt(value);
+
+                for (int i = 0; i < count; i++) {
+                    futureEntries.add(HistoryEntry.load(project, reader.readLine()));
+                }
+            }
+        }
+
+        if (snapshotPastEntryCount != _pastEntries.size() || getEntryCountSinceSnapshot() != 0
+                || snapshotLastEntryID != _snapshotLastEntryID) {
+            return false;
+        }
+        for (HistoryEntry entry : pastEntries) {
+            entry.replay(project);
+            _pastEntries.add(entry);
+        }
+        _futureEntries = futureEntries;
+        return true;
+    }
+
     synchronized public void load(Project project, LineNumberReader reader) throws IOException {
         String line;
         while ((line = reader.readLine()) != null && !"/e/".equals(line)) {
@@ -83,7 +83,7 @@ public class HistoryEntry {
 
     // the actual change, loaded on demand
     @JsonIgnore
-    private transient Change _change;
+    private transient volatile Change _change;
 
     private final static String OPERATION = "operation";
 
@@ -154,12 +154,16 @@ public class HistoryEntry {
      *            the project the change should be applied to
      */
     public void apply(Project project) {
-        if (getChange() == null) {
+        // held locally, as the manager can drop the change from this entry once it is saved
+        Change change = getChange();
+        if (change == null) {
             ProjectManager.singleton.getHistoryEntryManager().loadChange(this);
+            change = getChange();
         }
 
         synchronized (project) {
-            getChange().apply(project);
+            project.ensureRowsLoaded();
+            change.apply(project);
 
             // When a change is applied, it can hang on to old data (in order to be able
             // to revert later). Hence, we need to save the change out.
@@ -169,18 +173,40 @@ public class HistoryEntry {
             } catch (Exception e) {
                 e.printStackTrace();
 
-                getChange().revert(project);
+                change.revert(project);
 
                 throw new RuntimeException("Failed to apply change", e);
             }
         }
     }
 
+    /**
+     * Applies the change of an entry loaded from a saved project, such as one read back from a delta. Unlike
+     * {@link #apply(Project)}, the change is not saved again, as it was saved when first applied.
+     *
+     * @param project
+     *            the project the change should be applied to
+     */
+    public void replay(Project project) {
+        Change change = getChange();
+        if (change == null) {
+            _manager.loadChange(this);
+            change = getChange();
+        }
+        synchronized (project) {
+            project.ensureRowsLoaded();
+            change.apply(project);
+        }
+    }
+
     public void revert(Project project) {
-        if (getChange() == null) {
+        Change change = getChange();
+        if (change == null) {
             _manager.loadChange(this);
+            change = getChange();
         }
-        getChange().revert(project);
+        project.ensureRowsLoaded();
+        change.revert(project);
     }
 
     static public HistoryEntry load(Project project, String s) throws IOException {
@@ -45,4 +45,19 @@ public interface HistoryEntryManager {
     public void save(HistoryEntry historyEntry, Writer writer, Properties options);
 
     public void delete(HistoryEntry historyEntry);
+
+    /**
+     * Releases what is held in memory for the history entries of a project, once the project is disposed of. Does
+     * nothing by default.
+     */
+    default public void disposeProject(long projectID) {
+    }
+
+    /**
+     * @return the estimated number of bytes taken by the changes of a project which are held in memory and released
+     *         with it. None by default.
+     */
+    default public long getResidentChangeSize(long projectID) {
+        return 0;
+    }
 }
@@ -0,0 +1,36 @@
+package com.google.refine.importers;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Guesses the types of the cell values of a table column by column, with {@link ImporterUtilities#parseCellValue}. Once
+ * the first {@link #SAMPLE_SIZE} values of a column have all been left as text, the column is taken to be a text column
+ * and its following values are not parsed anymore.
+ */
+class CellValueTypeGuesser {
+
+    static final int SAMPLE_SIZE = 100;
+
+    // number of values parsed in each column so far
+    private int[] _sampled = new int[16];
+    private boolean[] _hasNumbers = new boolean[16];
+
+    Serializable guess(int column, String text) {
+        if (column >= _sampled.length) {
+            int length = Math.max(column + 1, _sampled.length * 2);
+            _sampled = Arrays.copyOf(_sampled, length);
+            _hasNumbers = Arrays.copyOf(_hasNumbers, length);
+        }
+        if (!_hasNumbers[column] && _sampled[column] >= SAMPLE_SIZE) {
+            return text;
+        }
+
+        Serializable value = ImporterUtilities.parseCellValue(text);
+        _sampled[column]++;
+        if (value != text) {
+            _hasNumbers[column] = true;
+        }
+        return value;
+    }
+}
@@ -57,25 +57,148 @@ import com.google.refine.util.TrackingInputStream;
 
 public class ImporterUtilities {
 
+    /**
+     * The kinds of values a cell text can be parsed to by {@link #parseCellValue(String)}.
+     */
+    enum NumberType {
+        LONG, DOUBLE, TEXT,
+        // texts which might be accepted by the parsing methods of Long or Double in less common ways
+        UNSURE
+    }
+
+    /**
+     * Parses a cell text to a long or a double when it holds one, ignoring surrounding whitespace. Infinite and NaN
+     * doubles are left as text.
+     */
     static public Serializable parseCellValue(String text) {
-        if (text.length() > 0) {
-            String text2 = CharMatcher.whitespace().trimFrom(text);
-            if (text2.length() > 0) {
-                try {
-                    return Long.parseLong(text2);
-                } catch (NumberFormatException e) {
-                }
+        int start = 0;
+        int end = text.length();
+        while (start < end && CharMatcher.whitespace().matches(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && CharMatcher.whitespace().matches(text.charAt(end - 1))) {
+            end--;
+        }
+        if (start == end) {
+            return text;
+        }
 
-                try {
-                    double d = Double.parseDouble(text2);
-                    // FIXME: Why do we skip Infinities and NaNs?
-                    if (!Double.isInfinite(d) && !Double.isNaN(d)) {
-                        return d;
-                    }
-                } catch (NumberFormatException e) {
-                }
+        switch (classifyNumber(text, start, end)) {
+            case LONG:
+                return parseLong(text, start, end);
+            case DOUBLE:
+                return parseFiniteDouble(text.substring(start, end), text);
+            case UNSURE:
+                return parseCellValueWithExceptions(text.substring(start, end), text);
+            default:
+                return text;
+        }
+    }
+
+    /**
+     * Tells in a single pass, without allocating, whether a text is a long, a double or neither, following the formats
+     * accepted by {@link Long#parseLong(String)} and {@link Double#parseDouble(String)}. Longs which overflow are
+     * doubles. Texts with non-ASCII digits, control characters or a hexadecimal prefix are {@link NumberType#UNSURE}.
+     */
+    static NumberType classifyNumber(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c <= ' ' || (c > 127 && Character.isDigit(c))) {
+                return NumberType.UNSURE;
             }
         }
+
+        int i = start;
+        boolean negative = false;
+        if (text.charAt(i) == '+' || text.charAt(i) == '-') {
+            negative = text.charAt(i) == '-';
+            i++;
+        }
+        if (i + 1 < end && text.charAt(i) == '0' && (text.charAt(i + 1) == 'x' || text.charAt(i + 1) == 'X')) {
+            return NumberType.UNSURE;
+        }
+
+        // same overflow checks as Long.parseLong, accumulating negatively
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        boolean fitsLong = true;
+        int digits = 0;
+        for (; i < end && isAsciiDigit(text.charAt(i)); i++, digits++) {
+            int digit = text.charAt(i) - '0';
+            if (result < multiplyLimit || result * 10 < limit + digit) {
+                fitsLong = false;
+            } else {
+                result = result * 10 - digit;
+            }
+        }
+        if (i == end) {
+            return digits == 0 ? NumberType.TEXT : fitsLong ? NumberType.LONG : NumberType.DOUBLE;
+        }
+
+        if (text.charAt(i) == '.') {
+            for (i++; i < end && isAsciiDigit(text.charAt(i)); i++) {
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return NumberType.TEXT;
+        }
+        if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < end && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            int exponentDigits = 0;
+            for (; i < end && isAsciiDigit(text.charAt(i)); i++) {
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return NumberType.TEXT;
+            }
+        }
+        if (i < end && "fFdD".indexOf(text.charAt(i)) >= 0) {
+            i++;
+        }
+        return i == end ? NumberType.DOUBLE : NumberType.TEXT;
+    }
+
+    static private boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static private Long parseLong(String text, int start, int end) {
+        int i = start;
+        boolean negative = text.charAt(i) == '-';
+        if (negative || text.charAt(i) == '+') {
+            i++;
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            result = result * 10 - (text.charAt(i) - '0');
+        }
+        return negative ? result : -result;
+    }
+
+    static private Serializable parseFiniteDouble(String number, String text) {
+        double d = Double.parseDouble(number);
+        // FIXME: Why do we skip Infinities and NaNs?
+        if (!Double.isInfinite(d) && !Double.isNaN(d)) {
+            return d;
+        }
+        return text;
+    }
+
+    static private Serializable parseCellValueWithExceptions(String number, String text) {
+        try {
+            return Long.parseLong(number);
+        } catch (NumberFormatException e) {
+        }
+
+        try {
+            return parseFiniteDouble(number, text);
+        } catch (NumberFormatException e) {
+        }
         return text;
     }
 
@@ -128,6 +128,7 @@ abstract public class TabularImportingParserBase extends ImportingParserBase {
         }
 
         boolean guessCellValueTypes = JSONUtilities.getBoolean(options, "guessCellValueTypes", false);
+        CellValueTypeGuesser typeGuesser = guessCellValueTypes ? new CellValueTypeGuesser() : null;
         boolean storeBlankRows = JSONUtilities.getBoolean(options, "storeBlankRows", true);
         boolean storeBlankCellsAsNulls = JSONUtilities.getBoolean(options, "storeBlankCellsAsNulls", true);
         boolean trimStrings = JSONUtilities.getBoolean(options, "trimStrings", false);
@@ -191,7 +192,7 @@ abstract public class TabularImportingParserBase extends ImportingParserBase {
                                     if (trimStrings) {
                                         value = CharMatcher.whitespace().trimFrom(((String) value));
                                     }
-                                    storedValue = guessCellValueTypes ? ImporterUtilities.parseCellValue((String) value) : (String) value;
+                                    storedValue = guessCellValueTypes ? typeGuesser.guess(c, (String) value) : (String) value;
 
                                 } else {
                                     storedValue = ExpressionUtils.wrapStorable(value);
@@ -38,6 +38,9 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Writer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -54,14 +57,55 @@ public class FileHistoryEntryManager implements HistoryEntryManager {
 
     public static final String HISTORY_DIR = "history";
 
+    /**
+     * System property holding the number of bytes the changes of history entries can take in memory, estimated by the
+     * uncompressed size of their change files. Beyond it, the changes used least recently are dropped from their
+     * entries, to be loaded again from their files if they are undone or redone. Defaults to an eighth of the maximum
+     * heap size.
+     */
+    static public final String MEMORY_BUDGET_PROPERTY = "refine.historyChangeMemory";
+
+    final protected long _memoryBudget;
+    // entries with a saved change in memory, least recently used first, with the estimated size of the change
+    final protected LinkedHashMap<HistoryEntry, Long> _residentChanges = new LinkedHashMap<>(16, 0.75f, true);
+    protected long _residentSize = 0;
+
+    public FileHistoryEntryManager() {
+        this(Long.getLong(MEMORY_BUDGET_PROPERTY, Runtime.getRuntime().maxMemory() / 8));
+    }
+
+    protected FileHistoryEntryManager(long memoryBudget) {
+        _memoryBudget = memoryBudget;
+    }
+
     @Override
     public void delete(HistoryEntry historyEntry) {
+        synchronized (_residentChanges) {
+            Long size = _residentChanges.remove(historyEntry);
+            if (size != null) {
+                _residentSize -= size;
+            }
+        }
         File file = getChangeFile(historyEntry);
         if (file.exists()) {
             file.delete();
         }
     }
 
+    @Override
+    public void disposeProject(long projectID) {
+        synchronized (_residentChanges) {
+            Iterator<Map.Entry<HistoryEntry, Long>> iterator = _residentChanges.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<HistoryEntry, Long> resident = iterator.next();
+                if (resident.getKey().projectID == projectID) {
+                    _residentSize -= resident.getValue();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
     @Override
     public void save(HistoryEntry historyEntry, Writer writer, Properties options) {
         try {
@@ -96,8 +140,9 @@ public class FileHistoryEntryManager implements HistoryEntryManager {
                         zipFile.getInputStream(poolEntry)));
             } // else, it's a legacy project file
 
-            historyEntry.setChange(History.readOneChange(
-                    zipFile.getInputStream(zipFile.getEntry("change.txt")), pool));
+            ZipEntry changeEntry = zipFile.getEntry("change.txt");
+            historyEntry.setChange(History.readOneChange(zipFile.getInputStream(changeEntry), pool));
+            changeResident(historyEntry, changeEntry.getSize());
         } finally {
             zipFile.close();
         }
@@ -108,17 +153,22 @@ public class FileHistoryEntryManager implements HistoryEntryManager {
         File changeFile = getChangeFile(historyEntry);
         if (!(changeFile.exists())) {
             saveChange(historyEntry, changeFile);
+        } else {
+            changeResident(historyEntry, -1);
         }
     }
 
     protected void saveChange(HistoryEntry historyEntry, File file) throws Exception {
         ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        ZipEntry changeEntry = new ZipEntry("change.txt");
+        boolean saved = false;
         try {
             Pool pool = new Pool();
 
-            out.putNextEntry(new ZipEntry("change.txt"));
+            out.putNextEntry(changeEntry);
             try {
                 History.writeOneChange(out, historyEntry.getChange(), pool);
+                saved = true;
             } catch (Exception e) {
                 e.printStackTrace();
             } finally {
@@ -134,6 +184,76 @@ public class FileHistoryEntryManager implements HistoryEntryManager {
         } finally {
             out.close();
         }
+        if (saved) {
+            // the size of an entry is known once it is closed
+            changeResident(historyEntry, changeEntry.getSize());
+        }
+    }
+
+    /**
+     * Records that the change of an entry, saved to its file, is in memory, and drops the changes used least recently
+     * if they exceed the memory budget. The change of the given entry is kept, as it is about to be used.
+     *
+     * @param size
+     *            the estimated size of the change, or -1 if the change is already known
+     */
+    protected void changeResident(HistoryEntry historyEntry, long size) {
+        if (size < 0) {
+            synchronized (_residentChanges) {
+                if (_residentChanges.get(historyEntry) != null) {
+                    // marks it as used
+                    return;
+                }
+            }
+            // an entry created with its change, which was saved earlier, read without holding up other entries
+            try (ZipFile zipFile = new ZipFile(getChangeFile(historyEntry))) {
+                size = zipFile.getEntry("change.txt").getSize();
+            } catch (IOException e) {
+                // not known to be on disk, so it is kept in memory
+                return;
+            }
+        }
+        synchronized (_residentChanges) {
+            Long previousSize = _residentChanges.get(historyEntry);
+            if (previousSize != null) {
+                // marks it as used
+                return;
+            }
+            _residentChanges.put(historyEntry, size);
+            _residentSize += size;
+
+            Iterator<Map.Entry<HistoryEntry, Long>> iterator = _residentChanges.entrySet().iterator();
+            while (_residentSize > _memoryBudget && iterator.hasNext()) {
+                Map.Entry<HistoryEntry, Long> eldest = iterator.next();
+                if (eldest.getKey() != historyEntry) {
+                    eldest.getKey().setChange(null);
+                    _residentSize -= eldest.getValue();
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the estimated size of the changes in memory, which can be loaded again from their files
+     */
+    public long getResidentChangeSize() {
+        synchronized (_residentChanges) {
+            return _residentSize;
+        }
+    }
+
+    @Override
+    public long getResidentChangeSize(long projectID) {
+        long size = 0;
+        synchronized (_residentChanges) {
+            for (Map.Entry<HistoryEntry, Long> resident : _residentChanges.entrySet()) {
+                if (resident.getKey().projectID == projectID) {
+                    size += resident.getValue();
+                }
+            }
+        }
+        return size;
     }
 
     protected File getChangeFile(HistoryEntry historyEntry) {
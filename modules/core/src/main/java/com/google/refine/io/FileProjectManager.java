@@ -74,6 +74,9 @@ public class FileProjectManager extends ProjectManager {
 
     protected File _workspaceDir;
 
+    // shared by all history entries, so that it bounds the memory taken by all their changes
+    final protected FileHistoryEntryManager _historyEntryManager = new FileHistoryEntryManager();
+
     protected static boolean projectRemoved = false;
 
     final static Logger logger = LoggerFactory.getLogger("FileProjectManager");
@@ -264,6 +267,11 @@ public class FileProjectManager extends ProjectManager {
         ProjectUtilities.save(project);
     }
 
+    @Override
+    protected void compactProject(Project project) throws IOException {
+        ProjectUtilities.compact(project);
+    }
+
     @Override
     public Project loadProject(long id) {
         return ProjectUtilities.load(getProjectDir(id), id);
@@ -456,7 +464,7 @@ public class FileProjectManager extends ProjectManager {
 
     @Override
     public HistoryEntryManager getHistoryEntryManager() {
-        return new FileHistoryEntryManager();
+        return _historyEntryManager;
     }
 
     public static void gzipTarToOutputStream(Project project, OutputStream os) throws IOException {
@@ -0,0 +1,276 @@
+package com.google.refine.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.refine.browsing.util.PartitionedRowScanner;
+import com.google.refine.model.ProjectSizeEstimator;
+import com.google.refine.model.Row;
+import com.google.refine.util.Pool;
+
+/**
+ * A list of the rows of a saved project which reads them from disk block by block, as they are accessed, and only keeps
+ * the most recently used blocks in memory.
+ * <p>
+ * The rows returned by {@link #get(int)} must not be modified, as they are dropped with their block when it is evicted:
+ * {@link #load()} must be called first, which reads all the rows in memory for good. Modifying the list itself does
+ * this automatically.
+ */
+public class PagedRowList extends AbstractList<Row> implements RandomAccess, Closeable {
+
+    /**
+     * System property holding the number of blocks of rows kept in memory by each project which was not fully loaded.
+     * By default, this is enough for each partition of a parallel scan to keep the block it reads, with some slack, as
+     * partitions start on block boundaries.
+     */
+    static public final String CACHED_BLOCKS_PROPERTY = "refine.storage.cachedRowBlocks";
+    static final int DEFAULT_CACHED_BLOCKS = 8;
+    static final int CACHED_BLOCKS_SLACK = 4;
+
+    final private RowBlockReader _reader;
+    final private Pool _pool;
+    // index of the first row of each block, followed by the number of rows
+    final private int[] _blockStarts;
+    // blocks being read or in memory, so that threads needing the same block read it once
+    final private Map<Integer, FutureTask<List<Row>>> _blocks;
+    // number of blocks read from disk
+    final AtomicInteger _blockReads = new AtomicInteger();
+
+    // the list the rows are loaded into, which replaces the blocks once filled
+    final private List<Row> _loadedRows;
+    private volatile boolean _loaded;
+
+    /**
+     * @param pool
+     *            pool holding the recons of the cells
+     * @param loadedRows
+     *            empty list to load the rows into when they need to be modified
+     */
+    public PagedRowList(RowBlockReader reader, Pool pool, List<Row> loadedRows) {
+        _reader = reader;
+        _pool = pool;
+        _loadedRows = loadedRows;
+
+        _blockStarts = new int[reader.getBlockCount() + 1];
+        for (int i = 0; i < reader.getBlockCount(); i++) {
+            _blockStarts[i + 1] = _blockStarts[i] + reader.getBlockRowCount(i);
+        }
+
+        Integer cachedBlocks = Integer.getInteger(CACHED_BLOCKS_PROPERTY);
+        _blocks = new LinkedHashMap<>(DEFAULT_CACHED_BLOCKS * 2, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, FutureTask<List<Row>>> eldest) {
+                return size() > (cachedBlocks != null ? Math.max(1, cachedBlocks) : getDefaultCachedBlocks());
+            }
+        };
+    }
+
+    static private int getDefaultCachedBlocks() {
+        // the parallelism can change at run time
+        return Math.max(DEFAULT_CACHED_BLOCKS, PartitionedRowScanner.getParallelism() + CACHED_BLOCKS_SLACK);
+    }
+
+    @Override
+    public Row get(int index) {
+        if (_loaded) {
+            return _loadedRows.get(index);
+        }
+        if (index < 0 || index >= _blockStarts[_blockStarts.length - 1]) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int block = getBlock(index);
+        try {
+            return getBlockRows(block).get(index - _blockStarts[block]);
+        } catch (UncheckedIOException e) {
+            if (_loaded) {
+                // the rows were loaded, and the file closed, in the meantime
+                return _loadedRows.get(index);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public int size() {
+        return _loaded ? _loadedRows.size() : _blockStarts[_blockStarts.length - 1];
+    }
+
+    private int getBlock(int index) {
+        int block = Arrays.binarySearch(_blockStarts, index);
+        if (block < 0) {
+            block = -block - 2;
+        } else {
+            // skip empty blocks
+            while (block < _blockStarts.length - 2 && _blockStarts[block + 1] == index) {
+                block++;
+            }
+        }
+        return block;
+    }
+
+    /**
+     * @return the index of the first row read from disk with the row at the given index, so that scans split at this
+     *         index do not both read the same rows, or the index itself once the rows are loaded
+     */
+    public int getBlockStart(int index) {
+        if (_loaded || index <= 0 || index >= _blockStarts[_blockStarts.length - 1]) {
+            return index;
+        }
+        return _blockStarts[getBlock(index)];
+    }
+
+    private List<Row> getBlockRows(int block) {
+        FutureTask<List<Row>> task;
+        synchronized (_blocks) {
+            task = _blocks.get(block);
+            if (task == null) {
+                task = new FutureTask<>(() -> {
+                    _blockReads.incrementAndGet();
+                    return _reader.readBlock(block, _pool);
+                });
+                _blocks.put(block, task);
+            }
+        }
+        // blocks are read outside of the lock, so that different blocks can be read concurrently
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new IOException("Interrupted while reading rows", e));
+        } catch (ExecutionException e) {
+            synchronized (_blocks) {
+                _blocks.remove(block, task);
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new UncheckedIOException((IOException) cause);
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new UncheckedIOException(new IOException(cause));
+        }
+    }
+
+    /**
+     * @return the rows currently held in memory, which are all the rows once they are loaded
+     */
+    public List<Row> getRowsInMemory() {
+        if (_loaded) {
+            return _loadedRows;
+        }
+        List<Row> rows = new ArrayList<>();
+        synchronized (_blocks) {
+            for (FutureTask<List<Row>> block : _blocks.values()) {
+                if (block.isDone()) {
+                    try {
+                        rows.addAll(block.get());
+                    } catch (InterruptedException | ExecutionException e) {
+                        // the block is not in memory
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * @return the estimated number of bytes taken by the rows in memory
+     */
+    public long estimateSize() {
+        if (_loaded) {
+            return ProjectSizeEstimator.estimateSize(_loadedRows);
+        }
+        return ProjectSizeEstimator.ARRAY_SIZE + _blockStarts.length * 4L + ProjectSizeEstimator.estimateSize(getRowsInMemory());
+    }
+
+    /**
+     * @return true if all the rows are in memory
+     */
+    public boolean isLoaded() {
+        return _loaded;
+    }
+
+    /**
+     * Reads all the rows in memory, so that they can be modified, and closes the file they were read from.
+     */
+    synchronized public void load() {
+        if (_loaded) {
+            return;
+        }
+        try {
+            _reader.readRows(_loadedRows, _pool);
+        } catch (IOException e) {
+            _loadedRows.clear();
+            throw new UncheckedIOException(e);
+        }
+        _loaded = true;
+        dropBlocks();
+    }
+
+    private void dropBlocks() {
+        synchronized (_blocks) {
+            _blocks.clear();
+        }
+        try {
+            _reader.close();
+        } catch (IOException e) {
+            // the rows are not needed anymore
+        }
+    }
+
+    /**
+     * Releases the file the rows are read from. It is opened again if rows which are not loaded are accessed later.
+     */
+    @Override
+    public void close() throws IOException {
+        _reader.close();
+    }
+
+    @Override
+    public Row set(int index, Row row) {
+        load();
+        return _loadedRows.set(index, row);
+    }
+
+    @Override
+    public void add(int index, Row row) {
+        load();
+        _loadedRows.add(index, row);
+        modCount++;
+    }
+
+    @Override
+    public Row remove(int index) {
+        load();
+        Row row = _loadedRows.remove(index);
+        modCount++;
+        return row;
+    }
+
+    @Override
+    synchronized public void clear() {
+        if (_loaded) {
+            _loadedRows.clear();
+        } else {
+            // no need to read rows which are dropped
+            _loaded = true;
+            dropBlocks();
+        }
+        modCount++;
+    }
+}
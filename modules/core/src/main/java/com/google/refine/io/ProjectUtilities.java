@@ -34,16 +34,28 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.io;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
-import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.refine.ProjectManager;
+import com.google.refine.RefineServlet;
 import com.google.refine.model.Project;
 import com.google.refine.util.Pool;
 
@@ -54,10 +66,57 @@ public class ProjectUtilities {
     public static final String DATA_TEMP_ZIP = "data.temp.zip";
     public static final String DATA_OLD_ZIP = "data.old.zip";
 
+    /**
+     * System property which, when set to false, makes projects save their rows as JSON lines in data.txt, readable by
+     * older versions, rather than in the binary format of {@link RowBlockWriter}.
+     */
+    static public final String BINARY_ROWS_PROPERTY = "refine.storage.binaryRows";
+    static final String ROWS_ENTRY = "rows.bin";
+
+    /**
+     * The history entries done since the last full save of a project, in data.zip, are saved in this file rather than
+     * saving the whole project again.
+     */
+    public static final String DELTA_FILE = "data.delta.txt";
+    public static final String DELTA_TEMP_FILE = "data.delta.temp.txt";
+    /**
+     * System property holding the number of history entries after which a project is saved in full again, rather than
+     * as a delta from its last full save. Setting it to 0 makes all saves full.
+     */
+    static public final String DELTA_MAX_ENTRIES_PROPERTY = "refine.storage.deltaMaxEntries";
+    static final int DEFAULT_DELTA_MAX_ENTRIES = 100;
+
     synchronized public static void save(Project project) throws IOException {
+        save(project, ((FileProjectManager) ProjectManager.singleton).getProjectDir(project.id));
+    }
+
+    static protected void save(Project project, File dir) throws IOException {
         synchronized (project) {
             long id = project.id;
-            File dir = ((FileProjectManager) ProjectManager.singleton).getProjectDir(id);
+
+            int entryCount = project.history.getEntryCountSinceSnapshot();
+            if (entryCount >= 0 && entryCount < Integer.getInteger(DELTA_MAX_ENTRIES_PROPERTY, DEFAULT_DELTA_MAX_ENTRIES)
+                    && new File(dir, DATA_ZIP).exists()) {
+                saveDelta(project, dir);
+                project.setLastSave();
+
+                logger.info("Saved {} change(s) to project '{}'", entryCount, id);
+                return;
+            }
+
+            saveFully(project, dir);
+        }
+    }
+
+    /**
+     * Saves a project as a whole to data.zip, replacing its last full save and the delta saved since then.
+     */
+    static protected void saveFully(Project project, File dir) throws IOException {
+        synchronized (project) {
+            long id = project.id;
+
+            // the rows may be read from the file being replaced
+            project.ensureRowsLoaded();
 
             File tempFile = new File(dir, DATA_TEMP_ZIP);
             try {
@@ -83,6 +142,9 @@ public class ProjectUtilities {
             if (oldFile.exists()) {
                 oldFile.delete();
             }
+            project.history.markSnapshot();
+            new File(dir, DELTA_FILE).delete();
+            project.setCompactionPending(false);
 
             project.setLastSave();
 
@@ -90,23 +152,55 @@ public class ProjectUtilities {
         }
     }
 
+    protected static void saveDelta(Project project, File dir) throws IOException {
+        File tempFile = new File(dir, DELTA_TEMP_FILE);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8)) {
+            Properties options = new Properties();
+            options.setProperty("mode", "save");
+
+            writer.write(RefineServlet.VERSION);
+            writer.write('\n');
+            project.history.saveDelta(writer, options);
+        } catch (IOException e) {
+            logger.warn("Failed to save changes to project {}", project.id, e);
+            tempFile.delete();
+            throw e;
+        }
+        Files.move(tempFile.toPath(), new File(dir, DELTA_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
     protected static void saveToFile(Project project, File file) throws IOException {
-        ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file));
+        // the archive is written to a file so that entries can be stored without compression, and read in place
+        ZipArchiveOutputStream out = new ZipArchiveOutputStream(file);
         try {
             Pool pool = new Pool();
+            boolean binaryRows = Boolean.parseBoolean(System.getProperty(BINARY_ROWS_PROPERTY, "true"));
 
-            out.putNextEntry(new ZipEntry("data.txt"));
+            out.putArchiveEntry(new ZipArchiveEntry("data.txt"));
             try {
-                project.saveToOutputStream(out, pool);
+                project.saveToOutputStream(out, pool, binaryRows ? ROWS_ENTRY : null);
             } finally {
-                out.closeEntry();
+                out.closeArchiveEntry();
+            }
+
+            if (binaryRows) {
+                // blocks of rows are compressed individually
+                ZipArchiveEntry rowsEntry = new ZipArchiveEntry(ROWS_ENTRY);
+                rowsEntry.setMethod(ZipEntry.STORED);
+                out.putArchiveEntry(rowsEntry);
+                try {
+                    RowBlockWriter.write(project.rows, out, pool);
+                } finally {
+                    out.closeArchiveEntry();
+                }
             }
 
-            out.putNextEntry(new ZipEntry("pool.txt"));
+            out.putArchiveEntry(new ZipArchiveEntry("pool.txt"));
             try {
                 pool.save(out);
             } finally {
-                out.closeEntry();
+                out.closeArchiveEntry();
             }
         } finally {
             out.close();
@@ -118,6 +212,15 @@ public class ProjectUtilities {
             try {
                 File file = new File(dir, filename);
                 if (file.exists()) {
+                    Project project = loadFromFile(file, id);
+                    if (loadDelta(project, dir)) {
+                        if (DATA_ZIP.equals(filename) && project.history.getEntryCountSinceSnapshot() > 0) {
+                            // saved in full by the next autosave, so that the delta is not applied again
+                            project.setCompactionPending(true);
+                        }
+                        return project;
+                    }
+                    // the project could not be brought up to date, so it is loaded as it was last saved in full
                     return loadFromFile(file, id);
                 }
             } catch (IOException e) {
@@ -128,21 +231,73 @@ public class ProjectUtilities {
         return null;
     }
 
+    /**
+     * Applies the history entries saved since the last full save of a project, if any.
+     *
+     * @return false if they could not all be applied
+     */
+    static protected boolean loadDelta(Project project, File dir) {
+        File file = new File(dir, DELTA_FILE);
+        if (!file.exists()) {
+            return true;
+        }
+        try (LineNumberReader reader = new LineNumberReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            /* String version = */ reader.readLine();
+            if (!project.history.loadDelta(project, reader)) {
+                logger.warn("Ignoring changes to project {} saved relative to another full save", project.id);
+            }
+            project.update();
+            return true;
+        } catch (Exception e) {
+            logger.error("Failed to apply changes saved to project {}", project.id, e);
+            return false;
+        }
+    }
+
+    /**
+     * Saves a project in full, so that the changes saved since its last full save are not applied again the next time
+     * it is loaded, and its rows can then be read lazily.
+     */
+    synchronized public static void compact(Project project) throws IOException {
+        saveFully(project, ((FileProjectManager) ProjectManager.singleton).getProjectDir(project.id));
+    }
+
     static protected Project loadFromFile(
             File file,
             long id) throws IOException {
-        ZipFile zipFile = new ZipFile(file);
+        ZipFile zipFile = ZipFile.builder().setFile(file).get();
+        RowBlockReader rowBlocks = null;
         try {
             Pool pool = new Pool();
-            ZipEntry poolEntry = zipFile.getEntry("pool.txt");
+            ZipArchiveEntry poolEntry = zipFile.getEntry("pool.txt");
             if (poolEntry != null) {
                 pool.load(zipFile.getInputStream(poolEntry));
             } // else, it's a legacy project file
 
-            return Project.loadFromInputStream(
+            ZipArchiveEntry rowsEntry = zipFile.getEntry(ROWS_ENTRY);
+            if (rowsEntry != null) {
+                if (rowsEntry.getMethod() == ZipEntry.STORED && rowsEntry.getDataOffset() >= 0) {
+                    // the rows can be read in place, possibly after the project is loaded
+                    rowBlocks = new RowBlockReader(file, rowsEntry.getDataOffset(), rowsEntry.getSize());
+                } else {
+                    // the archive was rewritten by some other tool
+                    rowBlocks = new RowBlockReader(IOUtils.toByteArray(zipFile.getInputStream(rowsEntry)));
+                }
+            }
+
+            Project project = Project.loadFromInputStream(
                     zipFile.getInputStream(zipFile.getEntry("data.txt")),
                     id,
-                    pool);
+                    pool,
+                    rowBlocks);
+            project.history.markSnapshot();
+            return project;
+        } catch (IOException | RuntimeException e) {
+            if (rowBlocks != null) {
+                rowBlocks.close();
+            }
+            throw e;
         } finally {
             zipFile.close();
         }
@@ -0,0 +1,313 @@
+package com.google.refine.io;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import com.google.refine.expr.EvalError;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Recon;
+import com.google.refine.model.Row;
+import com.google.refine.util.Pool;
+
+/**
+ * Reads rows written by a {@link RowBlockWriter}. Blocks are located through the footer of the file, so that they can
+ * be read independently of each other, and in parallel.
+ */
+public class RowBlockReader implements Closeable {
+
+    final private File _file;
+    private FileChannel _channel;
+    final private byte[] _bytes;
+    final private long _start;
+    final private long _length;
+
+    final private long[] _blockOffsets;
+    final private int[] _compressedLengths;
+    final private int[] _uncompressedLengths;
+    final private int[] _blockRowCounts;
+    final private int _rowCount;
+
+    /**
+     * Reads rows from a region of a file, with positional reads which can happen concurrently. The file is opened again
+     * if it is read after the reader was closed.
+     *
+     * @param start
+     *            the offset of the rows in the file
+     * @param length
+     *            the number of bytes they take
+     */
+    public RowBlockReader(File file, long start, long length) throws IOException {
+        this(file, null, start, length);
+    }
+
+    /**
+     * Reads rows from memory.
+     */
+    public RowBlockReader(byte[] bytes) throws IOException {
+        this(null, bytes, 0, bytes.length);
+    }
+
+    private RowBlockReader(File file, byte[] bytes, long start, long length) throws IOException {
+        _file = file;
+        _bytes = bytes;
+        _start = start;
+        _length = length;
+
+        try {
+            if (length < 20) {
+                throw new IOException("Row data is truncated");
+            }
+            ByteBuffer header = read(0, 8);
+            if (header.getInt() != RowBlockWriter.MAGIC) {
+                throw new IOException("Row data does not start with the expected magic number");
+            }
+            int version = header.getInt();
+            if (version != RowBlockWriter.VERSION) {
+                throw new IOException("Unsupported version of row data: " + version);
+            }
+
+            ByteBuffer trailer = read(length - 12, 12);
+            long footerOffset = trailer.getLong();
+            if (trailer.getInt() != RowBlockWriter.MAGIC || footerOffset < 8 || footerOffset > length - 16) {
+                throw new IOException("Row data does not end with a valid footer");
+            }
+            ByteBuffer footer = read(footerOffset, (int) (length - 12 - footerOffset));
+            int blockCount = footer.getInt();
+            _blockOffsets = new long[blockCount];
+            _compressedLengths = new int[blockCount];
+            _uncompressedLengths = new int[blockCount];
+            _blockRowCounts = new int[blockCount];
+            for (int i = 0; i < blockCount; i++) {
+                _blockOffsets[i] = footer.getLong();
+                _compressedLengths[i] = footer.getInt();
+                _uncompressedLengths[i] = footer.getInt();
+                _blockRowCounts[i] = footer.getInt();
+            }
+            _rowCount = footer.getInt();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public int getRowCount() {
+        return _rowCount;
+    }
+
+    public int getBlockCount() {
+        return _blockOffsets.length;
+    }
+
+    public int getBlockRowCount(int block) {
+        return _blockRowCounts[block];
+    }
+
+    /**
+     * Reads all the rows, decoding blocks in parallel, and appends them in order to the given list.
+     *
+     * @param pool
+     *            pool holding the recons of the cells
+     */
+    public void readRows(List<Row> rows, Pool pool) throws IOException {
+        List<List<Row>> blocks;
+        try {
+            blocks = IntStream.range(0, getBlockCount()).parallel()
+                    .mapToObj(block -> {
+                        try {
+                            return readBlock(block, pool);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (List<Row> block : blocks) {
+            rows.addAll(block);
+        }
+    }
+
+    /**
+     * Reads the rows of one block.
+     */
+    public List<Row> readBlock(int block, Pool pool) throws IOException {
+        ByteBuffer compressed = read(_blockOffsets[block] + 8, _compressedLengths[block]);
+        byte[] bytes = new byte[_uncompressedLengths[block]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array(), compressed.arrayOffset() + compressed.position(), compressed.remaining());
+            int length = 0;
+            while (length < bytes.length && !inflater.finished()) {
+                int n = inflater.inflate(bytes, length, bytes.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += n;
+            }
+            if (length != bytes.length) {
+                throw new IOException("Block " + block + " of row data is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Block " + block + " of row data is corrupted", e);
+        } finally {
+            inflater.end();
+        }
+        return decodeBlock(ByteBuffer.wrap(bytes), pool);
+    }
+
+    static protected List<Row> decodeBlock(ByteBuffer data, Pool pool) throws IOException {
+        int rowCount = (int) readVarLong(data);
+        String[] strings = new String[(int) readVarLong(data)];
+        for (int i = 0; i < strings.length; i++) {
+            int length = (int) readVarLong(data);
+            strings[i] = new String(data.array(), data.position(), length, StandardCharsets.UTF_8);
+            data.position(data.position() + length);
+        }
+
+        List<Row> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            int flags = data.get();
+            int cellCount = (int) readVarLong(data);
+            Row row = new Row(cellCount);
+            row.flagged = (flags & RowBlockWriter.FLAGGED) != 0;
+            row.starred = (flags & RowBlockWriter.STARRED) != 0;
+            for (int c = 0; c < cellCount; c++) {
+                row.cells.add(readCell(data, strings, pool));
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    static protected Cell readCell(ByteBuffer data, String[] strings, Pool pool) throws IOException {
+        int tag = data.get() & 0xFF;
+        Serializable value;
+        switch (tag & ~RowBlockWriter.HAS_RECON) {
+            case RowBlockWriter.NO_CELL:
+                return null;
+            case RowBlockWriter.NULL_VALUE:
+                value = null;
+                break;
+            case RowBlockWriter.STRING:
+                value = strings[(int) readVarLong(data)];
+                break;
+            case RowBlockWriter.LONG:
+                value = unZigZag(readVarLong(data));
+                break;
+            case RowBlockWriter.INTEGER:
+                value = (int) unZigZag(readVarLong(data));
+                break;
+            case RowBlockWriter.DOUBLE:
+                value = Double.longBitsToDouble(data.getLong());
+                break;
+            case RowBlockWriter.TRUE:
+                value = true;
+                break;
+            case RowBlockWriter.FALSE:
+                value = false;
+                break;
+            case RowBlockWriter.DATE:
+                long seconds = unZigZag(readVarLong(data));
+                int nanos = (int) readVarLong(data);
+                int offset = (int) unZigZag(readVarLong(data));
+                value = OffsetDateTime.ofInstant(Instant.ofEpochSecond(seconds, nanos), ZoneOffset.ofTotalSeconds(offset));
+                break;
+            case RowBlockWriter.ERROR:
+                value = new EvalError(strings[(int) readVarLong(data)]);
+                break;
+            case RowBlockWriter.JSON:
+                try {
+                    return Cell.loadStreaming(strings[(int) readVarLong(data)], pool);
+                } catch (Exception e) {
+                    throw new IOException("Cell could not be read", e);
+                }
+            default:
+                throw new IOException("Unknown type of cell in row data: " + tag);
+        }
+        Recon recon = null;
+        if ((tag & RowBlockWriter.HAS_RECON) != 0) {
+            recon = pool.getRecon(Long.toString(unZigZag(readVarLong(data))));
+        }
+        return new Cell(value, recon);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        if (position < 0 || length < 0 || position + length > _length) {
+            throw new IOException("Row data is truncated");
+        }
+        if (_bytes != null) {
+            return ByteBuffer.wrap(_bytes, (int) (_start + position), length).slice();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        try {
+            readFully(buffer, position);
+        } catch (ClosedChannelException e) {
+            // the reader was closed by another thread in the meantime
+            buffer.clear();
+            readFully(buffer, position);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        FileChannel channel = getChannel();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, _start + position + buffer.position()) < 0) {
+                throw new IOException("Row data is truncated");
+            }
+        }
+    }
+
+    synchronized private FileChannel getChannel() throws IOException {
+        if (_channel == null || !_channel.isOpen()) {
+            _channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ);
+        }
+        return _channel;
+    }
+
+    /**
+     * Closes the file the rows are read from, if any.
+     */
+    @Override
+    synchronized public void close() throws IOException {
+        if (_channel != null) {
+            _channel.close();
+            _channel = null;
+        }
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static long readVarLong(ByteBuffer data) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+}
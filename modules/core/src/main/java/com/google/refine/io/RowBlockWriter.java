@@ -0,0 +1,219 @@
+package com.google.refine.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+import com.google.refine.expr.EvalError;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Row;
+import com.google.refine.util.ParsingUtilities;
+import com.google.refine.util.Pool;
+
+/**
+ * Writes the rows of a project in a binary format made of independently compressed blocks of rows, which can be read
+ * back in parallel by a {@link RowBlockReader}.
+ * <p>
+ * The layout is:
+ * <ul>
+ * <li>a header: magic number and format version;</li>
+ * <li>blocks, each made of its uncompressed and compressed lengths followed by the deflated block. A block starts with
+ * a dictionary of the strings used by its cells, followed by its rows;</li>
+ * <li>a footer, which indexes the offset, lengths and row count of each block;</li>
+ * <li>a trailer holding the offset of the footer and the magic number again.</li>
+ * </ul>
+ */
+public class RowBlockWriter {
+
+    static final int MAGIC = 0x4F52524F; // "ORRO"
+    static final int VERSION = 1;
+
+    // row flags
+    static final int FLAGGED = 1;
+    static final int STARRED = 2;
+
+    // cell tags, possibly combined with HAS_RECON
+    static final int NO_CELL = 0;
+    static final int NULL_VALUE = 1;
+    static final int STRING = 2;
+    static final int LONG = 3;
+    static final int INTEGER = 4;
+    static final int DOUBLE = 5;
+    static final int TRUE = 6;
+    static final int FALSE = 7;
+    static final int DATE = 8;
+    static final int ERROR = 9;
+    // cells of other types, stored as their JSON serialization
+    static final int JSON = 10;
+    static final int HAS_RECON = 0x80;
+
+    static int rowsPerBlock = 4096;
+
+    /**
+     * Writes the given rows to a stream, which is not closed.
+     *
+     * @param pool
+     *            pool to which the recons of the cells are added
+     */
+    static public void write(List<Row> rows, OutputStream out, Pool pool) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        long offset = 8;
+
+        List<long[]> index = new ArrayList<>();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            for (int from = 0; from < rows.size(); from += rowsPerBlock) {
+                int to = Math.min(rows.size(), from + rowsPerBlock);
+                byte[] block = encodeBlock(rows, from, to, pool);
+
+                deflater.reset();
+                deflater.setInput(block);
+                deflater.finish();
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(block.length / 2 + 64);
+                byte[] buffer = new byte[8192];
+                while (!deflater.finished()) {
+                    int length = deflater.deflate(buffer);
+                    compressed.write(buffer, 0, length);
+                }
+
+                data.writeInt(block.length);
+                data.writeInt(compressed.size());
+                compressed.writeTo(data);
+                index.add(new long[] { offset, compressed.size(), block.length, to - from });
+                offset += 8 + compressed.size();
+            }
+        } finally {
+            deflater.end();
+        }
+
+        long footerOffset = offset;
+        data.writeInt(index.size());
+        for (long[] entry : index) {
+            data.writeLong(entry[0]);
+            data.writeInt((int) entry[1]);
+            data.writeInt((int) entry[2]);
+            data.writeInt((int) entry[3]);
+        }
+        data.writeInt(rows.size());
+        data.writeLong(footerOffset);
+        data.writeInt(MAGIC);
+        data.flush();
+    }
+
+    static protected byte[] encodeBlock(List<Row> rows, int from, int to, Pool pool) throws IOException {
+        Map<String, Integer> dictionary = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        ByteArrayOutputStream rowBytes = new ByteArrayOutputStream();
+        DataOutputStream rowData = new DataOutputStream(rowBytes);
+
+        for (int i = from; i < to; i++) {
+            Row row = rows.get(i);
+            rowData.writeByte((row.flagged ? FLAGGED : 0) | (row.starred ? STARRED : 0));
+            writeVarLong(rowData, row.cells.size());
+            for (Cell cell : row.cells) {
+                writeCell(rowData, cell, dictionary, strings, pool);
+            }
+        }
+
+        ByteArrayOutputStream blockBytes = new ByteArrayOutputStream(rowBytes.size() + strings.size() * 16);
+        DataOutputStream blockData = new DataOutputStream(blockBytes);
+        writeVarLong(blockData, to - from);
+        writeVarLong(blockData, strings.size());
+        for (String s : strings) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(blockData, bytes.length);
+            blockData.write(bytes);
+        }
+        rowBytes.writeTo(blockData);
+        blockData.flush();
+        return blockBytes.toByteArray();
+    }
+
+    static protected void writeCell(DataOutputStream data, Cell cell, Map<String, Integer> dictionary, List<String> strings,
+            Pool pool) throws IOException {
+        if (cell == null) {
+            data.writeByte(NO_CELL);
+            return;
+        }
+        Serializable value = cell.value;
+        if (value instanceof LocalDateTime) {
+            // like the JSON serialization of cells, which does not keep the absence of time zone
+            value = ((LocalDateTime) value).atOffset(ZoneOffset.UTC);
+        }
+
+        int reconFlag = cell.recon != null ? HAS_RECON : 0;
+        if (value == null) {
+            data.writeByte(NULL_VALUE | reconFlag);
+        } else if (value instanceof String) {
+            data.writeByte(STRING | reconFlag);
+            writeVarLong(data, intern((String) value, dictionary, strings));
+        } else if (value instanceof Long) {
+            data.writeByte(LONG | reconFlag);
+            writeVarLong(data, zigZag((Long) value));
+        } else if (value instanceof Integer) {
+            data.writeByte(INTEGER | reconFlag);
+            writeVarLong(data, zigZag((Integer) value));
+        } else if (value instanceof Double) {
+            data.writeByte(DOUBLE | reconFlag);
+            data.writeLong(Double.doubleToRawLongBits((Double) value));
+        } else if (value instanceof Boolean) {
+            data.writeByte(((Boolean) value ? TRUE : FALSE) | reconFlag);
+        } else if (value instanceof OffsetDateTime) {
+            OffsetDateTime date = (OffsetDateTime) value;
+            data.writeByte(DATE | reconFlag);
+            writeVarLong(data, zigZag(date.toEpochSecond()));
+            writeVarLong(data, date.getNano());
+            writeVarLong(data, zigZag(date.getOffset().getTotalSeconds()));
+        } else if (value instanceof EvalError) {
+            data.writeByte(ERROR | reconFlag);
+            writeVarLong(data, intern(((EvalError) value).message, dictionary, strings));
+        } else {
+            // the recon id is part of the JSON serialization
+            data.writeByte(JSON);
+            writeVarLong(data, intern(ParsingUtilities.saveWriter.writeValueAsString(cell), dictionary, strings));
+            reconFlag = 0;
+        }
+
+        if (cell.recon != null) {
+            pool.pool(cell.recon);
+            if (reconFlag != 0) {
+                writeVarLong(data, zigZag(cell.recon.id));
+            }
+        }
+    }
+
+    static private int intern(String s, Map<String, Integer> dictionary, List<String> strings) {
+        Integer index = dictionary.get(s);
+        if (index == null) {
+            index = strings.size();
+            dictionary.put(s, index);
+            strings.add(s);
+        }
+        return index;
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static void writeVarLong(DataOutputStream data, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            data.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+}
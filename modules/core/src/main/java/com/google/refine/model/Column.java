@@ -35,8 +35,8 @@ package com.google.refine.model;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonInclude;
@@ -54,7 +54,8 @@ public class Column {
     private ReconConfig _reconConfig;
     private ReconStats _reconStats;
 
-    transient protected Map<String, Object> _precomputes;
+    // read and filled by expressions, which can be evaluated by several threads at once
+    transient protected Map<String, Object> _precomputes = new ConcurrentHashMap<>();
     private ReconConfig _sourceReconConfig;
 
     @JsonCreator
@@ -126,23 +127,19 @@ public class Column {
      * ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProjectColumn(project.id, column.getName())
      */
     public void clearPrecomputes() {
-        if (_precomputes != null) {
-            _precomputes.clear();
-        }
+        _precomputes.clear();
     }
 
     public Object getPrecompute(String key) {
-        if (_precomputes != null) {
-            return _precomputes.get(key);
-        }
-        return null;
+        return _precomputes.get(key);
     }
 
     public void setPrecompute(String key, Object value) {
-        if (_precomputes == null) {
-            _precomputes = new HashMap<String, Object>();
+        if (value == null) {
+            _precomputes.remove(key);
+        } else {
+            _precomputes.put(key, value);
         }
-        _precomputes.put(key, value);
     }
 
     public void save(Writer writer) {
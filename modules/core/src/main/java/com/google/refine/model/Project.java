@@ -56,8 +56,15 @@ import org.slf4j.LoggerFactory;
 import com.google.refine.ProjectManager;
 import com.google.refine.ProjectMetadata;
 import com.google.refine.RefineServlet;
+import com.google.refine.browsing.util.ColumnDependentCache;
+import com.google.refine.browsing.util.FilterMaskCache;
 import com.google.refine.history.History;
+import com.google.refine.io.PagedRowList;
+import com.google.refine.io.RowBlockReader;
+import com.google.refine.io.RowBlockWriter;
+import com.google.refine.model.columnar.ColumnarRowList;
 import com.google.refine.process.ProcessManager;
+import com.google.refine.sorting.SortedPermutation;
 import com.google.refine.util.ParsingUtilities;
 import com.google.refine.util.Pool;
 
@@ -68,15 +75,29 @@ public class Project {
 
     final static protected Map<String, Class<? extends OverlayModel>> s_overlayModelClasses = new HashMap<String, Class<? extends OverlayModel>>();
 
+    /**
+     * System property which, when set to true, makes projects store their rows in a {@link ColumnarRowList} rather than
+     * as individual {@link Row} objects.
+     */
+    static public final String COLUMNAR_STORAGE_PROPERTY = "refine.storage.columnar";
+    /**
+     * System property which, when set to false, makes projects read all their rows in memory when they are loaded,
+     * rather than reading them from disk as they are accessed until they are first modified.
+     */
+    static public final String LAZY_ROWS_PROPERTY = "refine.storage.lazyRows";
+
     final public long id;
-    final public List<Row> rows = new ArrayList<>();
+    final public List<Row> rows;
     final public ColumnModel columnModel = new ColumnModel();
     final public RecordModel recordModel = new RecordModel();
     final public Map<String, OverlayModel> overlayModels = new HashMap<String, OverlayModel>();
     final public History history;
 
     transient public ProcessManager processManager = new ProcessManager();
+    transient public FilterMaskCache filterMaskCache = new FilterMaskCache();
+    transient public ColumnDependentCache<SortedPermutation> sortedPermutationCache = new ColumnDependentCache<>(4);
     transient private Instant _lastSave = Instant.now();
+    transient private boolean _compactionPending = false;
 
     final static Logger logger = LoggerFactory.getLogger(Project.class);
 
@@ -98,10 +119,22 @@ public class Project {
      *            long ID to be assigned the new project
      */
     protected Project(long id) {
+        this(id, createRowList());
+    }
+
+    private Project(long id, List<Row> rows) {
         this.id = id;
+        this.rows = rows;
         this.history = new History(this);
     }
 
+    static protected List<Row> createRowList() {
+        if (Boolean.getBoolean(COLUMNAR_STORAGE_PROPERTY)) {
+            return new ColumnarRowList();
+        }
+        return new ArrayList<>();
+    }
+
     static public void registerOverlayModel(String modelName, Class<? extends OverlayModel> klass) {
         s_overlayModelClasses.put(modelName, klass);
     }
@@ -118,9 +151,27 @@ public class Project {
             }
         }
         ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProject(this.id);
+        ProjectManager.singleton.getHistoryEntryManager().disposeProject(this.id);
+        if (rows instanceof PagedRowList) {
+            try {
+                ((PagedRowList) rows).close();
+            } catch (IOException e) {
+                logger.warn("Error closing the rows of project {}", id, e);
+            }
+        }
         // The rest of the project should get garbage collected when we return.
     }
 
+    /**
+     * Reads all the rows of the project in memory if they are read from disk as they are accessed, which must be done
+     * before modifying them.
+     */
+    public void ensureRowsLoaded() {
+        if (rows instanceof PagedRowList) {
+            ((PagedRowList) rows).load();
+        }
+    }
+
     public Instant getLastSave() {
         return this._lastSave;
     }
@@ -132,11 +183,34 @@ public class Project {
         this._lastSave = Instant.now();
     }
 
+    /**
+     * Whether the project was loaded by applying the changes saved since its last full save, which are applied again on
+     * each load until it is saved in full.
+     */
+    public boolean isCompactionPending() {
+        return _compactionPending;
+    }
+
+    public void setCompactionPending(boolean compactionPending) {
+        _compactionPending = compactionPending;
+    }
+
     public ProjectMetadata getMetadata() {
         return ProjectManager.singleton.getProjectMetadata(id);
     }
 
     public void saveToOutputStream(OutputStream out, Pool pool) throws IOException {
+        saveToOutputStream(out, pool, null);
+    }
+
+    /**
+     * Saves the project, possibly without its rows.
+     *
+     * @param rowBlocks
+     *            if not null, the name under which the rows are saved separately with a {@link RowBlockWriter}, to be
+     *            read back with a {@link RowBlockReader}
+     */
+    public void saveToOutputStream(OutputStream out, Pool pool, String rowBlocks) throws IOException {
         for (OverlayModel overlayModel : overlayModels.values()) {
             try {
                 overlayModel.onBeforeSave(this);
@@ -150,6 +224,9 @@ public class Project {
             Properties options = new Properties();
             options.setProperty("mode", "save");
             options.put("pool", pool);
+            if (rowBlocks != null) {
+                options.setProperty("rowBlocks", rowBlocks);
+            }
 
             saveToWriter(writer, options);
         } finally {
@@ -183,6 +260,17 @@ public class Project {
             writer.write('\n');
         }
 
+        if (options.containsKey("rowBlocks")) {
+            // lets the project be opened without reading its rows to compute its records
+            writer.write("hasRecords=");
+            writer.write(Boolean.toString(recordModel.hasRecords()));
+            writer.write('\n');
+            writer.write("rowBlocks=");
+            writer.write(options.getProperty("rowBlocks"));
+            writer.write('\n');
+            return;
+        }
+
         writer.write("rowCount=");
         writer.write(Integer.toString(rows.size()));
         writer.write('\n');
@@ -193,20 +281,35 @@ public class Project {
     }
 
     static public Project loadFromInputStream(InputStream is, long id, Pool pool) throws IOException {
-        return loadFromReader(new LineNumberReader(new InputStreamReader(is, StandardCharsets.UTF_8)), id, pool);
+        return loadFromInputStream(is, id, pool, null);
+    }
+
+    /**
+     * @param rowBlocks
+     *            reader of the rows, if they were saved separately, or null
+     */
+    static public Project loadFromInputStream(InputStream is, long id, Pool pool, RowBlockReader rowBlocks) throws IOException {
+        return loadFromReader(new LineNumberReader(new InputStreamReader(is, StandardCharsets.UTF_8)), id, pool, rowBlocks);
     }
 
     static private Project loadFromReader(
             LineNumberReader reader,
             long id,
-            Pool pool) throws IOException {
+            Pool pool,
+            RowBlockReader rowBlocks) throws IOException {
         long start = System.currentTimeMillis();
 
         // version of Refine which wrote the file
         /* String version = */ reader.readLine();
 
-        Project project = new Project(id);
+        Project project;
+        if (rowBlocks != null && Boolean.parseBoolean(System.getProperty(LAZY_ROWS_PROPERTY, "true"))) {
+            project = new Project(id, new PagedRowList(rowBlocks, pool, createRowList()));
+        } else {
+            project = new Project(id);
+        }
         int maxCellCount = 0;
+        Boolean hasRecords = null;
 
         ObjectMapper mapper = ParsingUtilities.mapper.copy();
         InjectableValues injections = new InjectableValues.Std().addValue("project", project);
@@ -238,6 +341,19 @@ public class Project {
                         maxCellCount = Math.max(maxCellCount, row.cells.size());
                     }
                 }
+            } else if ("hasRecords".equals(field)) {
+                hasRecords = Boolean.parseBoolean(value);
+            } else if ("rowBlocks".equals(field)) {
+                if (rowBlocks == null) {
+                    throw new IOException("The rows of the project were saved in " + value + ", which is missing");
+                }
+                if (!(project.rows instanceof PagedRowList)) {
+                    rowBlocks.readRows(project.rows, pool);
+                    rowBlocks.close();
+                    for (Row row : project.rows) {
+                        maxCellCount = Math.max(maxCellCount, row.cells.size());
+                    }
+                } // else, the rows are read as needed, and the column model knows how many cells they have
             } else if (field.startsWith("overlayModel:")) {
                 String modelName = field.substring("overlayModel:".length());
                 if (s_overlayModelClasses.containsKey(modelName)) {
@@ -259,7 +375,13 @@ public class Project {
         logger.info(
                 "Loaded project {} from disk in {} sec(s)", id, Long.toString((System.currentTimeMillis() - start) / 1000));
 
-        project.update();
+        if (project.rows instanceof PagedRowList) {
+            project.columnModel.update();
+            project.recordModel.updateLazily(project, hasRecords);
+            project.updateRowCount();
+        } else {
+            project.update();
+        }
 
         return project;
     }
@@ -267,6 +389,10 @@ public class Project {
     public void update() {
         columnModel.update();
         recordModel.update(this);
+        updateRowCount();
+    }
+
+    private void updateRowCount() {
         // Old projects may have a row count of 0, but we don't want the act of filling this in to change modified time.
         if (getMetadata() != null) {
             getMetadata().setRowCountInternal(rows.size());
@@ -0,0 +1,114 @@
+package com.google.refine.model;
+
+import java.io.Serializable;
+import java.time.temporal.Temporal;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.io.PagedRowList;
+import com.google.refine.model.columnar.ColumnarRowList;
+
+/**
+ * Estimates the heap taken by a project which is released when it is flushed from memory: mostly its rows, which are
+ * measured according to how they are stored, and then the caches derived from them and the changes of its history held
+ * in memory. Object rows are measured from a sample of them. Sizes assume a 64-bit JVM with compressed references.
+ */
+public class ProjectSizeEstimator {
+
+    static final int SAMPLE_SIZE = 1000;
+
+    // Row with its list of cells, excluding the references to the cells
+    static final long ROW_SIZE = 24 + 24 + 16;
+    static public final long REFERENCE_SIZE = 4;
+    // header of an array
+    static public final long ARRAY_SIZE = 16;
+    static final long CELL_SIZE = 24;
+    static final long STRING_SIZE = 24 + 16;
+    static final long BOXED_SIZE = 16;
+    static final long DATE_SIZE = 80;
+    static final long OTHER_VALUE_SIZE = 32;
+    // recons are shared between cells, so this only accounts for part of each
+    static public final long RECON_SIZE = 64;
+    // dependency of the row in the record model
+    static final long ROW_DEPENDENCY_SIZE = 32;
+    static final long BITSET_SIZE = 24 + ARRAY_SIZE;
+
+    static public long estimateRetainedSize(Project project) {
+        long size = estimateSize(project.rows);
+        if (project.recordModel.isComputed()) {
+            size += project.rows.size() * ROW_DEPENDENCY_SIZE;
+        }
+        if (project.filterMaskCache != null) {
+            size += project.filterMaskCache.estimateSize(mask -> BITSET_SIZE + mask.size() / 8);
+        }
+        if (project.sortedPermutationCache != null) {
+            size += project.sortedPermutationCache.estimateSize(permutation -> permutation.estimateSize());
+        }
+        ProjectManager projectManager = ProjectManager.singleton;
+        if (projectManager != null) {
+            size += projectManager.getLookupCacheManager().getEstimatedSize(project.id);
+            size += projectManager.getHistoryEntryManager().getResidentChangeSize(project.id);
+        }
+        return size;
+    }
+
+    /**
+     * @return the estimated number of bytes taken by the rows held in memory by the given list
+     */
+    static public long estimateSize(List<Row> rows) {
+        if (rows instanceof ColumnarRowList) {
+            return ((ColumnarRowList) rows).estimateSize();
+        } else if (rows instanceof PagedRowList) {
+            return ((PagedRowList) rows).estimateSize();
+        }
+        int rowCount = rows.size();
+        return ARRAY_SIZE + rowCount * REFERENCE_SIZE + sample(rowCount, i -> estimateSize(rows.get(i)));
+    }
+
+    /**
+     * Estimates the sum of the sizes of a range of items from a sample of them.
+     *
+     * @param count
+     *            the number of items, indexed from 0
+     * @param itemSize
+     *            the size of the item at a given index
+     */
+    static public long sample(int count, IntToLongFunction itemSize) {
+        if (count == 0) {
+            return 0;
+        }
+        int step = Math.max(1, count / SAMPLE_SIZE);
+        long sampleSize = 0;
+        int sampleCount = 0;
+        for (int i = 0; i < count; i += step) {
+            sampleSize += itemSize.applyAsLong(i);
+            sampleCount++;
+        }
+        return sampleSize * count / sampleCount;
+    }
+
+    static long estimateSize(Row row) {
+        long size = ROW_SIZE + row.cells.size() * REFERENCE_SIZE;
+        for (Cell cell : row.cells) {
+            if (cell != null) {
+                size += CELL_SIZE + estimateSize(cell.value) + (cell.recon != null ? RECON_SIZE : 0);
+            }
+        }
+        return size;
+    }
+
+    static public long estimateSize(Serializable value) {
+        if (value == null || value instanceof Boolean) {
+            return 0;
+        } else if (value instanceof String) {
+            return STRING_SIZE + ((String) value).length();
+        } else if (value instanceof Number) {
+            return BOXED_SIZE;
+        } else if (value instanceof Temporal) {
+            return DATE_SIZE;
+        } else {
+            return OTHER_VALUE_SIZE;
+        }
+    }
+}
@@ -81,16 +81,24 @@ public class RecordModel {
     protected List<RowDependency> _rowDependencies;
     protected List<Record> _records;
 
+    // project whose records are computed when they are first needed, if any
+    private volatile Project _pendingProject;
+    // whether the pending project has records, if known without computing them
+    private Boolean _pendingHasRecords;
+
     public RowDependency getRowDependency(int rowIndex) {
+        ensureUpdated();
         return _rowDependencies != null && rowIndex >= 0 && rowIndex < _rowDependencies.size() ? _rowDependencies.get(rowIndex) : null;
     }
 
     @JsonIgnore
     public int getRecordCount() {
+        ensureUpdated();
         return _records.size();
     }
 
     public Record getRecord(int recordIndex) {
+        ensureUpdated();
         return _records != null && recordIndex >= 0 && recordIndex < _records.size() ? _records.get(recordIndex) : null;
     }
 
@@ -105,8 +113,23 @@ public class RecordModel {
         return null;
     }
 
+    /**
+     * @return true if the records were computed, rather than left to be computed when first needed
+     */
+    @JsonIgnore
+    public boolean isComputed() {
+        return _rowDependencies != null;
+    }
+
     @JsonProperty("hasRecords")
     public boolean hasRecords() {
+        if (_pendingProject != null) {
+            Boolean hasRecords = _pendingHasRecords;
+            if (hasRecords != null) {
+                return hasRecords;
+            }
+        }
+        ensureUpdated();
         return _records != null && _rowDependencies != null &&
                 _records.size() < _rowDependencies.size();
     }
@@ -203,6 +226,35 @@ public class RecordModel {
 
                 _records.add(new Record(recordRowIndex, rowCount, recordIndex++));
             }
+            _pendingHasRecords = null;
+            _pendingProject = null;
+        }
+    }
+
+    /**
+     * Defers computing the records of the project until they are first needed, as this reads all its rows.
+     *
+     * @param hasRecords
+     *            whether the project has records, as saved with it, or null if unknown
+     */
+    synchronized public void updateLazily(Project project, Boolean hasRecords) {
+        _rowDependencies = null;
+        _records = null;
+        _pendingHasRecords = hasRecords;
+        _pendingProject = project;
+    }
+
+    private void ensureUpdated() {
+        Project project = _pendingProject;
+        if (project != null) {
+            // same lock order as changes, which update the model while holding the project
+            synchronized (project) {
+                synchronized (this) {
+                    if (_pendingProject == project) {
+                        update(project);
+                    }
+                }
+            }
         }
     }
 
@@ -65,7 +65,7 @@ public class CellChange implements Change {
 
         Column column = project.columnModel.getColumnByCellIndex(cellIndex);
         column.clearPrecomputes();
-        ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProjectColumn(project.id, column.getName());
+        updateLookups(project, column, oldCell, newCell);
     }
 
     @Override
@@ -74,7 +74,14 @@ public class CellChange implements Change {
 
         Column column = project.columnModel.getColumnByCellIndex(cellIndex);
         column.clearPrecomputes();
-        ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProjectColumn(project.id, column.getName());
+        updateLookups(project, column, newCell, oldCell);
+    }
+
+    private void updateLookups(Project project, Column column, Cell fromCell, Cell toCell) {
+        ProjectManager.singleton.getLookupCacheManager().updateLookupsInvolvingProjectColumn(project.id, column.getName(),
+                new int[] { row },
+                new Object[] { fromCell != null ? fromCell.value : null },
+                new Object[] { toCell != null ? toCell.value : null });
     }
 
     @Override
@@ -199,7 +199,8 @@ public class ColumnSplitChange implements Change {
                 int r = _rowIndices.get(i);
                 Row newRow = _newRows.get(i);
 
-                project.rows.set(r, newRow);
+                // keep the replaced row as returned by the list, since the one we read may be a view on its storage
+                _oldRows.set(i, project.rows.set(r, newRow));
             }
 
             for (int i = 0; i < _columnNames.size(); i++) {
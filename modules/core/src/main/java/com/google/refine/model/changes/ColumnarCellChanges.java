@@ -0,0 +1,264 @@
+package com.google.refine.model.changes;
+
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.google.refine.model.Cell;
+import com.google.refine.util.Pool;
+
+/**
+ * The cell changes of a {@link MassCellChange}, stored column by column rather than as one {@link CellChange} object
+ * per row: the row indices are kept in an int array, and the old and new cells are indices in a dictionary of the
+ * distinct cells involved. Changes made to a single column, which are the most common, do not store the cell index of
+ * each change.
+ * <p>
+ * They are saved in the same form, with the indices written in lines of up to {@link #VALUES_PER_LINE} values and the
+ * row indices written as differences to the previous one, which compress well.
+ */
+public class ColumnarCellChanges {
+
+    static final int VALUES_PER_LINE = 1024;
+
+    // stands for a null cell in the arrays of cells
+    static private final int NO_CELL = -1;
+
+    final protected int[] _rows;
+    // null when all changes are made to _commonCellIndex
+    final protected int[] _cellIndices;
+    final protected int _commonCellIndex;
+    final protected Cell[] _cells;
+    final protected int[] _oldCells;
+    final protected int[] _newCells;
+
+    protected ColumnarCellChanges(int[] rows, int[] cellIndices, int commonCellIndex, Cell[] cells, int[] oldCells,
+            int[] newCells) {
+        _rows = rows;
+        _cellIndices = cellIndices;
+        _commonCellIndex = commonCellIndex;
+        _cells = cells;
+        _oldCells = oldCells;
+        _newCells = newCells;
+    }
+
+    public ColumnarCellChanges(List<CellChange> cellChanges) {
+        this(cellChanges.toArray(new CellChange[cellChanges.size()]));
+    }
+
+    public ColumnarCellChanges(CellChange[] cellChanges) {
+        int count = cellChanges.length;
+        _rows = new int[count];
+        _oldCells = new int[count];
+        _newCells = new int[count];
+
+        boolean commonCellIndex = true;
+        for (CellChange cellChange : cellChanges) {
+            commonCellIndex &= cellChange.cellIndex == cellChanges[0].cellIndex;
+        }
+        _commonCellIndex = count > 0 && commonCellIndex ? cellChanges[0].cellIndex : -1;
+        _cellIndices = commonCellIndex ? null : new int[count];
+
+        Dictionary dictionary = new Dictionary();
+        for (int i = 0; i < count; i++) {
+            CellChange cellChange = cellChanges[i];
+            _rows[i] = cellChange.row;
+            if (_cellIndices != null) {
+                _cellIndices[i] = cellChange.cellIndex;
+            }
+            _oldCells[i] = dictionary.add(cellChange.oldCell);
+            _newCells[i] = dictionary.add(cellChange.newCell);
+        }
+        _cells = dictionary.toArray();
+    }
+
+    /**
+     * Assigns an index to each distinct cell. Cells without a recon are shared by value, while cells with one are only
+     * shared if they are the same object, as recons can be modified.
+     */
+    static private class Dictionary {
+
+        final Map<Cell, Integer> _plainCells = new HashMap<>();
+        final Map<Cell, Integer> _reconciledCells = new IdentityHashMap<>();
+        int _size = 0;
+
+        int add(Cell cell) {
+            if (cell == null) {
+                return NO_CELL;
+            }
+            Map<Cell, Integer> indices = cell.recon == null ? _plainCells : _reconciledCells;
+            Integer index = indices.get(cell);
+            if (index == null) {
+                index = _size++;
+                indices.put(cell, index);
+            }
+            return index;
+        }
+
+        Cell[] toArray() {
+            Cell[] cells = new Cell[_size];
+            for (Map.Entry<Cell, Integer> entry : _plainCells.entrySet()) {
+                cells[entry.getValue()] = entry.getKey();
+            }
+            for (Map.Entry<Cell, Integer> entry : _reconciledCells.entrySet()) {
+                cells[entry.getValue()] = entry.getKey();
+            }
+            return cells;
+        }
+    }
+
+    public int size() {
+        return _rows.length;
+    }
+
+    public int getRow(int i) {
+        return _rows[i];
+    }
+
+    public int getCellIndex(int i) {
+        return _cellIndices != null ? _cellIndices[i] : _commonCellIndex;
+    }
+
+    public Cell getOldCell(int i) {
+        return _oldCells[i] == NO_CELL ? null : _cells[_oldCells[i]];
+    }
+
+    public Cell getNewCell(int i) {
+        return _newCells[i] == NO_CELL ? null : _cells[_newCells[i]];
+    }
+
+    /**
+     * @return the number of distinct cells involved in the changes
+     */
+    public int getDistinctCellCount() {
+        return _cells.length;
+    }
+
+    public CellChange getCellChange(int i) {
+        return new CellChange(getRow(i), getCellIndex(i), getOldCell(i), getNewCell(i));
+    }
+
+    public void save(Writer writer, Properties options) throws IOException {
+        writer.write("cells=");
+        writer.write(Integer.toString(_cells.length));
+        writer.write('\n');
+        for (Cell cell : _cells) {
+            cell.save(writer, options); // one liner
+            writer.write('\n');
+        }
+
+        writeInts(writer, "rows", _rows, true);
+        if (_cellIndices != null) {
+            writeInts(writer, "cellIndices", _cellIndices, false);
+        } else {
+            writer.write("cellIndex=");
+            writer.write(Integer.toString(_commonCellIndex));
+            writer.write('\n');
+        }
+        writeInts(writer, "oldCells", _oldCells, false);
+        writeInts(writer, "newCells", _newCells, false);
+    }
+
+    static private void writeInts(Writer writer, String field, int[] values, boolean differences) throws IOException {
+        writer.write(field);
+        writer.write('=');
+        writer.write(Integer.toString(values.length));
+        writer.write('\n');
+        int previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(i % VALUES_PER_LINE == 0 ? '\n' : ' ');
+            }
+            writer.write(Integer.toString(differences ? values[i] - previous : values[i]));
+            previous = values[i];
+        }
+        if (values.length > 0) {
+            writer.write('\n');
+        }
+    }
+
+    static private int[] readInts(LineNumberReader reader, int count, boolean differences) throws IOException {
+        int[] values = new int[count];
+        int i = 0;
+        int previous = 0;
+        while (i < count) {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new IOException("Missing values at line " + reader.getLineNumber());
+            }
+            int start = 0;
+            while (start < line.length()) {
+                int end = line.indexOf(' ', start);
+                if (end < 0) {
+                    end = line.length();
+                }
+                int value = Integer.parseInt(line, start, end, 10);
+                values[i] = differences ? previous + value : value;
+                previous = values[i];
+                i++;
+                start = end + 1;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads cell changes from the fields of a saved change, in the columnar form or in the former form of one
+     * {@link CellChange} per row.
+     */
+    static public class Loader {
+
+        private Cell[] _cells = new Cell[0];
+        private int[] _rows = new int[0];
+        private int[] _cellIndices;
+        private int _commonCellIndex = -1;
+        private int[] _oldCells = new int[0];
+        private int[] _newCells = new int[0];
+        private CellChange[] _cellChanges;
+
+        /**
+         * Reads a field of a saved change, along with the lines which follow it when it has any.
+         *
+         * @return false if the field is not one of the cell changes
+         */
+        public boolean readField(String field, String value, LineNumberReader reader, Pool pool) throws Exception {
+            if ("cells".equals(field)) {
+                _cells = new Cell[Integer.parseInt(value)];
+                for (int i = 0; i < _cells.length; i++) {
+                    _cells[i] = Cell.loadStreaming(reader.readLine(), pool);
+                }
+            } else if ("rows".equals(field)) {
+                _rows = readInts(reader, Integer.parseInt(value), true);
+            } else if ("cellIndices".equals(field)) {
+                _cellIndices = readInts(reader, Integer.parseInt(value), false);
+            } else if ("cellIndex".equals(field)) {
+                _commonCellIndex = Integer.parseInt(value);
+            } else if ("oldCells".equals(field)) {
+                _oldCells = readInts(reader, Integer.parseInt(value), false);
+            } else if ("newCells".equals(field)) {
+                _newCells = readInts(reader, Integer.parseInt(value), false);
+            } else if ("cellChangeCount".equals(field)) {
+                int cellChangeCount = Integer.parseInt(value);
+
+                _cellChanges = new CellChange[cellChangeCount];
+                for (int i = 0; i < cellChangeCount; i++) {
+                    _cellChanges[i] = CellChange.load(reader, pool);
+                }
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        public ColumnarCellChanges getCellChanges() {
+            if (_cellChanges != null) {
+                return new ColumnarCellChanges(_cellChanges);
+            }
+            return new ColumnarCellChanges(_rows, _cellIndices, _commonCellIndex, _cells, _oldCells, _newCells);
+        }
+    }
+}
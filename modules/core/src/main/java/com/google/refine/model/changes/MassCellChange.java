@@ -41,6 +41,7 @@ import java.util.Properties;
 
 import com.google.refine.ProjectManager;
 import com.google.refine.history.Change;
+import com.google.refine.model.Cell;
 import com.google.refine.model.Column;
 import com.google.refine.model.Project;
 import com.google.refine.model.Row;
@@ -48,7 +49,7 @@ import com.google.refine.util.Pool;
 
 public class MassCellChange implements Change {
 
-    final protected CellChange[] _cellChanges;
+    final protected ColumnarCellChanges _cellChanges;
     final protected String _commonColumnName;
     final protected boolean _updateRowContextDependencies;
 
@@ -57,9 +58,7 @@ public class MassCellChange implements Change {
             String commonColumnName,
             boolean updateRowContextDependencies) {
 
-        _cellChanges = cellChanges;
-        _commonColumnName = commonColumnName;
-        _updateRowContextDependencies = updateRowContextDependencies;
+        this(new ColumnarCellChanges(cellChanges), commonColumnName, updateRowContextDependencies);
     }
 
     public MassCellChange(
@@ -67,35 +66,40 @@ public class MassCellChange implements Change {
             String commonColumnName,
             boolean updateRowContextDependencies) {
 
-        _cellChanges = new CellChange[cellChanges.size()];
-        _commonColumnName = commonColumnName;
-        cellChanges.toArray(_cellChanges);
-
-        _updateRowContextDependencies = updateRowContextDependencies;
+        this(new ColumnarCellChanges(cellChanges), commonColumnName, updateRowContextDependencies);
     }
 
     public MassCellChange(CellChange cellChange, String commonColumnName, boolean updateRowContextDependencies) {
-        _cellChanges = new CellChange[1];
-        _cellChanges[0] = cellChange;
+        this(new CellChange[] { cellChange }, commonColumnName, updateRowContextDependencies);
+    }
 
-        _commonColumnName = commonColumnName;
+    public MassCellChange(
+            ColumnarCellChanges cellChanges,
+            String commonColumnName,
+            boolean updateRowContextDependencies) {
 
+        _cellChanges = cellChanges;
+        _commonColumnName = commonColumnName;
         _updateRowContextDependencies = updateRowContextDependencies;
     }
 
+    public ColumnarCellChanges getCellChanges() {
+        return _cellChanges;
+    }
+
     @Override
     public void apply(Project project) {
         synchronized (project) {
             List<Row> rows = project.rows;
 
-            for (CellChange cellChange : _cellChanges) {
-                rows.get(cellChange.row).setCell(cellChange.cellIndex, cellChange.newCell);
+            for (int i = 0; i < _cellChanges.size(); i++) {
+                rows.get(_cellChanges.getRow(i)).setCell(_cellChanges.getCellIndex(i), _cellChanges.getNewCell(i));
             }
 
             if (_commonColumnName != null) {
                 Column column = project.columnModel.getColumnByName(_commonColumnName);
                 column.clearPrecomputes();
-                ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProjectColumn(project.id, _commonColumnName);
+                updateLookups(project, column, true);
             }
 
             if (_updateRowContextDependencies) {
@@ -109,14 +113,14 @@ public class MassCellChange implements Change {
         synchronized (project) {
             List<Row> rows = project.rows;
 
-            for (CellChange cellChange : _cellChanges) {
-                rows.get(cellChange.row).setCell(cellChange.cellIndex, cellChange.oldCell);
+            for (int i = 0; i < _cellChanges.size(); i++) {
+                rows.get(_cellChanges.getRow(i)).setCell(_cellChanges.getCellIndex(i), _cellChanges.getOldCell(i));
             }
 
             if (_commonColumnName != null) {
                 Column column = project.columnModel.getColumnByName(_commonColumnName);
                 column.clearPrecomputes();
-                ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProjectColumn(project.id, _commonColumnName);
+                updateLookups(project, column, false);
             }
 
             if (_updateRowContextDependencies) {
@@ -125,6 +129,27 @@ public class MassCellChange implements Change {
         }
     }
 
+    private void updateLookups(Project project, Column column, boolean applied) {
+        int count = _cellChanges.size();
+        int[] rowIndices = new int[count];
+        Object[] oldValues = new Object[count];
+        Object[] newValues = new Object[count];
+        for (int i = 0; i < count; i++) {
+            if (_cellChanges.getCellIndex(i) != column.getCellIndex()) {
+                // not a change of this column only, so its lookups cannot be updated
+                ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProjectColumn(project.id, _commonColumnName);
+                return;
+            }
+            Cell from = applied ? _cellChanges.getOldCell(i) : _cellChanges.getNewCell(i);
+            Cell to = applied ? _cellChanges.getNewCell(i) : _cellChanges.getOldCell(i);
+            rowIndices[i] = _cellChanges.getRow(i);
+            oldValues[i] = from != null ? from.value : null;
+            newValues[i] = to != null ? to.value : null;
+        }
+        ProjectManager.singleton.getLookupCacheManager().updateLookupsInvolvingProjectColumn(project.id, _commonColumnName,
+                rowIndices, oldValues, newValues);
+    }
+
     @Override
     public void save(Writer writer, Properties options) throws IOException {
         if (_commonColumnName != null) {
@@ -135,40 +160,31 @@ public class MassCellChange implements Change {
         writer.write("updateRowContextDependencies=");
         writer.write(Boolean.toString(_updateRowContextDependencies));
         writer.write('\n');
-        writer.write("cellChangeCount=");
-        writer.write(Integer.toString(_cellChanges.length));
-        writer.write('\n');
-        for (CellChange c : _cellChanges) {
-            c.save(writer, options);
-        }
+        _cellChanges.save(writer, options);
         writer.write("/ec/\n"); // end of change marker
     }
 
     static public Change load(LineNumberReader reader, Pool pool) throws Exception {
         String commonColumnName = null;
         boolean updateRowContextDependencies = false;
-        CellChange[] cellChanges = null;
+        ColumnarCellChanges.Loader cellChanges = new ColumnarCellChanges.Loader();
 
         String line;
         while ((line = reader.readLine()) != null && !"/ec/".equals(line)) {
             int equal = line.indexOf('=');
-            CharSequence field = line.subSequence(0, equal);
+            String field = line.substring(0, equal);
+            String value = line.substring(equal + 1);
 
             if ("commonColumnName".equals(field)) {
-                commonColumnName = line.substring(equal + 1);
+                commonColumnName = value;
             } else if ("updateRowContextDependencies".equals(field)) {
-                updateRowContextDependencies = Boolean.parseBoolean(line.substring(equal + 1));
-            } else if ("cellChangeCount".equals(field)) {
-                int cellChangeCount = Integer.parseInt(line.substring(equal + 1));
-
-                cellChanges = new CellChange[cellChangeCount];
-                for (int i = 0; i < cellChangeCount; i++) {
-                    cellChanges[i] = CellChange.load(reader, pool);
-                }
+                updateRowContextDependencies = Boolean.parseBoolean(value);
+            } else {
+                cellChanges.readField(field, value, reader, pool);
             }
         }
 
-        MassCellChange change = new MassCellChange(cellChanges, commonColumnName, updateRowContextDependencies);
+        MassCellChange change = new MassCellChange(cellChanges.getCellChanges(), commonColumnName, updateRowContextDependencies);
 
         return change;
     }
@@ -82,6 +82,17 @@ public class ReconChange extends MassCellChange {
         _newReconStats = newReconStats;
     }
 
+    public ReconChange(
+            ColumnarCellChanges cellChanges,
+            String commonColumnName,
+            ReconConfig newReconConfig,
+            ReconStats newReconStats // can be null
+    ) {
+        super(cellChanges, commonColumnName, false);
+        _newReconConfig = newReconConfig;
+        _newReconStats = newReconStats;
+    }
+
     public ReconChange(
             CellChange cellChange,
             String commonColumnName,
@@ -165,13 +176,13 @@ public class ReconChange extends MassCellChange {
         ReconStats oldReconStats = null;
 
         String commonColumnName = null;
-        CellChange[] cellChanges = null;
+        ColumnarCellChanges.Loader cellChanges = new ColumnarCellChanges.Loader();
 
         String line;
         while ((line = reader.readLine()) != null && !"/ec/".equals(line)) {
             int equal = line.indexOf('=');
 
-            CharSequence field = line.subSequence(0, equal);
+            String field = line.substring(0, equal);
             String value = line.substring(equal + 1);
 
             if ("newReconConfig".equals(field)) {
@@ -192,18 +203,13 @@ public class ReconChange extends MassCellChange {
                 }
             } else if ("commonColumnName".equals(field)) {
                 commonColumnName = value;
-            } else if ("cellChangeCount".equals(field)) {
-                int cellChangeCount = Integer.parseInt(value);
-
-                cellChanges = new CellChange[cellChangeCount];
-                for (int i = 0; i < cellChangeCount; i++) {
-                    cellChanges[i] = CellChange.load(reader, pool);
-                }
+            } else {
+                cellChanges.readField(field, value, reader, pool);
             }
         }
 
         ReconChange change = new ReconChange(
-                cellChanges, commonColumnName, newReconConfig, newReconStats);
+                cellChanges.getCellChanges(), commonColumnName, newReconConfig, newReconStats);
 
         change._oldReconConfig = oldReconConfig;
         change._oldReconStats = oldReconStats;
@@ -62,7 +62,8 @@ public class RowAdditionChange implements Change {
 
             project.update();
             project.columnModel.clearPrecomputes();
-            ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProject(project.id);
+            ProjectManager.singleton.getLookupCacheManager().updateLookupsAfterRowInsertion(project, _insertionIndex,
+                    _additionalRows.size());
         }
     }
 
@@ -74,7 +75,8 @@ public class RowAdditionChange implements Change {
             project.rows.subList(startIndex, endIndex).clear();
 
             project.columnModel.clearPrecomputes();
-            ProjectManager.singleton.getLookupCacheManager().flushLookupsInvolvingProject(project.id);
+            ProjectManager.singleton.getLookupCacheManager().updateLookupsAfterRowRemoval(project.id, startIndex,
+                    _additionalRows.size());
             project.update();
         }
     }
@@ -61,6 +61,8 @@ public class RowFlagChange implements Change {
             oldFlagged = row.flagged;
         }
         row.flagged = newFlagged;
+        // rows may be views on the project's storage, which only copy the flags
+        project.rows.set(rowIndex, row);
     }
 
     @Override
@@ -68,6 +70,7 @@ public class RowFlagChange implements Change {
         Row row = project.rows.get(rowIndex);
 
         row.flagged = oldFlagged;
+        project.rows.set(rowIndex, row);
     }
 
     @Override
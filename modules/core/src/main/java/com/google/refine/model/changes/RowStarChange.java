@@ -61,6 +61,8 @@ public class RowStarChange implements Change {
             oldStarred = row.starred;
         }
         row.starred = newStarred;
+        // rows may be views on the project's storage, which only copy the flags
+        project.rows.set(rowIndex, row);
     }
 
     @Override
@@ -68,6 +70,7 @@ public class RowStarChange implements Change {
         Row row = project.rows.get(rowIndex);
 
         row.starred = oldStarred;
+        project.rows.set(rowIndex, row);
     }
 
     @Override
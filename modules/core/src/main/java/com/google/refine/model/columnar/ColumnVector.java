@@ -0,0 +1,361 @@
+package com.google.refine.model.columnar;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import com.google.refine.model.Cell;
+import com.google.refine.model.ProjectSizeEstimator;
+import com.google.refine.model.Recon;
+
+/**
+ * Storage for the cells found at one cell index across all rows of a {@link ColumnarRowList}.
+ * <p>
+ * Each position records whether a cell exists there and whether it holds a value, in a byte per row. Values are kept by
+ * the subclasses in typed arrays, and recons in a side table which is only allocated once a recon is stored in the
+ * column. When a value does not fit the representation of a vector, {@link #setCell(int, Cell)} returns a more general
+ * vector holding the same cells, which should be used from then on.
+ */
+abstract class ColumnVector {
+
+    static final byte NO_CELL = 0;
+    static final byte NULL_VALUE = 1;
+    static final byte HAS_VALUE = 2;
+
+    protected byte[] states;
+    protected Recon[] recons;
+
+    protected ColumnVector(int capacity) {
+        states = new byte[capacity];
+    }
+
+    /**
+     * Creates a vector holding the same cells as the given one, whose values are copied over by the caller.
+     */
+    protected ColumnVector(ColumnVector other) {
+        states = other.states;
+        recons = other.recons;
+    }
+
+    /**
+     * Creates an empty vector of the given capacity.
+     */
+    static ColumnVector create(int capacity) {
+        return new NullColumnVector(capacity);
+    }
+
+    int capacity() {
+        return states.length;
+    }
+
+    Cell getCell(int row) {
+        byte state = states[row];
+        if (state == NO_CELL) {
+            return null;
+        }
+        return new Cell(state == HAS_VALUE ? getValue(row) : null, recons == null ? null : recons[row]);
+    }
+
+    /**
+     * Stores a cell at the given position.
+     *
+     * @return the vector now holding this column: either this one, or a more general one if the value of the cell could
+     *         not be represented here
+     */
+    ColumnVector setCell(int row, Cell cell) {
+        if (cell == null || cell.value == null) {
+            states[row] = cell == null ? NO_CELL : NULL_VALUE;
+            clearValue(row);
+            setRecon(row, cell == null ? null : cell.recon);
+            return this;
+        }
+        ColumnVector target = accepts(cell.value) ? this : promote(cell.value);
+        target.states[row] = HAS_VALUE;
+        target.setValue(row, cell.value);
+        target.setRecon(row, cell.recon);
+        return target;
+    }
+
+    private void setRecon(int row, Recon recon) {
+        if (recon != null && recons == null) {
+            recons = new Recon[states.length];
+        }
+        if (recons != null) {
+            recons[row] = recon;
+        }
+    }
+
+    void resize(int capacity) {
+        states = Arrays.copyOf(states, capacity);
+        if (recons != null) {
+            recons = Arrays.copyOf(recons, capacity);
+        }
+        resizeValues(capacity);
+    }
+
+    /**
+     * Moves a range of positions, as {@link System#arraycopy} does.
+     */
+    void move(int from, int to, int length) {
+        System.arraycopy(states, from, states, to, length);
+        if (recons != null) {
+            System.arraycopy(recons, from, recons, to, length);
+        }
+        moveValues(from, to, length);
+    }
+
+    /**
+     * Removes the cells of a range of positions.
+     */
+    void clear(int from, int to) {
+        Arrays.fill(states, from, to, NO_CELL);
+        if (recons != null) {
+            Arrays.fill(recons, from, to, null);
+        }
+        for (int row = from; row < to; row++) {
+            clearValue(row);
+        }
+    }
+
+    /**
+     * @return the estimated number of bytes taken by this vector
+     */
+    long estimateSize() {
+        long size = ProjectSizeEstimator.ARRAY_SIZE + states.length + estimateValuesSize();
+        if (recons != null) {
+            size += ProjectSizeEstimator.ARRAY_SIZE + recons.length * ProjectSizeEstimator.REFERENCE_SIZE
+                    + ProjectSizeEstimator.sample(recons.length, row -> recons[row] != null ? ProjectSizeEstimator.RECON_SIZE : 0);
+        }
+        return size;
+    }
+
+    /**
+     * Returns a vector which can hold both the cells of this one and the given value.
+     */
+    protected ColumnVector promote(Serializable value) {
+        ColumnVector promoted = new ObjectColumnVector(this);
+        for (int row = 0; row < states.length; row++) {
+            if (states[row] == HAS_VALUE) {
+                promoted.setValue(row, getValue(row));
+            }
+        }
+        return promoted;
+    }
+
+    /**
+     * Whether the given non-null value can be stored in this vector.
+     */
+    protected abstract boolean accepts(Serializable value);
+
+    protected abstract Serializable getValue(int row);
+
+    protected abstract void setValue(int row, Serializable value);
+
+    protected abstract void clearValue(int row);
+
+    protected abstract void resizeValues(int capacity);
+
+    protected abstract void moveValues(int from, int to, int length);
+
+    protected abstract long estimateValuesSize();
+
+    /**
+     * Vector for columns which do not hold any value yet. It is replaced by a typed vector as soon as a value is
+     * stored.
+     */
+    static class NullColumnVector extends ColumnVector {
+
+        NullColumnVector(int capacity) {
+            super(capacity);
+        }
+
+        @Override
+        protected ColumnVector promote(Serializable value) {
+            if (value instanceof String) {
+                return new StringColumnVector(this);
+            } else if (value instanceof Long) {
+                return new LongColumnVector(this);
+            } else if (value instanceof Double) {
+                return new DoubleColumnVector(this);
+            } else {
+                return new ObjectColumnVector(this);
+            }
+        }
+
+        @Override
+        protected boolean accepts(Serializable value) {
+            return false;
+        }
+
+        @Override
+        protected Serializable getValue(int row) {
+            return null;
+        }
+
+        @Override
+        protected void setValue(int row, Serializable value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void clearValue(int row) {
+        }
+
+        @Override
+        protected void resizeValues(int capacity) {
+        }
+
+        @Override
+        protected void moveValues(int from, int to, int length) {
+        }
+
+        @Override
+        protected long estimateValuesSize() {
+            return 0;
+        }
+    }
+
+    /**
+     * Vector storing arbitrary values by reference, used for columns mixing several types of values.
+     */
+    static class ObjectColumnVector extends ColumnVector {
+
+        private Serializable[] values;
+
+        ObjectColumnVector(ColumnVector other) {
+            super(other);
+            values = new Serializable[other.capacity()];
+        }
+
+        @Override
+        protected long estimateValuesSize() {
+            return ProjectSizeEstimator.ARRAY_SIZE + values.length * ProjectSizeEstimator.REFERENCE_SIZE
+                    + ProjectSizeEstimator.sample(values.length, row -> ProjectSizeEstimator.estimateSize(values[row]));
+        }
+
+        @Override
+        protected boolean accepts(Serializable value) {
+            return true;
+        }
+
+        @Override
+        protected Serializable getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected void setValue(int row, Serializable value) {
+            values[row] = value;
+        }
+
+        @Override
+        protected void clearValue(int row) {
+            values[row] = null;
+        }
+
+        @Override
+        protected void resizeValues(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        protected void moveValues(int from, int to, int length) {
+            System.arraycopy(values, from, values, to, length);
+        }
+    }
+
+    /**
+     * Vector storing {@link Long} values as primitives.
+     */
+    static class LongColumnVector extends ColumnVector {
+
+        private long[] values;
+
+        LongColumnVector(ColumnVector other) {
+            super(other);
+            values = new long[other.capacity()];
+        }
+
+        @Override
+        protected long estimateValuesSize() {
+            return ProjectSizeEstimator.ARRAY_SIZE + values.length * 8L;
+        }
+
+        @Override
+        protected boolean accepts(Serializable value) {
+            return value instanceof Long;
+        }
+
+        @Override
+        protected Serializable getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected void setValue(int row, Serializable value) {
+            values[row] = (Long) value;
+        }
+
+        @Override
+        protected void clearValue(int row) {
+            values[row] = 0L;
+        }
+
+        @Override
+        protected void resizeValues(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        protected void moveValues(int from, int to, int length) {
+            System.arraycopy(values, from, values, to, length);
+        }
+    }
+
+    /**
+     * Vector storing {@link Double} values as primitives.
+     */
+    static class DoubleColumnVector extends ColumnVector {
+
+        private double[] values;
+
+        DoubleColumnVector(ColumnVector other) {
+            super(other);
+            values = new double[other.capacity()];
+        }
+
+        @Override
+        protected long estimateValuesSize() {
+            return ProjectSizeEstimator.ARRAY_SIZE + values.length * 8L;
+        }
+
+        @Override
+        protected boolean accepts(Serializable value) {
+            return value instanceof Double;
+        }
+
+        @Override
+        protected Serializable getValue(int row) {
+            return values[row];
+        }
+
+        @Override
+        protected void setValue(int row, Serializable value) {
+            values[row] = (Double) value;
+        }
+
+        @Override
+        protected void clearValue(int row) {
+            values[row] = 0d;
+        }
+
+        @Override
+        protected void resizeValues(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        protected void moveValues(int from, int to, int length) {
+            System.arraycopy(values, from, values, to, length);
+        }
+    }
+}
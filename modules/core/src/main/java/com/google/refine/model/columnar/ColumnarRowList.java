@@ -0,0 +1,310 @@
+package com.google.refine.model.columnar;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import com.google.refine.model.Cell;
+import com.google.refine.model.ProjectSizeEstimator;
+import com.google.refine.model.Row;
+
+/**
+ * A list of rows which stores cells column by column, in typed vectors, instead of as {@link Row} and {@link Cell}
+ * objects. Strings are dictionary-encoded, longs and doubles are stored as primitives and recons are kept in a side
+ * table, which makes the heap footprint of a cell a few bytes instead of several dozens.
+ * <p>
+ * The rows returned by {@link #get(int)} are views on the underlying storage: modifying their cells writes through to
+ * this list. Their flags are copied when the view is created, so changing them must be followed by a call to
+ * {@link #set(int, Row)} with the same row. The rows returned by {@link #set(int, Row)} and {@link #remove(int)} are
+ * detached copies of the previous contents. Views remain readable after {@link #clear()}, so a copy of this list taken
+ * before clearing it can be used to restore it. Other structural modifications shift rows in place, so views obtained
+ * before them may then point to a different row.
+ */
+public class ColumnarRowList extends AbstractList<Row> implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Table table = new Table(INITIAL_CAPACITY);
+
+    @Override
+    public Row get(int index) {
+        checkIndex(index, table.size);
+        return new ColumnarRow(table, index);
+    }
+
+    @Override
+    public int size() {
+        return table.size;
+    }
+
+    @Override
+    public Row set(int index, Row row) {
+        checkIndex(index, table.size);
+        Row old = table.detach(index);
+        table.write(index, row);
+        return old;
+    }
+
+    @Override
+    public void add(int index, Row row) {
+        checkIndex(index, table.size + 1);
+        if (row instanceof ColumnarRow && ((ColumnarRow) row).table == table) {
+            // inserting shifts the row this view points to
+            row = table.detach(((ColumnarRow) row).index);
+        }
+        table.insert(index, 1);
+        table.write(index, row);
+        modCount++;
+    }
+
+    @Override
+    public Row remove(int index) {
+        checkIndex(index, table.size);
+        Row old = table.detach(index);
+        table.delete(index, index + 1);
+        modCount++;
+        return old;
+    }
+
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        table.delete(fromIndex, toIndex);
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        // start over with fresh storage, leaving the existing views untouched
+        table = new Table(INITIAL_CAPACITY);
+        modCount++;
+    }
+
+    /**
+     * @return the estimated number of bytes taken by the rows
+     */
+    public long estimateSize() {
+        return table.estimateSize();
+    }
+
+    private static void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + bound);
+        }
+    }
+
+    /**
+     * The storage backing the list.
+     */
+    static class Table {
+
+        private static final byte FLAGGED = 1;
+        private static final byte STARRED = 2;
+
+        int size = 0;
+        private int[] cellCounts;
+        private byte[] flags;
+        // indexed by cell index, null for the cell indices which were never used
+        private final List<ColumnVector> columns = new ArrayList<>();
+
+        Table(int capacity) {
+            cellCounts = new int[capacity];
+            flags = new byte[capacity];
+        }
+
+        boolean isFlagged(int row) {
+            return (flags[row] & FLAGGED) != 0;
+        }
+
+        boolean isStarred(int row) {
+            return (flags[row] & STARRED) != 0;
+        }
+
+        int getCellCount(int row) {
+            return cellCounts[row];
+        }
+
+        Cell getCell(int row, int cellIndex) {
+            ColumnVector column = cellIndex < columns.size() ? columns.get(cellIndex) : null;
+            return column == null ? null : column.getCell(row);
+        }
+
+        void setCell(int row, int cellIndex, Cell cell) {
+            ColumnVector column = cellIndex < columns.size() ? columns.get(cellIndex) : null;
+            if (column == null) {
+                if (cell == null) {
+                    return;
+                }
+                column = ColumnVector.create(cellCounts.length);
+                while (columns.size() <= cellIndex) {
+                    columns.add(null);
+                }
+            }
+            columns.set(cellIndex, column.setCell(row, cell));
+        }
+
+        void setCellCount(int row, int cellCount) {
+            for (int c = cellCount; c < cellCounts[row]; c++) {
+                setCell(row, c, null);
+            }
+            cellCounts[row] = cellCount;
+        }
+
+        /**
+         * Returns a copy of a row which does not depend on this storage.
+         */
+        Row detach(int row) {
+            int cellCount = cellCounts[row];
+            Row copy = new Row(cellCount);
+            copy.flagged = isFlagged(row);
+            copy.starred = isStarred(row);
+            for (int c = 0; c < cellCount; c++) {
+                copy.cells.add(getCell(row, c));
+            }
+            return copy;
+        }
+
+        /**
+         * Overwrites the contents of a row with the given one.
+         */
+        void write(int row, Row source) {
+            flags[row] = (byte) ((source.flagged ? FLAGGED : 0) | (source.starred ? STARRED : 0));
+            int cellCount = source.cells.size();
+            for (int c = 0; c < cellCount; c++) {
+                setCell(row, c, source.cells.get(c));
+            }
+            setCellCount(row, cellCount);
+        }
+
+        /**
+         * Makes room for the given number of empty rows at the given index.
+         */
+        void insert(int index, int count) {
+            ensureCapacity(size + count);
+            int moved = size - index;
+            System.arraycopy(cellCounts, index, cellCounts, index + count, moved);
+            System.arraycopy(flags, index, flags, index + count, moved);
+            Arrays.fill(cellCounts, index, index + count, 0);
+            Arrays.fill(flags, index, index + count, (byte) 0);
+            for (ColumnVector column : columns) {
+                if (column != null) {
+                    column.move(index, index + count, moved);
+                    column.clear(index, index + count);
+                }
+            }
+            size += count;
+        }
+
+        /**
+         * Removes the rows in the given range.
+         */
+        void delete(int fromIndex, int toIndex) {
+            int moved = size - toIndex;
+            int newSize = size - (toIndex - fromIndex);
+            System.arraycopy(cellCounts, toIndex, cellCounts, fromIndex, moved);
+            System.arraycopy(flags, toIndex, flags, fromIndex, moved);
+            Arrays.fill(cellCounts, newSize, size, 0);
+            Arrays.fill(flags, newSize, size, (byte) 0);
+            for (ColumnVector column : columns) {
+                if (column != null) {
+                    column.move(toIndex, fromIndex, moved);
+                    column.clear(newSize, size);
+                }
+            }
+            size = newSize;
+        }
+
+        long estimateSize() {
+            long size = 2 * ProjectSizeEstimator.ARRAY_SIZE + cellCounts.length * 4L + flags.length
+                    + columns.size() * ProjectSizeEstimator.REFERENCE_SIZE;
+            for (ColumnVector column : columns) {
+                if (column != null) {
+                    size += column.estimateSize();
+                }
+            }
+            return size;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= cellCounts.length) {
+                return;
+            }
+            int newCapacity = Math.max(capacity, cellCounts.length + (cellCounts.length >> 1));
+            cellCounts = Arrays.copyOf(cellCounts, newCapacity);
+            flags = Arrays.copyOf(flags, newCapacity);
+            for (ColumnVector column : columns) {
+                if (column != null) {
+                    column.resize(newCapacity);
+                }
+            }
+        }
+    }
+
+    /**
+     * A row backed by a {@link Table}.
+     */
+    static class ColumnarRow extends Row {
+
+        final Table table;
+        final int index;
+
+        ColumnarRow(Table table, int index) {
+            super(new CellList(table, index), table.isFlagged(index), table.isStarred(index));
+            this.table = table;
+            this.index = index;
+        }
+    }
+
+    /**
+     * The cells of a {@link ColumnarRow}, which can be replaced or appended to.
+     */
+    static class CellList extends AbstractList<Cell> implements RandomAccess {
+
+        private final Table table;
+        private final int row;
+
+        CellList(Table table, int row) {
+            this.table = table;
+            this.row = row;
+        }
+
+        @Override
+        public Cell get(int index) {
+            checkIndex(index, size());
+            return table.getCell(row, index);
+        }
+
+        @Override
+        public Cell set(int index, Cell cell) {
+            checkIndex(index, size());
+            Cell old = table.getCell(row, index);
+            table.setCell(row, index, cell);
+            return old;
+        }
+
+        @Override
+        public void add(int index, Cell cell) {
+            if (index != size()) {
+                throw new UnsupportedOperationException("Cells can only be appended to columnar rows");
+            }
+            table.setCellCount(row, index + 1);
+            table.setCell(row, index, cell);
+        }
+
+        @Override
+        public Cell remove(int index) {
+            if (index != size() - 1) {
+                throw new UnsupportedOperationException("Only the last cell can be removed from columnar rows");
+            }
+            Cell old = table.getCell(row, index);
+            table.setCellCount(row, index);
+            return old;
+        }
+
+        @Override
+        public int size() {
+            return table.getCellCount(row);
+        }
+    }
+}
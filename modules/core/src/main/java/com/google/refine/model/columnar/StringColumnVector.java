@@ -0,0 +1,82 @@
+package com.google.refine.model.columnar;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.refine.model.ProjectSizeEstimator;
+
+/**
+ * Dictionary-encoded vector of {@link String} values: each position stores the code of its value in the dictionary.
+ * <p>
+ * Once the dictionary reaches {@link #MAX_DICTIONARY_SIZE} distinct values, the column is considered to be of high
+ * cardinality and new values make it switch to a vector storing the strings by reference, since the dictionary would
+ * then cost more than it saves.
+ */
+class StringColumnVector extends ColumnVector {
+
+    static final int MAX_DICTIONARY_SIZE = 1 << 16;
+    // map entry with its boxed code, and the references to it and to the string
+    static final long DICTIONARY_ENTRY_SIZE = 32 + 16 + 2 * ProjectSizeEstimator.REFERENCE_SIZE;
+
+    private int[] codes;
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> codesByValue = new HashMap<>();
+    private long dictionaryBytes = 0;
+
+    StringColumnVector(ColumnVector other) {
+        super(other);
+        codes = new int[other.capacity()];
+    }
+
+    int getDictionarySize() {
+        return dictionary.size();
+    }
+
+    @Override
+    protected boolean accepts(Serializable value) {
+        return value instanceof String
+                && (dictionary.size() < MAX_DICTIONARY_SIZE || codesByValue.containsKey(value));
+    }
+
+    @Override
+    protected Serializable getValue(int row) {
+        return dictionary.get(codes[row]);
+    }
+
+    @Override
+    protected void setValue(int row, Serializable value) {
+        String string = (String) value;
+        Integer code = codesByValue.get(string);
+        if (code == null) {
+            code = dictionary.size();
+            dictionary.add(string);
+            codesByValue.put(string, code);
+            dictionaryBytes += DICTIONARY_ENTRY_SIZE + ProjectSizeEstimator.estimateSize(string);
+        }
+        codes[row] = code;
+    }
+
+    @Override
+    protected void clearValue(int row) {
+        codes[row] = 0;
+    }
+
+    @Override
+    protected void resizeValues(int capacity) {
+        codes = Arrays.copyOf(codes, capacity);
+    }
+
+    @Override
+    protected void moveValues(int from, int to, int length) {
+        System.arraycopy(codes, from, codes, to, length);
+    }
+
+    @Override
+    protected long estimateValuesSize() {
+        return ProjectSizeEstimator.ARRAY_SIZE + codes.length * 4L + dictionaryBytes;
+    }
+}
@@ -43,11 +43,15 @@ import org.apache.commons.lang.Validate;
 import com.google.refine.browsing.Engine;
 import com.google.refine.browsing.EngineConfig;
 import com.google.refine.browsing.FilteredRows;
+import com.google.refine.browsing.ParallelRowVisitor;
 import com.google.refine.browsing.RowVisitor;
+import com.google.refine.expr.MetaParser;
+import com.google.refine.expr.ParsingException;
 import com.google.refine.history.Change;
 import com.google.refine.history.HistoryEntry;
 import com.google.refine.model.Column;
 import com.google.refine.model.Project;
+import com.google.refine.model.Row;
 import com.google.refine.model.changes.CellChange;
 import com.google.refine.model.changes.MassCellChange;
 
@@ -83,8 +87,12 @@ abstract public class EngineDependentMassCellOperation extends EngineDependentOp
         List<CellChange> cellChanges = new ArrayList<CellChange>(project.rows.size());
 
         FilteredRows filteredRows = engine.getAllFilteredRows();
+        RowVisitor visitor = createRowVisitor(project, cellChanges, historyEntryID);
+        if (canVisitRowsInParallel(project)) {
+            visitor = new PartitionedCellChangeVisitor(project, historyEntryID, cellChanges, visitor);
+        }
         try {
-            filteredRows.accept(project, createRowVisitor(project, cellChanges, historyEntryID));
+            filteredRows.accept(project, visitor);
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -105,7 +113,91 @@ abstract public class EngineDependentMassCellOperation extends EngineDependentOp
         return _columnName;
     }
 
+    /**
+     * Whether the visitors returned by {@link #createRowVisitor} only depend on the rows they visit, so that the rows
+     * can be split into partitions visited in parallel, each by its own visitor collecting its own changes. The changes
+     * of the partitions are concatenated in row order, so the resulting change is the same as with a sequential visit.
+     *
+     * @return false by default, as some visitors carry state from one row to the next, like the one of fill down
+     */
+    protected boolean canVisitRowsInParallel(Project project) {
+        return false;
+    }
+
+    /**
+     * Whether the rows can be visited in parallel by visitors evaluating the given expression on each row on its own,
+     * with the bindings of each visitor.
+     *
+     * @param expression
+     *            the expression evaluated by the visitors, possibly with a language prefix
+     * @return false if the expression cannot be parsed
+     */
+    static protected boolean canEvaluateInParallel(String expression) {
+        try {
+            return MetaParser.parse(expression).isThreadSafe();
+        } catch (ParsingException e) {
+            return false;
+        }
+    }
+
     abstract protected RowVisitor createRowVisitor(Project project, List<CellChange> cellChanges, long historyEntryID) throws Exception;
 
     abstract protected String createDescription(Column column, List<CellChange> cellChanges);
+
+    /**
+     * Visits a partition of the rows with a visitor of this operation, collecting the changes it makes in its own list.
+     */
+    private class PartitionedCellChangeVisitor implements ParallelRowVisitor {
+
+        final private Project _project;
+        final private long _historyEntryID;
+        final private List<CellChange> _cellChanges;
+        final private RowVisitor _visitor;
+
+        PartitionedCellChangeVisitor(Project project, long historyEntryID, List<CellChange> cellChanges, RowVisitor visitor) {
+            _project = project;
+            _historyEntryID = historyEntryID;
+            _cellChanges = cellChanges;
+            _visitor = visitor;
+        }
+
+        @Override
+        public ParallelRowVisitor createPartitionVisitor() {
+            List<CellChange> cellChanges = new ArrayList<CellChange>();
+            try {
+                return new PartitionedCellChangeVisitor(_project, _historyEntryID, cellChanges,
+                        createRowVisitor(_project, cellChanges, _historyEntryID));
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void mergePartitionVisitor(ParallelRowVisitor partitionVisitor) {
+            _cellChanges.addAll(((PartitionedCellChangeVisitor) partitionVisitor)._cellChanges);
+        }
+
+        @Override
+        public void start(Project project) {
+            _visitor.start(project);
+        }
+
+        @Override
+        @Deprecated
+        public boolean visit(Project project, int rowIndex, Row row) {
+            return _visitor.visit(project, rowIndex, row);
+        }
+
+        @Override
+        public boolean visit(Project project, int rowIndex, int sortedRowIndex, Row row) {
+            return _visitor.visit(project, rowIndex, sortedRowIndex, row);
+        }
+
+        @Override
+        public void end(Project project) {
+            _visitor.end(project);
+        }
+    }
 }
@@ -33,9 +33,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 
 package com.google.refine.sorting;
 
-import java.util.List;
+import java.util.Arrays;
 
-import com.google.refine.expr.EvalError;
 import com.google.refine.model.Project;
 import com.google.refine.sorting.Criterion.KeyMaker;
 
@@ -43,74 +42,25 @@ abstract public class BaseSorter {
 
     protected Criterion[] _criteria;
     protected KeyMaker[] _keyMakers;
-    protected ComparatorWrapper[] _comparatorWrappers;
-    protected List<Object[]> _keys;
-
-    public class ComparatorWrapper {
-
-        final public int criterionIndex;
-        final protected int multiplier;
-
-        public ComparatorWrapper(int criterionIndex) {
-            this.criterionIndex = criterionIndex;
-            this.multiplier = _criteria[criterionIndex].reverse ? -1 : 1;
-        }
-
-        public Object getKey(Project project, Object o, int index) {
-            while (index >= _keys.size()) {
-                _keys.add(null);
-            }
-
-            Object[] keys = _keys.get(index);
-            if (keys == null) {
-                keys = makeKeys(project, o, index);
-                _keys.set(index, keys);
-            }
-            return keys[criterionIndex];
-        }
-
-        public int compare(Project project, Object o1, int i1, Object o2, int i2) {
-            Criterion c = _criteria[criterionIndex];
-            Object key1 = getKey(project, o1, i1);
-            Object key2 = getKey(project, o2, i2);
-
-            if (key1 == null) {
-                if (key2 == null) {
-                    return 0;
-                } else if (key2 instanceof EvalError) {
-                    return c.blankPosition - c.errorPosition;
-                } else {
-                    return c.blankPosition;
-                }
-            } else if (key1 instanceof EvalError) {
-                if (key2 == null) {
-                    return c.errorPosition - c.blankPosition;
-                } else if (key2 instanceof EvalError) {
-                    return 0;
-                } else {
-                    return c.errorPosition;
-                }
-            } else {
-                if (key2 == null) {
-                    return -c.blankPosition;
-                } else if (key2 instanceof EvalError) {
-                    return -c.errorPosition;
-                } else {
-                    return _keyMakers[criterionIndex].compareKeys(key1, key2) * multiplier;
-                }
-            }
-        }
-    }
+    protected KeyColumn[] _keyColumns;
+    // for each criterion, the rank of values, blanks and errors, indexed by key kind
+    protected int[][] _ranks;
+    protected int[] _multipliers;
+    protected int _limit = Integer.MAX_VALUE;
 
     public void initializeFromConfig(Project project, SortingConfig config) {
         _criteria = config.getCriteria();
         int count = _criteria.length;
         _keyMakers = new KeyMaker[count];
-        _comparatorWrappers = new ComparatorWrapper[count];
+        _keyColumns = new KeyColumn[count];
+        _ranks = new int[count][];
+        _multipliers = new int[count];
 
         for (int i = 0; i < count; i++) {
-            _keyMakers[i] = _criteria[i].createKeyMaker();
-            _comparatorWrappers[i] = new ComparatorWrapper(i);
+            Criterion c = _criteria[i];
+            _keyMakers[i] = c.createKeyMaker();
+            _ranks[i] = new int[] { 0, c.blankPosition, c.errorPosition };
+            _multipliers[i] = c.reverse ? -1 : 1;
         }
     }
 
@@ -118,22 +68,151 @@ abstract public class BaseSorter {
         return _criteria != null && _criteria.length > 0;
     }
 
+    /**
+     * Only sorts the given number of rows (or records) which come first in sorted order, and only visits those. This is
+     * much cheaper than a full sort when only the first pages of a sorted grid are needed.
+     */
+    public void setLimit(int limit) {
+        _limit = limit;
+    }
+
     abstract protected Object makeKey(
             Project project, KeyMaker keyMaker, Criterion c, Object o, int index);
 
-    protected Object[] makeKeys(Project project, Object o, int index) {
-        Object[] keys = new Object[_keyMakers.length];
-        for (int i = 0; i < keys.length; i++) {
-            keys[i] = makeKey(project, _keyMakers[i], _criteria[i], o, index);
+    /**
+     * Prepares the storage of the keys before the rows (or records) are visited.
+     *
+     * @param capacity
+     *            the expected number of rows (or records)
+     */
+    protected void startKeys(int capacity) {
+        for (int i = 0; i < _keyMakers.length; i++) {
+            _keyColumns[i] = _keyMakers[i].createKeyColumn(capacity);
         }
-        return keys;
     }
 
-    protected int compare(Project project, Object o1, int i1, Object o2, int i2) {
-        int c = 0;
-        for (int i = 0; c == 0 && i < _comparatorWrappers.length; i++) {
-            c = _comparatorWrappers[i].compare(project, o1, i1, o2, i2);
+    /**
+     * Computes and stores the keys of the next row (or record) visited.
+     */
+    protected void addKeys(Project project, Object o, int index) {
+        for (int i = 0; i < _keyMakers.length; i++) {
+            _keyColumns[i].add(makeKey(project, _keyMakers[i], _criteria[i], o, index));
+        }
+    }
+
+    /**
+     * Compares the rows (or records) at two positions in the order they were visited. Ties are broken by position, so
+     * that this is a total order.
+     */
+    protected int compare(int position1, int position2) {
+        for (int i = 0; i < _keyColumns.length; i++) {
+            KeyColumn keys = _keyColumns[i];
+            byte kind1 = keys.getKind(position1);
+            byte kind2 = keys.getKind(position2);
+            int c;
+            if (kind1 == KeyColumn.VALUE && kind2 == KeyColumn.VALUE) {
+                c = keys.compareValues(position1, position2) * _multipliers[i];
+            } else {
+                c = _ranks[i][kind1] - _ranks[i][kind2];
+            }
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(position1, position2);
+    }
+
+    /**
+     * Sorts the positions of the given number of rows (or records) whose keys were added, or only the first
+     * {@link #_limit} of them in sorted order if there are more.
+     *
+     * @return the sorted positions
+     */
+    protected int[] sortFirst(int count) {
+        int[] positions;
+        if (_limit >= count) {
+            positions = new int[count];
+            for (int i = 0; i < count; i++) {
+                positions[i] = i;
+            }
+        } else {
+            positions = selectFirst(count, Math.max(0, _limit));
+        }
+        mergeSort(positions, Arrays.copyOf(positions, positions.length), 0, positions.length);
+        return positions;
+    }
+
+    /**
+     * @return the positions of the given number of rows (or records) which come first in sorted order, unsorted
+     */
+    private int[] selectFirst(int count, int limit) {
+        if (limit == 0) {
+            return new int[0];
+        }
+        // a heap of the smallest positions seen so far, with the largest of them on top
+        int[] heap = new int[limit];
+        int size = 0;
+        for (int position = 0; position < count; position++) {
+            if (size < limit) {
+                int i = size++;
+                while (i > 0 && compare(heap[(i - 1) / 2], position) < 0) {
+                    heap[i] = heap[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heap[i] = position;
+            } else if (compare(position, heap[0]) < 0) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= limit) {
+                        break;
+                    }
+                    if (child + 1 < limit && compare(heap[child + 1], heap[child]) > 0) {
+                        child++;
+                    }
+                    if (compare(heap[child], position) <= 0) {
+                        break;
+                    }
+                    heap[i] = heap[child];
+                    i = child;
+                }
+                heap[i] = position;
+            }
+        }
+        return heap;
+    }
+
+    /**
+     * Sorts the positions between from (inclusive) and to (exclusive), using the same range of the buffer, which must
+     * hold the same positions.
+     */
+    private void mergeSort(int[] positions, int[] buffer, int from, int to) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int position = positions[i];
+                int j = i - 1;
+                while (j >= from && compare(positions[j], position) > 0) {
+                    positions[j + 1] = positions[j];
+                    j--;
+                }
+                positions[j + 1] = position;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        // sort both halves of the buffer, then merge them into the positions
+        mergeSort(buffer, positions, from, middle);
+        mergeSort(buffer, positions, middle, to);
+        if (compare(buffer[middle - 1], buffer[middle]) <= 0) {
+            System.arraycopy(buffer, from, positions, from, to - from);
+            return;
+        }
+        for (int i = from, left = from, right = middle; i < to; i++) {
+            if (right >= to || (left < middle && compare(buffer[left], buffer[right]) <= 0)) {
+                positions[i] = buffer[left++];
+            } else {
+                positions[i] = buffer[right++];
+            }
         }
-        return c;
     }
 }
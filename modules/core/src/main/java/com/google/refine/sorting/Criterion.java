@@ -150,6 +150,14 @@ abstract public class Criterion {
         abstract public int compareKeys(Object key1, Object key2);
 
         abstract protected Object makeKey(Object value);
+
+        /**
+         * Creates storage for the keys made by this key maker, ordered as by {@link #compareKeys(Object, Object)}.
+         * Subclasses should override this to store their keys in primitive form.
+         */
+        public KeyColumn createKeyColumn(int capacity) {
+            return new KeyColumn.Objects(this, capacity);
+        }
     }
 
     abstract public KeyMaker createKeyMaker();
@@ -64,6 +64,11 @@ public class DateCriterion extends Criterion {
             public int compareKeys(Object key1, Object key2) {
                 return ((Instant) key1).compareTo((Instant) key2);
             }
+
+            @Override
+            public KeyColumn createKeyColumn(int capacity) {
+                return new KeyColumn.Instants(capacity);
+            }
         };
     }
 
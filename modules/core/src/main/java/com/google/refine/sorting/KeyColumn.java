@@ -0,0 +1,195 @@
+package com.google.refine.sorting;
+
+import java.text.CollationKey;
+import java.time.Instant;
+import java.util.Arrays;
+
+import com.google.refine.expr.EvalError;
+import com.google.refine.sorting.Criterion.KeyMaker;
+
+/**
+ * The sort keys of one criterion for all the rows (or records) being sorted, stored by position in the order they were
+ * visited. Blank and error keys are only recorded as such, so that they can be ranked according to the criterion
+ * without looking at their values.
+ * <p>
+ * Subclasses store the values of the keys in primitive arrays where possible, which avoids boxing them and makes
+ * comparisons cheaper.
+ */
+abstract public class KeyColumn {
+
+    static final public byte VALUE = 0;
+    static final public byte BLANK = 1;
+    static final public byte ERROR = 2;
+
+    protected byte[] _kinds;
+    protected int _size;
+
+    protected KeyColumn(int capacity) {
+        _kinds = new byte[Math.max(capacity, 16)];
+    }
+
+    /**
+     * Appends the key of the next position.
+     *
+     * @param key
+     *            a key returned by a {@link KeyMaker}: null for blanks, an {@link EvalError} for errors
+     */
+    public void add(Object key) {
+        if (_size == _kinds.length) {
+            int capacity = _kinds.length * 2;
+            _kinds = Arrays.copyOf(_kinds, capacity);
+            grow(capacity);
+        }
+        if (key == null) {
+            _kinds[_size] = BLANK;
+        } else if (key instanceof EvalError) {
+            _kinds[_size] = ERROR;
+        } else {
+            _kinds[_size] = VALUE;
+            setValue(_size, key);
+        }
+        _size++;
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * @return {@link #VALUE}, {@link #BLANK} or {@link #ERROR}
+     */
+    public byte getKind(int position) {
+        return _kinds[position];
+    }
+
+    /**
+     * Compares the values at two positions, which must both be of kind {@link #VALUE}.
+     */
+    abstract public int compareValues(int position1, int position2);
+
+    abstract protected void grow(int capacity);
+
+    abstract protected void setValue(int position, Object key);
+
+    /**
+     * Keys which are {@link Number}s, compared as doubles.
+     */
+    static public class Doubles extends KeyColumn {
+
+        protected double[] _values;
+
+        public Doubles(int capacity) {
+            super(capacity);
+            _values = new double[_kinds.length];
+        }
+
+        @Override
+        public int compareValues(int position1, int position2) {
+            double d1 = _values[position1];
+            double d2 = _values[position2];
+            return d1 < d2 ? -1 : (d1 > d2 ? 1 : 0);
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            _values = Arrays.copyOf(_values, capacity);
+        }
+
+        @Override
+        protected void setValue(int position, Object key) {
+            _values[position] = ((Number) key).doubleValue();
+        }
+    }
+
+    /**
+     * Keys which are {@link Instant}s, stored as seconds and nanoseconds since the epoch.
+     */
+    static public class Instants extends KeyColumn {
+
+        protected long[] _seconds;
+        protected int[] _nanos;
+
+        public Instants(int capacity) {
+            super(capacity);
+            _seconds = new long[_kinds.length];
+            _nanos = new int[_kinds.length];
+        }
+
+        @Override
+        public int compareValues(int position1, int position2) {
+            int c = Long.compare(_seconds[position1], _seconds[position2]);
+            return c != 0 ? c : Integer.compare(_nanos[position1], _nanos[position2]);
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            _seconds = Arrays.copyOf(_seconds, capacity);
+            _nanos = Arrays.copyOf(_nanos, capacity);
+        }
+
+        @Override
+        protected void setValue(int position, Object key) {
+            Instant instant = (Instant) key;
+            _seconds[position] = instant.getEpochSecond();
+            _nanos[position] = instant.getNano();
+        }
+    }
+
+    /**
+     * Keys which are {@link CollationKey}s, stored as their byte representation which compares in the same way.
+     */
+    static public class CollationKeys extends KeyColumn {
+
+        protected byte[][] _values;
+
+        public CollationKeys(int capacity) {
+            super(capacity);
+            _values = new byte[_kinds.length][];
+        }
+
+        @Override
+        public int compareValues(int position1, int position2) {
+            return Arrays.compareUnsigned(_values[position1], _values[position2]);
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            _values = Arrays.copyOf(_values, capacity);
+        }
+
+        @Override
+        protected void setValue(int position, Object key) {
+            _values[position] = ((CollationKey) key).toByteArray();
+        }
+    }
+
+    /**
+     * Keys of any type, compared with {@link KeyMaker#compareKeys(Object, Object)}.
+     */
+    static public class Objects extends KeyColumn {
+
+        final protected KeyMaker _keyMaker;
+        protected Object[] _values;
+
+        public Objects(KeyMaker keyMaker, int capacity) {
+            super(capacity);
+            _keyMaker = keyMaker;
+            _values = new Object[_kinds.length];
+        }
+
+        @Override
+        public int compareValues(int position1, int position2) {
+            return _keyMaker.compareKeys(_values[position1], _values[position2]);
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            _values = Arrays.copyOf(_values, capacity);
+        }
+
+        @Override
+        protected void setValue(int position, Object key) {
+            _values[position] = key;
+        }
+    }
+}
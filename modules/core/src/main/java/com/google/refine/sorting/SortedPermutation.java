@@ -0,0 +1,74 @@
+package com.google.refine.sorting;
+
+import java.util.Arrays;
+
+/**
+ * The order of the rows (or records) visited by a {@link SortingRowVisitor} (or {@link SortingRecordVisitor}). It can
+ * be partial, when only the first ones in sorted order were needed: {@link #size()} is then smaller than
+ * {@link #getCount()}.
+ */
+public class SortedPermutation {
+
+    // row or record indices, in sorted order
+    final private int[] _indices;
+    // for each position, the index of the first row at that position in the sorted grid, or null if it is the position
+    final private int[] _sortedRowIndices;
+    final private int _count;
+
+    public SortedPermutation(int[] indices, int[] sortedRowIndices, int count) {
+        _indices = indices;
+        _sortedRowIndices = sortedRowIndices;
+        _count = count;
+    }
+
+    /**
+     * @return the number of positions for which the row or record is known
+     */
+    public int size() {
+        return _indices.length;
+    }
+
+    /**
+     * @return the number of rows or records which were sorted
+     */
+    public int getCount() {
+        return _count;
+    }
+
+    /**
+     * @return the estimated number of bytes taken by this permutation
+     */
+    public long estimateSize() {
+        return 2 * 16 + 4L * (_indices.length + (_sortedRowIndices != null ? _sortedRowIndices.length : 0));
+    }
+
+    public boolean isComplete() {
+        return _indices.length == _count;
+    }
+
+    /**
+     * @return the index of the row or record at the given position
+     */
+    public int getIndex(int position) {
+        return _indices[position];
+    }
+
+    /**
+     * @return the index in the sorted grid of the first row at the given position
+     */
+    public int getSortedRowIndex(int position) {
+        return _sortedRowIndices == null ? position : _sortedRowIndices[position];
+    }
+
+    /**
+     * @return the first known position whose first row is at the given index in the sorted grid or after it, or
+     *         {@link #size()} if there is none
+     */
+    public int getPosition(int sortedRowIndex) {
+        if (_sortedRowIndices == null) {
+            return Math.max(0, Math.min(sortedRowIndex, _indices.length));
+        }
+        int position = Arrays.binarySearch(_sortedRowIndices, sortedRowIndex);
+        return position >= 0 ? position : -position - 1;
+    }
+}
@@ -34,8 +34,6 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.sorting;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 import com.google.refine.browsing.RecordVisitor;
@@ -47,6 +45,7 @@ public class SortingRecordVisitor extends BaseSorter implements RecordVisitor {
 
     final protected RecordVisitor _visitor;
     protected List<Record> _records;
+    protected SortedPermutation _permutation;
 
     public SortingRecordVisitor(RecordVisitor visitor) {
         _visitor = visitor;
@@ -56,40 +55,40 @@ public class SortingRecordVisitor extends BaseSorter implements RecordVisitor {
     public void start(Project project) {
         int count = project.recordModel.getRecordCount();
         _records = new ArrayList<Record>(count);
-        _keys = new ArrayList<Object[]>(count);
+        startKeys(count);
     }
 
     @Override
     public void end(Project project) {
         _visitor.start(project);
 
-        Collections.sort(_records, new Comparator<Record>() {
-
-            Project project;
-
-            Comparator<Record> init(Project project) {
-                this.project = project;
-                return this;
-            }
-
-            @Override
-            public int compare(Record o1, Record o2) {
-                return SortingRecordVisitor.this.compare(project, o1, o1.recordIndex, o2, o2.recordIndex);
-            }
-        }.init(project));
-
+        int[] positions = sortFirst(_records.size());
+        int[] indices = new int[positions.length];
+        int[] sortedRowIndices = new int[positions.length];
         int sortedIndex = 0;
-        for (Record record : _records) {
+        for (int i = 0; i < positions.length; i++) {
+            Record record = _records.get(positions[i]);
+            indices[i] = record.recordIndex;
+            sortedRowIndices[i] = sortedIndex;
             _visitor.visit(project, sortedIndex, record);
             sortedIndex += record.toRowIndex - record.fromRowIndex;
         }
+        _permutation = new SortedPermutation(indices, sortedRowIndices, _records.size());
 
         _visitor.end(project);
     }
 
+    /**
+     * @return the order in which the records were visited, once the visit is over
+     */
+    public SortedPermutation getPermutation() {
+        return _permutation;
+    }
+
     @Override
     public boolean visit(Project project, Record record) {
         _records.add(record);
+        addKeys(project, record, record.recordIndex);
         return false;
     }
 
@@ -34,8 +34,6 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.sorting;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 
 import com.google.refine.browsing.RowVisitor;
@@ -47,6 +45,7 @@ public class SortingRowVisitor extends BaseSorter implements RowVisitor {
 
     final protected RowVisitor _visitor;
     protected List<IndexedRow> _indexedRows;
+    protected SortedPermutation _permutation;
 
     static protected class IndexedRow {
 
@@ -67,40 +66,36 @@ public class SortingRowVisitor extends BaseSorter implements RowVisitor {
     public void start(Project project) {
         int count = project.rows.size();
         _indexedRows = new ArrayList<IndexedRow>(count);
-        _keys = new ArrayList<Object[]>(count);
+        startKeys(count);
     }
 
     @Override
     public void end(Project project) {
         _visitor.start(project);
 
-        Collections.sort(_indexedRows, new Comparator<IndexedRow>() {
-
-            Project project;
-
-            Comparator<IndexedRow> init(Project project) {
-                this.project = project;
-                return this;
-            }
-
-            @Override
-            public int compare(IndexedRow o1, IndexedRow o2) {
-                return SortingRowVisitor.this.compare(project, o1.row, o1.index, o2.row, o2.index);
-            }
-        }.init(project));
-
-        int sortedIndex = 0;
-        for (IndexedRow indexedRow : _indexedRows) {
+        int[] positions = sortFirst(_indexedRows.size());
+        int[] indices = new int[positions.length];
+        for (int sortedIndex = 0; sortedIndex < positions.length; sortedIndex++) {
+            IndexedRow indexedRow = _indexedRows.get(positions[sortedIndex]);
+            indices[sortedIndex] = indexedRow.index;
             _visitor.visit(project, indexedRow.index, sortedIndex, indexedRow.row);
-            sortedIndex++;
         }
+        _permutation = new SortedPermutation(indices, null, _indexedRows.size());
 
         _visitor.end(project);
     }
 
+    /**
+     * @return the order in which the rows were visited, once the visit is over
+     */
+    public SortedPermutation getPermutation() {
+        return _permutation;
+    }
+
     @Override
     public boolean visit(Project project, int rowIndex, Row row) {
         _indexedRows.add(new IndexedRow(rowIndex, row));
+        addKeys(project, row, rowIndex);
         return false;
     }
 
@@ -73,6 +73,11 @@ public class StringCriterion extends Criterion {
             public int compareKeys(Object key1, Object key2) {
                 return ((CollationKey) key1).compareTo((CollationKey) key2);
             }
+
+            @Override
+            public KeyColumn createKeyColumn(int capacity) {
+                return new KeyColumn.CollationKeys(capacity);
+            }
         };
     }
 
@@ -0,0 +1,170 @@
+package com.google.refine.util;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of ints, which avoids boxing them. The methods to search, insert and remove values assume that the
+ * list is sorted in ascending order.
+ */
+public class IntList {
+
+    private int[] _values;
+    private int _size;
+
+    public IntList() {
+        this(4);
+    }
+
+    public IntList(int capacity) {
+        _values = new int[Math.max(1, capacity)];
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    public boolean isEmpty() {
+        return _size == 0;
+    }
+
+    public int get(int index) {
+        if (index >= _size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+        }
+        return _values[index];
+    }
+
+    public void add(int value) {
+        if (_size == _values.length) {
+            _values = Arrays.copyOf(_values, _size * 2);
+        }
+        _values[_size++] = value;
+    }
+
+    /**
+     * Inserts a value in a sorted list, unless it is already present.
+     *
+     * @return true if the value was inserted
+     */
+    public boolean insertSorted(int value) {
+        int index = Arrays.binarySearch(_values, 0, _size, value);
+        if (index >= 0) {
+            return false;
+        }
+        index = -index - 1;
+        if (_size == _values.length) {
+            _values = Arrays.copyOf(_values, _size * 2);
+        }
+        System.arraycopy(_values, index, _values, index + 1, _size - index);
+        _values[index] = value;
+        _size++;
+        return true;
+    }
+
+    /**
+     * Removes a value from a sorted list.
+     *
+     * @return true if the value was present
+     */
+    public boolean removeSorted(int value) {
+        int index = Arrays.binarySearch(_values, 0, _size, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(_values, index + 1, _values, index, _size - index - 1);
+        _size--;
+        return true;
+    }
+
+    /**
+     * Removes from a sorted list the values of a sorted list, and inserts those of another sorted list which are not
+     * present, in a single pass. A value which is both removed and inserted is kept.
+     *
+     * @return the number of values inserted minus the number of values removed
+     */
+    public int mergeSorted(IntList removed, IntList inserted) {
+        int[] merged = new int[Math.max(1, _size + inserted._size)];
+        int size = 0;
+        int j = 0;
+        int k = 0;
+        for (int i = 0; i < _size; i++) {
+            int value = _values[i];
+            while (k < inserted._size && inserted._values[k] < value) {
+                size = appendDistinct(merged, size, inserted._values[k++]);
+            }
+            while (j < removed._size && removed._values[j] < value) {
+                j++;
+            }
+            boolean isRemoved = j < removed._size && removed._values[j] == value;
+            boolean isInserted = k < inserted._size && inserted._values[k] == value;
+            if (isInserted || !isRemoved) {
+                size = appendDistinct(merged, size, value);
+            }
+        }
+        while (k < inserted._size) {
+            size = appendDistinct(merged, size, inserted._values[k++]);
+        }
+        int difference = size - _size;
+        _values = merged;
+        _size = size;
+        return difference;
+    }
+
+    static private int appendDistinct(int[] values, int size, int value) {
+        if (size == 0 || values[size - 1] != value) {
+            values[size++] = value;
+        }
+        return size;
+    }
+
+    public void sort() {
+        Arrays.sort(_values, 0, _size);
+    }
+
+    /**
+     * Removes the values of a sorted list which are in the range [from, from + count), and subtracts count from the
+     * values above it.
+     *
+     * @return the number of values removed
+     */
+    public int removeRangeAndShift(int from, int count) {
+        int start = lowerBound(from);
+        int end = lowerBound(from + count);
+        System.arraycopy(_values, end, _values, start, _size - end);
+        _size -= end - start;
+        for (int i = start; i < _size; i++) {
+            _values[i] -= count;
+        }
+        return end - start;
+    }
+
+    /**
+     * Adds count to the values of a sorted list which are greater than or equal to from.
+     */
+    public void shift(int from, int count) {
+        for (int i = lowerBound(from); i < _size; i++) {
+            _values[i] += count;
+        }
+    }
+
+    private int lowerBound(int value) {
+        int index = Arrays.binarySearch(_values, 0, _size, value);
+        if (index < 0) {
+            return -index - 1;
+        }
+        // go back to the first occurrence
+        while (index > 0 && _values[index - 1] == value) {
+            index--;
+        }
+        return index;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(_values, _size);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
@@ -0,0 +1,75 @@
+package com.google.refine.util;
+
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Compiled regular expressions shared by expressions and facets, so that the same regular expression is not compiled
+ * again for each row or each request. Only the most recently used ones are kept.
+ */
+public class PatternCache {
+
+    /**
+     * System property holding the maximum number of compiled regular expressions kept in memory.
+     */
+    static public final String CACHE_SIZE_PROPERTY = "refine.patternCacheSize";
+    static final int DEFAULT_CACHE_SIZE = 1000;
+
+    static private final Cache<Key, Pattern> s_patterns = CacheBuilder.newBuilder()
+            .maximumSize(Math.max(0, Integer.getInteger(CACHE_SIZE_PROPERTY, DEFAULT_CACHE_SIZE)))
+            .recordStats()
+            .build();
+
+    static private class Key {
+
+        final String regex;
+        final int flags;
+
+        Key(String regex, int flags) {
+            this.regex = regex;
+            this.flags = flags;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(regex, flags);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key) obj).flags == flags && ((Key) obj).regex.equals(regex);
+        }
+    }
+
+    /**
+     * Compiles a regular expression, or returns the pattern it was compiled to before with the same flags.
+     *
+     * @throws PatternSyntaxException
+     *             if the regular expression is invalid
+     */
+    static public Pattern compile(String regex, int flags) {
+        Key key = new Key(regex, flags);
+        Pattern pattern = s_patterns.getIfPresent(key);
+        if (pattern == null) {
+            pattern = Pattern.compile(regex, flags);
+            s_patterns.put(key, pattern);
+        }
+        return pattern;
+    }
+
+    static public Pattern compile(String regex) {
+        return compile(regex, 0);
+    }
+
+    /**
+     * @return the number of times regular expressions were found or not in the cache, and evicted from it
+     */
+    static public CacheStats getCacheStats() {
+        return s_patterns.stats();
+    }
+}
@@ -0,0 +1,197 @@
+package com.google.refine;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.google.refine.LookupCacheManager.ProjectLookup;
+import com.google.refine.expr.WrappedRow;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellChange;
+import com.google.refine.model.changes.MassCellChange;
+import com.google.refine.model.changes.RowAdditionChange;
+import com.google.refine.util.LookupException;
+
+public class LookupCacheManagerTests extends RefineTest {
+
+    Project createTargetProject() {
+        return createProject(new String[] { "key", "other" },
+                new Serializable[][] {
+                        { "a", "1" },
+                        { "b", "2" },
+                        { "a", "3" },
+                        { null, "4" },
+                        { "c", "5" } });
+    }
+
+    static int[] rowIndices(ProjectLookup lookup, Object value) {
+        return lookup.getRows(value).stream().mapToInt(row -> ((WrappedRow) row).rowIndex).toArray();
+    }
+
+    @Test
+    public void testComputesLookup() throws LookupException {
+        Project project = createTargetProject();
+        LookupCacheManager manager = ProjectManager.singleton.getLookupCacheManager();
+
+        ProjectLookup lookup = manager.getLookup(project.id, "key");
+        assertEquals(rowIndices(lookup, "a"), new int[] { 0, 2 });
+        assertEquals(rowIndices(lookup, "c"), new int[] { 4 });
+        assertEquals(rowIndices(lookup, "d"), new int[] {});
+        assertSame(manager.getLookup(project.id, "key"), lookup);
+
+        ProjectLookup indexLookup = manager.getLookup(project.id, LookupCacheManager.INDEX_COLUMN_NAME);
+        assertEquals(rowIndices(indexLookup, 3), new int[] { 3 });
+    }
+
+    @Test
+    public void testComputesLookupOnce() throws Exception {
+        Project project = createTargetProject();
+        AtomicInteger computations = new AtomicInteger();
+        LookupCacheManager manager = new LookupCacheManager() {
+
+            @Override
+            protected void computeLookup(ProjectLookup lookup) throws LookupException {
+                computations.incrementAndGet();
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    throw new LookupException("interrupted");
+                }
+                super.computeLookup(lookup);
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<ProjectLookup>> calls = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                calls.add(() -> manager.getLookup(project.id, "key"));
+            }
+            List<Future<ProjectLookup>> lookups = executor.invokeAll(calls);
+            for (Future<ProjectLookup> lookup : lookups) {
+                assertSame(lookup.get(), lookups.get(0).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(computations.get(), 1);
+    }
+
+    @Test(expectedExceptions = LookupException.class)
+    public void testMissingColumn() throws LookupException {
+        Project project = createTargetProject();
+        ProjectManager.singleton.getLookupCacheManager().getLookup(project.id, "missing");
+    }
+
+    @Test
+    public void testUpdatesLookupOnCellChanges() throws LookupException {
+        Project project = createTargetProject();
+        LookupCacheManager manager = ProjectManager.singleton.getLookupCacheManager();
+        ProjectLookup lookup = manager.getLookup(project.id, "key");
+
+        CellChange change = new CellChange(1, 0, project.rows.get(1).getCell(0), new Cell("a", null));
+        change.apply(project);
+        assertSame(manager.getLookup(project.id, "key"), lookup);
+        assertEquals(rowIndices(lookup, "a"), new int[] { 0, 1, 2 });
+        assertEquals(rowIndices(lookup, "b"), new int[] {});
+
+        MassCellChange massChange = new MassCellChange(Arrays.asList(
+                new CellChange(0, 0, project.rows.get(0).getCell(0), null),
+                new CellChange(3, 0, null, new Cell("c", null))), "key", false);
+        massChange.apply(project);
+        assertSame(manager.getLookup(project.id, "key"), lookup);
+        assertEquals(rowIndices(lookup, "a"), new int[] { 1, 2 });
+        assertEquals(rowIndices(lookup, "c"), new int[] { 3, 4 });
+
+        massChange.revert(project);
+        change.revert(project);
+        assertEquals(rowIndices(lookup, "a"), new int[] { 0, 2 });
+        assertEquals(rowIndices(lookup, "b"), new int[] { 1 });
+        assertEquals(rowIndices(lookup, "c"), new int[] { 4 });
+    }
+
+    @Test
+    public void testUpdatesLookupOnChangesToMostRows() throws LookupException {
+        // each value has many rows, which are all changed at once
+        int rowCount = 200000;
+        Serializable[][] grid = new Serializable[rowCount][];
+        int[] yesRows = new int[rowCount / 2];
+        int[] noRows = new int[rowCount / 2];
+        for (int r = 0; r < rowCount; r++) {
+            grid[r] = new Serializable[] { r % 2 == 0 ? "yes" : "no" };
+            (r % 2 == 0 ? yesRows : noRows)[r / 2] = r;
+        }
+        Project project = createProject(new String[] { "key" }, grid);
+        LookupCacheManager manager = ProjectManager.singleton.getLookupCacheManager();
+        ProjectLookup lookup = manager.getLookup(project.id, "key");
+
+        List<CellChange> cellChanges = new ArrayList<>();
+        for (int r : yesRows) {
+            cellChanges.add(new CellChange(r, 0, project.rows.get(r).getCell(0), new Cell("YES", null)));
+        }
+        MassCellChange massChange = new MassCellChange(cellChanges, "key", false);
+        massChange.apply(project);
+        assertSame(manager.getLookup(project.id, "key"), lookup);
+        assertEquals(rowIndices(lookup, "yes"), new int[] {});
+        assertEquals(rowIndices(lookup, "YES"), yesRows);
+        assertEquals(rowIndices(lookup, "no"), noRows);
+
+        massChange.revert(project);
+        assertEquals(rowIndices(lookup, "yes"), yesRows);
+        assertEquals(rowIndices(lookup, "YES"), new int[] {});
+        assertEquals(rowIndices(lookup, "no"), noRows);
+    }
+
+    @Test
+    public void testUpdatesLookupOnRowAddition() throws LookupException {
+        Project project = createTargetProject();
+        LookupCacheManager manager = ProjectManager.singleton.getLookupCacheManager();
+        ProjectLookup lookup = manager.getLookup(project.id, "key");
+        ProjectLookup indexLookup = manager.getLookup(project.id, LookupCacheManager.INDEX_COLUMN_NAME);
+
+        Row row = new Row(2);
+        row.setCell(0, new Cell("c", null));
+        RowAdditionChange change = new RowAdditionChange(Arrays.asList(row, new Row(2)), 1);
+        change.apply(project);
+        assertSame(manager.getLookup(project.id, "key"), lookup);
+        assertEquals(rowIndices(lookup, "a"), new int[] { 0, 4 });
+        assertEquals(rowIndices(lookup, "b"), new int[] { 3 });
+        assertEquals(rowIndices(lookup, "c"), new int[] { 1, 6 });
+        assertEquals(rowIndices(indexLookup, "6"), new int[] { 6 });
+
+        change.revert(project);
+        assertEquals(rowIndices(lookup, "a"), new int[] { 0, 2 });
+        assertEquals(rowIndices(lookup, "b"), new int[] { 1 });
+        assertEquals(rowIndices(lookup, "c"), new int[] { 4 });
+        assertEquals(rowIndices(indexLookup, "5"), new int[] {});
+        assertEquals(rowIndices(indexLookup, "4"), new int[] { 4 });
+    }
+
+    @Test
+    public void testEvictsOverMemoryBudget() throws LookupException {
+        Project project = createTargetProject();
+        LookupCacheManager manager = new LookupCacheManager(1);
+
+        ProjectLookup first = manager.getLookup(project.id, "key");
+        ProjectLookup second = manager.getLookup(project.id, "other");
+        assertTrue(manager.getEstimatedSize() > 0);
+        // only the last lookup computed is kept
+        assertSame(manager.getLookup(project.id, "other"), second);
+        assertNotSame(manager.getLookup(project.id, "key"), first);
+    }
+}
@@ -34,6 +34,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine;
 
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
@@ -43,7 +45,9 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Set;
@@ -57,7 +61,9 @@ import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 
 import com.google.refine.model.Project;
+import com.google.refine.model.ProjectSizeEstimator;
 import com.google.refine.model.ProjectStub;
+import com.google.refine.model.RecordModel;
 import com.google.refine.model.Row;
 import com.google.refine.process.ProcessManager;
 
@@ -89,6 +95,9 @@ public class ProjectManagerTests extends RefineTest {
         field.setAccessible(true);
         field.set(project, new ArrayList<>());
         addRows(project);
+        field = Project.class.getDeclaredField("recordModel");
+        field.setAccessible(true);
+        field.set(project, new RecordModel());
 
         metadata = mock(ProjectMetadata.class);
         when(metadata.getTags()).thenReturn(TAGS);
@@ -227,6 +236,150 @@ public class ProjectManagerTests extends RefineTest {
     }
     // TODO test canSaveAllModifiedWithRaceCondition
 
+    @Test
+    public void canFlushLeastRecentlyAccessedProjectsOverBudget() {
+        Project[] projects = new Project[3];
+        for (int i = 0; i < projects.length; i++) {
+            projects[i] = spy(new ProjectStub(i + 1));
+            addRows(projects[i]);
+            ProjectMetadata meta = mock(ProjectMetadata.class);
+            whenMetadataGetModified(meta, -10); // already saved
+            registerProject(projects[i], meta);
+        }
+        long projectSize = ProjectSizeEstimator.estimateRetainedSize(projects[0]);
+        SUT._memoryBudget = 3 * projectSize - 1;
+        SUT._evictionGracePeriod = Duration.ZERO;
+        SUT.getProject(1);
+
+        SUT.enforceMemoryBudget();
+
+        // the second project is the least recently accessed one
+        verify(projects[1], times(1)).dispose();
+        verify(projects[0], never()).dispose();
+        verify(projects[2], never()).dispose();
+        verify(SUT, never()).saveProject(Mockito.any());
+        assertEquals(SUT.getResidentProjectCount(), 2);
+        assertEquals(SUT.getEvictionCount(), 1);
+        assertEquals(SUT.getEstimatedProjectsSize(), 2 * projectSize);
+    }
+
+    @Test
+    public void canSaveProjectBeforeFlushingIt() {
+        Project project2 = spy(new ProjectStub(2));
+        addRows(project2);
+        ProjectMetadata metadata2 = mock(ProjectMetadata.class);
+        whenMetadataGetModified(metadata2, 5);
+        when(project2.getLastSave()).thenReturn(BASE_DATE);
+        registerProject(project2, metadata2);
+        doAnswer(invocation -> {
+            when(project2.getLastSave()).thenReturn(BASE_DATE.plusSeconds(10));
+            return null;
+        }).when(SUT).saveProject(project2);
+        SUT._memoryBudget = 0;
+        SUT._evictionGracePeriod = Duration.ZERO;
+
+        SUT.enforceMemoryBudget();
+
+        verify(SUT, times(1)).saveProject(project2);
+        verify(project2, times(1)).dispose();
+        assertEquals(SUT.getResidentProjectCount(), 0);
+    }
+
+    @Test
+    public void canCompactProjectsOnQuickSave() throws IOException {
+        Project project2 = spy(new ProjectStub(2));
+        addRows(project2);
+        ProjectMetadata metadata2 = mock(ProjectMetadata.class);
+        whenMetadataGetModified(metadata2, -10); // already saved
+        // too recently to be flushed
+        when(project2.getLastSave()).thenReturn(Instant.now());
+        project2.setCompactionPending(true);
+        registerProject(project2, metadata2);
+
+        SUT.save(true);
+        verify(SUT, never()).compactProject(project2);
+
+        SUT.save(false);
+        verify(SUT, times(1)).compactProject(project2);
+        verify(project2, never()).dispose();
+    }
+
+    @Test
+    public void cannotFlushProjectWithPendingProcesses() {
+        whenGetSaveTimes(project, metadata, -10);
+        registerProject();
+        when(procmgr.hasPending()).thenReturn(true);
+        SUT._memoryBudget = 0;
+        SUT._evictionGracePeriod = Duration.ZERO;
+
+        SUT.enforceMemoryBudget();
+
+        verify(project, never()).dispose();
+        assertEquals(SUT.getResidentProjectCount(), 1);
+        assertEquals(SUT.getEvictionCount(), 0);
+    }
+
+    @Test
+    public void cannotFlushRecentlyAccessedProject() {
+        whenGetSaveTimes(project, metadata, -10);
+        registerProject();
+        SUT._memoryBudget = 0;
+
+        SUT.enforceMemoryBudget();
+
+        verify(project, never()).dispose();
+        assertEquals(SUT.getResidentProjectCount(), 1);
+        assertEquals(SUT.getEvictionCount(), 0);
+    }
+
+    @Test
+    public void cannotFlushProjectsWhenGettingOne() {
+        Project project2 = spy(new ProjectStub(2));
+        addRows(project2);
+        ProjectMetadata metadata2 = mock(ProjectMetadata.class);
+        whenMetadataGetModified(metadata2, 5);
+        when(project2.getLastSave()).thenReturn(BASE_DATE);
+        registerProject(project2, metadata2);
+        whenGetSaveTimes(project, metadata, -10);
+        registerProject();
+        SUT._memoryBudget = 0;
+        SUT._evictionGracePeriod = Duration.ZERO;
+
+        SUT.getProject(project.id);
+
+        verify(project2, never()).dispose();
+        verify(SUT, never()).saveProject(Mockito.any());
+        assertEquals(SUT.getResidentProjectCount(), 2);
+    }
+
+    @Test
+    public void canFlushProjectsOverBudgetAfterLoadingOne() throws InterruptedException {
+        Project project2 = spy(new ProjectStub(2));
+        addRows(project2);
+        ProjectMetadata metadata2 = mock(ProjectMetadata.class);
+        whenMetadataGetModified(metadata2, -10); // already saved
+        registerProject(project2, metadata2);
+        Project project3 = spy(new ProjectStub(3));
+        addRows(project3);
+        doReturn(project3).when(SUT).loadProject(3);
+        // only one of them fits
+        SUT._memoryBudget = ProjectSizeEstimator.estimateRetainedSize(project3);
+        SUT._evictionGracePeriod = Duration.ZERO;
+        SUT.enforceMemoryBudget();
+        assertEquals(SUT.getResidentProjectCount(), 1);
+
+        assertEquals(SUT.getProject(3), project3);
+
+        // flushed in the background
+        long deadline = System.currentTimeMillis() + 10000;
+        while (SUT.getResidentProjectCount() > 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        verify(project2, times(1)).dispose();
+        verify(project3, never()).dispose();
+        assertEquals(SUT.getResidentProjectCount(), 1);
+    }
+
     // -------------helpers-------------
 
     protected void registerProject() {
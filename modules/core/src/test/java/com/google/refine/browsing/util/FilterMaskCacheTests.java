@@ -0,0 +1,113 @@
+package com.google.refine.browsing.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+
+import java.io.Serializable;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.Engine.Mode;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.browsing.facets.FacetConfig;
+import com.google.refine.history.Change;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+
+public class FilterMaskCacheTests extends RefineTest {
+
+    static final String ENGINE_CONFIG = "{\"mode\":\"row-based\",\"facets\":[{\"type\":\"text\",\"name\":\"name\","
+            + "\"columnName\":\"name\",\"query\":\"alph\",\"mode\":\"text\",\"caseSensitive\":false,\"invert\":false}]}";
+
+    Project project;
+    Engine engine;
+    FacetConfig facetConfig;
+
+    @Override
+    @BeforeTest
+    public void init() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @BeforeMethod
+    public void setUp() {
+        project = createProject(new String[] { "name", "other" },
+                new Serializable[][] {
+                        { "alpha", "x" },
+                        { "beta", "y" },
+                        { "alphabet", "z" },
+                });
+        EngineConfig engineConfig = EngineConfig.deserialize(ENGINE_CONFIG);
+        engine = new Engine(project);
+        engine.initializeFromConfig(engineConfig);
+        facetConfig = engineConfig.getFacetConfigs().get(0);
+    }
+
+    void editName(int rowIndex, String name) {
+        project.rows.get(rowIndex).setCell(0, new Cell(name, null));
+    }
+
+    @Test
+    public void testMasksAreReused() {
+        // visiting the filtered rows only evaluates the filters as far as needed, so nothing is cached
+        assertEquals(FilterMasksTests.visitedRows(project, engine.getAllFilteredRows()), Arrays.asList(0, 2));
+        assertEquals(project.filterMaskCache.size(), 0);
+
+        engine.computeFacets();
+        assertEquals(project.filterMaskCache.size(), 1);
+        assertNotNull(project.filterMaskCache.get(project, Mode.RowBased, facetConfig));
+        assertNull(project.filterMaskCache.get(project, Mode.RecordBased, facetConfig));
+
+        // an edit which does not clear the precomputes is not seen
+        editName(1, "alpha2");
+        assertEquals(FilterMasksTests.visitedRows(project, engine.getAllFilteredRows()), Arrays.asList(0, 2));
+    }
+
+    @Test
+    public void testClearingPrecomputesInvalidates() {
+        engine.computeFacets();
+        editName(1, "alpha2");
+
+        project.columnModel.getColumnByName("other").clearPrecomputes();
+        assertNotNull(project.filterMaskCache.get(project, Mode.RowBased, facetConfig));
+
+        project.columnModel.getColumnByName("name").clearPrecomputes();
+        assertNull(project.filterMaskCache.get(project, Mode.RowBased, facetConfig));
+        assertEquals(FilterMasksTests.visitedRows(project, engine.getAllFilteredRows()), Arrays.asList(0, 1, 2));
+    }
+
+    @Test
+    public void testNewHistoryEntryInvalidates() {
+        engine.computeFacets();
+        Change change = new Change() {
+
+            @Override
+            public void apply(Project project) {
+                editName(2, "gamma");
+            }
+
+            @Override
+            public void revert(Project project) {
+                editName(2, "alphabet");
+            }
+
+            @Override
+            public void save(Writer writer, Properties options) {
+            }
+        };
+        project.history.addEntry(new HistoryEntry(HistoryEntry.allocateID(), project, "edit", null, change));
+
+        assertNull(project.filterMaskCache.get(project, Mode.RowBased, facetConfig));
+        assertEquals(FilterMasksTests.visitedRows(project, engine.getAllFilteredRows()), Arrays.asList(0));
+    }
+}
@@ -0,0 +1,138 @@
+package com.google.refine.browsing.util;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.FilteredRecords;
+import com.google.refine.browsing.FilteredRows;
+import com.google.refine.browsing.RecordFilter;
+import com.google.refine.browsing.RecordVisitor;
+import com.google.refine.browsing.RowFilter;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.model.Project;
+import com.google.refine.model.Record;
+import com.google.refine.model.Row;
+
+public class FilterMasksTests extends RefineTest {
+
+    Project project;
+    AtomicInteger filterCalls;
+
+    @Override
+    @BeforeTest
+    public void init() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @BeforeMethod
+    public void setUp() {
+        project = createProject(new String[] { "key", "a", "b" },
+                new Serializable[][] {
+                        { "r1", 1L, "x" },
+                        { null, 2L, "y" },
+                        { "r2", 3L, "x" },
+                        { null, 4L, "y" },
+                        { "r3", 5L, "z" },
+                });
+        filterCalls = new AtomicInteger();
+    }
+
+    RowFilter rowFilter(int cellIndex, Object value) {
+        return (project, rowIndex, row) -> {
+            filterCalls.incrementAndGet();
+            return value.equals(row.getCellValue(cellIndex));
+        };
+    }
+
+    RowFilter oddRowFilter() {
+        return (project, rowIndex, row) -> {
+            filterCalls.incrementAndGet();
+            return ((Long) row.getCellValue(1)) % 2 == 1;
+        };
+    }
+
+    static List<Integer> visitedRows(Project project, FilteredRows filteredRows) {
+        List<Integer> visited = new ArrayList<>();
+        filteredRows.accept(project, new RowVisitor() {
+
+            @Override
+            public void start(Project project) {
+            }
+
+            @Override
+            public boolean visit(Project project, int rowIndex, Row row) {
+                visited.add(rowIndex);
+                return false;
+            }
+
+            @Override
+            public void end(Project project) {
+            }
+        });
+        return visited;
+    }
+
+    static List<Integer> visitedRecords(Project project, FilteredRecords filteredRecords) {
+        List<Integer> visited = new ArrayList<>();
+        filteredRecords.accept(project, new RecordVisitor() {
+
+            @Override
+            public void start(Project project) {
+            }
+
+            @Override
+            public boolean visit(Project project, Record record) {
+                visited.add(record.recordIndex);
+                return false;
+            }
+
+            @Override
+            public void end(Project project) {
+            }
+        });
+        return visited;
+    }
+
+    @Test
+    public void testRowMasks() {
+        FilterMasks masks = FilterMasks.forRows(project, Arrays.asList(rowFilter(2, "x"), null, oddRowFilter()));
+
+        assertEquals(filterCalls.get(), 10);
+        assertEquals(visitedRows(project, masks.getFilteredRows(0)), Arrays.asList(0, 2, 4));
+        assertEquals(visitedRows(project, masks.getFilteredRows(1)), Arrays.asList(0, 2));
+        assertEquals(visitedRows(project, masks.getFilteredRows(2)), Arrays.asList(0, 2));
+        assertEquals(visitedRows(project, masks.getFilteredRows(-1)), Arrays.asList(0, 2));
+        // visiting does not evaluate the filters again
+        assertEquals(filterCalls.get(), 10);
+    }
+
+    @Test
+    public void testNoFilter() {
+        FilterMasks masks = FilterMasks.forRows(project, Arrays.asList(null, null));
+
+        assertEquals(visitedRows(project, masks.getFilteredRows(0)), Arrays.asList(0, 1, 2, 3, 4));
+        assertEquals(visitedRows(project, masks.getFilteredRows(-1)), Arrays.asList(0, 1, 2, 3, 4));
+    }
+
+    @Test
+    public void testRecordMasks() {
+        RecordFilter firstRowIsOdd = (project, record) -> ((Long) project.rows.get(record.fromRowIndex).getCellValue(1)) % 2 == 1;
+        RecordFilter containsY = (project, record) -> record.toRowIndex - record.fromRowIndex > 1;
+        FilterMasks masks = FilterMasks.forRecords(project, Arrays.asList(firstRowIsOdd, containsY));
+
+        assertEquals(visitedRecords(project, masks.getFilteredRecords(0)), Arrays.asList(0, 1));
+        assertEquals(visitedRecords(project, masks.getFilteredRecords(1)), Arrays.asList(0, 1, 2));
+        assertEquals(visitedRecords(project, masks.getFilteredRecords(-1)), Arrays.asList(0, 1));
+    }
+}
@@ -0,0 +1,200 @@
+package com.google.refine.browsing.util;
+
+import static org.testng.Assert.assertEquals;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.ParallelRowVisitor;
+import com.google.refine.browsing.RowFilter;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+
+public class PartitionedRowScannerTests extends RefineTest {
+
+    static final int ROW_COUNT = 100;
+
+    Project project;
+    int savedParallelism;
+    int savedMinPartitionSize;
+
+    static Evaluable value = new Evaluable() {
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            return bindings.get("value");
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return true;
+        }
+    };
+
+    /**
+     * Records the rows it visits and how many partition visitors were created from it.
+     */
+    static class CollectingVisitor implements ParallelRowVisitor {
+
+        List<Integer> rowIndices = new ArrayList<>();
+        int partitionCount = 0;
+
+        @Override
+        public void start(Project project) {
+        }
+
+        @Override
+        public boolean visit(Project project, int rowIndex, Row row) {
+            rowIndices.add(rowIndex);
+            return false;
+        }
+
+        @Override
+        public void end(Project project) {
+        }
+
+        @Override
+        public ParallelRowVisitor createPartitionVisitor() {
+            partitionCount++;
+            return new CollectingVisitor();
+        }
+
+        @Override
+        public void mergePartitionVisitor(ParallelRowVisitor partitionVisitor) {
+            rowIndices.addAll(((CollectingVisitor) partitionVisitor).rowIndices);
+        }
+    }
+
+    @Override
+    @BeforeTest
+    public void init() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @BeforeMethod
+    public void setUp() {
+        savedParallelism = PartitionedRowScanner.parallelism;
+        savedMinPartitionSize = PartitionedRowScanner.minPartitionSize;
+        PartitionedRowScanner.parallelism = 4;
+        PartitionedRowScanner.minPartitionSize = 10;
+
+        project = createTestProject();
+    }
+
+    Project createTestProject() {
+        Serializable[][] grid = new Serializable[ROW_COUNT][];
+        for (int i = 0; i < ROW_COUNT; i++) {
+            grid[i] = new Serializable[] { i % 7 == 0 ? null : "v" + (i % 5), (long) i };
+        }
+        return createProject(new String[] { "letters", "numbers" }, grid);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        PartitionedRowScanner.parallelism = savedParallelism;
+        PartitionedRowScanner.minPartitionSize = savedMinPartitionSize;
+    }
+
+    @Test
+    public void testPartitionsAreMergedInOrder() {
+        CollectingVisitor visitor = new CollectingVisitor();
+        new Engine(project).getAllRows().accept(project, visitor);
+
+        assertEquals(visitor.partitionCount, 4);
+        assertEquals(visitor.rowIndices, IntStream.range(0, ROW_COUNT).boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testSmallProjectsAreScannedSequentially() {
+        PartitionedRowScanner.minPartitionSize = ROW_COUNT;
+        CollectingVisitor visitor = new CollectingVisitor();
+        new Engine(project).getAllRows().accept(project, visitor);
+
+        assertEquals(visitor.partitionCount, 0);
+        assertEquals(visitor.rowIndices.size(), ROW_COUNT);
+    }
+
+    @Test
+    public void testFiltersWhichAreNotThreadSafe() {
+        ConjunctiveFilteredRows filteredRows = new ConjunctiveFilteredRows();
+        filteredRows.add((project, rowIndex, row) -> rowIndex % 2 == 0);
+        CollectingVisitor visitor = new CollectingVisitor();
+        filteredRows.accept(project, visitor);
+
+        assertEquals(visitor.partitionCount, 0);
+        assertEquals(visitor.rowIndices.size(), ROW_COUNT / 2);
+    }
+
+    @Test
+    public void testThreadSafeFilters() {
+        ConjunctiveFilteredRows filteredRows = new ConjunctiveFilteredRows();
+        filteredRows.add(new RowFilter() {
+
+            @Override
+            public boolean filterRow(Project project, int rowIndex, Row row) {
+                return rowIndex % 2 == 0;
+            }
+
+            @Override
+            public boolean isThreadSafe() {
+                return true;
+            }
+        });
+        CollectingVisitor visitor = new CollectingVisitor();
+        filteredRows.accept(project, visitor);
+
+        assertEquals(visitor.partitionCount, 4);
+        assertEquals(visitor.rowIndices,
+                IntStream.range(0, ROW_COUNT).filter(i -> i % 2 == 0).boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testNominalGrouperMatchesSequentialScan() {
+        ExpressionNominalValueGrouper parallel = new ExpressionNominalValueGrouper(value, "letters", 0);
+        new Engine(project).getAllRows().accept(project, parallel);
+
+        PartitionedRowScanner.parallelism = 1;
+        ExpressionNominalValueGrouper sequential = new ExpressionNominalValueGrouper(value, "letters", 0);
+        new Engine(project).getAllRows().accept(project, sequential);
+
+        assertEquals(parallel.blankCount, sequential.blankCount);
+        assertEquals(parallel.errorCount, sequential.errorCount);
+        assertEquals(parallel.choices.keySet(), sequential.choices.keySet());
+        for (Object key : sequential.choices.keySet()) {
+            assertEquals(parallel.choices.get(key).count, sequential.choices.get(key).count);
+            assertEquals(parallel.choices.get(key)._latestIndex, sequential.choices.get(key)._latestIndex);
+        }
+    }
+
+    @Test
+    public void testNumericBinnerMatchesSequentialScan() {
+        RowEvaluable rowEvaluable = new ExpressionBasedRowEvaluable("numbers", 1, value);
+        NumericBinIndex index = new NumericBinRowIndex(project, rowEvaluable);
+
+        ExpressionNumericValueBinner parallel = new ExpressionNumericValueBinner(rowEvaluable, index);
+        new Engine(project).getAllRows().accept(project, parallel);
+
+        PartitionedRowScanner.parallelism = 1;
+        ExpressionNumericValueBinner sequential = new ExpressionNumericValueBinner(rowEvaluable, index);
+        new Engine(project).getAllRows().accept(project, sequential);
+
+        assertEquals(parallel.bins, sequential.bins);
+        assertEquals(parallel.numericCount, ROW_COUNT);
+        assertEquals(parallel.nonNumericCount, sequential.nonNumericCount);
+        assertEquals(parallel.blankCount, sequential.blankCount);
+        assertEquals(parallel.errorCount, sequential.errorCount);
+    }
+}
@@ -0,0 +1,88 @@
+package com.google.refine.expr;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+
+public class EvaluationContextTests extends RefineTest {
+
+    @Test
+    public void testSlotsAreVariables() {
+        EvaluationContext context = new EvaluationContext();
+        context.put("value", "foo");
+        context.put("foo", "bar");
+
+        assertEquals(context.getSlot(EvaluationContext.VALUE), "foo");
+        assertEquals(context.get("value"), "foo");
+        assertEquals(context.get("foo"), "bar");
+        assertTrue(context.containsKey("value"));
+        assertEquals(context.getProperty("value"), "foo");
+
+        context.setSlot(EvaluationContext.VALUE, 3L);
+        assertEquals(context.get("value"), 3L);
+        assertEquals(context.remove("value"), 3L);
+        assertFalse(context.containsKey("value"));
+        assertNull(context.get("value"));
+    }
+
+    @Test
+    public void testBulkMethodsSeeSlots() {
+        EvaluationContext context = new EvaluationContext();
+        context.put("cell", "a");
+        context.put("foo", "b");
+
+        assertEquals(context.size(), 2);
+        assertEquals(context.keySet(), Set.of("cell", "foo"));
+        assertEquals(context, Map.of("cell", "a", "foo", "b"));
+
+        context.remove("cell");
+        assertEquals(context.size(), 1);
+
+        EvaluationContext clone = context.clone();
+        clone.put("value", "c");
+        assertNull(context.get("value"));
+        assertEquals(clone.get("foo"), "b");
+    }
+
+    @Test
+    public void testBindMatchesProperties() {
+        Project project = createProject(new String[] { "a", "b" },
+                new Serializable[][] { { "x", 1 }, { null, 2 } });
+
+        for (int rowIndex = 0; rowIndex < 2; rowIndex++) {
+            for (int column = 0; column < 2; column++) {
+                Cell cell = project.rows.get(rowIndex).getCell(column);
+                String columnName = project.columnModel.columns.get(column).getName();
+
+                Properties expected = new Properties();
+                expected.put("project", project);
+                ExpressionUtils.bind(expected, project.rows.get(rowIndex), rowIndex, columnName, cell);
+                EvaluationContext context = ExpressionUtils.createEvaluationContext(project);
+                ExpressionUtils.bind(context, project.rows.get(rowIndex), rowIndex, columnName, cell);
+
+                for (String name : EvaluationContext.SLOT_NAMES) {
+                    Object value = context.get(name);
+                    if (expected.get(name) == null || "project".equals(name)) {
+                        assertEquals(value, expected.get(name), name);
+                    } else {
+                        // wrappers are created again for each binding
+                        assertEquals(value.getClass(), expected.get(name).getClass(), name);
+                    }
+                }
+                assertEquals(context.get("true"), true);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.google.refine.expr;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+public class MemoizedEvaluableTests {
+
+    static class CountingEvaluable implements Evaluable {
+
+        int evaluations = 0;
+        final boolean dependsOnlyOnValue;
+
+        CountingEvaluable(boolean dependsOnlyOnValue) {
+            this.dependsOnlyOnValue = dependsOnlyOnValue;
+        }
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            evaluations++;
+            Object value = bindings.get("value");
+            return "b".equals(value) ? null : "[" + value + "]";
+        }
+
+        @Override
+        public boolean dependsOnlyOnValue() {
+            return dependsOnlyOnValue;
+        }
+    }
+
+    Properties bindings(Object value) {
+        EvaluationContext bindings = new EvaluationContext();
+        if (value != null) {
+            bindings.put("value", value);
+        }
+        return bindings;
+    }
+
+    @Test
+    public void testEvaluatesOncePerValue() {
+        CountingEvaluable evaluable = new CountingEvaluable(true);
+        Evaluable memoized = MemoizedEvaluable.memoize(evaluable);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(memoized.evaluate(bindings("a")), "[a]");
+            assertNull(memoized.evaluate(bindings("b")));
+            assertEquals(memoized.evaluate(bindings(null)), "[null]");
+            assertEquals(memoized.evaluate(bindings(1L)), "[1]");
+            assertEquals(memoized.evaluate(bindings(1.0)), "[1.0]");
+        }
+        assertEquals(evaluable.evaluations, 5);
+        assertEquals(((MemoizedEvaluable) memoized).getResultCount(), 5);
+
+        Properties plain = new Properties();
+        plain.put("value", "a");
+        assertEquals(memoized.evaluate(plain), "[a]");
+        assertEquals(evaluable.evaluations, 5);
+    }
+
+    @Test
+    public void testOnlyMemoizesValueExpressions() {
+        CountingEvaluable evaluable = new CountingEvaluable(false);
+        assertSame(MemoizedEvaluable.memoize(evaluable), evaluable);
+
+        Evaluable memoized = MemoizedEvaluable.memoize(new CountingEvaluable(true));
+        assertSame(MemoizedEvaluable.memoize(memoized), memoized);
+    }
+
+    @Test
+    public void testBoundsResults() {
+        System.setProperty(MemoizedEvaluable.MAX_RESULTS_PROPERTY, "2");
+        try {
+            CountingEvaluable evaluable = new CountingEvaluable(true);
+            Evaluable memoized = MemoizedEvaluable.memoize(evaluable);
+            for (int i = 0; i < 2; i++) {
+                for (String value : new String[] { "a", "c", "d" }) {
+                    memoized.evaluate(bindings(value));
+                }
+            }
+            assertEquals(((MemoizedEvaluable) memoized).getResultCount(), 2);
+            assertEquals(evaluable.evaluations, 4);
+
+            System.setProperty(MemoizedEvaluable.MAX_RESULTS_PROPERTY, "0");
+            assertTrue(MemoizedEvaluable.memoize(evaluable) instanceof CountingEvaluable);
+        } finally {
+            System.clearProperty(MemoizedEvaluable.MAX_RESULTS_PROPERTY);
+        }
+    }
+}
@@ -2,8 +2,14 @@
 package com.google.refine.history;
 
 import static org.mockito.Mockito.mock;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.Serializable;
 import java.io.StringWriter;
 import java.util.Properties;
 
@@ -12,7 +18,10 @@ import org.testng.annotations.Test;
 
 import com.google.refine.RefineTest;
 import com.google.refine.io.FileHistoryEntryManager;
+import com.google.refine.model.Cell;
 import com.google.refine.model.Project;
+import com.google.refine.model.changes.CellChange;
+import com.google.refine.model.changes.MassCellChange;
 import com.google.refine.operations.OperationRegistry;
 import com.google.refine.util.TestUtils;
 
@@ -36,4 +45,87 @@ public class FileHistoryEntryManagerTests extends RefineTest {
         sut.save(historyEntry, writer, options);
         TestUtils.equalAsJson(HistoryEntryTests.fullJson, writer.toString());
     }
+
+    HistoryEntry entryWithChange(Project project, String value) {
+        Change change = new MassCellChange(new CellChange(0, 0, null, new Cell(value, null)), null, false);
+        return new HistoryEntry(HistoryEntry.allocateID(), project, "Set value", null, change);
+    }
+
+    @Test
+    public void testDropsChangesUsedLeastRecently() throws Exception {
+        File historyDir = TestUtils.createTempDirectory("openrefine-test-history");
+        Project project = createProject(new String[] { "column" }, new Serializable[][] { { "a" } });
+        HistoryEntry first = entryWithChange(project, "value 1");
+        HistoryEntry second = entryWithChange(project, "value 2");
+        HistoryEntry third = entryWithChange(project, "value 3");
+
+        FileHistoryEntryManager manager = new FileHistoryEntryManager(0) {
+
+            @Override
+            protected File getHistoryDir(HistoryEntry historyEntry) {
+                return historyDir;
+            }
+        };
+
+        manager.saveChange(first);
+        manager.saveChange(second);
+        long changeSize = manager.getResidentChangeSize();
+        assertTrue(changeSize > 0);
+        // the change just saved is always kept
+        assertNull(first.getChange());
+        assertNotNull(second.getChange());
+
+        manager = new FileHistoryEntryManager(changeSize * 2 + 1) {
+
+            @Override
+            protected File getHistoryDir(HistoryEntry historyEntry) {
+                return historyDir;
+            }
+        };
+        manager.loadChange(first);
+        manager.saveChange(second);
+        manager.saveChange(third);
+        assertNull(first.getChange());
+        assertNotNull(second.getChange());
+        assertNotNull(third.getChange());
+
+        // reloaded when needed, which drops the change used least recently
+        manager.loadChange(first);
+        assertEquals(((MassCellChange) first.getChange()).getCellChanges().getNewCell(0).value, "value 1");
+        assertNull(second.getChange());
+        assertNotNull(third.getChange());
+
+        manager.delete(third);
+        assertEquals(manager.getResidentChangeSize(), changeSize);
+    }
+
+    @Test
+    public void testForgetsChangesOfDisposedProject() throws Exception {
+        File historyDir = TestUtils.createTempDirectory("openrefine-test-history");
+        Project project = createProject(new String[] { "column" }, new Serializable[][] { { "a" } });
+        Project otherProject = createProject(new String[] { "column" }, new Serializable[][] { { "b" } });
+        HistoryEntry entry = entryWithChange(project, "value 1");
+        HistoryEntry otherEntry = entryWithChange(otherProject, "value 2");
+
+        FileHistoryEntryManager manager = new FileHistoryEntryManager(Long.MAX_VALUE) {
+
+            @Override
+            protected File getHistoryDir(HistoryEntry historyEntry) {
+                return historyDir;
+            }
+        };
+        manager.saveChange(entry);
+        long changeSize = manager.getResidentChangeSize();
+        manager.saveChange(otherEntry);
+        assertTrue(manager.getResidentChangeSize() > changeSize);
+
+        manager.disposeProject(otherProject.id);
+        assertEquals(manager.getResidentChangeSize(), changeSize);
+        // its change is still in memory, after it was saved earlier
+        manager.saveChange(otherEntry);
+        assertTrue(manager.getResidentChangeSize() > changeSize);
+        manager.disposeProject(project.id);
+        manager.disposeProject(otherProject.id);
+        assertEquals(manager.getResidentChangeSize(), 0);
+    }
 }
@@ -0,0 +1,444 @@
+package com.google.refine.io;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.ProjectMetadata;
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.util.PartitionedRowScanner;
+import com.google.refine.expr.EvalError;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+import com.google.refine.model.ProjectSizeEstimator;
+import com.google.refine.model.Recon;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellChange;
+import com.google.refine.util.TestUtils;
+
+public class ProjectUtilitiesTests extends RefineTest {
+
+    Project project;
+    File dir;
+    int savedRowsPerBlock;
+
+    @Override
+    @BeforeTest
+    public void init() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        savedRowsPerBlock = RowBlockWriter.rowsPerBlock;
+        RowBlockWriter.rowsPerBlock = 3;
+        dir = TestUtils.createTempDirectory("openrefine-project-utilities-test");
+
+        project = createProject(new String[] { "a", "b", "c" },
+                new Serializable[][] {
+                        { "foo", 12L, 3.5 },
+                        { "", 2147483648L, Double.NaN },
+                        { null, true, OffsetDateTime.of(2023, 4, 5, 6, 7, 8, 900, ZoneOffset.ofHours(2)) },
+                        { "bär", 7, LocalDateTime.of(2020, 1, 2, 3, 4) },
+                        { "foo", false, new EvalError("some error") },
+                        { "foo", Long.MIN_VALUE, new BigDecimal("1.25") },
+                        { "last", null, null },
+                });
+        Row row = project.rows.get(0);
+        row.flagged = true;
+        row.setCell(1, new Cell(12L, testRecon("twelve", "Q12", Recon.Judgment.Matched)));
+        project.rows.get(3).starred = true;
+        project.rows.get(6).cells.add(null);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        RowBlockWriter.rowsPerBlock = savedRowsPerBlock;
+        System.clearProperty(ProjectUtilities.BINARY_ROWS_PROPERTY);
+        System.clearProperty(ProjectUtilities.DELTA_MAX_ENTRIES_PROPERTY);
+        System.clearProperty(Project.LAZY_ROWS_PROPERTY);
+        System.clearProperty(PagedRowList.CACHED_BLOCKS_PROPERTY);
+        PartitionedRowScanner.resetPartitioning();
+    }
+
+    void assertRowsEqual(Project loaded) {
+        assertEquals(loaded.rows.size(), project.rows.size());
+        assertEquals(loaded.columnModel.columns.size(), 3);
+        for (int i = 0; i < project.rows.size(); i++) {
+            Row expected = project.rows.get(i);
+            Row actual = loaded.rows.get(i);
+            assertEquals(actual.flagged, expected.flagged);
+            assertEquals(actual.starred, expected.starred);
+            assertEquals(actual.cells.size(), expected.cells.size(), "row " + i);
+            for (int j = 0; j < expected.cells.size(); j++) {
+                Cell expectedCell = expected.cells.get(j);
+                Cell actualCell = actual.cells.get(j);
+                if (expectedCell == null) {
+                    assertNull(actualCell);
+                    continue;
+                }
+                if (expectedCell.value instanceof EvalError) {
+                    assertEquals(((EvalError) actualCell.value).message, ((EvalError) expectedCell.value).message);
+                } else if (expectedCell.value instanceof LocalDateTime) {
+                    assertEquals(actualCell.value, ((LocalDateTime) expectedCell.value).atOffset(ZoneOffset.UTC));
+                } else if (expectedCell.value instanceof BigDecimal) {
+                    // stored as JSON
+                    assertEquals(actualCell.value, 1.25);
+                } else {
+                    assertEquals(actualCell.value, expectedCell.value, "cell " + i + "," + j);
+                }
+                if (expectedCell.recon == null) {
+                    assertNull(actualCell.recon);
+                } else {
+                    assertEquals(actualCell.recon.id, expectedCell.recon.id);
+                    assertEquals(actualCell.recon.match.id, "Q12");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSaveAndLoadBinaryRows() throws IOException {
+        File file = new File(dir, ProjectUtilities.DATA_ZIP);
+        ProjectUtilities.saveToFile(project, file);
+
+        try (ZipFile zipFile = new ZipFile(file)) {
+            ZipEntry rowsEntry = zipFile.getEntry(ProjectUtilities.ROWS_ENTRY);
+            assertNotNull(rowsEntry);
+            assertEquals(rowsEntry.getMethod(), ZipEntry.STORED);
+            String data = IOUtils.toString(zipFile.getInputStream(zipFile.getEntry("data.txt")), StandardCharsets.UTF_8);
+            assertTrue(data.contains("rowBlocks=rows.bin\n"));
+            assertFalse(data.contains("rowCount="));
+        }
+        // the rows can be read in place
+        try (org.apache.commons.compress.archivers.zip.ZipFile zipFile = org.apache.commons.compress.archivers.zip.ZipFile.builder()
+                .setFile(file).get()) {
+            assertTrue(zipFile.getEntry(ProjectUtilities.ROWS_ENTRY).getDataOffset() > 0);
+        }
+
+        Project loaded = ProjectUtilities.loadFromFile(file, project.id);
+        assertRowsEqual(loaded);
+        // types are kept exactly, unlike in the JSON format
+        assertEquals(loaded.rows.get(3).getCellValue(1), 7);
+        assertTrue(Double.isNaN((Double) loaded.rows.get(1).getCellValue(2)));
+        assertEquals(loaded.recordModel.getRecordCount(), project.recordModel.getRecordCount());
+    }
+
+    @Test
+    public void testLoadRowsLazily() throws IOException {
+        System.setProperty(PagedRowList.CACHED_BLOCKS_PROPERTY, "1");
+        File file = new File(dir, ProjectUtilities.DATA_ZIP);
+        ProjectUtilities.saveToFile(project, file);
+
+        Project loaded = ProjectUtilities.loadFromFile(file, project.id);
+        assertTrue(loaded.rows instanceof PagedRowList);
+        PagedRowList rows = (PagedRowList) loaded.rows;
+        assertFalse(rows.isLoaded());
+        assertEquals(loaded.columnModel.getMaxCellIndex(), project.columnModel.getMaxCellIndex());
+        assertRowsEqual(loaded);
+        // rows are read again after the file is closed
+        rows.close();
+        assertEquals(rows.get(6).getCellValue(0), "last");
+        assertFalse(rows.isLoaded());
+
+        loaded.ensureRowsLoaded();
+        assertTrue(rows.isLoaded());
+        assertRowsEqual(loaded);
+        rows.remove(0);
+        assertEquals(rows.size(), 6);
+        assertEquals(rows.get(0).getCellValue(0), "");
+    }
+
+    @Test
+    public void testLoadingLazilyReadsNoRows() throws IOException {
+        File file = new File(dir, ProjectUtilities.DATA_ZIP);
+        ProjectUtilities.saveToFile(project, file);
+        assertTrue(project.recordModel.hasRecords());
+
+        Project loaded = ProjectUtilities.loadFromFile(file, project.id);
+        PagedRowList rows = (PagedRowList) loaded.rows;
+        assertEquals(loaded.rows.size(), 7);
+        assertTrue(loaded.recordModel.hasRecords());
+        assertEquals(rows._blockReads.get(), 0);
+        // only the rows in memory are accounted for
+        assertTrue(ProjectSizeEstimator.estimateRetainedSize(loaded) < ProjectSizeEstimator.estimateRetainedSize(project));
+
+        // the records are computed when first needed
+        assertEquals(loaded.recordModel.getRecordCount(), project.recordModel.getRecordCount());
+        assertEquals(loaded.recordModel.getRecordOfRow(2).fromRowIndex, project.recordModel.getRecordOfRow(2).fromRowIndex);
+        assertEquals(rows._blockReads.get(), 3);
+        assertFalse(rows.isLoaded());
+    }
+
+    @Test
+    public void testParallelScanOfLazyRowsReadsEachBlockOnce() throws Exception {
+        Serializable[][] grid = new Serializable[600][];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = new Serializable[] { "v" + i, (long) i };
+        }
+        Project large = createProject(new String[] { "a", "b" }, grid);
+        File file = new File(dir, ProjectUtilities.DATA_ZIP);
+        ProjectUtilities.saveToFile(large, file);
+        Project loaded = ProjectUtilities.loadFromFile(file, large.id);
+        PagedRowList rows = (PagedRowList) loaded.rows;
+
+        // more partitions than the default number of cached blocks, split as by the scanner, and scanned row by row in
+        // lockstep as on a machine with as many processors
+        int partitionCount = 2 * PagedRowList.DEFAULT_CACHED_BLOCKS;
+        PartitionedRowScanner.setPartitioning(partitionCount, 1);
+        Phaser phaser = new Phaser(partitionCount);
+        ExecutorService executor = Executors.newFixedThreadPool(partitionCount);
+        List<Future<Integer>> partitions = new ArrayList<>();
+        try {
+            for (int p = 0; p < partitionCount; p++) {
+                int from = PartitionedRowScanner.getPartitionStart(loaded, rows.size(), p, partitionCount);
+                int to = PartitionedRowScanner.getPartitionStart(loaded, rows.size(), p + 1, partitionCount);
+                partitions.add(executor.submit(() -> {
+                    for (int i = from; i < to; i++) {
+                        if (i > from) {
+                            phaser.arriveAndAwaitAdvance();
+                        }
+                        assertEquals(rows.get(i).getCellValue(1), (long) i);
+                    }
+                    phaser.arriveAndDeregister();
+                    return to - from;
+                }));
+            }
+            int rowCount = 0;
+            for (Future<Integer> partition : partitions) {
+                rowCount += partition.get(10, TimeUnit.SECONDS);
+            }
+            assertEquals(rowCount, 600);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(rows._blockReads.get(), 200);
+    }
+
+    @Test
+    public void testModifyingLazyRowsLoadsThem() throws IOException {
+        File file = new File(dir, ProjectUtilities.DATA_ZIP);
+        ProjectUtilities.saveToFile(project, file);
+        Project loaded = ProjectUtilities.loadFromFile(file, project.id);
+        ProjectManager.singleton.registerProject(loaded, new ProjectMetadata());
+
+        Cell oldCell = loaded.rows.get(4).getCell(0);
+        loaded.history.addEntry(new HistoryEntry(HistoryEntry.allocateID(), loaded, "Edit cell", null,
+                new CellChange(4, 0, oldCell, new Cell("bar", null))));
+        assertTrue(((PagedRowList) loaded.rows).isLoaded());
+        assertEquals(loaded.rows.get(4).getCellValue(0), "bar");
+    }
+
+    @Test
+    public void testLoadAllRows() throws IOException {
+        System.setProperty(Project.LAZY_ROWS_PROPERTY, "false");
+        File file = new File(dir, ProjectUtilities.DATA_ZIP);
+        ProjectUtilities.saveToFile(project, file);
+
+        Project loaded = ProjectUtilities.loadFromFile(file, project.id);
+        assertFalse(loaded.rows instanceof PagedRowList);
+        assertRowsEqual(loaded);
+    }
+
+    @Test
+    public void testLoadLegacyRows() throws IOException {
+        System.setProperty(ProjectUtilities.BINARY_ROWS_PROPERTY, "false");
+        File file = new File(dir, ProjectUtilities.DATA_ZIP);
+        ProjectUtilities.saveToFile(project, file);
+
+        try (ZipFile zipFile = new ZipFile(file)) {
+            assertNull(zipFile.getEntry(ProjectUtilities.ROWS_ENTRY));
+        }
+
+        Project loaded = ProjectUtilities.loadFromFile(file, project.id);
+        assertEquals(loaded.rows.size(), project.rows.size());
+        assertEquals(loaded.rows.get(0).getCellValue(0), "foo");
+        assertEquals(loaded.rows.get(0).getCell(1).recon.id, project.rows.get(0).getCell(1).recon.id);
+        assertTrue(loaded.rows.get(0).flagged);
+    }
+
+    @Test
+    public void testLoadCompressedRowsEntry() throws IOException {
+        File file = new File(dir, ProjectUtilities.DATA_ZIP);
+        ProjectUtilities.saveToFile(project, file);
+
+        // as if the archive was extracted and compressed again by another tool
+        File recompressed = new File(dir, "recompressed.zip");
+        try (ZipFile zipFile = new ZipFile(file);
+                ZipOutputStream out = new ZipOutputStream(new FileOutputStream(recompressed))) {
+            for (String name : new String[] { "data.txt", ProjectUtilities.ROWS_ENTRY, "pool.txt" }) {
+                out.putNextEntry(new ZipEntry(name));
+                try (InputStream in = zipFile.getInputStream(zipFile.getEntry(name))) {
+                    IOUtils.copy(in, out);
+                }
+                out.closeEntry();
+            }
+        }
+
+        assertRowsEqual(ProjectUtilities.loadFromFile(recompressed, project.id));
+    }
+
+    /**
+     * Sets up a workspace where changes are saved, as needed to replay them from a delta.
+     */
+    File initWorkspace() throws IOException {
+        FileProjectManager.initialize(TestUtils.createTempDirectory("openrefine-project-utilities-workspace"));
+        ProjectManager.singleton.registerProject(project, new ProjectMetadata());
+        return ((FileProjectManager) ProjectManager.singleton).getProjectDir(project.id);
+    }
+
+    HistoryEntry editCell(int row, int column, String value) {
+        Cell oldCell = project.rows.get(row).getCell(column);
+        HistoryEntry entry = new HistoryEntry(HistoryEntry.allocateID(), project, "Edit cell", null,
+                new CellChange(row, column, oldCell, new Cell(value, null)));
+        project.history.addEntry(entry);
+        return entry;
+    }
+
+    @Test
+    public void testSaveChangesSinceLastFullSave() throws IOException {
+        File projectDir = initWorkspace();
+        editCell(0, 0, "first");
+        ProjectUtilities.save(project, projectDir);
+        File file = new File(projectDir, ProjectUtilities.DATA_ZIP);
+        File deltaFile = new File(projectDir, ProjectUtilities.DELTA_FILE);
+        assertTrue(file.exists());
+        assertFalse(deltaFile.exists());
+        long lastModified = file.lastModified();
+        long length = file.length();
+
+        editCell(1, 0, "second");
+        HistoryEntry third = editCell(2, 0, "third");
+        project.history.undoRedo(project.history.getPrecedingEntryID(third.id));
+        ProjectUtilities.save(project, projectDir);
+        assertTrue(deltaFile.exists());
+        assertEquals(file.lastModified(), lastModified);
+        assertEquals(file.length(), length);
+
+        Project loaded = ProjectUtilities.load(projectDir, project.id);
+        assertEquals(loaded.rows.get(0).getCellValue(0), "first");
+        assertEquals(loaded.rows.get(1).getCellValue(0), "second");
+        assertEquals(loaded.rows.get(2).getCellValue(0), null);
+        assertEquals(loaded.history.getLastPastEntries(0).size(), 2);
+        // the applied delta is saved in full by the next autosave, rather than while loading
+        assertTrue(deltaFile.exists());
+        assertTrue(loaded.isCompactionPending());
+        ProjectManager.singleton.registerProject(loaded, new ProjectMetadata());
+        loaded.setLastSave();
+        ProjectManager.singleton.save(false);
+        assertFalse(deltaFile.exists());
+        assertFalse(loaded.isCompactionPending());
+        assertEquals(loaded.history.getEntryCountSinceSnapshot(), 0);
+        Project reloaded = ProjectUtilities.load(projectDir, project.id);
+        assertFalse(((PagedRowList) reloaded.rows).isLoaded());
+        assertEquals(reloaded.rows.get(1).getCellValue(0), "second");
+        assertEquals(reloaded.history.getLastPastEntries(0).size(), 2);
+        // the undone entry can still be redone
+        loaded.history.undoRedo(third.id);
+        assertEquals(loaded.rows.get(2).getCellValue(0), "third");
+    }
+
+    @Test
+    public void testFullSaveAfterUndoingSavedEntries() throws IOException {
+        File projectDir = initWorkspace();
+        HistoryEntry first = editCell(0, 0, "first");
+        ProjectUtilities.save(project, projectDir);
+        editCell(1, 0, "second");
+        ProjectUtilities.save(project, projectDir);
+        File deltaFile = new File(projectDir, ProjectUtilities.DELTA_FILE);
+        assertTrue(deltaFile.exists());
+
+        project.history.undoRedo(0);
+        assertEquals(project.history.getEntryCountSinceSnapshot(), -1);
+        ProjectUtilities.save(project, projectDir);
+        assertFalse(deltaFile.exists());
+
+        Project loaded = ProjectUtilities.load(projectDir, project.id);
+        assertEquals(loaded.rows.get(0).getCellValue(0), "foo");
+        ProjectManager.singleton.registerProject(loaded, new ProjectMetadata());
+        loaded.history.undoRedo(first.id);
+        assertEquals(loaded.rows.get(0).getCellValue(0), "first");
+    }
+
+    @Test
+    public void testFullSaveAfterMaxEntries() throws IOException {
+        System.setProperty(ProjectUtilities.DELTA_MAX_ENTRIES_PROPERTY, "2");
+        File projectDir = initWorkspace();
+        ProjectUtilities.save(project, projectDir);
+        File deltaFile = new File(projectDir, ProjectUtilities.DELTA_FILE);
+
+        editCell(0, 0, "first");
+        ProjectUtilities.save(project, projectDir);
+        assertTrue(deltaFile.exists());
+        editCell(1, 0, "second");
+        ProjectUtilities.save(project, projectDir);
+        assertFalse(deltaFile.exists());
+        assertEquals(project.history.getEntryCountSinceSnapshot(), 0);
+
+        Project loaded = ProjectUtilities.load(projectDir, project.id);
+        assertEquals(loaded.rows.get(1).getCellValue(0), "second");
+    }
+
+    @Test
+    public void testIgnoreDeltaOfOtherFullSave() throws IOException {
+        File projectDir = initWorkspace();
+        ProjectUtilities.save(project, projectDir);
+        editCell(0, 0, "first");
+        ProjectUtilities.save(project, projectDir);
+        File deltaFile = new File(projectDir, ProjectUtilities.DELTA_FILE);
+        byte[] delta = Files.readAllBytes(deltaFile.toPath());
+
+        // as if saving in full was interrupted before the delta it replaces was deleted
+        System.setProperty(ProjectUtilities.DELTA_MAX_ENTRIES_PROPERTY, "0");
+        editCell(1, 0, "second");
+        ProjectUtilities.save(project, projectDir);
+        Files.write(deltaFile.toPath(), delta);
+
+        Project loaded = ProjectUtilities.load(projectDir, project.id);
+        assertEquals(loaded.rows.get(0).getCellValue(0), "first");
+        assertEquals(loaded.rows.get(1).getCellValue(0), "second");
+        assertEquals(loaded.history.getLastPastEntries(0).size(), 2);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testUnsupportedVersion() throws IOException {
+        byte[] bytes = new byte[32];
+        ByteBuffer.wrap(bytes).putInt(RowBlockWriter.MAGIC).putInt(RowBlockWriter.VERSION + 1);
+        new RowBlockReader(bytes);
+    }
+}
@@ -0,0 +1,55 @@
+package com.google.refine.model;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.model.columnar.ColumnarRowList;
+
+public class ProjectSizeEstimatorTests extends RefineTest {
+
+    static final int ROW_COUNT = 10000;
+
+    @Test
+    public void testEstimatesColumnarRowsFromTheirStorage() {
+        List<Row> objectRows = new ArrayList<>();
+        List<Row> columnarRows = new ColumnarRowList();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Row row = new Row(2);
+            row.setCell(0, new Cell("value " + (i % 10), null));
+            row.setCell(1, new Cell((long) i, null));
+            objectRows.add(row);
+            columnarRows.add(row);
+        }
+
+        long objectSize = ProjectSizeEstimator.estimateSize(objectRows);
+        long columnarSize = ProjectSizeEstimator.estimateSize(columnarRows);
+        // at least a code and a long per row, but far less than cell objects
+        assertTrue(columnarSize > ROW_COUNT * 12L, "columnar rows: " + columnarSize);
+        assertTrue(columnarSize * 4 < objectSize, "columnar rows: " + columnarSize + ", object rows: " + objectSize);
+    }
+
+    @Test
+    public void testEstimatesCachesOfProject() {
+        Serializable[][] grid = new Serializable[ROW_COUNT][];
+        for (int i = 0; i < ROW_COUNT; i++) {
+            grid[i] = new Serializable[] { "v" + i };
+        }
+        Project project = createProject(new String[] { "a" }, grid);
+        long size = ProjectSizeEstimator.estimateRetainedSize(project);
+        assertEquals(size, ProjectSizeEstimator.estimateSize(project.rows) + ROW_COUNT * ProjectSizeEstimator.ROW_DEPENDENCY_SIZE);
+
+        BitSet mask = new BitSet(ROW_COUNT);
+        project.filterMaskCache.put(project, "mask", project.columnModel.columns, mask);
+
+        assertEquals(ProjectSizeEstimator.estimateRetainedSize(project),
+                size + ProjectSizeEstimator.BITSET_SIZE + mask.size() / 8);
+    }
+}
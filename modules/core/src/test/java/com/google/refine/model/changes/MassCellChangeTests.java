@@ -0,0 +1,116 @@
+package com.google.refine.model.changes;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.io.Serializable;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.history.Change;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Project;
+import com.google.refine.model.Recon;
+import com.google.refine.util.Pool;
+
+public class MassCellChangeTests extends RefineTest {
+
+    static final int ROW_COUNT = 3000;
+
+    Project project;
+
+    @Override
+    @BeforeTest
+    public void init() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @BeforeMethod
+    public void setUp() {
+        project = createProject(new String[] { "letters", "numbers" },
+                new Serializable[][] {
+                        { "a", 1L },
+                        { "b", 2L },
+                        { null, 3L } });
+    }
+
+    static LineNumberReader skipHeader(LineNumberReader reader) throws Exception {
+        reader.readLine();
+        reader.readLine();
+        return reader;
+    }
+
+    @Test
+    public void testLoadOldChange() throws Exception {
+        InputStream in = this.getClass().getClassLoader().getResourceAsStream("changes/mass_cell_change_3.8.txt");
+        Change change = MassCellChange.load(skipHeader(new LineNumberReader(new InputStreamReader(in))), new Pool());
+
+        change.apply(project);
+        assertEquals(project.rows.get(0).getCellValue(0), "A");
+        assertEquals(project.rows.get(1).getCellValue(0), "b");
+        assertEquals(project.rows.get(2).getCellValue(0), "A");
+
+        change.revert(project);
+        assertEquals(project.rows.get(0).getCellValue(0), "a");
+        assertNull(project.rows.get(2).getCell(0));
+    }
+
+    @Test
+    public void testSharesEqualCells() {
+        List<CellChange> cellChanges = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            cellChanges.add(new CellChange(i, 0, new Cell("v" + (i % 3), null), new Cell("w", null)));
+        }
+        ColumnarCellChanges columnar = new ColumnarCellChanges(cellChanges);
+
+        assertEquals(columnar.size(), ROW_COUNT);
+        assertEquals(columnar.getDistinctCellCount(), 4);
+        assertSame(columnar.getNewCell(0), columnar.getNewCell(1));
+        assertEquals(columnar.getOldCell(4).value, "v1");
+        assertEquals(columnar.getCellIndex(5), 0);
+    }
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        Recon recon = testRecon("b", "Q2", Recon.Judgment.Matched);
+        List<CellChange> cellChanges = new ArrayList<>();
+        for (int i = 0; i < ROW_COUNT; i++) {
+            cellChanges.add(new CellChange(i * 2, i % 2, i % 5 == 0 ? null : new Cell("v" + i, null),
+                    new Cell("b", i % 7 == 0 ? recon : null)));
+        }
+        MassCellChange change = new MassCellChange(cellChanges, null, false);
+
+        Pool pool = new Pool();
+        Properties options = new Properties();
+        options.put("pool", pool);
+        StringWriter writer = new StringWriter();
+        change.save(writer, options);
+
+        MassCellChange loaded = (MassCellChange) MassCellChange.load(new LineNumberReader(new StringReader(writer.toString())), pool);
+        ColumnarCellChanges loadedChanges = loaded.getCellChanges();
+        assertEquals(loadedChanges.size(), ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            CellChange expected = cellChanges.get(i);
+            CellChange actual = loadedChanges.getCellChange(i);
+            assertEquals(actual.row, expected.row);
+            assertEquals(actual.cellIndex, expected.cellIndex);
+            assertEquals(actual.oldCell, expected.oldCell);
+            assertEquals(actual.newCell.value, expected.newCell.value);
+            assertEquals(actual.newCell.recon == null ? null : actual.newCell.recon.id,
+                    expected.newCell.recon == null ? null : expected.newCell.recon.id);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.google.refine.model.columnar;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.expr.EvalError;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Recon;
+import com.google.refine.model.Row;
+import com.google.refine.util.ParsingUtilities;
+import com.google.refine.util.TestUtils;
+
+public class ColumnarRowListTests {
+
+    ColumnarRowList rows;
+
+    @BeforeMethod
+    public void setUp() {
+        rows = new ColumnarRowList();
+    }
+
+    static Row row(Serializable... values) {
+        Row row = new Row(values.length);
+        for (Serializable value : values) {
+            row.cells.add(value == null ? null : new Cell(value, null));
+        }
+        return row;
+    }
+
+    static String json(Row row) throws Exception {
+        return ParsingUtilities.saveWriter.writeValueAsString(row);
+    }
+
+    @Test
+    public void testRoundTripValues() throws Exception {
+        Recon recon = new Recon(1234L, "http://some.space/", "http://some.schema/");
+        List<Row> expected = new ArrayList<>();
+        expected.add(row("a", 1L, 2.5, true, OffsetDateTime.parse("2020-01-02T03:04:05Z")));
+        expected.add(row(null, 3L, null, false, new EvalError("error")));
+        expected.add(row("a", "mixed", 4.5));
+        Row withRecon = row();
+        withRecon.cells.add(new Cell(null, recon));
+        withRecon.cells.add(new Cell("matched", recon));
+        withRecon.flagged = true;
+        expected.add(withRecon);
+
+        rows.addAll(expected);
+
+        assertEquals(rows.size(), expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            TestUtils.assertEqualsAsJson(json(rows.get(i)), json(expected.get(i)));
+            assertEquals(rows.get(i).cells, expected.get(i).cells);
+        }
+        assertSame(rows.get(3).getCell(1).recon, recon);
+        assertTrue(rows.get(3).flagged);
+        assertFalse(rows.get(3).starred);
+    }
+
+    @Test
+    public void testViewsWriteThrough() {
+        rows.add(row("a", "b"));
+        Row view = rows.get(0);
+        view.setCell(1, new Cell(12L, null));
+        view.setCell(3, new Cell("d", null));
+
+        Row row = rows.get(0);
+        assertEquals(row.cells.size(), 4);
+        assertEquals(row.getCellValue(0), "a");
+        assertEquals(row.getCellValue(1), 12L);
+        assertNull(row.getCell(2));
+        assertEquals(row.getCellValue(3), "d");
+    }
+
+    @Test
+    public void testFlagsRequireSet() {
+        rows.add(row("a"));
+        Row view = rows.get(0);
+        view.starred = true;
+        assertFalse(rows.get(0).starred);
+
+        rows.set(0, view);
+        assertTrue(rows.get(0).starred);
+        assertEquals(rows.get(0).getCellValue(0), "a");
+    }
+
+    @Test
+    public void testSetReturnsDetachedRow() {
+        rows.add(row("a", "b", "c"));
+        Row old = rows.set(0, row("d"));
+
+        assertEquals(old.cells.size(), 3);
+        assertEquals(old.getCellValue(2), "c");
+        assertEquals(rows.get(0).cells.size(), 1);
+        assertEquals(rows.get(0).getCellValue(0), "d");
+        assertNull(rows.get(0).getCell(2));
+    }
+
+    @Test
+    public void testInsertAndRemove() {
+        rows.add(row("a"));
+        rows.add(row("c"));
+        rows.add(1, row("b"));
+        rows.add(0, rows.get(2));
+
+        assertEquals(rows.size(), 4);
+        assertEquals(rows.get(0).getCellValue(0), "c");
+        assertEquals(rows.get(1).getCellValue(0), "a");
+        assertEquals(rows.get(2).getCellValue(0), "b");
+        assertEquals(rows.get(3).getCellValue(0), "c");
+
+        Row removed = rows.remove(1);
+        rows.add(0, row("z"));
+        assertEquals(removed.getCellValue(0), "a");
+        assertEquals(rows.size(), 4);
+        assertEquals(rows.get(2).getCellValue(0), "b");
+
+        rows.subList(1, 3).clear();
+        assertEquals(rows.size(), 2);
+        assertEquals(rows.get(0).getCellValue(0), "z");
+        assertEquals(rows.get(1).getCellValue(0), "c");
+    }
+
+    @Test
+    public void testCopiedViewsSurviveClear() {
+        for (int i = 0; i < 100; i++) {
+            rows.add(row((long) i, "row " + i));
+        }
+        List<Row> copy = new ArrayList<>(rows);
+        rows.clear();
+        for (int i = 99; i >= 0; i--) {
+            rows.add(copy.get(i));
+        }
+
+        assertEquals(rows.size(), 100);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(copy.get(i).getCellValue(0), (long) i);
+            assertEquals(rows.get(i).getCellValue(1), "row " + (99 - i));
+        }
+    }
+
+    @Test
+    public void testTypePromotion() {
+        rows.add(row(1L));
+        rows.add(row(2.5));
+        rows.add(row("three"));
+        rows.add(row((Serializable) null));
+
+        assertEquals(rows.get(0).getCellValue(0), 1L);
+        assertEquals(rows.get(1).getCellValue(0), 2.5);
+        assertEquals(rows.get(2).getCellValue(0), "three");
+        assertNull(rows.get(3).getCell(0));
+    }
+
+    @Test
+    public void testHighCardinalityStrings() {
+        int count = StringColumnVector.MAX_DICTIONARY_SIZE + 10;
+        for (int i = 0; i < count; i++) {
+            rows.add(row("value " + i));
+        }
+        for (int i = 0; i < count; i += 1000) {
+            assertEquals(rows.get(i).getCellValue(0), "value " + i);
+        }
+        assertEquals(rows.get(count - 1).getCellValue(0), "value " + (count - 1));
+    }
+
+    @Test
+    public void testStringDictionary() {
+        ColumnVector vector = ColumnVector.create(4);
+        vector = vector.setCell(0, new Cell("x", null));
+        vector = vector.setCell(1, new Cell("y", null));
+        vector = vector.setCell(2, new Cell("x", null));
+        assertTrue(vector instanceof StringColumnVector);
+        assertEquals(((StringColumnVector) vector).getDictionarySize(), 2);
+        assertEquals(vector.getCell(2).value, "x");
+    }
+}
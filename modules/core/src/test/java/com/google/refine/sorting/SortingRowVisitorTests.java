@@ -0,0 +1,192 @@
+package com.google.refine.sorting;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.BeforeTest;
+import org.testng.annotations.Test;
+
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.Engine;
+import com.google.refine.browsing.RowVisitor;
+import com.google.refine.expr.EvalError;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.sorting.Criterion.KeyMaker;
+
+public class SortingRowVisitorTests extends RefineTest {
+
+    static final String SORTING_CONFIG = "{\"criteria\":[{\"column\":\"key\",\"valueType\":\"number\","
+            + "\"reverse\":false,\"blankPosition\":2,\"errorPosition\":1}]}";
+
+    Project project;
+    SortingConfig sortingConfig;
+
+    static class CollectingVisitor implements RowVisitor {
+
+        List<Integer> rowIndices = new ArrayList<>();
+        List<Integer> sortedRowIndices = new ArrayList<>();
+
+        @Override
+        public void start(Project project) {
+        }
+
+        @Override
+        public boolean visit(Project project, int rowIndex, Row row) {
+            return visit(project, rowIndex, rowIndex, row);
+        }
+
+        @Override
+        public boolean visit(Project project, int rowIndex, int sortedRowIndex, Row row) {
+            rowIndices.add(rowIndex);
+            sortedRowIndices.add(sortedRowIndex);
+            return false;
+        }
+
+        @Override
+        public void end(Project project) {
+        }
+    }
+
+    @Override
+    @BeforeTest
+    public void init() {
+        logger = LoggerFactory.getLogger(this.getClass());
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        Serializable[][] grid = new Serializable[20][];
+        for (int i = 0; i < grid.length; i++) {
+            // many ties, and a few blanks which sort last
+            grid[i] = new Serializable[] { i % 6 == 5 ? null : (long) ((i * 7) % 4) };
+        }
+        project = createProject(new String[] { "key" }, grid);
+        sortingConfig = SortingConfig.reconstruct(SORTING_CONFIG);
+    }
+
+    SortingRowVisitor sort(CollectingVisitor visitor, int limit) {
+        SortingRowVisitor srv = new SortingRowVisitor(visitor);
+        srv.initializeFromConfig(project, sortingConfig);
+        srv.setLimit(limit);
+        new Engine(project).getAllFilteredRows().accept(project, srv);
+        return srv;
+    }
+
+    @Test
+    public void testLimitedSortIsPrefixOfFullSort() {
+        CollectingVisitor full = new CollectingVisitor();
+        SortedPermutation fullPermutation = sort(full, Integer.MAX_VALUE).getPermutation();
+        assertTrue(fullPermutation.isComplete());
+        assertEquals(full.rowIndices.size(), 20);
+
+        for (int limit = 1; limit < 20; limit++) {
+            CollectingVisitor partial = new CollectingVisitor();
+            SortedPermutation permutation = sort(partial, limit).getPermutation();
+
+            assertEquals(partial.rowIndices, full.rowIndices.subList(0, limit));
+            assertEquals(partial.sortedRowIndices, full.sortedRowIndices.subList(0, limit));
+            assertEquals(permutation.size(), limit);
+            assertEquals(permutation.getCount(), 20);
+            assertFalse(permutation.isComplete());
+            for (int position = 0; position < limit; position++) {
+                assertEquals(permutation.getIndex(position), (int) full.rowIndices.get(position));
+            }
+        }
+    }
+
+    @Test
+    public void testTiesAreBrokenByRowIndex() {
+        CollectingVisitor full = new CollectingVisitor();
+        sort(full, Integer.MAX_VALUE);
+
+        // rows with key 0 come first, in their original order
+        assertEquals(full.rowIndices.subList(0, 5), List.of(0, 4, 8, 12, 16));
+        // blank rows come last
+        assertEquals(full.rowIndices.subList(17, 20), List.of(5, 11, 17));
+    }
+
+    /**
+     * Compares rows by boxed keys, the way sorters did before keys were stored in primitive form.
+     */
+    static Comparator<Integer> referenceComparator(Project project, Criterion[] criteria) {
+        return (i1, i2) -> {
+            for (Criterion c : criteria) {
+                KeyMaker keyMaker = c.createKeyMaker();
+                Object key1 = keyMaker.makeKey(project, project.rows.get(i1), i1);
+                Object key2 = keyMaker.makeKey(project, project.rows.get(i2), i2);
+                int rank1 = key1 == null ? c.blankPosition : (key1 instanceof EvalError ? c.errorPosition : 0);
+                int rank2 = key2 == null ? c.blankPosition : (key2 instanceof EvalError ? c.errorPosition : 0);
+                int r;
+                if (key1 != null && key2 != null && !(key1 instanceof EvalError) && !(key2 instanceof EvalError)) {
+                    r = keyMaker.compareKeys(key1, key2) * (c.reverse ? -1 : 1);
+                } else {
+                    r = rank1 - rank2;
+                }
+                if (r != 0) {
+                    return r;
+                }
+            }
+            return Integer.compare(i1, i2);
+        };
+    }
+
+    @Test
+    public void testMatchesBoxedComparisonOfKeys() throws Exception {
+        Random random = new Random(42);
+        String[] words = { "apple", "Apple", "banana", "", "Éclair", "eclair", "zebra" };
+        Serializable[][] grid = new Serializable[500][];
+        for (int i = 0; i < grid.length; i++) {
+            int kind = random.nextInt(10);
+            Serializable number = kind == 0 ? null : (kind == 1 ? "not a number" : (Serializable) (double) random.nextInt(20));
+            Serializable date = kind == 2 ? null
+                    : (kind == 3 ? "not a date"
+                            : OffsetDateTime.of(2020, 1, 1, 0, 0, 0, random.nextInt(3) * 1000, ZoneOffset.UTC)
+                                    .plusDays(random.nextInt(5)));
+            grid[i] = new Serializable[] { words[random.nextInt(words.length)], number, date, random.nextBoolean() };
+        }
+        project = createProject(new String[] { "word", "number", "date", "flag" }, grid);
+
+        String[] configs = {
+                "{\"criteria\":[{\"column\":\"word\",\"valueType\":\"string\",\"reverse\":true,"
+                        + "\"blankPosition\":-1,\"errorPosition\":1,\"caseSensitive\":true},"
+                        + "{\"column\":\"number\",\"valueType\":\"number\",\"reverse\":false,"
+                        + "\"blankPosition\":-1,\"errorPosition\":2}]}",
+                "{\"criteria\":[{\"column\":\"date\",\"valueType\":\"date\",\"reverse\":true,"
+                        + "\"blankPosition\":1,\"errorPosition\":-2},"
+                        + "{\"column\":\"word\",\"valueType\":\"string\",\"reverse\":false,"
+                        + "\"blankPosition\":2,\"errorPosition\":1,\"caseSensitive\":false}]}",
+                "{\"criteria\":[{\"column\":\"flag\",\"valueType\":\"boolean\",\"reverse\":false,"
+                        + "\"blankPosition\":1,\"errorPosition\":2},"
+                        + "{\"column\":\"number\",\"valueType\":\"number\",\"reverse\":true,"
+                        + "\"blankPosition\":-1,\"errorPosition\":1}]}",
+        };
+        for (String config : configs) {
+            sortingConfig = SortingConfig.reconstruct(config);
+            List<Integer> expected = IntStream.range(0, grid.length).boxed()
+                    .sorted(referenceComparator(project, sortingConfig.getCriteria()))
+                    .collect(Collectors.toList());
+
+            CollectingVisitor visitor = new CollectingVisitor();
+            sort(visitor, Integer.MAX_VALUE);
+            assertEquals(visitor.rowIndices, expected, config);
+
+            visitor = new CollectingVisitor();
+            sort(visitor, 50);
+            assertEquals(visitor.rowIndices, expected.subList(0, 50), config);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.google.refine.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+public class IntListTests {
+
+    @Test
+    public void testSortedOperations() {
+        IntList list = new IntList(1);
+        for (int value : new int[] { 5, 1, 9, 3, 7 }) {
+            assertTrue(list.insertSorted(value));
+        }
+        assertFalse(list.insertSorted(3));
+        assertEquals(list.toArray(), new int[] { 1, 3, 5, 7, 9 });
+
+        assertTrue(list.removeSorted(5));
+        assertFalse(list.removeSorted(4));
+        assertEquals(list.toArray(), new int[] { 1, 3, 7, 9 });
+
+        list.shift(3, 10);
+        assertEquals(list.toArray(), new int[] { 1, 13, 17, 19 });
+
+        assertEquals(list.removeRangeAndShift(13, 5), 2);
+        assertEquals(list.toArray(), new int[] { 1, 14 });
+        assertEquals(list.size(), 2);
+        assertEquals(list.get(1), 14);
+    }
+
+    @Test
+    public void testMergeSorted() {
+        IntList list = new IntList();
+        for (int value : new int[] { 1, 3, 5, 7, 9 }) {
+            list.add(value);
+        }
+        IntList removed = new IntList();
+        for (int value : new int[] { 0, 1, 5, 6, 9 }) {
+            removed.add(value);
+        }
+        IntList inserted = new IntList();
+        for (int value : new int[] { 2, 3, 5, 10, 10 }) {
+            inserted.add(value);
+        }
+        // 5 is removed and inserted again, 0 and 6 are absent, 3 is present
+        assertEquals(list.mergeSorted(removed, inserted), 0);
+        assertEquals(list.toArray(), new int[] { 2, 3, 5, 7, 10 });
+
+        assertEquals(list.mergeSorted(list, new IntList()), -5);
+        assertTrue(list.isEmpty());
+    }
+
+    @Test
+    public void testAdd() {
+        IntList list = new IntList();
+        for (int i = 0; i < 100; i++) {
+            list.add(i * 2);
+        }
+        assertEquals(list.size(), 100);
+        assertEquals(list.get(99), 198);
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void testOutOfBounds() {
+        new IntList().get(0);
+    }
+}
@@ -0,0 +1,37 @@
+package com.google.refine.util;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.testng.annotations.Test;
+
+public class PatternCacheTests {
+
+    @Test
+    public void testReusesPatterns() {
+        long hits = PatternCache.getCacheStats().hitCount();
+        Pattern pattern = PatternCache.compile("a+b");
+
+        assertSame(PatternCache.compile("a+b"), pattern);
+        assertSame(PatternCache.compile("a+b", 0), pattern);
+        assertEquals(PatternCache.getCacheStats().hitCount(), hits + 2);
+    }
+
+    @Test
+    public void testKeysIncludeFlags() {
+        Pattern caseInsensitive = PatternCache.compile("a+c", Pattern.CASE_INSENSITIVE);
+
+        assertNotSame(PatternCache.compile("a+c"), caseInsensitive);
+        assertEquals(caseInsensitive.flags(), Pattern.CASE_INSENSITIVE);
+        assertSame(PatternCache.compile("a+c", Pattern.CASE_INSENSITIVE), caseInsensitive);
+    }
+
+    @Test(expectedExceptions = PatternSyntaxException.class)
+    public void testInvalidPattern() {
+        PatternCache.compile("a(b");
+    }
+}
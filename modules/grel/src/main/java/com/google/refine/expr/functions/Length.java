@@ -74,6 +74,30 @@ public class Length implements Function {
         return new EvalError(EvalErrorMessage.expects_one_array_or_string(ControlFunctionRegistry.getFunctionName(this)));
     }
 
+    @Override
+    public void callBatch(Properties bindings, Object[][] argColumns, int n, Object[] out) {
+        if (argColumns.length != 1) {
+            Function.super.callBatch(bindings, argColumns, n, out);
+            return;
+        }
+        Object[] args = new Object[1];
+        for (int i = 0; i < n; i++) {
+            Object v = argColumns[0][i];
+            if (v instanceof String) {
+                // the most common case, checked before the more costly ones
+                out[i] = ((String) v).length();
+            } else {
+                args[0] = v;
+                out[i] = call(bindings, args);
+            }
+        }
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.fun_length();
@@ -74,6 +74,29 @@ public class ToNumber implements Function {
         }
     }
 
+    @Override
+    public void callBatch(Properties bindings, Object[][] argColumns, int n, Object[] out) {
+        if (argColumns.length != 1) {
+            Function.super.callBatch(bindings, argColumns, n, out);
+            return;
+        }
+        Object[] args = new Object[1];
+        for (int i = 0; i < n; i++) {
+            Object o = argColumns[0][i];
+            if (o instanceof Number) {
+                out[i] = o;
+            } else {
+                args[0] = o;
+                out[i] = call(bindings, args);
+            }
+        }
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.fun_to_number();
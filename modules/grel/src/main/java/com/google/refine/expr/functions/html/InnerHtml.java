@@ -65,6 +65,11 @@ public class InnerHtml implements Function {
                 new Type().call(bindings, args)));
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.html_inner_html();
@@ -51,6 +51,27 @@ public class Ceil implements Function {
         return new EvalError(EvalErrorMessage.expects_one_number(ControlFunctionRegistry.getFunctionName(this)));
     }
 
+    @Override
+    public void callBatch(Properties bindings, Object[][] argColumns, int n, Object[] out) {
+        EvalError error = null;
+        for (int i = 0; i < n; i++) {
+            Object o = argColumns.length == 1 ? argColumns[0][i] : null;
+            if (o instanceof Number) {
+                out[i] = (long) Math.ceil(((Number) o).doubleValue());
+            } else {
+                if (error == null) {
+                    error = new EvalError(EvalErrorMessage.expects_one_number(ControlFunctionRegistry.getFunctionName(this)));
+                }
+                out[i] = error;
+            }
+        }
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.math_ceil();
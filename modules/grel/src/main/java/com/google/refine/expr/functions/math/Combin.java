@@ -86,6 +86,11 @@ public class Combin implements Function {
         return binomial[n][k];
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.math_ceil();
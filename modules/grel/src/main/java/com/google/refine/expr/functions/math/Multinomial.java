@@ -68,6 +68,11 @@ public class Multinomial implements Function {
         return result.longValue();
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.math_multinomial();
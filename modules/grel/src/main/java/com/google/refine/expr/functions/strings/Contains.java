@@ -62,6 +62,33 @@ public class Contains implements Function {
         return null;
     }
 
+    @Override
+    public void callBatch(Properties bindings, Object[][] argColumns, int n, Object[] out) {
+        // the pattern is usually the same for all rows, so its matcher is reused
+        Matcher matcher = null;
+        for (int i = 0; i < n; i++) {
+            Object s1 = argColumns.length == 2 ? argColumns[0][i] : null;
+            Object s2 = argColumns.length == 2 ? argColumns[1][i] : null;
+            if (s1 instanceof String && s2 instanceof String) {
+                out[i] = ((String) s1).indexOf((String) s2) > -1;
+            } else if (s1 instanceof String && s2 instanceof Pattern) {
+                if (matcher == null || matcher.pattern() != s2) {
+                    matcher = ((Pattern) s2).matcher((String) s1);
+                } else {
+                    matcher.reset((String) s1);
+                }
+                out[i] = matcher.find();
+            } else {
+                out[i] = null;
+            }
+        }
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.str_contains();
@@ -101,6 +101,11 @@ public class Diff implements Function {
                 EvalErrorMessage.expects_two_strings_or_two_dates_and_unit_string(ControlFunctionRegistry.getFunctionName(this)));
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.str_diff();
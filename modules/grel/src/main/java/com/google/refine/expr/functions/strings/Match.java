@@ -42,6 +42,7 @@ import com.google.refine.grel.ControlFunctionRegistry;
 import com.google.refine.grel.EvalErrorMessage;
 import com.google.refine.grel.Function;
 import com.google.refine.grel.FunctionDescription;
+import com.google.refine.util.PatternCache;
 
 public class Match implements Function {
 
@@ -53,7 +54,7 @@ public class Match implements Function {
 
             if (s != null && p != null && (p instanceof String || p instanceof Pattern)) {
 
-                Pattern pattern = (p instanceof String) ? Pattern.compile((String) p) : (Pattern) p;
+                Pattern pattern = (p instanceof String) ? PatternCache.compile((String) p) : (Pattern) p;
 
                 Matcher matcher = pattern.matcher(s.toString());
 
@@ -76,6 +77,11 @@ public class Match implements Function {
         return new EvalError(EvalErrorMessage.expects_one_regex(ControlFunctionRegistry.getFunctionName(this)));
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.str_match();
@@ -74,6 +74,11 @@ public class NGramFingerprint implements Function {
         return set;
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.str_ngram_fingerprint();
@@ -32,6 +32,11 @@ public class Normalize implements Function {
         return o;
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.str_normalize();
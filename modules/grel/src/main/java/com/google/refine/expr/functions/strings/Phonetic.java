@@ -50,30 +50,25 @@ import com.google.refine.grel.FunctionDescription;
 public class Phonetic implements Function {
 
     // TODO deprecate and drop those legacy encodings?
-    static private Metaphone metaphone = null;
-    static private DoubleMetaphone doubleMetaphone = null;
-    static private Soundex soundex = null;
+    // the encoders are configured once and then only read, so that they can be shared by threads evaluating in parallel
+    static final private Metaphone metaphone = new Metaphone();
+    static final private DoubleMetaphone doubleMetaphone = new DoubleMetaphone();
+    static final private Soundex soundex = new Soundex();
+
+    static {
+        metaphone.setMaxCodeLen(2000);
+        doubleMetaphone.setMaxCodeLen(2000);
+    }
 
     private Metaphone getMetaphone() {
-        if (metaphone == null) {
-            metaphone = new Metaphone();
-            metaphone.setMaxCodeLen(2000);
-        }
         return metaphone;
     }
 
     private DoubleMetaphone getDoubleMetaphone() {
-        if (doubleMetaphone == null) {
-            doubleMetaphone = new DoubleMetaphone();
-            doubleMetaphone.setMaxCodeLen(2000);
-        }
         return doubleMetaphone;
     }
 
     private Soundex getSoundex() {
-        if (soundex == null) {
-            soundex = new Soundex();
-        }
         return soundex;
     }
 
@@ -118,6 +113,11 @@ public class Phonetic implements Function {
         }
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.str_phonetic();
@@ -320,6 +320,11 @@ public class Range implements Function {
         return generatedRange;
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.str_range();
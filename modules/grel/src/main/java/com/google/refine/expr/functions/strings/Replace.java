@@ -34,6 +34,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package com.google.refine.expr.functions.strings;
 
 import java.util.Properties;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.google.refine.expr.EvalError;
@@ -65,6 +66,42 @@ public class Replace implements Function {
         return new EvalError(EvalErrorMessage.expects_three_strings_as_string_regex_string(ControlFunctionRegistry.getFunctionName(this)));
     }
 
+    @Override
+    public void callBatch(Properties bindings, Object[][] argColumns, int n, Object[] out) {
+        EvalError error = null;
+        // the pattern is usually the same for all rows, so its matcher is reused
+        Matcher matcher = null;
+        for (int i = 0; i < n; i++) {
+            Object o1 = argColumns.length == 3 ? argColumns[0][i] : null;
+            Object o2 = argColumns.length == 3 ? argColumns[1][i] : null;
+            Object o3 = argColumns.length == 3 ? argColumns[2][i] : null;
+            if (o1 != null && o3 instanceof String && (o2 instanceof String || o2 instanceof Pattern)) {
+                String str = (o1 instanceof String) ? (String) o1 : o1.toString();
+                if (o2 instanceof String) {
+                    out[i] = str.replace((String) o2, (String) o3);
+                } else {
+                    if (matcher == null || matcher.pattern() != o2) {
+                        matcher = ((Pattern) o2).matcher(str);
+                    } else {
+                        matcher.reset(str);
+                    }
+                    out[i] = matcher.replaceAll((String) o3);
+                }
+            } else {
+                if (error == null) {
+                    error = new EvalError(
+                            EvalErrorMessage.expects_three_strings_as_string_regex_string(ControlFunctionRegistry.getFunctionName(this)));
+                }
+                out[i] = error;
+            }
+        }
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.str_replace();
@@ -55,6 +55,28 @@ public class StartsWith implements Function {
         return new EvalError(EvalErrorMessage.expects_two_strings(ControlFunctionRegistry.getFunctionName(this)));
     }
 
+    @Override
+    public void callBatch(Properties bindings, Object[][] argColumns, int n, Object[] out) {
+        EvalError error = null;
+        for (int i = 0; i < n; i++) {
+            Object s1 = argColumns.length == 2 ? argColumns[0][i] : null;
+            Object s2 = argColumns.length == 2 ? argColumns[1][i] : null;
+            if (s1 instanceof String && s2 instanceof String) {
+                out[i] = ((String) s1).startsWith((String) s2);
+            } else {
+                if (error == null) {
+                    error = new EvalError(EvalErrorMessage.expects_two_strings(ControlFunctionRegistry.getFunctionName(this)));
+                }
+                out[i] = error;
+            }
+        }
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.str_starts_with();
@@ -52,6 +52,27 @@ public class ToLowercase implements Function {
         return new EvalError(EvalErrorMessage.expects_one_string(ControlFunctionRegistry.getFunctionName(this)));
     }
 
+    @Override
+    public void callBatch(Properties bindings, Object[][] argColumns, int n, Object[] out) {
+        EvalError error = null;
+        for (int i = 0; i < n; i++) {
+            Object o = argColumns.length == 1 ? argColumns[0][i] : null;
+            if (o != null) {
+                out[i] = (o instanceof String ? (String) o : o.toString()).toLowerCase();
+            } else {
+                if (error == null) {
+                    error = new EvalError(EvalErrorMessage.expects_one_string(ControlFunctionRegistry.getFunctionName(this)));
+                }
+                out[i] = error;
+            }
+        }
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.str_to_lowercase();
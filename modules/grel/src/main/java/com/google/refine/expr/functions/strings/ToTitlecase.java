@@ -64,6 +64,11 @@ public class ToTitlecase implements Function {
         }
     }
 
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public String getDescription() {
         return FunctionDescription.str_to_title_case();
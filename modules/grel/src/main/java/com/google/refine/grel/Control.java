@@ -35,6 +35,7 @@ package com.google.refine.grel;
 
 import java.util.Properties;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -51,6 +52,17 @@ public interface Control {
 
     public String checkArguments(Evaluable[] args);
 
+    /**
+     * Whether this control evaluates to equal results whenever its arguments do, without binding any variable, so that
+     * its results can be reused when its arguments are pure.
+     *
+     * @return false by default
+     */
+    @JsonIgnore
+    default public boolean isPure() {
+        return false;
+    }
+
     @JsonProperty("description")
     public String getDescription();
 
@@ -35,6 +35,7 @@ package com.google.refine.grel;
 
 import java.util.Properties;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -47,6 +48,34 @@ public interface Function {
 
     public Object call(Properties bindings, Object[] args);
 
+    /**
+     * Calls this function on a batch of rows: the arguments of the i-th call are argColumns[0][i], argColumns[1][i],
+     * ..., and its result is stored in out[i], for i below n. As for {@link #call}, none of the arguments are errors.
+     * <p>
+     * By default, {@link #call} is invoked for each row. Functions override it to check their arguments and prepare
+     * what the calls have in common once per batch instead of once per row.
+     */
+    default public void callBatch(Properties bindings, Object[][] argColumns, int n, Object[] out) {
+        for (int i = 0; i < n; i++) {
+            Object[] args = new Object[argColumns.length];
+            for (int j = 0; j < argColumns.length; j++) {
+                args[j] = argColumns[j][i];
+            }
+            out[i] = call(bindings, args);
+        }
+    }
+
+    /**
+     * Whether this function always returns equal results for equal arguments, without reading the bindings nor any
+     * other state, so that its results can be reused.
+     *
+     * @return false by default, as functions like cross() or now() are not
+     */
+    @JsonIgnore
+    default public boolean isPure() {
+        return false;
+    }
+
     @JsonProperty("description")
     public String getDescription();
 
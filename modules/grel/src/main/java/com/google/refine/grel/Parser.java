@@ -47,12 +47,14 @@ import com.google.refine.grel.Scanner.Token;
 import com.google.refine.grel.Scanner.TokenType;
 import com.google.refine.grel.ast.ArrayExpr;
 import com.google.refine.grel.ast.BracketedExpr;
+import com.google.refine.grel.ast.CompiledExpr;
 import com.google.refine.grel.ast.ControlCallExpr;
 import com.google.refine.grel.ast.FieldAccessorExpr;
 import com.google.refine.grel.ast.FunctionCallExpr;
 import com.google.refine.grel.ast.LiteralExpr;
 import com.google.refine.grel.ast.OperatorCallExpr;
 import com.google.refine.grel.ast.VariableExpr;
+import com.google.refine.util.PatternCache;
 
 public class Parser {
 
@@ -61,8 +63,17 @@ public class Parser {
         @Override
         public Evaluable parse(String source, String languagePrefix) throws ParsingException {
             Parser parser = new Parser(source);
+            if (CompiledExpr.isEnabled()) {
+                return CompiledExpr.compile(parser.getExpression());
+            }
             return parser.getExpression();
         }
+
+        @Override
+        public boolean isCacheable() {
+            // expressions are immutable
+            return true;
+        }
     };
 
     protected Scanner _scanner;
@@ -184,7 +195,8 @@ public class Parser {
             RegexToken t = (RegexToken) _token;
 
             try {
-                Pattern pattern = Pattern.compile(_token.text, t.caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+                // compiled once, and shared by all the expressions using the same regular expression
+                Pattern pattern = PatternCache.compile(_token.text, t.caseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
                 eval = new LiteralExpr(pattern, t.fullSource());
                 next(false);
             } catch (Exception e) {
@@ -30,6 +30,21 @@ public class BracketedExpr extends GrelExpr {
         return inner.evaluate(bindings);
     }
 
+    @Override
+    protected Evaluable compile() {
+        return compile(inner);
+    }
+
+    @Override
+    public boolean dependsOnlyOnValue() {
+        return inner.dependsOnlyOnValue();
+    }
+
+    @Override
+    public boolean isPure() {
+        return inner.isPure();
+    }
+
     @Override
     public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
         return inner.getColumnDependencies(baseColumn);
@@ -0,0 +1,115 @@
+package com.google.refine.grel.ast;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+import com.google.refine.expr.Evaluable;
+
+/**
+ * A GREL expression evaluated through a compiled form of its syntax tree, while the tree itself still provides its
+ * source, column dependencies and equality.
+ * <p>
+ * Compiling folds operators applied to literals into constants, and replaces calls to functions with one or two
+ * arguments and binary operators by nodes which evaluate their arguments without going through an array. Variables
+ * bound for each row are read from the slots of the {@link com.google.refine.expr.EvaluationContext}. Controls are kept
+ * as they are, with their arguments compiled. Expressions of other languages are left untouched.
+ */
+public class CompiledExpr implements Evaluable {
+
+    /**
+     * System property which, when set to false, disables the compilation of GREL expressions.
+     */
+    static public final String COMPILE_PROPERTY = "refine.grel.compile";
+
+    final protected Evaluable _expression;
+    final protected Evaluable _compiled;
+
+    protected CompiledExpr(Evaluable expression, Evaluable compiled) {
+        _expression = expression;
+        _compiled = compiled;
+    }
+
+    /**
+     * @return the compiled expression, or the expression itself if it cannot be evaluated faster
+     */
+    static public Evaluable compile(Evaluable expression) {
+        Evaluable compiled = GrelExpr.compile(expression);
+        if (compiled == expression) {
+            return expression;
+        }
+        return new CompiledExpr(expression, compiled);
+    }
+
+    static public boolean isEnabled() {
+        return Boolean.parseBoolean(System.getProperty(COMPILE_PROPERTY, "true"));
+    }
+
+    /**
+     * @return the syntax tree which was compiled
+     */
+    public Evaluable getExpression() {
+        return _expression;
+    }
+
+    @Override
+    public Object evaluate(Properties bindings) {
+        return _compiled.evaluate(bindings);
+    }
+
+    @Override
+    public void evaluateBatch(Properties bindings, Object[] values, int n, Object[] out) {
+        _compiled.evaluateBatch(bindings, values, n, out);
+    }
+
+    @Override
+    public String getSource() {
+        return _expression.getSource();
+    }
+
+    @Override
+    public String getLanguagePrefix() {
+        return _expression.getLanguagePrefix();
+    }
+
+    @Override
+    public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
+        return _expression.getColumnDependencies(baseColumn);
+    }
+
+    @Override
+    public Evaluable renameColumnDependencies(Map<String, String> substitutions) {
+        return compile(_expression.renameColumnDependencies(substitutions));
+    }
+
+    @Override
+    public boolean dependsOnlyOnValue() {
+        return _expression.dependsOnlyOnValue();
+    }
+
+    @Override
+    public boolean isPure() {
+        return _expression.isPure();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return _expression.isThreadSafe();
+    }
+
+    @Override
+    public String toString() {
+        return _expression.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return _expression.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof CompiledExpr && _expression.equals(((CompiledExpr) obj)._expression);
+    }
+}
@@ -0,0 +1,246 @@
+package com.google.refine.grel.ast;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+import com.google.refine.expr.EvalError;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.expr.EvaluationContext;
+import com.google.refine.expr.ExpressionUtils;
+import com.google.refine.grel.Function;
+
+/**
+ * A node of a compiled expression, which is only meant to be evaluated. Its other methods are those of the node it was
+ * compiled from.
+ */
+abstract class CompiledNode implements Evaluable {
+
+    final protected GrelExpr _original;
+
+    protected CompiledNode(GrelExpr original) {
+        _original = original;
+    }
+
+    @Override
+    public String getSource() {
+        return _original.getSource();
+    }
+
+    @Override
+    public String getLanguagePrefix() {
+        return _original.getLanguagePrefix();
+    }
+
+    @Override
+    public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
+        return _original.getColumnDependencies(baseColumn);
+    }
+
+    @Override
+    public Evaluable renameColumnDependencies(Map<String, String> substitutions) {
+        return _original.renameColumnDependencies(substitutions);
+    }
+
+    @Override
+    public boolean dependsOnlyOnValue() {
+        return _original.dependsOnlyOnValue();
+    }
+
+    @Override
+    public boolean isPure() {
+        return _original.isPure();
+    }
+
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return _original.toString();
+    }
+
+    /**
+     * The value of a sub-expression which does not depend on the bindings.
+     */
+    static class Constant extends CompiledNode {
+
+        final protected Object _value;
+
+        Constant(GrelExpr original, Object value) {
+            super(original);
+            _value = value;
+        }
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            return _value;
+        }
+
+        @Override
+        public void evaluateBatch(Properties bindings, Object[] values, int n, Object[] out) {
+            Arrays.fill(out, 0, n, _value);
+        }
+    }
+
+    /**
+     * A variable bound for each row, which is read from its slot when evaluated against an {@link EvaluationContext}.
+     */
+    static class SlotVariable extends CompiledNode {
+
+        final protected String _name;
+        final protected int _slot;
+
+        SlotVariable(GrelExpr original, String name, int slot) {
+            super(original);
+            _name = name;
+            _slot = slot;
+        }
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            if (bindings instanceof EvaluationContext) {
+                return ((EvaluationContext) bindings).getSlot(_slot);
+            }
+            return bindings.get(_name);
+        }
+
+        @Override
+        public void evaluateBatch(Properties bindings, Object[] values, int n, Object[] out) {
+            if (_slot == EvaluationContext.VALUE) {
+                System.arraycopy(values, 0, out, 0, n);
+            } else {
+                super.evaluateBatch(bindings, values, n, out);
+            }
+        }
+    }
+
+    /**
+     * A call to a function with one argument, which needs no loop over its arguments.
+     */
+    static class FunctionCall1 extends CompiledNode {
+
+        final protected Function _function;
+        final protected Evaluable _arg;
+
+        FunctionCall1(GrelExpr original, Function function, Evaluable arg) {
+            super(original);
+            _function = function;
+            _arg = arg;
+        }
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            Object v = _arg.evaluate(bindings);
+            if (ExpressionUtils.isError(v)) {
+                return v;
+            }
+            try {
+                return _function.call(bindings, new Object[] { v });
+            } catch (Exception e) {
+                return new EvalError(e);
+            }
+        }
+
+        @Override
+        public void evaluateBatch(Properties bindings, Object[] values, int n, Object[] out) {
+            Object[] arg = new Object[n];
+            _arg.evaluateBatch(bindings, values, n, arg);
+            FunctionCallExpr.callBatch(_function, bindings, new Object[][] { arg }, n, out);
+        }
+    }
+
+    /**
+     * A call to a function with two arguments, which needs no loop over its arguments.
+     */
+    static class FunctionCall2 extends CompiledNode {
+
+        final protected Function _function;
+        final protected Evaluable _arg1;
+        final protected Evaluable _arg2;
+
+        FunctionCall2(GrelExpr original, Function function, Evaluable arg1, Evaluable arg2) {
+            super(original);
+            _function = function;
+            _arg1 = arg1;
+            _arg2 = arg2;
+        }
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            Object v1 = _arg1.evaluate(bindings);
+            if (ExpressionUtils.isError(v1)) {
+                return v1;
+            }
+            Object v2 = _arg2.evaluate(bindings);
+            if (ExpressionUtils.isError(v2)) {
+                return v2;
+            }
+            try {
+                return _function.call(bindings, new Object[] { v1, v2 });
+            } catch (Exception e) {
+                return new EvalError(e);
+            }
+        }
+
+        @Override
+        public void evaluateBatch(Properties bindings, Object[] values, int n, Object[] out) {
+            Object[] arg1 = new Object[n];
+            Object[] arg2 = new Object[n];
+            _arg1.evaluateBatch(bindings, values, n, arg1);
+            _arg2.evaluateBatch(bindings, values, n, arg2);
+            FunctionCallExpr.callBatch(_function, bindings, new Object[][] { arg1, arg2 }, n, out);
+        }
+    }
+
+    /**
+     * A binary operator, which needs no array to hold its operands.
+     */
+    static class BinaryOperator extends CompiledNode {
+
+        final protected String _op;
+        final protected Evaluable _left;
+        final protected Evaluable _right;
+
+        BinaryOperator(GrelExpr original, String op, Evaluable left, Evaluable right) {
+            super(original);
+            _op = op;
+            _left = left;
+            _right = right;
+        }
+
+        @Override
+        public Object evaluate(Properties bindings) {
+            Object left = _left.evaluate(bindings);
+            if (ExpressionUtils.isError(left)) {
+                return left;
+            }
+            Object right = _right.evaluate(bindings);
+            if (ExpressionUtils.isError(right)) {
+                return right;
+            }
+            return OperatorCallExpr.apply(_op, left, right);
+        }
+
+        @Override
+        public void evaluateBatch(Properties bindings, Object[] values, int n, Object[] out) {
+            Object[] left = new Object[n];
+            Object[] right = new Object[n];
+            _left.evaluateBatch(bindings, values, n, left);
+            _right.evaluateBatch(bindings, values, n, right);
+            for (int i = 0; i < n; i++) {
+                if (ExpressionUtils.isError(left[i])) {
+                    out[i] = left[i];
+                } else if (ExpressionUtils.isError(right[i])) {
+                    out[i] = right[i];
+                } else {
+                    out[i] = OperatorCallExpr.apply(_op, left[i], right[i]);
+                }
+            }
+        }
+    }
+}
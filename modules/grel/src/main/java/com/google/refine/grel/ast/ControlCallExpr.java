@@ -87,6 +87,27 @@ public class ControlCallExpr extends GrelExpr {
         }
     }
 
+    @Override
+    protected Evaluable compile() {
+        // variables passed to controls are left as they are, as controls such as forEach read their names
+        Evaluable[] args = new Evaluable[_args.length];
+        for (int i = 0; i < _args.length; i++) {
+            args[i] = _args[i] instanceof VariableExpr ? _args[i] : compile(_args[i]);
+        }
+        return new ControlCallExpr(args, _control, _controlName);
+    }
+
+    @Override
+    public boolean dependsOnlyOnValue() {
+        return _control.isPure() && dependOnlyOnValue(_args);
+    }
+
+    @Override
+    public boolean isPure() {
+        // controls only bind variables to evaluate their arguments
+        return arePure(_args);
+    }
+
     @Override
     public final Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
         Set<String> dependencies = new HashSet<>();
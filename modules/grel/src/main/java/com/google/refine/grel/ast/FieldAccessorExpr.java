@@ -79,6 +79,21 @@ public class FieldAccessorExpr extends GrelExpr {
         }
     }
 
+    @Override
+    protected Evaluable compile() {
+        return new FieldAccessorExpr(compile(_inner), _fieldName);
+    }
+
+    @Override
+    public boolean dependsOnlyOnValue() {
+        return _inner.dependsOnlyOnValue();
+    }
+
+    @Override
+    public boolean isPure() {
+        return _inner.isPure();
+    }
+
     @Override
     public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
         Optional<Set<String>> innerDeps = _inner.getColumnDependencies(baseColumn);
@@ -112,6 +112,102 @@ public class FunctionCallExpr extends GrelExpr {
         }
     }
 
+    @Override
+    public void evaluateBatch(Properties bindings, Object[] values, int n, Object[] out) {
+        Object[][] argColumns = new Object[_args.length][n];
+        for (int j = 0; j < _args.length; j++) {
+            _args[j].evaluateBatch(bindings, values, n, argColumns[j]);
+        }
+        callBatch(_function, bindings, argColumns, n, out);
+    }
+
+    /**
+     * Calls a function on a batch of rows, with the same outcome as calling it on each row: rows with an error among
+     * their arguments evaluate to that error, and the other ones are passed to {@link Function#callBatch}. If that
+     * throws, the rows are called one at a time so that the exception only affects the row which raised it.
+     */
+    static void callBatch(Function function, Properties bindings, Object[][] argColumns, int n, Object[] out) {
+        int[] rows = null;
+        int rowCount = 0;
+        for (int i = 0; i < n; i++) {
+            Object error = null;
+            for (Object[] column : argColumns) {
+                if (ExpressionUtils.isError(column[i])) {
+                    error = column[i];
+                    break;
+                }
+            }
+            if (error != null) {
+                if (rows == null) {
+                    // first error: the rows before it are all valid
+                    rows = new int[n];
+                    for (int k = 0; k < i; k++) {
+                        rows[k] = k;
+                    }
+                    rowCount = i;
+                }
+                out[i] = error;
+            } else if (rows != null) {
+                rows[rowCount++] = i;
+            }
+        }
+
+        if (rows == null) {
+            callBatchOrEachRow(function, bindings, argColumns, n, out);
+        } else if (rowCount > 0) {
+            Object[][] validColumns = new Object[argColumns.length][rowCount];
+            for (int j = 0; j < argColumns.length; j++) {
+                for (int k = 0; k < rowCount; k++) {
+                    validColumns[j][k] = argColumns[j][rows[k]];
+                }
+            }
+            Object[] validOut = new Object[rowCount];
+            callBatchOrEachRow(function, bindings, validColumns, rowCount, validOut);
+            for (int k = 0; k < rowCount; k++) {
+                out[rows[k]] = validOut[k];
+            }
+        }
+    }
+
+    static private void callBatchOrEachRow(Function function, Properties bindings, Object[][] argColumns, int n, Object[] out) {
+        try {
+            function.callBatch(bindings, argColumns, n, out);
+        } catch (Exception batchException) {
+            for (int i = 0; i < n; i++) {
+                Object[] args = new Object[argColumns.length];
+                for (int j = 0; j < argColumns.length; j++) {
+                    args[j] = argColumns[j][i];
+                }
+                try {
+                    out[i] = function.call(bindings, args);
+                } catch (Exception e) {
+                    out[i] = new EvalError(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected Evaluable compile() {
+        Evaluable[] args = compile(_args);
+        if (args.length == 1) {
+            return new CompiledNode.FunctionCall1(this, _function, args[0]);
+        } else if (args.length == 2) {
+            return new CompiledNode.FunctionCall2(this, _function, args[0], args[1]);
+        }
+        return new FunctionCallExpr(args, _function, _functionName, _fluentStyle);
+    }
+
+    @Override
+    public boolean dependsOnlyOnValue() {
+        return _function.isPure() && dependOnlyOnValue(_args);
+    }
+
+    @Override
+    public boolean isPure() {
+        return _function.isPure() && arePure(_args);
+    }
+
     @Override
     public final Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
         // special case to handle "get(cells, "foo")" which only depends on the "foo" column
@@ -18,7 +18,56 @@ abstract class GrelExpr implements Evaluable {
         return MetaParser.GREL_LANGUAGE_CODE;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        // functions and controls are singletons shared by all expressions: they keep their state in the bindings, and
+        // their shared objects, such as encoders or caches, are safely published and thread safe
+        return true;
+    }
+
     // make sure all subclasses implement this method
     @Override
     public abstract Evaluable renameColumnDependencies(Map<String, String> substitutions);
+
+    /**
+     * Returns an expression which evaluates to the same values as this one, but faster. It is only meant to be
+     * evaluated: its other methods may not behave as the ones of this expression. See {@link CompiledExpr}.
+     */
+    protected Evaluable compile() {
+        return this;
+    }
+
+    static protected Evaluable compile(Evaluable expression) {
+        return expression instanceof GrelExpr ? ((GrelExpr) expression).compile() : expression;
+    }
+
+    static protected Evaluable[] compile(Evaluable[] expressions) {
+        Evaluable[] compiled = new Evaluable[expressions.length];
+        for (int i = 0; i < expressions.length; i++) {
+            compiled[i] = compile(expressions[i]);
+        }
+        return compiled;
+    }
+
+    static protected boolean dependOnlyOnValue(Evaluable[] expressions) {
+        for (Evaluable expression : expressions) {
+            if (!expression.dependsOnlyOnValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static protected boolean arePure(Evaluable[] expressions) {
+        for (Evaluable expression : expressions) {
+            if (!expression.isPure()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static protected boolean isConstant(Evaluable expression) {
+        return expression instanceof LiteralExpr || expression instanceof CompiledNode.Constant;
+    }
 }
@@ -75,6 +75,16 @@ public class LiteralExpr extends GrelExpr {
         return _value;
     }
 
+    @Override
+    public boolean dependsOnlyOnValue() {
+        return true;
+    }
+
+    @Override
+    public boolean isPure() {
+        return true;
+    }
+
     @Override
     public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
         return Optional.of(Collections.emptySet());
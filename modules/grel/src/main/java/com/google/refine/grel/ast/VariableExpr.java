@@ -40,6 +40,7 @@ import java.util.Properties;
 import java.util.Set;
 
 import com.google.refine.expr.Evaluable;
+import com.google.refine.expr.EvaluationContext;
 
 /**
  * An abstract syntax tree node encapsulating the retrieval of a variable's content.
@@ -61,6 +62,24 @@ public class VariableExpr extends GrelExpr {
         return bindings.get(_name);
     }
 
+    @Override
+    protected Evaluable compile() {
+        int slot = EvaluationContext.slotOf(_name);
+        return slot >= 0 ? new CompiledNode.SlotVariable(this, _name, slot) : this;
+    }
+
+    @Override
+    public boolean dependsOnlyOnValue() {
+        // the other variables are the constants bound by ExpressionUtils.createBindings
+        return "value".equals(_name) || "true".equals(_name) || "false".equals(_name) || "PI".equals(_name);
+    }
+
+    @Override
+    public boolean isPure() {
+        // the project gives access to more than its rows
+        return !"project".equals(_name);
+    }
+
     @Override
     public Optional<Set<String>> getColumnDependencies(Optional<String> baseColumn) {
         if (("value".equals(_name) || "cell".equals(_name) || "recon".equals(_name)) && baseColumn.isPresent()) {
@@ -2,7 +2,6 @@
 package com.google.refine.util;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 
 import com.google.common.base.Optional;
@@ -18,14 +17,20 @@ import com.optimaize.langdetect.text.TextObjectFactory;
 
 public class DetectLanguageUtils {
 
-    private static List<LanguageProfile> languageProfiles = new ArrayList<>();
+    private static List<LanguageProfile> languageProfiles = null;
+
+    // synchronized, as expressions can be evaluated by several threads at once
+    private static synchronized List<LanguageProfile> getLanguageProfiles() throws IOException {
+        if (languageProfiles == null) {
+            languageProfiles = new LanguageProfileReader().readAllBuiltIn();
+        }
+        return languageProfiles;
+    }
 
     public static Optional<LdLocale> detect(String text) throws IOException {
 
         // load the language profiles
-        if (languageProfiles.isEmpty()) {
-            languageProfiles = new LanguageProfileReader().readAllBuiltIn();
-        }
+        List<LanguageProfile> languageProfiles = getLanguageProfiles();
 
         // build language detector
         LanguageDetector languageDetector = LanguageDetectorBuilder.create(NgramExtractors.standard()).withProfiles(languageProfiles)
@@ -0,0 +1,123 @@
+package com.google.refine.expr;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.util.Properties;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import com.google.refine.grel.GrelTestBase;
+
+public class MetaParserTests extends GrelTestBase {
+
+    static class CountingParser implements LanguageSpecificParser {
+
+        int parseCount = 0;
+        final boolean cacheable;
+        final boolean threadSafe;
+
+        CountingParser(boolean cacheable, boolean threadSafe) {
+            this.cacheable = cacheable;
+            this.threadSafe = threadSafe;
+        }
+
+        @Override
+        public Evaluable parse(String source, String languagePrefix) throws ParsingException {
+            parseCount++;
+            return new Evaluable() {
+
+                @Override
+                public Object evaluate(Properties bindings) {
+                    return source;
+                }
+
+                @Override
+                public String getSource() {
+                    return source;
+                }
+
+                @Override
+                public String getLanguagePrefix() {
+                    return languagePrefix;
+                }
+
+                @Override
+                public boolean isThreadSafe() {
+                    return threadSafe;
+                }
+            };
+        }
+
+        @Override
+        public boolean isCacheable() {
+            return cacheable;
+        }
+    }
+
+    @AfterMethod
+    public void unregisterTestParser() {
+        MetaParser.unregisterLanguageParser("test");
+    }
+
+    @Test
+    public void testCachesGrelExpressions() throws ParsingException {
+        long hits = MetaParser.getCacheStats().hitCount();
+        Evaluable first = MetaParser.parse("value.trim()");
+
+        assertSame(MetaParser.parse("value.trim()"), first);
+        assertSame(MetaParser.parse("grel:value.trim()"), first);
+        assertNotSame(MetaParser.parse("value.trim( )"), first);
+        assertEquals(MetaParser.getCacheStats().hitCount(), hits + 2);
+    }
+
+    @Test(expectedExceptions = ParsingException.class)
+    public void testDoesNotCacheErrors() throws ParsingException {
+        try {
+            MetaParser.parse("value.trim(");
+        } catch (ParsingException e) {
+            // parsed again
+        }
+        MetaParser.parse("value.trim(");
+    }
+
+    @Test
+    public void testParsersOptIn() throws ParsingException {
+        CountingParser parser = new CountingParser(false, true);
+        MetaParser.registerLanguageParser("test", "Test", parser, "value");
+        MetaParser.parse("test:foo");
+        MetaParser.parse("test:foo");
+        assertEquals(parser.parseCount, 2);
+
+        parser = new CountingParser(true, true);
+        MetaParser.registerLanguageParser("test", "Test", parser, "value");
+        MetaParser.parse("test:foo");
+        assertSame(MetaParser.parse("test:foo"), MetaParser.parse("test:foo"));
+        assertEquals(parser.parseCount, 1);
+    }
+
+    @Test
+    public void testCachesExpressionsWhichAreNotThreadSafe() throws ParsingException {
+        CountingParser parser = new CountingParser(true, false);
+        MetaParser.registerLanguageParser("test", "Test", parser, "value");
+        Evaluable first = MetaParser.parse("test:foo");
+        assertSame(MetaParser.parse("test:foo"), first);
+        assertEquals(parser.parseCount, 1);
+        // still evaluated sequentially
+        assertFalse(first.isThreadSafe());
+    }
+
+    @Test
+    public void testRegisteringInvalidatesCache() throws ParsingException {
+        MetaParser.registerLanguageParser("test", "Test", new CountingParser(true, true), "value");
+        MetaParser.parse("test:foo");
+
+        CountingParser parser = new CountingParser(true, true);
+        MetaParser.registerLanguageParser("test", "Test", parser, "value");
+        assertEquals(MetaParser.parse("test:foo").evaluate(new Properties()), "foo");
+        assertEquals(parser.parseCount, 1);
+    }
+}
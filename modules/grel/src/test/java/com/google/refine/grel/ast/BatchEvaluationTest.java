@@ -0,0 +1,88 @@
+package com.google.refine.grel.ast;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Properties;
+
+import org.testng.annotations.Test;
+
+import com.google.refine.expr.EvalError;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.expr.EvaluationContext;
+import com.google.refine.expr.MemoizedEvaluable;
+import com.google.refine.expr.ParsingException;
+import com.google.refine.grel.Function;
+import com.google.refine.grel.Parser;
+
+public class BatchEvaluationTest {
+
+    static final String[] EXPRESSIONS = {
+            "value.trim().toLowercase().replace(\"a\", \"b\")",
+            "value.replace(/[0-9]/, \"#\").toUppercase()",
+            "value.contains(/b/)",
+            "value.startsWith(\" \") + value.endsWith(\"c\")",
+            "toNumber(value).round() + value.length()",
+            "value.toNumber().abs().floor() * 2 - value.toNumber().ceil()",
+            "if(value.length() > 3, value.split(\",\").length(), 0)",
+            "value + \" \" + 1 + 2",
+            "value.trim(\"extra\")",
+            "substring(value, 1, 3)",
+            "1 / 0",
+    };
+
+    static final Object[] VALUES = { " ABC ", "a, b ,c", "12", null, 3L, -2.5, "b1b2", new EvalError("error") };
+
+    @Test
+    public void testEvaluatesLikeEachValue() throws ParsingException {
+        for (String source : EXPRESSIONS) {
+            Evaluable ast = new Parser(source).getExpression();
+            assertTrue(ast.dependsOnlyOnValue(), source);
+            for (Evaluable evaluable : new Evaluable[] { ast, CompiledExpr.compile(ast), MemoizedEvaluable.memoize(ast) }) {
+                Object[] expected = new Object[VALUES.length];
+                for (int i = 0; i < VALUES.length; i++) {
+                    Properties bindings = new EvaluationContext();
+                    if (VALUES[i] != null) {
+                        bindings.put("value", VALUES[i]);
+                    }
+                    expected[i] = evaluable.evaluate(bindings);
+                }
+
+                Object[] actual = new Object[VALUES.length];
+                evaluable.evaluateBatch(new EvaluationContext(), VALUES, VALUES.length, actual);
+                for (int i = 0; i < VALUES.length; i++) {
+                    assertEquals(actual[i], expected[i], source + " on " + VALUES[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testFunctionExceptionsOnlyAffectTheirRow() {
+        Function function = new Function() {
+
+            @Override
+            public Object call(Properties bindings, Object[] args) {
+                if ("boom".equals(args[0])) {
+                    throw new IllegalStateException("boom");
+                }
+                return args[0];
+            }
+
+            @Override
+            public String getDescription() {
+                return null;
+            }
+
+            @Override
+            public String getReturns() {
+                return null;
+            }
+        };
+        Object[] out = new Object[3];
+        FunctionCallExpr.callBatch(function, new Properties(), new Object[][] { { "a", "boom", new EvalError("e") } }, 3, out);
+        assertEquals(out[0], "a");
+        assertTrue(out[1] instanceof EvalError);
+        assertEquals(out[2], new EvalError("e"));
+    }
+}
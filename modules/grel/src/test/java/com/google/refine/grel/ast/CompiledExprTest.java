@@ -0,0 +1,157 @@
+package com.google.refine.grel.ast;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import com.google.refine.expr.EvalError;
+import com.google.refine.expr.Evaluable;
+import com.google.refine.expr.EvaluationContext;
+import com.google.refine.expr.ParsingException;
+import com.google.refine.grel.Parser;
+
+public class CompiledExprTest {
+
+    static final String[] EXPRESSIONS = {
+            "value.trim().toLowercase().replace(\"a\", \"b\")",
+            "value + \" \" + 1 + 2",
+            "(1 + 2) * 3",
+            "if(value == \"abc\", \"yes\", \"no\")",
+            "forEach(value.split(\",\"), v, v.trim()).join(\"|\")",
+            "[1, 2, value].length()",
+            "cells.a.value.length()",
+            "value.foo.bar",
+            "1 / 0",
+            "value.unknownFunction()",
+            "substring(value, 1, 3)",
+            "toNumber(value) + 1",
+            "value < \"b\"",
+            // controls binding variables which are held in slots
+            "forEach(value.split(\",\"), value, value.trim())",
+            "with(value, cell, cell.length())",
+            "forEach([1, 2], columnName, columnName + 1)",
+            "forEachIndex(value.split(\",\"), rowIndex, row, rowIndex + row)",
+            "forNonBlank(value, cells, cells + \"!\", \"blank\")",
+            "forRange(0, 3, 1, project, project * 2)",
+            "filter(value.split(\",\"), value, value.trim() == \"b\")",
+    };
+
+    Properties bindings(Object value) {
+        Properties bindings = new Properties();
+        if (value != null) {
+            bindings.put("value", value);
+        }
+        return bindings;
+    }
+
+    @Test
+    public void testEvaluatesLikeInterpreter() throws ParsingException {
+        for (String source : EXPRESSIONS) {
+            Evaluable ast;
+            try {
+                ast = new Parser(source).getExpression();
+            } catch (ParsingException e) {
+                // unknown functions are rejected by the parser
+                continue;
+            }
+            Evaluable compiled = CompiledExpr.compile(ast);
+            for (Object value : new Object[] { " ABC ", "a, b ,c", "12", null, 3L }) {
+                Object expected = ast.evaluate(bindings(value));
+                Object actual = compiled.evaluate(bindings(value));
+                EvaluationContext context = new EvaluationContext();
+                context.putAll(bindings(value));
+                Object inContext = compiled.evaluate(context);
+                if (expected instanceof EvalError) {
+                    assertTrue(actual instanceof EvalError, source);
+                    assertTrue(inContext instanceof EvalError, source);
+                } else {
+                    assertEquals(actual, expected, source + " on " + value);
+                    assertEquals(inContext, expected, source + " on " + value);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testControlsBindingSlotVariables() throws ParsingException {
+        assertEquals(evaluateCompiled("forEach(value.split(','), value, value.trim())", "a, b"),
+                new Object[] { "a", "b" });
+        assertEquals(evaluateCompiled("with(value, cell, cell.length())", "abcd"), 4);
+        assertEquals(evaluateCompiled("forEach([1,2], columnName, columnName + 1)", "x"), new Object[] { 2L, 3L });
+        assertEquals(evaluateCompiled("forEachIndex(value.split(','), rowIndex, row, rowIndex)", "a,b"),
+                new Object[] { 0, 1 });
+        assertEquals(evaluateCompiled("forNonBlank(value, cells, cells.length(), 0)", "abc"), 3);
+        assertEquals(evaluateCompiled("forRange(0, 2, 1, project, project)", "x"), new Object[] { 0L, 1L });
+        assertEquals(evaluateCompiled("filter(value.split(','), value, value == 'b')", "a,b"), new Object[] { "b" });
+    }
+
+    private Object evaluateCompiled(String source, Object value) throws ParsingException {
+        Evaluable compiled = CompiledExpr.compile(new Parser(source).getExpression());
+        EvaluationContext context = new EvaluationContext();
+        context.putAll(bindings(value));
+        return compiled.evaluate(context);
+    }
+
+    @Test
+    public void testFoldsConstants() throws ParsingException {
+        Evaluable ast = new Parser("value + (1 + 2) * 3").getExpression();
+        CompiledExpr compiled = (CompiledExpr) CompiledExpr.compile(ast);
+        CompiledNode.BinaryOperator plus = (CompiledNode.BinaryOperator) compiled._compiled;
+        assertTrue(plus._right instanceof CompiledNode.Constant);
+        assertEquals(plus._right.evaluate(new Properties()), 9L);
+        assertEquals(compiled.evaluate(bindings(1L)), 10L);
+    }
+
+    @Test
+    public void testDoesNotFoldFailingOperators() throws ParsingException {
+        Evaluable parsed = Parser.grelParser.parse("1 % 0", "grel");
+        assertTrue(parsed instanceof CompiledExpr);
+        assertTrue(((CompiledExpr) parsed)._compiled instanceof CompiledNode.BinaryOperator);
+        assertThrows(ArithmeticException.class, () -> parsed.evaluate(bindings(null)));
+    }
+
+    @Test
+    public void testKeepsSyntaxTree() throws ParsingException {
+        String source = "value.trim() + cells[\"a\"].value";
+        Evaluable ast = new Parser(source).getExpression();
+        Evaluable compiled = CompiledExpr.compile(ast);
+
+        assertNotSame(compiled, ast);
+        assertEquals(compiled.getSource(), ast.getSource());
+        assertEquals(compiled.toString(), ast.toString());
+        assertEquals(compiled.getColumnDependencies(Optional.of("b")), ast.getColumnDependencies(Optional.of("b")));
+        assertEquals(compiled, CompiledExpr.compile(new Parser(source).getExpression()));
+
+        Evaluable renamed = compiled.renameColumnDependencies(Map.of("a", "c"));
+        assertTrue(renamed instanceof CompiledExpr);
+        assertEquals(renamed.getColumnDependencies(Optional.of("b")), Optional.of(Set.of("b", "c")));
+    }
+
+    @Test
+    public void testLeavesTrivialExpressions() throws ParsingException {
+        Evaluable variable = new Parser("value1").getExpression();
+        assertSame(CompiledExpr.compile(variable), variable);
+        Evaluable literal = new Parser("\"foo\"").getExpression();
+        assertSame(CompiledExpr.compile(literal), literal);
+    }
+
+    @Test
+    public void testParserCompiles() throws ParsingException {
+        assertTrue(Parser.grelParser.parse("value.trim()", "grel") instanceof CompiledExpr);
+        System.setProperty(CompiledExpr.COMPILE_PROPERTY, "false");
+        try {
+            assertTrue(Parser.grelParser.parse("value.trim()", "grel") instanceof FunctionCallExpr);
+        } finally {
+            System.clearProperty(CompiledExpr.COMPILE_PROPERTY);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.google.refine.grel.ast;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+import com.google.refine.expr.MetaParser;
+import com.google.refine.expr.ParsingException;
+import com.google.refine.grel.GrelTestBase;
+
+public class ValueDependencyTest extends GrelTestBase {
+
+    void assertDependsOnlyOnValue(String source, boolean expected) throws ParsingException {
+        assertEquals(MetaParser.parse(source).dependsOnlyOnValue(), expected, source);
+    }
+
+    @Test
+    public void testPureExpressions() throws ParsingException {
+        assertDependsOnlyOnValue("value", true);
+        assertDependsOnlyOnValue("\"foo\"", true);
+        assertDependsOnlyOnValue("value.toDate()", true);
+        assertDependsOnlyOnValue("value.fingerprint()", true);
+        assertDependsOnlyOnValue("value.replace(/a+/, \"x\")", true);
+        assertDependsOnlyOnValue("(value + 1) * PI", true);
+        assertDependsOnlyOnValue("if(isBlank(value), \"none\", value.trim())", true);
+        assertDependsOnlyOnValue("[value, 1].join(\",\")", true);
+        assertDependsOnlyOnValue("value.parseJson().foo", true);
+    }
+
+    @Test
+    public void testOtherExpressions() throws ParsingException {
+        assertDependsOnlyOnValue("cells.foo.value", false);
+        assertDependsOnlyOnValue("rowIndex", false);
+        assertDependsOnlyOnValue("value + row.index", false);
+        assertDependsOnlyOnValue("now()", false);
+        assertDependsOnlyOnValue("value + random()", false);
+        assertDependsOnlyOnValue("value.cross(\"project\", \"column\")", false);
+        // controls binding variables are not analyzed
+        assertDependsOnlyOnValue("forEach(value.split(\",\"), v, v.trim())", false);
+        assertDependsOnlyOnValue("if(value == \"a\", cell.recon, value)", false);
+    }
+
+    void assertPure(String source, boolean expected) throws ParsingException {
+        assertEquals(MetaParser.parse(source).isPure(), expected, source);
+    }
+
+    @Test
+    public void testPurity() throws ParsingException {
+        assertPure("value.trim()", true);
+        assertPure("cells.foo.value + rowIndex", true);
+        assertPure("forEach(value.split(\",\"), v, v.trim())", true);
+        assertPure("now()", false);
+        assertPure("value + random()", false);
+        assertPure("value.cross(\"project\", \"column\")", false);
+        assertPure("forEach(value.split(\",\"), v, v.cross(\"project\", \"column\"))", false);
+        assertPure("project", false);
+    }
+}